@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package agents.firm.production.technology;
+
+import agents.firm.Firm;
+import goods.DifferentiatedGoodType;
+import model.MacroII;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The value of all the machinery in the economy: summed over the registry columns, and by visiting each machine (in no
+ * particular order, as they'd be found going through firms and plants).
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapitalRegistryBenchmark {
+
+    @Param({"1000","100000"})
+    public int machines;
+
+    private CapitalRegistry registry;
+
+    private List<Machinery> machinery;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        MacroII model = new MacroII(0);
+        Firm firm = new Firm(model);
+        DifferentiatedGoodType capital = new DifferentiatedGoodType("benchmarkCapital","benchmark capital",true,false);
+        machinery = new ArrayList<>(machines);
+        for(int i=0; i<machines; i++)
+        {
+            Machinery machine = new CRSExponentialMachinery(capital, firm, i % 100, null, 1f);
+            machine.setLastValidPrice(i % 37);
+            machinery.add(machine);
+        }
+        Collections.shuffle(machinery, new Random(0));
+        registry = model.getCapitalRegistry();
+    }
+
+    @Benchmark
+    public long registryTotalValue()
+    {
+        return registry.getTotalValue();
+    }
+
+    @Benchmark
+    public long visitEachMachine()
+    {
+        long total = 0;
+        for(Machinery machine : machinery)
+            total += machine.getLastValidPrice();
+        return total;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package agents.firm.utilities;
+
+import goods.GoodType;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> One day of bookkeeping for one agent: it buys, produces and consumes a few hundred units of three goods one by one
+ * and then dawn comes.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DailyProductionAndConsumptionCounterBenchmark {
+
+    /**
+     * units of each good moved in a day
+     */
+    @Param({"200"})
+    public int unitsPerDay;
+
+    private final GoodType[] types = {
+            new UndifferentiatedGoodType("benchmarkInput","benchmark input"),
+            new UndifferentiatedGoodType("benchmarkOutput","benchmark output"),
+            UndifferentiatedGoodType.LABOR
+    };
+
+    private DailyProductionAndConsumptionCounter counter;
+
+    private MacroII model;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        counter = new DailyProductionAndConsumptionCounter();
+        model = new MacroII(0);
+    }
+
+    @Benchmark
+    public int oneDay()
+    {
+        for(int i=0; i<unitsPerDay; i++)
+            for(GoodType type : types)
+            {
+                counter.countNewReceive(type);
+                counter.countNewProduction(type);
+                counter.countNewConsumption(type);
+            }
+        counter.step(model);
+        return counter.getYesterdayConsumption(types[0]);
+    }
+}
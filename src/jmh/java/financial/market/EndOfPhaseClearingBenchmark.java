@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import goods.Good;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import model.scenario.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A day of an order book market cleared at the end of the TRADE phase, where "depth" bids and "depth" asks all cross.
+ * With singlePass false the handler matches a pair and reschedules itself, so the day costs "depth" trips through the scheduler;
+ * with singlePass true it is a call auction clearing everything in one step.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndOfPhaseClearingBenchmark {
+
+    /**
+     * how many quotes on each side of the book
+     */
+    @Param({"10","100","1000"})
+    public int depth;
+
+    @Param({"false","true"})
+    public boolean singlePass;
+
+    private MacroII model;
+
+    private OrderBookMarket market;
+
+    private OrderBookMarketBenchmark.Trader buyer;
+
+    private OrderBookMarketBenchmark.Trader seller;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        model = new MacroII(0);
+        market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                getMarkets().put(UndifferentiatedGoodType.GENERIC, market);
+            }
+        });
+        model.start();
+        EndOfPhaseOrderHandler handler = new EndOfPhaseOrderHandler();
+        handler.setSinglePass(singlePass);
+        market.setOrderHandler(handler,model);
+
+        buyer = new OrderBookMarketBenchmark.Trader(model);
+        seller = new OrderBookMarketBenchmark.Trader(model);
+        buyer.receiveMany(market.getMoney(), Integer.MAX_VALUE / 2);
+        market.registerBuyer(buyer);
+        market.registerSeller(seller);
+    }
+
+    /**
+     * fill the book again, giving back the money to the buyer
+     */
+    @Setup(Level.Invocation)
+    public void fillTheBook()
+    {
+        int spent = seller.hasHowMany(market.getMoney());
+        if(spent > 0)
+            seller.deliverMany(market.getMoney(), buyer, spent);
+
+        seller.receiveMany(UndifferentiatedGoodType.GENERIC, depth);
+        Good good = seller.peekGood(UndifferentiatedGoodType.GENERIC);
+        for(int i=0; i<depth; i++)
+        {
+            market.submitBuyQuote(buyer, 101 + model.random.nextInt(100));
+            market.submitSellQuote(seller, model.random.nextInt(100), good);
+        }
+    }
+
+    @Benchmark
+    public int clearOneDay()
+    {
+        model.schedule.step(model);
+        return market.getTodayVolume();
+    }
+}
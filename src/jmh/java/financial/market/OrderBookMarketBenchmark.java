@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import agents.EconomicAgent;
+import agents.people.Person;
+import financial.utilities.Quote;
+import goods.Good;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import model.scenario.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The order book with "depth" quotes resting on each side that never cross (bids below 100, asks above 100).
+ * <ul>
+ *     <li>submitAndCancel: a new bid goes in and comes out again, which is what most quotes do during a day</li>
+ *     <li>submitAndMatch: an ask at 100 and a bid crossing it; the market is immediate so the trade happens right away</li>
+ * </ul>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookMarketBenchmark {
+
+    private static final int PRICES = 1024;
+
+    /**
+     * how many quotes rest on each side of the book
+     */
+    @Param({"10","1000"})
+    public int depth;
+
+    private OrderBookMarket market;
+
+    private Trader buyer;
+
+    private Trader seller;
+
+    /**
+     * bid prices, all below the asks
+     */
+    private int[] bidPrices;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final MacroII model = new MacroII(0);
+        market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                getMarkets().put(UndifferentiatedGoodType.GENERIC, market);
+            }
+        });
+        model.start();
+        market.setOrderHandler(new ImmediateOrderHandler(),model);
+
+        buyer = new Trader(model);
+        seller = new Trader(model);
+        buyer.receiveMany(market.getMoney(), Integer.MAX_VALUE / 2);
+        market.registerBuyer(buyer);
+        market.registerSeller(seller);
+
+        seller.receiveMany(UndifferentiatedGoodType.GENERIC, depth);
+        Good good = seller.peekGood(UndifferentiatedGoodType.GENERIC);
+        for(int i=0; i<depth; i++)
+        {
+            market.submitBuyQuote(buyer, model.random.nextInt(100));
+            market.submitSellQuote(seller, 101 + model.random.nextInt(100), good);
+        }
+
+        bidPrices = new int[PRICES];
+        for(int i=0; i<PRICES; i++)
+            bidPrices[i] = model.random.nextInt(100);
+    }
+
+    /**
+     * give back to the buyer the money it spent, so that it never goes bankrupt
+     */
+    @Setup(Level.Iteration)
+    public void refund()
+    {
+        int spent = seller.hasHowMany(market.getMoney());
+        if(spent > 0)
+            seller.deliverMany(market.getMoney(), buyer, spent);
+    }
+
+    /**
+     * a person that doesn't care about its filled quotes
+     */
+    static class Trader extends Person
+    {
+        private static final long serialVersionUID = 1L;
+
+        Trader(MacroII model) {
+            super(model);
+        }
+
+        @Override
+        public void reactToFilledBidQuote(Quote quoteFilled, Good g, int price, EconomicAgent seller) {
+        }
+
+        @Override
+        public void reactToFilledAskedQuote(Quote quoteFilled, Good g, int price, EconomicAgent buyer) {
+        }
+    }
+
+    @Benchmark
+    public int submitAndCancel()
+    {
+        Quote bid = market.submitBuyQuote(buyer, bidPrices[next]);
+        next = (next + 1) % PRICES;
+        market.removeBuyQuote(bid);
+        return bid.getPriceQuoted();
+    }
+
+    @Benchmark
+    public int submitAndMatch()
+    {
+        seller.receiveMany(UndifferentiatedGoodType.GENERIC, 1);
+        market.submitSellQuote(seller, 100, seller.peekGood(UndifferentiatedGoodType.GENERIC));
+        market.submitBuyQuote(buyer, 150);
+        return market.getTodayVolume();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package goods;
+
+import agents.people.Person;
+import model.MacroII;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Two agents passing goods back and forth: each invocation is one deliver and one receive on both sides.
+ * Undifferentiated goods only move a counter, differentiated goods are stored one by one.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+
+    /**
+     * how many goods each agent holds
+     */
+    @Param({"10","1000"})
+    public int goodsOwned;
+
+    private final DifferentiatedGoodType differentiated = new DifferentiatedGoodType("benchmark","benchmark good");
+
+    private final UndifferentiatedGoodType undifferentiated = new UndifferentiatedGoodType("benchmarkU","benchmark undifferentiated good");
+
+    private Person first;
+
+    private Person second;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        MacroII model = new MacroII(0);
+        first = new Person(model);
+        second = new Person(model);
+        first.receiveMany(undifferentiated, goodsOwned);
+        second.receiveMany(undifferentiated, goodsOwned);
+        for(int i=0; i<goodsOwned; i++)
+        {
+            first.receive(Good.getInstanceOfDifferentiatedGood(differentiated,first,i),null);
+            second.receive(Good.getInstanceOfDifferentiatedGood(differentiated,second,i),null);
+        }
+    }
+
+    @Benchmark
+    public int undifferentiatedRoundTrip()
+    {
+        first.deliver(undifferentiated,second,1);
+        second.deliver(undifferentiated,first,1);
+        return first.hasHowMany(undifferentiated);
+    }
+
+    @Benchmark
+    public int differentiatedRoundTrip()
+    {
+        first.deliver(differentiated,second,1);
+        second.deliver(differentiated,first,1);
+        return first.hasHowMany(differentiated);
+    }
+}
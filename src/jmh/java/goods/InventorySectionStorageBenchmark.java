@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package goods;
+
+import ec.util.MersenneTwisterFast;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A seller holding many differentiated goods sells a specific one (check it's there, take it out) and gets another in,
+ * with the storage we use and with the linked list it used to be.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventorySectionStorageBenchmark {
+
+    @Param({"10","1000","100000"})
+    public int goodsOwned;
+
+    private final DifferentiatedGoodType type = new DifferentiatedGoodType("benchmarkStorage","benchmark good");
+
+    private InventorySectionStorage storage;
+
+    private LinkedList<Good> list;
+
+    /**
+     * what's stored, to pick from
+     */
+    private List<Good> goods;
+
+    private MersenneTwisterFast random;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        storage = new InventorySectionStorage(type);
+        list = new LinkedList<>();
+        goods = new ArrayList<>(goodsOwned);
+        for(int i=0; i<goodsOwned; i++)
+        {
+            Good good = Good.getInstanceOfDifferentiatedGood(type, null, i);
+            goods.add(good);
+            storage.store(good);
+            list.add(good);
+        }
+        random = new MersenneTwisterFast(0);
+    }
+
+    @Benchmark
+    public int storageSellsASpecificGood()
+    {
+        Good sold = goods.get(random.nextInt(goodsOwned));
+        if(storage.containSpecificGood(sold))
+            storage.remove(sold);
+        storage.store(sold);
+        return storage.size();
+    }
+
+    @Benchmark
+    public int listSellsASpecificGood()
+    {
+        Good sold = goods.get(random.nextInt(goodsOwned));
+        if(list.contains(sold))
+            list.remove(sold);
+        list.add(sold);
+        return list.size();
+    }
+}
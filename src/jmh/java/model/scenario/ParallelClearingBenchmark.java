@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.scenario;
+
+import financial.market.EndOfPhaseOrderHandler;
+import financial.market.OrderBookMarket;
+import goods.GoodType;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import model.utilities.dummies.Customer;
+import model.utilities.dummies.DailyGoodTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Days per second of the scenarios with more than one end-of-phase market, with their markets cleared one after the other
+ * by their own handlers or all together by a {@link financial.market.ParallelMarketClearing}. Burned in like
+ * {@link ScenarioDaysBenchmark}.
+ * <p/> The markets of the one link supply chain and of farmers and workers are all linked through some firm, so they end up in
+ * one group: those two only measure what parallel clearing costs. "independentMarkets" is a few markets with nobody in
+ * common, which is where clearing them at the same time can pay.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelClearingBenchmark {
+
+    private static final int BURN_IN = 100;
+
+    @Param({"oneLink","farmersAndWorkers","independentMarkets"})
+    public String scenario;
+
+    @Param({"false","true"})
+    public boolean parallel;
+
+    private MacroII model;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        model = new MacroII(0);
+        model.setParallelClearing(parallel);
+        switch (scenario)
+        {
+            case "oneLink":
+                model.setScenario(new OneLinkSupplyChainScenario(model));
+                break;
+            case "farmersAndWorkers":
+                model.setScenario(new FarmersAndWorkersScenario(model));
+                break;
+            case "independentMarkets":
+                model.setScenario(new IndependentMarketsScenario(model));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown scenario " + scenario);
+        }
+        model.start();
+        for(int i=0; i<BURN_IN; i++)
+            model.schedule.step(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        model.finish();
+    }
+
+    /**
+     * one day; the score is in days per second
+     */
+    @Benchmark
+    public double stepOneDay()
+    {
+        model.schedule.step(model);
+        return model.schedule.getTime();
+    }
+
+    /**
+     * eight end of phase markets, each with its own 200 customers and a tree, sharing no agent
+     */
+    private static class IndependentMarketsScenario extends Scenario
+    {
+        private IndependentMarketsScenario(MacroII model) {
+            super(model);
+        }
+
+        @Override
+        public void start() {
+            for(int m=0; m<8; m++)
+            {
+                GoodType type = m == 0 ? UndifferentiatedGoodType.GENERIC :
+                        new UndifferentiatedGoodType("benchmark" + m, "benchmark good " + m);
+                OrderBookMarket market = new OrderBookMarket(type);
+                market.setOrderHandler(new EndOfPhaseOrderHandler(), getModel());
+                getMarkets().put(type, market);
+                for (int i = 0; i < 200; i++)
+                    getAgents().add(new Customer(getModel(), 50 + i, market));
+                getAgents().add(new DailyGoodTree(getModel(), 100, 100, market));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.scenario;
+
+import model.MacroII;
+import model.scenario.oil.OilDistributorScenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> End to end: how many days per second a whole scenario runs. The model is started and burned in before measuring
+ * so that the numbers are about a market that is already trading rather than about start-up.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScenarioDaysBenchmark {
+
+    private static final int BURN_IN = 100;
+
+    @Param({"monopolist","tripolist","oil"})
+    public String scenario;
+
+    private MacroII model;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        model = new MacroII(0);
+        switch (scenario)
+        {
+            case "monopolist":
+                model.setScenario(new MonopolistScenario(model));
+                break;
+            case "tripolist":
+                model.setScenario(new TripolistScenario(model));
+                break;
+            case "oil":
+                model.setScenario(new OilDistributorScenario(model));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown scenario " + scenario);
+        }
+        model.start();
+        for(int i=0; i<BURN_IN; i++)
+            model.schedule.step(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        model.finish();
+    }
+
+    /**
+     * one day; the score is in days per second
+     */
+    @Benchmark
+    public double stepOneDay()
+    {
+        model.schedule.step(model);
+        return model.schedule.getTime();
+    }
+}
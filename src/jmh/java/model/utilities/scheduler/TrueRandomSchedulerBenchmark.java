@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import ec.util.MersenneTwisterFast;
+import model.MacroII;
+import model.utilities.ActionOrder;
+import org.openjdk.jmh.annotations.*;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> How long does the scheduler take to go through a day when there are 1k, 10k or 100k steppables acting every day?
+ * The steppables do nothing but count, so this is all scheduler overhead: shuffling, bucketing and rescheduling.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrueRandomSchedulerBenchmark {
+
+    @Param({"1000","10000","100000"})
+    public int steppables;
+
+    private TrueRandomScheduler scheduler;
+
+    private MacroII model;
+
+    private int counter = 0;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        model = new MacroII(0);
+        //the model never starts, so its time is before the epoch: with negative simulation days the scheduler
+        //never puts itself back on the mason schedule and the benchmark doesn't fill it up
+        scheduler = new TrueRandomScheduler(-2,new MersenneTwisterFast(0));
+        final ActionOrder[] phases = ActionOrder.values();
+        Steppable counting = new Steppable() {
+            @Override
+            public void step(SimState simState) {
+                counter++;
+            }
+        };
+        for(int i=0; i<steppables; i++)
+            scheduler.scheduleEveryDay(phases[i % phases.length],counting);
+    }
+
+    @Benchmark
+    public int stepOneDay()
+    {
+        scheduler.step(model);
+        return counter;
+    }
+
+    /**
+     * the old way: every steppable reschedules itself tomorrow
+     */
+    @State(Scope.Thread)
+    public static class SelfRescheduling
+    {
+        @Param({"1000","10000","100000"})
+        public int steppables;
+
+        private TrueRandomScheduler scheduler;
+
+        private MacroII model;
+
+        private int counter = 0;
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            model = new MacroII(0);
+            scheduler = new TrueRandomScheduler(-2,new MersenneTwisterFast(0));
+            final ActionOrder[] phases = ActionOrder.values();
+            for(int i=0; i<steppables; i++)
+            {
+                final ActionOrder phase = phases[i % phases.length];
+                scheduler.scheduleSoon(phase, new Steppable() {
+                    @Override
+                    public void step(SimState simState) {
+                        counter++;
+                        scheduler.scheduleTomorrow(phase,this);
+                    }
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public int stepOneDaySelfRescheduling(SelfRescheduling state)
+    {
+        state.scheduler.step(state.model);
+        return state.counter;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.stats.regression;
+
+import ec.util.MersenneTwisterFast;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Cost of a single observation in the kalman regression, which every predictor calls at least once a day.
+ * The observations are drawn before the benchmark from a noisy line so that the regression is doing its real work.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KalmanRecursiveRegressionBenchmark {
+
+    private static final int OBSERVATIONS = 1024;
+
+    /**
+     * how many regressors, intercept included
+     */
+    @Param({"2","3"})
+    public int dimensions;
+
+    private KalmanRecursiveRegression regression;
+
+    private double[] ys;
+
+    private double[][] xs;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        ys = new double[OBSERVATIONS];
+        xs = new double[OBSERVATIONS][dimensions];
+        for(int i=0; i<OBSERVATIONS; i++)
+        {
+            xs[i][0] = 1;
+            double y = 10;
+            for(int j=1; j<dimensions; j++)
+            {
+                xs[i][j] = random.nextDouble() * 100;
+                y += j * xs[i][j];
+            }
+            ys[i] = y + random.nextGaussian();
+        }
+        regression = new KalmanRecursiveRegression(dimensions);
+    }
+
+    @Benchmark
+    public double[] addObservation()
+    {
+        regression.addObservation(1, ys[next], xs[next]);
+        next = (next + 1) % OBSERVATIONS;
+        return regression.getBeta();
+    }
+}
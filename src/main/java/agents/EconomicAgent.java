@@ -148,8 +148,16 @@ public abstract class EconomicAgent implements Agent, HasInventory, LogNode
     }
 
 
+    /**
+     * the market filled one of our asks
+     * @param quoteFilled the ask; if it crossed as it was submitted the market may reuse it once this returns, so don't keep it
+     */
     abstract  public void reactToFilledAskedQuote(Quote quoteFilled, Good g, int price, EconomicAgent buyer);
 
+    /**
+     * the market filled one of our bids
+     * @param quoteFilled the bid; if it crossed as it was submitted the market may reuse it once this returns, so don't keep it
+     */
     abstract public void reactToFilledBidQuote(Quote quoteFilled, Good g, int price, EconomicAgent seller);
 
 
@@ -300,6 +308,23 @@ public abstract class EconomicAgent implements Agent, HasInventory, LogNode
         return getInventory().removeListener(listener);
     }
 
+    /**
+     * Add an inventory listener that is only told the net change of each good type, at the end of each phase (see
+     * {@link goods.Inventory#addCoalescedListener(InventoryListener)} for when exactly)
+     */
+    @Override
+    public void addCoalescedInventoryListener(InventoryListener listener) {
+        getInventory().addCoalescedListener(listener);
+    }
+
+    /**
+     * Tell the coalesced inventory listeners now what changed since they were last told, without waiting for the phase to end
+     */
+    @Override
+    public void flushCoalescedInventoryEvents() {
+        getInventory().flushCoalescedEvents();
+    }
+
 
     /**
      * Called by a buyer that wants to buy directly from this agent, not going through the market.
@@ -368,14 +393,14 @@ public abstract class EconomicAgent implements Agent, HasInventory, LogNode
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewReceive(GoodType type, Integer n) {
+    public void countNewReceive(GoodType type, int n) {
         counter.countNewReceive(type, n);
     }
 
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewConsumption(GoodType type, Integer n) {
+    public void countNewConsumption(GoodType type, int n) {
         counter.countNewConsumption(type, n);
     }
 
@@ -410,7 +435,7 @@ public abstract class EconomicAgent implements Agent, HasInventory, LogNode
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewProduction(GoodType type, Integer n) {
+    public void countNewProduction(GoodType type, int n) {
         counter.countNewProduction(type, n);
     }
 
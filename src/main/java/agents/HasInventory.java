@@ -31,6 +31,16 @@ public interface HasInventory {
      */
     public boolean removeInventoryListener(InventoryListener listener);
 
+    /**
+     * Add an inventory listener that is only told the net change of each good type, once at the end of each phase
+     */
+    public void addCoalescedInventoryListener(InventoryListener listener);
+
+    /**
+     * Tell the coalesced inventory listeners now what changed since they were last told, without waiting for the phase to end
+     */
+    public void flushCoalescedInventoryEvents();
+
 
     /**
      * This method is called when inventory has to increase by 1. The reference to the sender is for accounting purpose only
@@ -128,7 +128,7 @@ public class Firm extends EconomicAgent  {
         profitReport = new DailyProfitReport(this);
         //create the timeline manager
 
-        if(MacroII.hasGUI()){
+        if(model.hasGUI()){
             //build the inspector
             buildInspector();
         }
@@ -222,8 +222,8 @@ public class Firm extends EconomicAgent  {
 
         //if it's ready start it!
         if(p.getStatus() == PlantStatus.READY)
-            //schedule yourself for production
-            model.scheduleSoon(ActionOrder.PRODUCTION, p);
+            //schedule the plant for production, every day
+            p.produceEveryDay();
 
     }
 
@@ -334,7 +334,7 @@ public class Firm extends EconomicAgent  {
 
     @Override
     public MersenneTwisterFast getRandom() {
-        return model.random;
+        return model.getRandom();
     }
 
     @Override
@@ -785,12 +785,12 @@ public class Firm extends EconomicAgent  {
      */
     public void buildInspector(){
 
-        assert MacroII.hasGUI();
+        assert getModel().hasGUI();
 
 
 
 
-        assert MacroII.hasGUI();
+        assert getModel().hasGUI();
         firmInspector = new TabbedInspector(false);
 
 
@@ -25,6 +25,7 @@ import goods.InventoryListener;
 import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.logs.*;
+import model.utilities.scheduler.RecurringAction;
 import model.utilities.stats.collectors.ConsumptionData;
 import model.utilities.stats.collectors.PlantData;
 import model.utilities.stats.collectors.ProductionData;
@@ -183,6 +184,11 @@ public class Plant implements Agent, InventoryListener, LogNode {
      */
     private ConsumptionData consumptionData;
 
+    /**
+     * the handle of the daily production step, null until produceEveryDay() is called
+     */
+    private RecurringAction dailyProduction;
+
     /**
      * Get the simulation randomizer from the owner.
      */
@@ -468,8 +474,17 @@ public class Plant implements Agent, InventoryListener, LogNode {
 
 
         }
+    }
 
-        model.scheduleTomorrow(ActionOrder.PRODUCTION,this);
+    /**
+     * registers the plant to be stepped every day at PRODUCTION. The owner calls this once the plant is ready; calling it again
+     * while the plant is already producing does nothing
+     */
+    public void produceEveryDay()
+    {
+        if(dailyProduction != null && !dailyProduction.isCancelled())
+            return;
+        dailyProduction = model.scheduleEveryDay(ActionOrder.PRODUCTION,this);
     }
 
     /**
@@ -664,6 +679,9 @@ public class Plant implements Agent, InventoryListener, LogNode {
      * @param plantMachinery the technology used for production at the plant
      */
     public void setPlantMachinery(Machinery plantMachinery) {
+        //the machine replaced is gone, it stops counting as capital
+        if(this.plantMachinery != null && this.plantMachinery != plantMachinery)
+            this.plantMachinery.retire();
         this.plantMachinery = plantMachinery;
         //tell the listeners
         for(PlantListener l : listeners)
@@ -824,6 +842,9 @@ public class Plant implements Agent, InventoryListener, LogNode {
      */
     public void turnOff()
     {
+        //stop producing
+        if(dailyProduction != null)
+            dailyProduction.cancel();
         //turn off the cost
         costStrategy.turnOff();
         //fire everyone.
@@ -837,6 +858,9 @@ public class Plant implements Agent, InventoryListener, LogNode {
         productionData.turnOff();
         consumptionData.turnOff();
         counter.turnOff();
+        //the machinery goes with the plant
+        if(plantMachinery != null)
+            plantMachinery.retire();
         //log off
         logNode.turnOff();
 
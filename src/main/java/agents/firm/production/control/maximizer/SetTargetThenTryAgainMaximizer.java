@@ -12,6 +12,7 @@ import agents.firm.production.control.PlantControl;
 import agents.firm.production.control.maximizer.algorithms.WorkerMaximizationAlgorithm;
 import agents.firm.production.control.maximizer.algorithms.WorkerMaximizationAlgorithmFactory;
 import agents.firm.production.technology.Machinery;
+import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.logs.LogEvent;
 import model.utilities.logs.LogLevel;
@@ -188,7 +189,7 @@ public class SetTargetThenTryAgainMaximizer<ALG extends WorkerMaximizationAlgori
 
         //you are going to run this again in a week (with slight noise)
         int nextCheck;
-        nextCheck = 7 + (state.random.nextInt(6) -3) ;    assert nextCheck > 0;
+        nextCheck = 7 + (((MacroII) state).getRandom().nextInt(6) -3) ;    assert nextCheck > 0;
 
 
         //if you haven't achieved your worker objective you can't really make a judgment so just try again in next week
@@ -13,7 +13,6 @@ import financial.MarketEvents;
 import agents.firm.production.Plant;
 import agents.firm.production.control.PlantControl;
 import agents.firm.production.technology.Machinery;
-import model.MacroII;
 import model.utilities.ActionOrder;
 import sim.engine.SimState;
 import sim.engine.Steppable;
@@ -185,7 +184,7 @@ public class MarketLookTargeter implements WorkforceTargeter {
             while(hr.getPlant().getNumberOfWorkers() > 0)
             {
                 hr.getPlant().removeLastWorker();
-                if(MacroII.hasGUI())
+                if(hr.getFirm().getModel().hasGUI())
 
                     hr.getFirm().logEvent(hr,
                         MarketEvents.LOST_WORKER, hr.getFirm().getModel().getCurrentSimulationTimeInMillis(),
@@ -13,7 +13,6 @@ import agents.firm.production.technology.Machinery;
 import agents.people.Person;
 import com.google.common.base.Preconditions;
 import financial.MarketEvents;
-import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.pid.PIDController;
 import model.utilities.scheduler.Priority;
@@ -184,7 +183,7 @@ public class PIDTargeterWithQuickFiring implements WorkforceTargeter, Steppable
             plantControl.setCurrentWage(newWage); //set the new wage! that'll do it!
 
             //log it!
-            if(MacroII.hasGUI())
+            if(hr.getFirm().getModel().hasGUI())
 
                 hr.getFirm().logEvent(hr,
                         MarketEvents.CHANGE_IN_POLICY,
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package agents.firm.production.technology;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The machinery of a model, column by column: each machine gets a slot and its purchase cost and last price live in
+ * plain int arrays at that slot. {@link Machinery} reads and writes its own slot; whoever needs the whole economy's capital
+ * (total purchase cost, total value) gets it with a loop over the arrays instead of visiting every machine.
+ * <p/> Retired machines have their slot zeroed (so the totals skip them without checking) and the slot is reused by the next
+ * machine registered.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class CapitalRegistry {
+
+    private int[] purchaseCosts = new int[16];
+
+    private int[] lastPrices = new int[16];
+
+    /**
+     * slots that were used and then retired, to hand out again
+     */
+    private int[] freeSlots = new int[16];
+
+    private int freeSlotsSize = 0;
+
+    /**
+     * slots handed out so far; all the arrays are meaningful up to here
+     */
+    private int used = 0;
+
+    /**
+     * machines registered and not retired
+     */
+    private int machines = 0;
+
+    /**
+     * give a new machine its slot
+     * @return the slot
+     */
+    public int register(int purchaseCost, int lastPrice)
+    {
+        int slot;
+        if(freeSlotsSize > 0)
+            slot = freeSlots[--freeSlotsSize];
+        else
+        {
+            if(used == purchaseCosts.length)
+            {
+                purchaseCosts = Arrays.copyOf(purchaseCosts, used * 2);
+                lastPrices = Arrays.copyOf(lastPrices, used * 2);
+            }
+            slot = used++;
+        }
+        purchaseCosts[slot] = purchaseCost;
+        lastPrices[slot] = lastPrice;
+        machines++;
+        return slot;
+    }
+
+    /**
+     * the machine is gone; its slot stops counting and will be reused
+     */
+    public void retire(int slot)
+    {
+        Preconditions.checkElementIndex(slot, used);
+        purchaseCosts[slot] = 0;
+        lastPrices[slot] = 0;
+        if(freeSlotsSize == freeSlots.length)
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotsSize * 2);
+        freeSlots[freeSlotsSize++] = slot;
+        machines--;
+    }
+
+    public int getPurchaseCost(int slot) {
+        return purchaseCosts[slot];
+    }
+
+    public int getLastPrice(int slot) {
+        return lastPrices[slot];
+    }
+
+    public void setLastPrice(int slot, int lastPrice) {
+        lastPrices[slot] = lastPrice;
+    }
+
+    /**
+     * what all the machines still around cost to make
+     */
+    public long getTotalPurchaseCost()
+    {
+        long total = 0;
+        for(int i=0; i<used; i++)
+            total += purchaseCosts[i];
+        return total;
+    }
+
+    /**
+     * all the machines still around, each at the last price it was traded for
+     */
+    public long getTotalValue()
+    {
+        long total = 0;
+        for(int i=0; i<used; i++)
+            total += lastPrices[i];
+        return total;
+    }
+
+    /**
+     * how many machines are registered and not retired
+     */
+    public int size() {
+        return machines;
+    }
+}
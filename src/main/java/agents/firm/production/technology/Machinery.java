@@ -11,6 +11,7 @@ import com.google.common.base.Preconditions;
 import goods.Good;
 import goods.GoodType;
 import agents.firm.production.Plant;
+import model.MacroII;
 
 import java.util.Map;
 
@@ -31,10 +32,53 @@ import java.util.Map;
  */
 public abstract class Machinery extends Good {
 
+    /**
+     * where the cost and price of this machine are kept; null if the model has none (or the machine was retired), in which case
+     * they are kept in the good itself
+     */
+    private CapitalRegistry registry;
+
+    /**
+     * this machine's place in the registry
+     */
+    private final int slot;
 
     protected Machinery( GoodType type, EconomicAgent producer, int costOfProduction) {
-        super(type, costOfProduction);
+        super(type, costOfProduction, producer == null ? null : producer.getModel());
         assert type.isMachinery();
+        MacroII model = producer == null ? null : producer.getModel();
+        registry = model == null ? null : model.getCapitalRegistry();
+        slot = registry == null ? -1 : registry.register(costOfProduction, costOfProduction);
+    }
+
+    @Override
+    public int getCostOfProduction() {
+        return registry == null ? super.getCostOfProduction() : registry.getPurchaseCost(slot);
+    }
+
+    @Override
+    public int getLastValidPrice() {
+        return registry == null ? super.getLastValidPrice() : registry.getLastPrice(slot);
+    }
+
+    @Override
+    public void setLastValidPrice(int lastValidPrice) {
+        if(registry == null)
+            super.setLastValidPrice(lastValidPrice);
+        else
+            registry.setLastPrice(slot, lastValidPrice);
+    }
+
+    /**
+     * the machine is not part of the economy's capital anymore: it leaves the registry and keeps its last price by itself
+     */
+    public void retire()
+    {
+        if(registry == null)
+            return;
+        super.setLastValidPrice(registry.getLastPrice(slot));
+        registry.retire(slot);
+        registry = null;
     }
 
     /**
@@ -114,6 +114,16 @@ public class PurchasesDepartment implements Deactivatable, Department<PurchasesD
      */
     private Quote quotePlaced = null;
 
+    /**
+     * what shop() schedules, made once
+     */
+    private Steppable shopping = null;
+
+    /**
+     * the fake quote shopping gives to the seller, kept until the price changes
+     */
+    private Quote shoppingQuote = null;
+
     /**
      * Sometimes inventory control tells us to buy a good while we are in the middle of buying another.
      * If so set this flag to true so that we can buy such good when we are done with the previous one.
@@ -544,8 +554,8 @@ public class PurchasesDepartment implements Deactivatable, Department<PurchasesD
      */
     public void shop(){
 
-
-        model.scheduleSoon(ActionOrder.TRADE, new Steppable() {
+        if(shopping == null)
+            shopping = new Steppable() {
             @Override
             public void step(SimState state) {
 
@@ -568,9 +578,12 @@ public class PurchasesDepartment implements Deactivatable, Department<PurchasesD
                     {
                         int finalPrice = market.price(sellerQuote.getPriceQuoted(),maxPrice);
 
-                        //build a fake buyer quote for stat collection
-                        Quote buyerQuote = Quote.newBuyerQuote(getFirm(),maxPrice,goodType);
-                        buyerQuote.setOriginator(PurchasesDepartment.this);
+                        //build a fake buyer quote for stat collection; nobody keeps it, so reuse it while the price holds
+                        if(shoppingQuote == null || shoppingQuote.getPriceQuoted() != maxPrice) {
+                            shoppingQuote = Quote.newBuyerQuote(getFirm(), maxPrice, goodType);
+                            shoppingQuote.setOriginator(PurchasesDepartment.this);
+                        }
+                        Quote buyerQuote = shoppingQuote;
 
 
                         //TRADE
@@ -601,7 +614,8 @@ public class PurchasesDepartment implements Deactivatable, Department<PurchasesD
                 }
 
             }
-        });
+        };
+        model.scheduleSoon(ActionOrder.TRADE, shopping);
 
 
 
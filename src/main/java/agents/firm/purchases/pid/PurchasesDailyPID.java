@@ -90,7 +90,7 @@ public class PurchasesDailyPID extends DailyInventoryControl implements BidPrici
         long newprice = maxPrice(getGoodTypeToControl());
 
         //log the change in policy
-        if(MacroII.hasGUI())
+        if(((MacroII) simState).hasGUI())
 
             getPurchasesDepartment().getFirm().logEvent(getPurchasesDepartment(),
                 MarketEvents.CHANGE_IN_POLICY,
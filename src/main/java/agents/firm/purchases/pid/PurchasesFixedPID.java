@@ -143,7 +143,7 @@ public class PurchasesFixedPID extends FixedInventoryControl implements BidPrici
         controller.adjust(input, isActive(), (MacroII)simState, this, ActionOrder.ADJUST_PRICES);
         long newprice = maxPrice(getGoodTypeToControl());
         //log the change in policy
-        if(MacroII.hasGUI())
+        if(((MacroII) simState).hasGUI())
 
             getPurchasesDepartment().getFirm().logEvent(getPurchasesDepartment(),
                 MarketEvents.CHANGE_IN_POLICY,
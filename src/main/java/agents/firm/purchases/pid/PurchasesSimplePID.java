@@ -95,7 +95,7 @@ public class PurchasesSimplePID extends SimpleInventoryControl implements BidPri
         long newprice = maxPrice(getGoodTypeToControl());
 
         //log the change in policy
-        if(MacroII.hasGUI())
+        if(((MacroII) simState).hasGUI())
 
             getPurchasesDepartment().getFirm().logEvent(getPurchasesDepartment(),
                 MarketEvents.CHANGE_IN_POLICY,
@@ -7,7 +7,6 @@
 package agents.firm.purchases.pricing;
 
 import agents.firm.purchases.PurchasesDepartment;
-import ec.util.MersenneTwisterFast;
 import goods.Good;
 import goods.GoodType;
 
@@ -30,11 +29,9 @@ public class ZeroIntelligenceBidPricing implements BidPricingStrategy{
 
 
     PurchasesDepartment dept;
-    MersenneTwisterFast random;
 
     public ZeroIntelligenceBidPricing(PurchasesDepartment dept) {
         this.dept = dept;
-        this.random = dept.getRandom();
     }
 
     /**
@@ -49,7 +46,7 @@ public class ZeroIntelligenceBidPricing implements BidPricingStrategy{
         assert dept.getGoodType() == type;
         if(dept.getAvailableBudget() == 0) //if we got no money, offer no money
             return 0;
-        return random.nextInt(dept.getAvailableBudget());
+        return dept.getRandom().nextInt(dept.getAvailableBudget());
 
     }
 
@@ -61,7 +58,7 @@ public class ZeroIntelligenceBidPricing implements BidPricingStrategy{
      */
     @Override
     public int maxPrice(Good good) {
-        return random.nextInt(dept.getAvailableBudget());
+        return dept.getRandom().nextInt(dept.getAvailableBudget());
     }
 
     /**
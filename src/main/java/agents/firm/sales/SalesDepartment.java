@@ -156,7 +156,7 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
         if(typeSold.isDifferentiated()) //create the proper sale quote manager!
             quotesManager = new DifferentiatedSaleQuotesManager();
         else
-            quotesManager = new UndifferentiatedSaleQuotesManager((UndifferentiatedGoodType)typeSold);
+            quotesManager = new UndifferentiatedSaleQuotesManager((UndifferentiatedGoodType)typeSold,model);
 
 
         this.model = model;
@@ -493,6 +493,42 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
 
 
 
+    /**
+     * Place a single ask for many units of an undifferentiated good, all at the same price. Only for markets that
+     * {@link Market#acceptsQuantityQuotes()}. Units sold, consumed or quoted in the meantime are not quoted again
+     * @param amount how many units we were asked to quote
+     */
+    protected void placeAQuoteNow(int amount) {
+        Preconditions.checkState(market.acceptsQuantityQuotes());
+        Preconditions.checkState(!market.getGoodType().isDifferentiated());
+
+        final int units = Math.min(amount, quotesManager.numberOfGoodsToSell() - numberOfQuotesPlaced());
+        if(units <= 0)
+            return;
+        Good g = Good.getInstanceOfUndifferentiatedGood(market.getGoodType(),getModel());
+        assert firm.hasHowMany(g.getType()) >= units;
+
+        int price = price(g);
+        lastAskedPrice = price;
+        handleNewEvent(new LogEvent(this, LogLevel.TRACE,"submitted a sell quote for {} units at price:{}",units,price));
+        Quote q = market.submitSellQuote(firm,price,g,units,this); //put a quote into the market
+        if(q.getPriceQuoted() != -1) //if the quote is not null, some units are still for sale
+        {
+            assert q.getAgent() == firm; //make sure we got back the right quote
+            recordQuoteAssociatedWithThisGood(g, q);
+        }
+    }
+
+    /**
+     * take one unit of this quote off the market: the quote is removed if it was its last unit, otherwise it stays with one unit less
+     */
+    private void withdrawOneUnitFromMarket(Quote q) {
+        if(q.getQuantity() > 1)
+            q.reduceQuantity(1);
+        else
+            removeQuoteFromMarket(q);
+    }
+
     /**
      * This is called by a buyer that is shopping at this department. This means that it is not going through quotes and I assume the buyer had a quote from this department to make a choice
      * @param buyerQuote the quote of the buyer, it must have at least a goodtype
@@ -562,7 +598,7 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
         Quote oldQuote = stopSellingThisGoodAndReturnItsAssociatedQuote(g);
         if(oldQuote != null)
         {
-            removeQuoteFromMarket(oldQuote);
+            withdrawOneUnitFromMarket(oldQuote);
         }
         assert !isThisGoodBeingSold(g) || !g.getType().isDifferentiated();
         logOutflow(g, finalPrice);
@@ -593,7 +629,7 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
         if( q != null)
         {
             //remove the good quoted in the market (and also remove it from memory)
-            removeQuoteFromMarket(q);
+            withdrawOneUnitFromMarket(q);
             toReturn = true;
         }
         else if( aboutToUpdateQuotes){
@@ -736,7 +772,7 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
 
                 //remove it from the market too, if needed
                 if(q!=null)
-                    removeQuoteFromMarket(q);
+                    withdrawOneUnitFromMarket(q);
                 lastClosingPrice = finalPrice;
 
                 buyerSearchAlgorithm.reactToSuccess(buyer,result); //tell the search algorithm
@@ -961,7 +997,9 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
                 forgetTheQuoteAssociatedWithThisGood(q.getGood());
                 removeQuoteFromMarket(q);
             }
-            goodsToRequote.add(q.getGood());
+            //one entry per unit, quotes for many units count many times
+            for(int unit=0; unit < q.getQuantity(); unit++)
+                goodsToRequote.add(q.getGood());
         }
 
 
@@ -1207,7 +1245,7 @@ public abstract class  SalesDepartment  implements Department<SalesDataType>, Lo
         if(getGoodType().isDifferentiated())
             return Good.getInstanceOfDifferentiatedGood(getGoodType(),getFirm(),productionCost);
         else
-            return Good.getInstanceOfUndifferentiatedGood(getGoodType());
+            return Good.getInstanceOfUndifferentiatedGood(getGoodType(),getModel());
     }
 
     public MacroII getModel() {
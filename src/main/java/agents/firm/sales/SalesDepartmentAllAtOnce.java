@@ -14,6 +14,7 @@ import financial.market.Market;
 import financial.utilities.ActionsAllowed;
 import goods.Good;
 import model.MacroII;
+import model.utilities.ActionOrder;
 
 import java.util.Arrays;
 
@@ -60,9 +61,16 @@ public class SalesDepartmentAllAtOnce extends SalesDepartment{
     protected void newGoodsToSellEvent(int amount) {
         Preconditions.checkArgument(amount > 0);
 
+        //if the market takes it, a single quote for all of them
+        if (market.getSellerRole() == ActionsAllowed.QUOTE && market.acceptsQuantityQuotes())
+        {
+            getModel().scheduleSoon(ActionOrder.TRADE, state -> placeAQuoteNow(amount));
+            return;
+        }
+
         //create fake goods
         Good[] array = new Good[amount];
-        Arrays.fill(array,Good.getInstanceOfUndifferentiatedGood(market.getGoodType()));
+        Arrays.fill(array,Good.getInstanceOfUndifferentiatedGood(market.getGoodType(),getModel()));
         //new goods to sell!
         newGoodsToSellEvent(array);
 
@@ -10,24 +10,45 @@ import com.google.common.base.Preconditions;
 import financial.utilities.Quote;
 import goods.Good;
 import goods.UndifferentiatedGoodType;
+import model.MacroII;
 
 import java.util.*;
 
 /**
  * A sale manager that just has a counter for how many goods to sell and a list of quotes made.
+ * Quotes can be for more than one unit: each quote is kept with how many of its units are still unsold, and the quotes "placed"
+ * are counted in units.
  * Created by carrknight on 5/12/14.
  */
 public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
 
     private int goodsToSell = 0;
 
-    final private Queue<Quote> quotes;
+    /**
+     * each quote with its units still for sale, oldest first
+     */
+    final private LinkedHashMap<Quote,Integer> quotes;
+
+    /**
+     * units in all the quotes
+     */
+    private int unitsQuoted = 0;
 
     final private UndifferentiatedGoodType type;
 
+    /**
+     * the model whose flyweight is sold, can be null
+     */
+    final private MacroII model;
+
     public UndifferentiatedSaleQuotesManager(UndifferentiatedGoodType type) {
-        quotes = new LinkedList<>();
+        this(type,null);
+    }
+
+    public UndifferentiatedSaleQuotesManager(UndifferentiatedGoodType type, MacroII model) {
+        quotes = new LinkedHashMap<>();
         this.type = type;
+        this.model = model;
     }
 
     @Override
@@ -42,13 +63,28 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
     @Override
     public Collection<Good> listOfGoodsToSell() {
         ArrayList<Good> toReturn = new ArrayList<>(1);
-        toReturn.add(Good.getInstanceOfUndifferentiatedGood(type));
+        toReturn.add(Good.getInstanceOfUndifferentiatedGood(type,model));
         return toReturn;
     }
 
     @Override
     public Quote getCheapestQuote() {
-        return quotes.peek();
+        return oldestQuote();
+    }
+
+    private Quote oldestQuote() {
+        return quotes.isEmpty() ? null : quotes.keySet().iterator().next();
+    }
+
+    /**
+     * one unit of this quote is gone, forget the quote if it was the last
+     */
+    private void removeOneUnit(Quote q, int unitsLeft) {
+        if(unitsLeft > 1)
+            quotes.put(q,unitsLeft-1);
+        else
+            quotes.remove(q);
+        unitsQuoted--;
     }
 
     @Override
@@ -63,7 +99,7 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
 
     @Override
     public int getAnyPriceQuoted() {
-        return quotes.peek().getPriceQuoted();
+        return oldestQuote().getPriceQuoted();
 
 
     }
@@ -75,9 +111,10 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
 
     @Override
     public void recordQuoteAssociatedWithThisGood(Good g, Quote q) {
-        quotes.add(q);
+        quotes.put(q,q.getQuantity());
+        unitsQuoted += q.getQuantity();
         Preconditions.checkState(goodsToSell >= 0);
-        Preconditions.checkState(quotes.size() <= goodsToSell, "there are more quotes than goods to sell");
+        Preconditions.checkState(unitsQuoted <= goodsToSell, "there are more quotes than goods to sell");
     }
 
     /**
@@ -91,13 +128,18 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
         return hasAnythingToSell();
     }
 
+    /**
+     * takes one unit off the oldest quote. The quote returned is still in the market if it had more than one unit
+     */
     @Override
     public Quote stopSellingThisGoodAndReturnItsAssociatedQuote(Good g) {
-        Quote q = quotes.poll();
+        Quote q = oldestQuote();
+        if(q != null)
+            removeOneUnit(q,quotes.get(q));
         if(goodsToSell>0)
             goodsToSell--;
         Preconditions.checkState(goodsToSell >= 0);
-        Preconditions.checkState(quotes.size() <= goodsToSell, "there are more quotes than goods to sell");
+        Preconditions.checkState(unitsQuoted <= goodsToSell, "there are more quotes than goods to sell");
         return q;
 
     }
@@ -105,36 +147,39 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
     @Override
     public Quote getQuoteAssociatedWithThisGood(Good g) {
 
-        return quotes.peek();
+        return oldestQuote();
 
     }
 
     @Override
     public Collection<Quote> getAllQuotes() {
-        return quotes;
+        return quotes.keySet();
     }
 
     @Override
     public void forgetTheQuoteAssociatedWithThisGood(Good g) {
-        quotes.poll(); //remove one at random
+        Quote q = oldestQuote(); //remove one at random, with all its units
+        if(q != null)
+            unitsQuoted -= quotes.remove(q);
         Preconditions.checkState(goodsToSell >= 0);
-        Preconditions.checkState(quotes.size() <= goodsToSell, "there are more quotes than goods to sell");
+        Preconditions.checkState(unitsQuoted <= goodsToSell, "there are more quotes than goods to sell");
     }
 
     @Override
     public void removeAllQuotes() {
         quotes.clear();
+        unitsQuoted = 0;
         goodsToSell = 0;
     }
 
     @Override
     public int numberOfQuotesPlaced() {
-        return quotes.size();
+        return unitsQuoted;
     }
 
     @Override
     public Good peekFirstGoodAvailable() {
-        return goodsToSell > 0 ? Good.getInstanceOfUndifferentiatedGood(type) : null;
+        return goodsToSell > 0 ? Good.getInstanceOfUndifferentiatedGood(type,model) : null;
 
 
     }
@@ -143,12 +188,13 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
     public void thisQuoteHasBeenFilledSoRemoveItWithItsAssociatedGood(Quote q) {
         Preconditions.checkArgument(q != null);
         Preconditions.checkArgument(q.getGood() != null);
-        final boolean removedCorrectly = quotes.remove(q);
-//        assert removedCorrectly; not necesarilly true if the quote is cleared immediately
+        final Integer unitsLeft = quotes.get(q);
+        if(unitsLeft != null) //not necesarilly there if the quote is cleared immediately
+            removeOneUnit(q,unitsLeft);
 
         goodsToSell--;
         Preconditions.checkState(goodsToSell >= 0);
-        Preconditions.checkState(quotes.size() <= goodsToSell, "there are more quotes than goods to sell");
+        Preconditions.checkState(unitsQuoted <= goodsToSell, "there are more quotes than goods to sell");
 
     }
 
@@ -156,5 +202,6 @@ public class UndifferentiatedSaleQuotesManager implements SaleQuotesManager {
     @Override
     public void turnOff() {
         quotes.clear();
+        unitsQuoted = 0;
     }
 }
@@ -7,12 +7,10 @@
 package agents.firm.sales.exploration;
 
 import agents.EconomicAgent;
-import com.google.common.base.Preconditions;
 import ec.util.MersenneTwisterFast;
 import financial.market.Market;
 import financial.utilities.PurchaseResult;
 
-import java.util.Set;
 
 /**
  * <h4>Description</h4>
@@ -116,55 +114,19 @@ public class SimpleBuyerSearch implements BuyerSearchAlgorithm {
     }
 
 
+    /**
+     * draw at random up to searchDepth buyers (or sellers) of the market, never doNotDraw. The market keeps them in an array,
+     * so this costs about searchDepth draws however big the market is
+     */
     public static EconomicAgent[] registrySubsample(Market market,
                                                     EconomicAgent doNotDraw, int searchDepth, boolean buyers){
-
-
-        Set<EconomicAgent> toSample;
+        MersenneTwisterFast random = doNotDraw.getModel().getRandom(); //get the randomizer
         if(buyers)
-            toSample = market.getBuyers();  //get all the buyers
-        else
-            toSample = market.getSellers();
-        Preconditions.checkNotNull(toSample);
-        MersenneTwisterFast random = doNotDraw.getModel().random; //get the randomizer
-
-        int searchSize;
-        int visited = 0; //count how many elements of the set you visited
-        if(toSample.contains(doNotDraw)){
-            searchSize = Math.min(searchDepth,toSample.size()-1);  //if the firm is among the buyers we don't want to sample it
-            visited++; //consider the doNotDraw as a visited dude
-        }
+            return market.sampleBuyers(searchDepth, doNotDraw, random);
         else
-            searchSize = Math.min(searchDepth, toSample.size());
-
-        EconomicAgent[] sample = new EconomicAgent[searchSize];  //prepare the array where to store the sample
-
-        int remainingToSample = searchSize;
-
-        for(EconomicAgent b : toSample)
-        {
-            if(remainingToSample == 0) //if you have already drawn enough, quit
-                break;
-            if(b == doNotDraw) //don't bother drawing yourself
-                continue;
-
-            //draw at random with higher probability for
-            if(random.nextDouble() < ((double) remainingToSample) / (toSample.size() - visited))
-            {
-                remainingToSample--;//drawn!
-                sample[remainingToSample] = b; //put it in the array (in opposite direction)
-            }
-            visited++;
-
-        }
-
-        return sample;
-
-
-
+            return market.sampleSellers(searchDepth, doNotDraw, random);
     }
 
-
     public Market getMarket() {
         return market;
     }
@@ -11,15 +11,16 @@ import goods.GoodType;
 import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.Deactivatable;
+import model.utilities.scheduler.RecurringAction;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * <h4>Description</h4>
  * <p/> this is a simple object that keeps track of today and yesterday production and consumption of the firm for each good type.
- * It is steppable and deactivable, it steps itself when start() is called and stop rescheduling itself when turnOff()
+ * It is steppable and deactivable, it registers to be stepped every day when start() is called and cancels it when turnOff()
  * is called
  * <p/> It counts 3 things:
  * <ul>
@@ -35,6 +36,8 @@ import java.util.HashMap;
  * </ul>
  * Where bought is the difference between receive() [which is called both when buying and producing] and the
  * number of times notifyOfProduction() is called
+ * <p/> The counts are plain int arrays indexed by {@link GoodType#getIndex()}; every dawn today becomes yesterday and the old
+ * yesterday arrays are zeroed and reused as the new today, so counting never allocates.
  * <p/>
  * <h4>Notes</h4>
  * Created with IntelliJ
@@ -48,23 +51,28 @@ import java.util.HashMap;
  */
 public class DailyProductionAndConsumptionCounter implements Steppable, Deactivatable
 {
-    private HashMap<GoodType,Integer> consumedToday;
+    private int[] consumedToday;
 
-    private HashMap<GoodType,Integer> boughtOrProducedToday;
+    private int[] boughtOrProducedToday;
 
-    private HashMap<GoodType,Integer> producedToday;
+    private int[] producedToday;
 
-    private HashMap<GoodType,Integer> consumedYesterday;
+    private int[] consumedYesterday;
 
-    private HashMap<GoodType,Integer> boughtOrProducedYesterday;
+    private int[] boughtOrProducedYesterday;
 
-    private HashMap<GoodType,Integer> producedYesterday;
+    private int[] producedYesterday;
 
 
 
     private boolean active = true;
     private boolean startWasCalled = false;
 
+    /**
+     * the handle to stop the scheduler from stepping this counter
+     */
+    private RecurringAction dailyStep;
+
     /**
      * The constructor instantiate all the lists but doesn't actually do anything else.
      * You need start() to step yourself
@@ -72,12 +80,12 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
     public DailyProductionAndConsumptionCounter()
     {
         //instantiate all the lists
-        consumedToday = new HashMap<>();
-        boughtOrProducedToday= new HashMap<>();
-        producedToday = new HashMap<>();
-        consumedYesterday = new HashMap<>();
-        boughtOrProducedYesterday = new HashMap<>();
-        producedYesterday = new HashMap<>();
+        consumedToday = new int[0];
+        boughtOrProducedToday= new int[0];
+        producedToday = new int[0];
+        consumedYesterday = new int[0];
+        boughtOrProducedYesterday = new int[0];
+        producedYesterday = new int[0];
 
     }
 
@@ -88,8 +96,8 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
         Preconditions.checkArgument(!startWasCalled);
         startWasCalled = true;
 
-        //step yourself
-        state.scheduleSoon(ActionOrder.DAWN,this);
+        //step yourself, every day
+        dailyStep = state.scheduleEveryDay(ActionOrder.DAWN,this);
 
     }
 
@@ -104,24 +112,29 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
             return;
 
         newDay();
-        //reschedule tomorrow!
-        ((MacroII) state).scheduleTomorrow(ActionOrder.DAWN, this);
 
 
     }
 
     /**
-     * shifts the "today" maps to yesterday, and creates new maps for the new today!
+     * shifts the "today" arrays to yesterday, and zeroes the old yesterday ones to be the new today!
      */
     private void newDay()
     {
+        int[] recycled = consumedYesterday;
         consumedYesterday = consumedToday;
+        Arrays.fill(recycled, 0);
+        consumedToday = recycled;
+
+        recycled = boughtOrProducedYesterday;
         boughtOrProducedYesterday = boughtOrProducedToday;
-        producedYesterday = producedToday;
+        Arrays.fill(recycled, 0);
+        boughtOrProducedToday = recycled;
 
-        consumedToday = new HashMap<>();
-        boughtOrProducedToday = new HashMap<>();
-        producedToday = new HashMap<>();
+        recycled = producedYesterday;
+        producedYesterday = producedToday;
+        Arrays.fill(recycled, 0);
+        producedToday = recycled;
     }
 
 
@@ -136,7 +149,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewConsumption(GoodType type, Integer n)
+    public void countNewConsumption(GoodType type, int n)
     {
         increaseByN(consumedToday,type,n);
     }
@@ -152,7 +165,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewProduction(GoodType type, Integer n)
+    public void countNewProduction(GoodType type, int n)
     {
         increaseByN(producedToday,type,n);
     }
@@ -168,7 +181,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
     /**
      * Tell the counter something has been consumed multiple times
      */
-    public void countNewReceive(GoodType type, Integer n)
+    public void countNewReceive(GoodType type, int n)
     {
         increaseByN(boughtOrProducedToday,type,n);
     }
@@ -178,7 +191,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getTodayConsumption(GoodType type)
     {
-        return lookupMap(consumedToday,type);
+        return lookup(consumedToday,type);
 
     }
 
@@ -187,7 +200,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getYesterdayConsumption(GoodType type)
     {
-        return lookupMap(consumedYesterday,type);
+        return lookup(consumedYesterday,type);
 
     }
 
@@ -197,7 +210,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getTodayProduction(GoodType type)
     {
-        return lookupMap(producedToday,type);
+        return lookup(producedToday,type);
 
     }
 
@@ -206,7 +219,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getYesterdayProduction(GoodType type)
     {
-        return lookupMap(producedYesterday,type);
+        return lookup(producedYesterday,type);
 
     }
 
@@ -216,7 +229,7 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getTodayAcquisitions(GoodType type)
     {
-        int acquisitions = lookupMap(boughtOrProducedToday,type) -  lookupMap(producedToday,type);
+        int acquisitions = lookup(boughtOrProducedToday,type) -  lookup(producedToday,type);
         assert acquisitions >= 0;
         return acquisitions;
 
@@ -227,62 +240,79 @@ public class DailyProductionAndConsumptionCounter implements Steppable, Deactiva
      */
     public int getYesterdayAcquisitions(GoodType type)
     {
-        int acquisitions = lookupMap(boughtOrProducedYesterday,type) -  lookupMap(producedYesterday,type);
+        int acquisitions = lookup(boughtOrProducedYesterday,type) -  lookup(producedYesterday,type);
         assert acquisitions >= 0;
         return acquisitions;
     }
 
 
     /**
-     * a simple lookup that returns 0 every time the map doesn't actually map the type you are looking for
+     * a simple lookup that returns 0 every time the type was never counted
      */
-    private int lookupMap(HashMap<GoodType,Integer> map, GoodType type)
+    private int lookup(int[] counts, GoodType type)
     {
-
-        Integer toReturn = map.get(type);
-        if(toReturn == null)
-            return 0;
-        else
-            return toReturn;
-
+        int index = type.getIndex();
+        return index < counts.length ? counts[index] : 0;
 
     }
 
     /**
-     * a simple way to increase by one an entry in the map
+     * a simple way to increase by one an entry
      */
-    private void increaseByOne(HashMap<GoodType,Integer> map, GoodType type)
+    private void increaseByOne(int[] counts, GoodType type)
     {
-        increaseByN(map, type, 1);
+        increaseByN(counts, type, 1);
     }
 
     /**
-     * a simple way to increase by n an entry in the map
+     * a simple way to increase by n an entry; the arrays are grown (all together) the first time a type is counted
      */
-    private void increaseByN(HashMap<GoodType,Integer> map, GoodType type, int n)
+    private void increaseByN(int[] counts, GoodType type, int n)
     {
 
         Preconditions.checkArgument(n >0);
-        //grab the counter
-        Integer counter = map.get(type);
-        //create one if you don't have it
-        if(counter == null)
-            counter = 0;
-        counter+=n;
-        assert counter > 0 : counter;
-
-        map.put(type, counter);
+        int index = type.getIndex();
+        if(index >= counts.length)
+            counts = grow(counts, index);
 
+        counts[index]+=n;
+        assert counts[index] > 0 : counts[index];
 
 
-        assert counter.equals(map.get(type));
-
+    }
 
+    /**
+     * grow all the arrays so that index fits and return the new version of the one passed
+     */
+    private int[] grow(int[] counts, int index)
+    {
+        int length = Math.max(index + 1, counts.length * 2);
+        int[] grown = null;
+        //today and yesterday arrays swap every day, so grow them all to keep the same length
+        int[][] all = {consumedToday, boughtOrProducedToday, producedToday,
+                consumedYesterday, boughtOrProducedYesterday, producedYesterday};
+        for(int i=0; i<all.length; i++)
+        {
+            int[] longer = Arrays.copyOf(all[i], length);
+            if(all[i] == counts)
+                grown = longer;
+            all[i] = longer;
+        }
+        consumedToday = all[0];
+        boughtOrProducedToday = all[1];
+        producedToday = all[2];
+        consumedYesterday = all[3];
+        boughtOrProducedYesterday = all[4];
+        producedYesterday = all[5];
+        assert grown != null;
+        return grown;
     }
 
     @Override
     public void turnOff() {
         active=false;
+        if(dailyStep != null)
+            dailyStep.cancel();
         consumedYesterday = null;
         boughtOrProducedYesterday = null;
         producedYesterday = null;
@@ -170,7 +170,7 @@ public class Person extends EconomicAgent {
 
     @Override
     public MersenneTwisterFast getRandom() {
-        return getModel().random;
+        return getModel().getRandom();
     }
 
 
@@ -339,7 +339,7 @@ public class Person extends EconomicAgent {
                     //if we can quote: great!
                     laborMarket.submitSellQuote(Person.this,
                             minimumDailyWagesRequired, Good.getInstanceOfUndifferentiatedGood(
-                                    laborMarket.getGoodType()));
+                                    laborMarket.getGoodType(),getModel()));
                 }
                 else{
                     //if we can't quote we have to peddle
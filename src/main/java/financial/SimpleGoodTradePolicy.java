@@ -17,7 +17,7 @@ import goods.UndifferentiatedGoodType;
 /**
  * <h4>Description</h4>
  * <p/> This is the simplest trade policy: two people meet, they exchange a good and they are done.
- * <p/> It's a singleton.
+ * <p/> It has no state, so all markets share the one instance
  * <p/>
  * <h4>Notes</h4>
  * Created with IntelliJ
@@ -31,20 +31,17 @@ import goods.UndifferentiatedGoodType;
  */
 public class SimpleGoodTradePolicy implements TradePolicy {
 
-    private static SimpleGoodTradePolicy instance = null;
+    private static final SimpleGoodTradePolicy instance = new SimpleGoodTradePolicy();
 
     private SimpleGoodTradePolicy(){
 
     }
 
     /**
-     * Get an instance of the strategy (it's a singleton)
+     * Get a shared instance of the strategy (it is stateless, so it's safe to share)
      * @return
      */
     public static SimpleGoodTradePolicy getInstance(){
-        if(instance == null)
-            instance = new SimpleGoodTradePolicy();
-
         return instance;
     }
 
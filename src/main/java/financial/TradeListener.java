@@ -33,6 +33,8 @@ public interface TradeListener {
      * @param seller the seller of this trade
      * @param goodExchanged the good that has been traded
      * @param price the price of the trade
+     * @param sellerQuote the ask that traded; read it here but don't keep it: once the trade is over the market may reuse it
+     * @param buyerQuote the bid that traded; read it here but don't keep it: once the trade is over the market may reuse it
      */
     public void tradeEvent(EconomicAgent buyer, EconomicAgent seller, Good goodExchanged, long price, Quote sellerQuote, Quote buyerQuote);
 
@@ -10,6 +10,7 @@ import financial.utilities.Quote;
 import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.scheduler.Priority;
+import model.utilities.scheduler.RecurringAction;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 
@@ -18,7 +19,12 @@ import java.util.Queue;
 /**
  * <h4>Description</h4>
  * <p/> This order handler schedules itself to clear trades at the end of each day's TRADE phase. Basically it waits for everybody to place trades before it starts clearing them
- * <p/>
+ * <p/> By default it matches one pair of quotes per step and then reschedules itself, so that whatever the traders schedule in reaction
+ * to a trade happens before the next match. In single pass mode (a call auction) it walks down both books in one step, matching
+ * until best bid and best ask don't cross anymore. Whatever the traders schedule in reaction is stepped only after the whole
+ * pass, so when traders react within the phase (withdrawing or changing quotes, quoting again) the trades can differ from the
+ * default mode, not just in their order: single pass matches quotes that in default mode would have been gone or different
+ * by then. It's the same only when nobody reacts before the phase is over.
  * <p/>
  * <h4>Notes</h4>
  * Created with IntelliJ
@@ -41,6 +47,21 @@ public class EndOfPhaseOrderHandler implements OrderHandler, Steppable {
 
     private OrderBookMarket market;
 
+    /**
+     * the handle of the daily clearing
+     */
+    private RecurringAction dailyClearing;
+
+    /**
+     * when true, clear the whole book in a single step
+     */
+    private boolean singlePass = false;
+
+    /**
+     * when not null, it steps us rather than the scheduler
+     */
+    private ParallelMarketClearing parallelClearing = null;
+
 
     /**
      * start the handler
@@ -57,7 +78,12 @@ public class EndOfPhaseOrderHandler implements OrderHandler, Steppable {
         this.bids = bids;
         this.market = market;
 
-        model.scheduleSoon(ActionOrder.TRADE,this,Priority.FINAL);
+        //clear every day, at the end of the phase
+        parallelClearing = model.getParallelClearing();
+        if(parallelClearing != null)
+            parallelClearing.register(this);
+        else
+            dailyClearing = model.scheduleEveryDay(ActionOrder.TRADE,this,Priority.FINAL);
 
 
     }
@@ -72,6 +98,10 @@ public class EndOfPhaseOrderHandler implements OrderHandler, Steppable {
     @Override
     public void turnOff() {
         isActive=false;
+        if(dailyClearing != null)
+            dailyClearing.cancel();
+        if(parallelClearing != null)
+            parallelClearing.deregister(this);
     }
 
 
@@ -84,17 +114,44 @@ public class EndOfPhaseOrderHandler implements OrderHandler, Steppable {
         MacroII model = (MacroII)simState;
 
         //try to clear the market!
-        boolean anyTradeOccur = ImmediateOrderHandler.matchQuotes(asks,bids,market);
-        //if any trade occurred, recursively step again!
+        boolean anyTradeOccur = clear();
+        //if any trade occurred, recursively step again! (in single pass that's just to catch quotes placed in reaction)
 
+        //otherwise the scheduler will call us again tomorrow
         if(anyTradeOccur)
             model.scheduleSoon(ActionOrder.TRADE,this, Priority.FINAL);
-        else
-        //otherwise start over tomorrow!
-            model.scheduleTomorrow(ActionOrder.TRADE,this,Priority.FINAL);
 
 
     }
-}
 
+    /**
+     * one step of clearing, without rescheduling
+     * @return true if any trade occurred
+     */
+    boolean clear()
+    {
+        if(!isActive)
+            return false;
+        boolean anyTradeOccur = ImmediateOrderHandler.matchQuotes(asks,bids,market);
+        //in single pass, keep going down the books (they are sorted already) until they don't cross
+        if(singlePass && anyTradeOccur)
+            while (ImmediateOrderHandler.matchQuotes(asks,bids,market));
+        return anyTradeOccur;
+    }
+
+    OrderBookMarket getMarket() {
+        return market;
+    }
+
+    public boolean isSinglePass() {
+        return singlePass;
+    }
 
+    /**
+     * clear the whole book in a single step (call auction) rather than a pair of quotes per step. Faster, but the results
+     * differ from the default whenever traders react to their trades within the phase
+     */
+    public void setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+    }
+}
@@ -17,13 +17,17 @@ import financial.Bankruptcy;
 import financial.utilities.ActionsAllowed;
 import financial.utilities.PurchaseResult;
 import financial.utilities.Quote;
+import financial.utilities.TopOfBook;
 import goods.Good;
 import goods.GoodType;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
 import model.MacroII;
 import model.utilities.dummies.GeographicalCustomer;
 import model.utilities.ActionOrder;
+import model.utilities.geography.SpatialPriceIndex;
+import model.utilities.geography.TransportCostMatrix;
 import model.utilities.scheduler.Priority;
 import sim.engine.SimState;
 import sim.engine.Steppable;
@@ -72,6 +76,32 @@ public class GeographicalMarket extends Market implements Steppable{
      */
     private final Multimap<GeographicalFirm,Quote> sellersWhoPlacedAQuote;
 
+    /**
+     * the sellers with at least a quote, located and priced at their cheapest quote, so that customers can find their best supplier
+     * without going through all of them
+     */
+    private final SpatialPriceIndex<GeographicalFirm> sellerIndex = new SpatialPriceIndex<>();
+
+    /**
+     * what listens to the location of each registered seller, to tell the index when it moves
+     */
+    private final Map<GeographicalFirm,ChangeListener<Number>> sellerLocationListeners = new HashMap<>();
+
+    /**
+     * the distances between customers and sellers, computed once and then forgotten only when somebody moves
+     */
+    private final TransportCostMatrix<GeographicalCustomer,GeographicalFirm> transportCosts = new TransportCostMatrix<>();
+
+    /**
+     * the cheapest quote of each seller, sorted; ties go to whoever has been quoting the longest, like iterating the multimap
+     */
+    private final TopOfBook<GeographicalFirm> bestAsks = TopOfBook.lowestPriceFirst();
+
+    /**
+     * the highest quote of each buyer, sorted; created in the constructor as ties follow the order of the buyers map
+     */
+    private final TopOfBook<GeographicalCustomer> bestBids;
+
     /**
      * the multimap "buyersWhoPlacedAQuote" uses this map as the workhorse. I am keeping it as a separate field that is observable
      * so that it takes care of all the listeners blah blah
@@ -87,14 +117,29 @@ public class GeographicalMarket extends Market implements Steppable{
     private final Multimap<GeographicalCustomer,Quote> buyersWhoPlacedAQuote;
 
     /**
-     * this is set to false when we are going through the quotes to clear them, and set to true whenever
+     * the same map as buyerBackerMap, without the observable wrapper, to navigate it in order
      */
-    private boolean changedMap = false;
+    private final NavigableMap<GeographicalCustomer,Collection<Quote>> sortedBuyers;
 
     /**
-     * this is used to cycle through the buyers
+     * true while a pass through the buyers is going on (it might be interrupted to let the others act)
      */
-    private int indexToLoopTo = 0;
+    private boolean clearing = false;
+
+    /**
+     * the buyer being processed while clearing, or the next to process if the pass was interrupted (null when at the end)
+     */
+    private GeographicalCustomer currentBuyer = null;
+
+    /**
+     * the buyers processed in this pass that didn't find a supplier, in the order they were processed
+     */
+    private final List<GeographicalCustomer> refusedBuyers = new ArrayList<>();
+
+    /**
+     * the earliest among the buyers processed that need to be processed again, if any
+     */
+    private GeographicalCustomer rewindTo = null;
 
 
     public GeographicalMarket(GoodType goodType) {
@@ -115,6 +160,8 @@ public class GeographicalMarket extends Market implements Steppable{
         });
         //now we are going to encase the treemap in an observable property so that I don't have to write a million listeners there
         buyerBackerMap = FXCollections.observableMap(backingBuyerTreeMapPOJO);
+        sortedBuyers = backingBuyerTreeMapPOJO;
+        bestBids = TopOfBook.highestPriceFirst(backingBuyerTreeMapPOJO.comparator());
 
         buyersWhoPlacedAQuote = Multimaps.newMultimap(
                 buyerBackerMap,
@@ -173,6 +220,36 @@ public class GeographicalMarket extends Market implements Steppable{
     public void registerSeller( EconomicAgent seller) {
         Preconditions.checkArgument(seller instanceof GeographicalFirm, "only geographical agents accepted!");
         super.registerSeller(seller);
+
+        //a seller that moves has to be placed again in the index, even if its quotes stay the same
+        final GeographicalFirm firm = (GeographicalFirm) seller;
+        ChangeListener<Number> listener = (observable, oldValue, newValue) -> sellerIndex.moved(firm);
+        sellerLocationListeners.put(firm, listener);
+        firm.xLocationProperty().addListener(listener);
+        firm.yLocationProperty().addListener(listener);
+    }
+
+    /**
+     * forget the buyer distances too
+     */
+    @Override
+    public void deregisterBuyer(EconomicAgent buyer) {
+        super.deregisterBuyer(buyer);
+        transportCosts.forget((GeographicalCustomer) buyer);
+    }
+
+    /**
+     * forget the seller distances too, and stop listening to its location
+     */
+    @Override
+    public void deregisterSeller(EconomicAgent seller) {
+        super.deregisterSeller(seller);
+        transportCosts.forget((GeographicalFirm) seller);
+        ChangeListener<Number> listener = sellerLocationListeners.remove(seller);
+        if(listener != null) {
+            ((GeographicalFirm) seller).xLocationProperty().removeListener(listener);
+            ((GeographicalFirm) seller).yLocationProperty().removeListener(listener);
+        }
     }
 
 
@@ -240,12 +317,13 @@ public class GeographicalMarket extends Market implements Steppable{
         if(department!=null)
             quoteMade.setOriginator(department);
         sellersWhoPlacedAQuote.put(sellerCast, quoteMade);
+        updateSellerIndex(sellerCast);
         assert quoteMade.getPriceQuoted() >=0;
 
 
 
-        //map has changed!
-        changedMap = true;
+        //if we are clearing, this might change things for the buyers already processed
+        sellQuoteArrived(quoteMade);
 
 
         return quoteMade;
@@ -262,15 +340,12 @@ public class GeographicalMarket extends Market implements Steppable{
 
         boolean removedCorrectly =  sellersWhoPlacedAQuote.remove(q.getAgent(),q);
         Preconditions.checkState(removedCorrectly,"failed to remove correctly");
+        updateSellerIndex((GeographicalFirm) q.getAgent());
 
         //either you have been removed from the multimap or you had another quote!
         assert !sellersWhoPlacedAQuote.containsKey(q.getAgent()) ||
                 (!sellersWhoPlacedAQuote.get((GeographicalFirm) q.getAgent()).isEmpty() && !sellersWhoPlacedAQuote.get((GeographicalFirm)q.getAgent()).contains(q));
 
-        //map has changed!
-        changedMap = true;
-
-
     }
 
     @Override
@@ -281,11 +356,9 @@ public class GeographicalMarket extends Market implements Steppable{
             boolean removedCorrectly =  sellersWhoPlacedAQuote.remove(q.getAgent(),q);
             if(removedCorrectly)
             {
+                updateSellerIndex((GeographicalFirm) q.getAgent());
                 assert !sellersWhoPlacedAQuote.containsKey(q.getAgent()) ||
                         (!sellersWhoPlacedAQuote.get((GeographicalFirm) q.getAgent()).isEmpty() && !sellersWhoPlacedAQuote.get((GeographicalFirm)q.getAgent()).contains(q));
-
-                //map has changed!
-                changedMap = true;
             }
         }
 
@@ -318,12 +391,13 @@ public class GeographicalMarket extends Market implements Steppable{
         if(department!=null)
             quoteMade.setOriginator(department);
         buyersWhoPlacedAQuote.put(buyerCast, quoteMade);
+        updateBestBid(buyerCast);
         assert quoteMade.getPriceQuoted() >=0;
 
 
 
-        //map has changed!
-        changedMap = true;
+        //if we are clearing, this might change things for the buyers already processed
+        buyQuoteArrived(buyerCast);
 
         return quoteMade;
     }
@@ -336,12 +410,10 @@ public class GeographicalMarket extends Market implements Steppable{
             boolean removedCorrectly =  buyersWhoPlacedAQuote.remove(q.getAgent(),q);
 
             if(removedCorrectly) {
+                updateBestBid((GeographicalCustomer) q.getAgent());
                 //either you have been removed from the multimap or you had another quote!
                 assert !buyersWhoPlacedAQuote.containsKey(q.getAgent()) ||
                         (!buyersWhoPlacedAQuote.get((GeographicalCustomer) q.getAgent()).isEmpty() && !buyersWhoPlacedAQuote.get((GeographicalCustomer) q.getAgent()).contains(q));
-
-                //map has changed!
-                changedMap = true;
             }
         }
     }
@@ -369,13 +441,11 @@ public class GeographicalMarket extends Market implements Steppable{
     public void removeBuyQuote(Quote q) {
         boolean removedCorrectly =  buyersWhoPlacedAQuote.remove(q.getAgent(),q);
         Preconditions.checkState(removedCorrectly,"failed to remove buy quote correctly");
+        updateBestBid((GeographicalCustomer) q.getAgent());
 
         //either you have been removed from the multimap or you had another quote!
         assert !buyersWhoPlacedAQuote.containsKey(q.getAgent()) ||
                 (!buyersWhoPlacedAQuote.get((GeographicalCustomer) q.getAgent()).isEmpty() && !buyersWhoPlacedAQuote.get((GeographicalCustomer)q.getAgent()).contains(q));
-
-        //map has changed!
-        changedMap = true;
     }
 
 
@@ -391,7 +461,7 @@ public class GeographicalMarket extends Market implements Steppable{
 
         if(buyersWhoPlacedAQuote.containsKey(buyer))
         {
-            changedMap = true;
+            bestBids.remove((GeographicalCustomer) buyer);
             return  buyersWhoPlacedAQuote.removeAll(buyer);
 
         }
@@ -409,7 +479,8 @@ public class GeographicalMarket extends Market implements Steppable{
     public Collection<Quote> removeAllSellQuoteBySeller(EconomicAgent seller) {
         if(sellersWhoPlacedAQuote.containsKey(seller))
         {
-            changedMap = true;
+            sellerIndex.remove((GeographicalFirm) seller);
+            bestAsks.remove((GeographicalFirm) seller);
             return  sellersWhoPlacedAQuote.removeAll(seller);
 
         }
@@ -434,37 +505,9 @@ public class GeographicalMarket extends Market implements Steppable{
      */
     @Override
     public int getBestSellPrice() throws IllegalAccessException {
-        if(sellersWhoPlacedAQuote.isEmpty())
-            return -1;
-
-
-        //go through all the quotes and find the cheapest
-
-        Quote lowestQuote = getLowestSellerQuote();
-        assert lowestQuote.getPriceQuoted()>=0;
+        assert bestAsks.isEmpty() == sellersWhoPlacedAQuote.isEmpty();
+        return bestAsks.getBestPrice();
 
-        return lowestQuote.getPriceQuoted();
-
-    }
-
-    private Quote getLowestSellerQuote() {
-        return Collections.min(sellersWhoPlacedAQuote.values(), new Comparator<Quote>() {
-            @Override
-            public int compare(Quote o1, Quote o2) {
-                return Long.compare(o1.getPriceQuoted(), o2.getPriceQuoted());
-
-            }
-        });
-    }
-
-    private Quote getHighestBuyerQuote() {
-        return Collections.max(buyersWhoPlacedAQuote.values(), new Comparator<Quote>() {
-            @Override
-            public int compare(Quote o1, Quote o2) {
-                return Long.compare(o1.getPriceQuoted(), o2.getPriceQuoted());
-
-            }
-        });
     }
 
     /**
@@ -476,14 +519,8 @@ public class GeographicalMarket extends Market implements Steppable{
 
     @Override
     public EconomicAgent getBestSeller() throws IllegalAccessException {
-        if(sellersWhoPlacedAQuote.isEmpty())
-            return null;
-
-
-        //go through all the quotes and find the cheapest
-
-        Quote lowestQuote = getLowestSellerQuote();
-        return lowestQuote.getAgent();
+        assert bestAsks.isEmpty() == sellersWhoPlacedAQuote.isEmpty();
+        return bestAsks.getBest();
     }
 
     /**
@@ -502,17 +539,8 @@ public class GeographicalMarket extends Market implements Steppable{
     +     */
     @Override
     public int getBestBuyPrice() throws IllegalAccessException {
-
-        if(buyersWhoPlacedAQuote.isEmpty())
-            return -1;
-
-
-        //go through all the quotes and find the cheapest
-
-        Quote highestQuote = getHighestBuyerQuote();
-        assert highestQuote.getPriceQuoted()>=0;
-
-        return highestQuote.getPriceQuoted();
+        assert bestBids.isEmpty() == buyersWhoPlacedAQuote.isEmpty();
+        return bestBids.getBestPrice();
 
     }
 
@@ -524,17 +552,8 @@ public class GeographicalMarket extends Market implements Steppable{
      */
     @Override
     public EconomicAgent getBestBuyer() throws IllegalAccessException {
-
-        if(buyersWhoPlacedAQuote.isEmpty())
-            return null;
-
-
-        //go through all the quotes and find the cheapest
-
-        Quote highestQuote = getHighestBuyerQuote();
-        assert highestQuote.getPriceQuoted()>=0;
-
-        return highestQuote.getAgent();
+        assert bestBids.isEmpty() == buyersWhoPlacedAQuote.isEmpty();
+        return bestBids.getBest();
 
     }
 
@@ -572,7 +591,11 @@ public class GeographicalMarket extends Market implements Steppable{
 
     /**
      * this happens at FINAL priority, so all quotes have been settled.
-     * It keeps rescheduling itself to iterate one more buyer
+     * Goes through the buyers in one pass, from the highest max price down. Each buyer keeps buying as long as it has quotes
+     * and finds a supplier; once refused the pass moves on, and goes back only if a quote appears that the refused buyer would take
+     * (or a new buyer shows up among the ones already processed). The pass is interrupted (and resumed where it was) only when
+     * somebody else has something to do in this phase, usually the sellers reacting to a sale; when it gets to the end the market is
+     * done for the day
      * @param state
      */
     @Override
@@ -582,75 +605,164 @@ public class GeographicalMarket extends Market implements Steppable{
             return;
 
         MacroII model = (MacroII)state;
-        /**
-         * if the map has changed since the last step, reset the iterator
-         */
-        if(changedMap)
-        {
-            indexToLoopTo = 0;
-            changedMap = false;
-        }
 
-        //let's go!
-        Iterator<GeographicalCustomer> buyerIterator = buyersWhoPlacedAQuote.keySet().iterator();
-        for(int i=0; i<indexToLoopTo; i++)
+        if(!clearing)
         {
-            assert buyerIterator.hasNext();   //should never fail, because we have been here before!
-            buyerIterator.next(); //already processed
+            //a new pass
+            clearing = true;
+            refusedBuyers.clear();
+            rewindTo = null;
+            currentBuyer = sortedBuyers.isEmpty() ? null : sortedBuyers.firstKey();
         }
-        //if there are no more buyers or sellers, we are done!
-        if(!buyerIterator.hasNext() || sellersWhoPlacedAQuote.isEmpty())
-        {
-            //restart this tomorrow
-            indexToLoopTo = 0;
-            model.scheduleTomorrow(ActionOrder.TRADE,this,Priority.FINAL);
-            return;
-        }
-
-        //okay, then there is another buyer to process, let's do this
-        GeographicalCustomer currentBuyer = buyerIterator.next();
-        //make him choose among all the possible buyers
-        GeographicalFirm sellerChosen = currentBuyer.chooseSupplier(Multimaps.unmodifiableMultimap(sellersWhoPlacedAQuote));
+        else
+            //we are resuming, somebody might have placed quotes meanwhile
+            currentBuyer = rewindIfNeeded(currentBuyer);
+
+        while (currentBuyer != null && !sellersWhoPlacedAQuote.isEmpty()) {
+            GeographicalCustomer buyer = currentBuyer;
+            //make him choose among all the possible sellers
+            GeographicalFirm sellerChosen = buyer.chooseSupplier(sellerIndex, transportCosts);
+
+            GeographicalCustomer next;
+            if (sellerChosen != null) {
+                tradeWithChosenSupplier(buyer, sellerChosen);
+                //keep buying if there are more quotes
+                next = buyersWhoPlacedAQuote.containsKey(buyer) ? buyer : sortedBuyers.higherKey(buyer);
+            } else {
+                //move on!
+                refusedBuyers.add(buyer);
+                next = sortedBuyers.higherKey(buyer);
+            }
+            currentBuyer = rewindIfNeeded(next);
 
-        if(sellerChosen!=null)
-        {
-            //remove the seller quote
-            Quote sellerQuoteChosen = sellersWhoPlacedAQuote.get(sellerChosen).iterator().next();
+            //let everybody else act before going on
+            if (model.hasPendingActions(ActionOrder.TRADE)) {
+                model.scheduleSoon(ActionOrder.TRADE, this, Priority.FINAL);
+                return;
+            }
+        }
 
-            //remove the buyer quote
-            Quote buyerQuoteToRemove = buyersWhoPlacedAQuote.get(currentBuyer).iterator().next();
+        //done for today
+        clearing = false;
+        currentBuyer = null;
+        rewindTo = null;
+        refusedBuyers.clear();
+        model.scheduleTomorrow(ActionOrder.TRADE,this,Priority.FINAL);
 
 
-            //make them trade!
-            int finalPrice = pricePolicy.price(sellerQuoteChosen.getPriceQuoted(), buyerQuoteToRemove.getPriceQuoted());
-            //make them trade!
-            Good goodBought = sellerQuoteChosen.getGood();
-            PurchaseResult result = trade(currentBuyer,sellerChosen, goodBought,finalPrice,sellerQuoteChosen,buyerQuoteToRemove);
-            if(result == PurchaseResult.BUYER_HAS_NO_MONEY)
-                throw new Bankruptcy(currentBuyer);
-            assert result == PurchaseResult.SUCCESS;
+    }
 
-            //remove the two crossing quotes
-            boolean removedCorrectly = sellersWhoPlacedAQuote.remove(sellerChosen,sellerQuoteChosen);
-            assert removedCorrectly;
-            removedCorrectly = buyersWhoPlacedAQuote.remove(currentBuyer,buyerQuoteToRemove);
-            assert removedCorrectly;
+    /**
+     * if quotes arrived that require going back, go back (forgetting the refusals from there on, they'll be asked again)
+     * @param next the buyer that would be processed next otherwise
+     * @return the buyer to process next
+     */
+    private GeographicalCustomer rewindIfNeeded(GeographicalCustomer next)
+    {
+        if(rewindTo == null)
+            return next;
+        if (next == null || sortedBuyers.comparator().compare(rewindTo, next) < 0) {
+            next = rewindTo;
+            while (!refusedBuyers.isEmpty() &&
+                    sortedBuyers.comparator().compare(refusedBuyers.get(refusedBuyers.size() - 1), next) >= 0)
+                refusedBuyers.remove(refusedBuyers.size() - 1);
+        }
+        rewindTo = null;
+        return next;
+    }
 
-            //reactions!
-            currentBuyer.reactToFilledBidQuote(buyerQuoteToRemove, goodBought, finalPrice, sellerChosen);
-            sellerChosen.reactToFilledAskedQuote(sellerQuoteChosen, goodBought, finalPrice, currentBuyer);
+    private void tradeWithChosenSupplier(GeographicalCustomer buyer, GeographicalFirm sellerChosen)
+    {
+        //remove the seller quote
+        Quote sellerQuoteChosen = sellersWhoPlacedAQuote.get(sellerChosen).iterator().next();
+
+        //remove the buyer quote
+        Quote buyerQuoteToRemove = buyersWhoPlacedAQuote.get(buyer).iterator().next();
+
+
+        //make them trade!
+        int finalPrice = pricePolicy.price(sellerQuoteChosen.getPriceQuoted(), buyerQuoteToRemove.getPriceQuoted());
+        //make them trade!
+        Good goodBought = sellerQuoteChosen.getGood();
+        PurchaseResult result = trade(buyer,sellerChosen, goodBought,finalPrice,sellerQuoteChosen,buyerQuoteToRemove);
+        if(result == PurchaseResult.BUYER_HAS_NO_MONEY)
+            throw new Bankruptcy(buyer);
+        assert result == PurchaseResult.SUCCESS;
+
+        //remove the two crossing quotes
+        boolean removedCorrectly = sellersWhoPlacedAQuote.remove(sellerChosen,sellerQuoteChosen);
+        assert removedCorrectly;
+        updateSellerIndex(sellerChosen);
+        removedCorrectly = buyersWhoPlacedAQuote.remove(buyer,buyerQuoteToRemove);
+        assert removedCorrectly;
+        updateBestBid(buyer);
+
+        //reactions!
+        buyer.reactToFilledBidQuote(buyerQuoteToRemove, goodBought, finalPrice, sellerChosen);
+        sellerChosen.reactToFilledAskedQuote(sellerQuoteChosen, goodBought, finalPrice, buyer);
+    }
 
-        }
-        else
+    /**
+     * while clearing, a new ask matters only to the buyers already refused: go back to the first one that would take it
+     */
+    private void sellQuoteArrived(Quote quote)
+    {
+        if(!clearing)
+            return;
+        GeographicalFirm seller = (GeographicalFirm) quote.getAgent();
+        for(GeographicalCustomer refused : refusedBuyers)
         {
-            //move on!
-            indexToLoopTo++;
+            if(buyersWhoPlacedAQuote.containsKey(refused) &&
+                    quote.getPriceQuoted() + transportCosts.getCost(refused,seller,refused.getDistanceExponent()) <= refused.getMaxPrice())
+            {
+                rewind(refused);
+                return;
+            }
         }
+    }
+
+    /**
+     * while clearing, a new bid by a buyer already processed means going back to it
+     */
+    private void buyQuoteArrived(GeographicalCustomer buyer)
+    {
+        if(clearing && (currentBuyer == null || sortedBuyers.comparator().compare(buyer, currentBuyer) < 0))
+            rewind(buyer);
+    }
 
-        //reschedule yourself the same day!
-        model.scheduleSoon(ActionOrder.TRADE,this,Priority.FINAL);
+    private void rewind(GeographicalCustomer buyer)
+    {
+        if(rewindTo == null || sortedBuyers.comparator().compare(buyer, rewindTo) < 0)
+            rewindTo = buyer;
+    }
 
+    /**
+     * after any change to the quotes of a seller, reprice it in the index and in the best asks at its cheapest quote (or take it out)
+     */
+    private void updateSellerIndex(GeographicalFirm seller)
+    {
+        Collection<Quote> quotes = sellersWhoPlacedAQuote.get(seller);
+        if(quotes.isEmpty()) {
+            sellerIndex.remove(seller);
+            bestAsks.remove(seller);
+        }
+        else {
+            int cheapest = quotes.iterator().next().getPriceQuoted();
+            sellerIndex.put(seller, cheapest);
+            bestAsks.put(seller, cheapest);
+        }
+    }
 
+    /**
+     * after any change to the quotes of a buyer, update its best bid (or take it out)
+     */
+    private void updateBestBid(GeographicalCustomer buyer)
+    {
+        Collection<Quote> quotes = buyersWhoPlacedAQuote.get(buyer);
+        if(quotes.isEmpty())
+            bestBids.remove(buyer);
+        else
+            bestBids.put(buyer, quotes.iterator().next().getPriceQuoted());
     }
 
     @Override
@@ -88,12 +88,16 @@ public class ImmediateOrderHandler implements OrderHandler {
             if(result == PurchaseResult.BUYER_HAS_NO_MONEY)
                 throw new Bankruptcy(bestBid.getAgent());
 
-            //remove the two crossing quotes
-            final Quote bidQuote = bids.remove();
-            final Quote askQuote = asks.remove();
+            //one unit traded; quotes for many units stay in the book until they are used up
+            bestBid.reduceQuantity(1);
+            bestAsk.reduceQuantity(1);
+            if(bestBid.getQuantity() == 0)
+                bids.remove();
+            if(bestAsk.getQuantity() == 0)
+                asks.remove();
             //reactions!
-            bestBid.getAgent().reactToFilledBidQuote(bidQuote, bestAsk.getGood(), price, bestAsk.getAgent());
-            bestAsk.getAgent().reactToFilledAskedQuote(askQuote, bestAsk.getGood(), price, bestBid.getAgent());
+            bestBid.getAgent().reactToFilledBidQuote(bestBid, bestAsk.getGood(), price, bestAsk.getAgent());
+            bestAsk.getAgent().reactToFilledAskedQuote(bestAsk, bestAsk.getGood(), price, bestBid.getAgent());
 
             //recursively make sure there are no more crossing quotes
             return true;
@@ -9,6 +9,7 @@ package financial.market;
 import agents.EconomicAgent;
 import agents.firm.Department;
 import com.google.common.base.Preconditions;
+import ec.util.MersenneTwisterFast;
 import financial.*;
 import financial.utilities.*;
 import goods.Good;
@@ -24,6 +25,7 @@ import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import model.MacroII;
+import model.MacroIIGUI;
 import model.utilities.ActionOrder;
 import model.utilities.Deactivatable;
 import model.utilities.ExchangeNetwork;
@@ -157,19 +159,10 @@ public abstract class Market implements Deactivatable{
         else
             policy = SimpleGoodTradePolicy.getInstance();
 
-        buyers = FXCollections.observableSet(new HashSet<>());
-        sellers = FXCollections.observableSet(new HashSet<>());
+        buyers = new HashSet<>();
+        sellers = new HashSet<>();
         marketData = new MarketData();
 
-
-        //build the gui inspector
-        if(MacroII.hasGUI()){
-
-            marketInspector = buildInspector();
-
-
-
-        }
     }
 
 
@@ -189,31 +182,84 @@ public abstract class Market implements Deactivatable{
     abstract public ActionsAllowed getBuyerRole();
 
 
-    private final ObservableSet<EconomicAgent> buyers;
+    private final Set<EconomicAgent> buyers;
+
+    /**
+     * how many times a buyer or seller came or went
+     */
+    private long membershipChanges = 0;
+
+    /**
+     * the buyers again, in an array to draw them at random
+     */
+    private final ParticipantRegistry buyerRegistry = new ParticipantRegistry();
+
+    private final ParticipantRegistry sellerRegistry = new ParticipantRegistry();
+
+    /**
+     * an observable view of the buyers, created only when somebody (the gui) wants to listen to it. While it exists
+     * buyers are added and removed through it so that listeners are told
+     */
+    private ObservableSet<EconomicAgent> observableBuyers = null;
 
     /**
      * Get an unmodifiable view of  all agents that belong in the market as buyers
      * @return all people who somehow can buy in this market
      */
 
-    public ObservableSet<EconomicAgent> getBuyers(){
-        return FXCollections.unmodifiableObservableSet(buyers);
+    public Set<EconomicAgent> getBuyers(){
+        return Collections.unmodifiableSet(buyers);
+    }
+
+    /**
+     * goes up by one every time a buyer or a seller registers or deregisters: if it didn't change, neither did who's in the market
+     */
+    public long getMembershipChanges() {
+        return membershipChanges;
+    }
+
+    /**
+     * draw at random up to searchDepth different buyers, never doNotDraw. It doesn't go through all the buyers to do it
+     * @param searchDepth how many to draw at most
+     * @param doNotDraw an agent not to draw (usually whoever is searching), can be null
+     * @param random the randomizer
+     * @return the sample, no nulls in it
+     */
+    public EconomicAgent[] sampleBuyers(int searchDepth, EconomicAgent doNotDraw, MersenneTwisterFast random) {
+        return buyerRegistry.sample(searchDepth, doNotDraw, random);
+    }
+
+    /**
+     * draw at random up to searchDepth different sellers, never doNotDraw. It doesn't go through all the sellers to do it
+     * @param searchDepth how many to draw at most
+     * @param doNotDraw an agent not to draw (usually whoever is searching), can be null
+     * @param random the randomizer
+     * @return the sample, no nulls in it
+     */
+    public EconomicAgent[] sampleSellers(int searchDepth, EconomicAgent doNotDraw, MersenneTwisterFast random) {
+        return sellerRegistry.sample(searchDepth, doNotDraw, random);
     }
 
     public void addListenerToBuyerSet(SetChangeListener<? super EconomicAgent> setChangeListener) {
-        buyers.addListener(setChangeListener);
+        if(observableBuyers == null)
+            observableBuyers = FXCollections.observableSet(buyers);
+        observableBuyers.addListener(setChangeListener);
     }
 
     public void addListenerToSellerSet(SetChangeListener<? super EconomicAgent> setChangeListener) {
-        sellers.addListener(setChangeListener);
+        if(observableSellers == null)
+            observableSellers = FXCollections.observableSet(sellers);
+        observableSellers.addListener(setChangeListener);
     }
 
     public void removeListenerFromBuyerSet(SetChangeListener<? super EconomicAgent> setChangeListener) {
-        buyers.removeListener(setChangeListener);
+        if(observableBuyers != null)
+            observableBuyers.removeListener(setChangeListener);
     }
 
     public void removeListenerFromSellerSet(SetChangeListener<? super EconomicAgent> setChangeListener) {
-        sellers.removeListener(setChangeListener);
+        if(observableSellers != null)
+            observableSellers.removeListener(setChangeListener);
     }
 
     /**
@@ -226,11 +272,14 @@ public abstract class Market implements Deactivatable{
      * @param buyer buyer entering the market
      */
     public void registerBuyer(EconomicAgent buyer){
-        boolean isNew = buyers.add(buyer);   //addSalesDepartmentListener it to the set
+        boolean isNew = observableBuyers == null ? buyers.add(buyer) : observableBuyers.add(buyer);   //addSalesDepartmentListener it to the set
         assert isNew;   //make sure it wasn't there before!
+        if(isNew)
+            buyerRegistry.add(buyer);
+        membershipChanges++;
 
         //record it, if necessary
-        if(MacroII.hasGUI())
+        if(network != null)
         {
             //todo logtodo
 
@@ -252,10 +301,13 @@ public abstract class Market implements Deactivatable{
      * @param buyer buyer exiting the market
      */
     public void deregisterBuyer(EconomicAgent buyer){
-        boolean isNew = buyers.remove(buyer);
+        boolean isNew = observableBuyers == null ? buyers.remove(buyer) : observableBuyers.remove(buyer);
         assert isNew;   //make sure it wasn't there before!
+        if(isNew)
+            buyerRegistry.remove(buyer);
+        membershipChanges++;
 
-        if(MacroII.hasGUI())
+        if(network != null)
         {
             //todo logtodo
 
@@ -269,7 +321,12 @@ public abstract class Market implements Deactivatable{
     /**
      * The registry containing all the sellers in the market
      */
-    private final ObservableSet<EconomicAgent> sellers;
+    private final Set<EconomicAgent> sellers;
+
+    /**
+     * an observable view of the sellers, created only when somebody listens to it
+     */
+    private ObservableSet<EconomicAgent> observableSellers = null;
 
 
 
@@ -278,9 +335,9 @@ public abstract class Market implements Deactivatable{
      * @return all people who somehow can buy in this market
      */
 
-    public ObservableSet<EconomicAgent> getSellers(){
+    public Set<EconomicAgent> getSellers(){
 
-        return FXCollections.unmodifiableObservableSet(sellers);
+        return Collections.unmodifiableSet(sellers);
     }
 
     /**
@@ -288,11 +345,14 @@ public abstract class Market implements Deactivatable{
      * @param seller buyer entering the market
      */
     public void registerSeller( EconomicAgent seller){
-        boolean isNew = sellers.add(seller);   //addSalesDepartmentListener it to the set
+        boolean isNew = observableSellers == null ? sellers.add(seller) : observableSellers.add(seller);   //addSalesDepartmentListener it to the set
         assert isNew;   //make sure it wasn't there before!
+        if(isNew)
+            sellerRegistry.add(seller);
+        membershipChanges++;
 
         //record it, if necessary
-        if(MacroII.hasGUI())
+        if(network != null)
         {
             //todo logtodo
 
@@ -309,12 +369,15 @@ public abstract class Market implements Deactivatable{
      * @param seller seller exiting the market
      */
     public void deregisterSeller( EconomicAgent seller){
-        boolean isNew = sellers.remove(seller);
+        boolean isNew = observableSellers == null ? sellers.remove(seller) : observableSellers.remove(seller);
         assert isNew;   //make sure it wasn't there before!
+        if(isNew)
+            sellerRegistry.remove(seller);
+        membershipChanges++;
 
 
 
-        if(MacroII.hasGUI())
+        if(network != null)
         {
             //todo logtodo
 
@@ -351,6 +414,22 @@ public abstract class Market implements Deactivatable{
 
     abstract public Quote submitSellQuote( EconomicAgent seller, int price, Good good,  Department department );
 
+    /**
+     * Submit a single sell quote for many units of an undifferentiated good. Only markets that {@link #acceptsQuantityQuotes()} take
+     * more than one unit at a time
+     * @param seller the agent making the sale
+     * @param price the price at/above which the agent is willing to sell
+     * @param good any of the goods to sell, it just tells the type
+     * @param quantity how many units
+     * @param department the department making the order or null if it's done by the agent himself
+     * @return the quote made
+     */
+    public Quote submitSellQuote( EconomicAgent seller, int price, Good good, int quantity, Department<?> department )
+    {
+        Preconditions.checkArgument(quantity == 1, "this market doesn't accept quotes for many units");
+        return submitSellQuote(seller,price,good,department);
+    }
+
 
 
     /**
@@ -381,6 +460,31 @@ public abstract class Market implements Deactivatable{
 
     abstract public Quote submitBuyQuote( EconomicAgent buyer, int price);
 
+    /**
+     * Submit a single buy quote for many units. Only markets that {@link #acceptsQuantityQuotes()} take
+     * more than one unit at a time
+     * @param buyer the agent trying to buy
+     * @param price the price at/below which the agent is willing to buy
+     * @param quantity how many units
+     * @param department the department making the order or null if it was done by the economic agent himself
+     * @return quote made
+     */
+    public Quote submitBuyQuote( EconomicAgent buyer, int price, int quantity, Department<?> department)
+    {
+        Preconditions.checkArgument(quantity == 1, "this market doesn't accept quotes for many units");
+        return submitBuyQuote(buyer,price,department);
+    }
+
+    /**
+     * Can a single quote be for more than one unit? If so the quote is filled one unit at a time and stays in the market
+     * until all its units are traded
+     * @return false unless overridden
+     */
+    public boolean acceptsQuantityQuotes()
+    {
+        return false;
+    }
+
     /**
      * If the buyer changes its mind and wants to remove its purchase quote, call this
      * @param q quote to cancel
@@ -445,7 +549,7 @@ public abstract class Market implements Deactivatable{
                 tl.tradeEvent(buyer,seller,good,price,sellerQuote,buyerQuote);
 
             //if there is GUI tell the records
-            if(MacroII.hasGUI())
+            if(network != null)
             {
                 //record it on the timeline
                 //todo logtodo
@@ -472,7 +576,7 @@ public abstract class Market implements Deactivatable{
         //  volume.add(new Week(model.getWeeksPassed(), (int) (model.getWeeksPassed() / model.getWeekLength())),weeklyVolume); //addSalesDepartmentListener it to the weeks
         weeklyVolume = 0;
         //if there is GUI, clear the network
-        if(MacroII.hasGUI()){
+        if(network != null){
             network.weekEnd();
             //todo logtodo
         }
@@ -545,6 +649,13 @@ public abstract class Market implements Deactivatable{
         return Collections.unmodifiableList(tradeListeners);
     }
 
+    /**
+     * true if anybody is listening to the trades (like {@code !getTradeListeners().isEmpty()} but without the wrapper)
+     */
+    public boolean hasTradeListeners() {
+        return !tradeListeners.isEmpty();
+    }
+
     /**
      * Add a trade listener to this market
      */
@@ -628,6 +739,18 @@ public abstract class Market implements Deactivatable{
 
         marketData.start(model,this);
 
+        //build the gui inspector, if this model has a gui
+        if(model.hasGUI() && marketInspector == null){
+
+            marketInspector = buildInspector(model.getGUI());
+            //whoever registered before now needs to show up in the network
+            for(EconomicAgent buyer : buyers)
+                network.addAgent(buyer);
+            for(EconomicAgent seller : sellers)
+                network.addAgent(seller);
+
+        }
+
 
         if(priceSeries!= null)
         {
@@ -678,17 +801,14 @@ public abstract class Market implements Deactivatable{
         return getClass().getSimpleName() + "-->" + getGoodType();
     }
 
-    protected TabbedInspector buildInspector(){
+    protected TabbedInspector buildInspector(MacroIIGUI gui){
 
 
 
 
         //create the network
-        network = new ExchangeNetwork(getGoodType());
-
+        network = new ExchangeNetwork(getGoodType(),gui);
 
-        //if there is no GUI, forget about it
-        Preconditions.checkState(MacroII.hasGUI()); //can't be called otherwise!
 
         TabbedInspector toReturn = new TabbedInspector(true);
         toReturn.setName(toString() + " inspector");
@@ -832,7 +952,7 @@ public abstract class Market implements Deactivatable{
     public void registerFiring( EconomicAgent employer,
                                 EconomicAgent employee){
         //with no GUI, forget about it
-        if(!MacroII.hasGUI())
+        if(network == null)
             return;
 
 
@@ -855,7 +975,7 @@ public abstract class Market implements Deactivatable{
                                          GoodType g, int quantity)
     {
         //if graphing is not active, don't bother
-        assert MacroII.hasGUI();
+        assert network != null;
 
         assert network.containsAgent(sender);
         assert network.containsAgent(receiver);
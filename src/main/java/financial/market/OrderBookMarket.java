@@ -13,9 +13,12 @@ import financial.BidListener;
 import financial.utilities.ActionsAllowed;
 import financial.utilities.HistogramDecoratedPriorityBook;
 import financial.utilities.Quote;
+import financial.utilities.QuoteBook;
+import financial.utilities.QuotePool;
 import goods.Good;
 import goods.GoodType;
 import model.MacroII;
+import model.MacroIIGUI;
 import model.utilities.ActionOrder;
 import sim.portrayal.Inspector;
 import sim.portrayal.inspector.TabbedInspector;
@@ -23,6 +26,7 @@ import sim.util.media.chart.HistogramGenerator;
 
 import java.awt.*;
 import java.util.*;
+import java.util.List;
 import java.util.Queue;
 
 /**
@@ -36,6 +40,20 @@ import java.util.Queue;
 public class OrderBookMarket extends Market {
 
 
+    /**
+     * the asks, lowest price first
+     */
+    private final QuoteBook askBook;
+
+    /**
+     * the bids, highest price first
+     */
+    private final QuoteBook bidBook;
+
+    /**
+     * the books as seen by the order handler: the same as askBook and bidBook unless there is a gui, in which case they are
+     * decorated with histograms. Changes go through these.
+     */
     private Queue<Quote> asks;
 
     private Queue<Quote> bids;
@@ -50,44 +68,33 @@ public class OrderBookMarket extends Market {
      */
     private OrderHandler orderHandler;
 
+    /**
+     * where the quotes come from. Quotes that cross as they are submitted are given back: their owner only ever sees the
+     * empty quote below. They are given back only when nobody listens to the trades, since a trade listener may have kept
+     * them
+     */
+    private final QuotePool quotePool = new QuotePool();
 
-    public OrderBookMarket(GoodType t) {
-        super(t);
-
-        //create the two books as priority queues, we might decorate them if there is GUI
-
-        //asks put the first element of the queue as the one with lowest price (best ask)
-        this.asks = new PriorityQueue<>(10,new Comparator<Quote>() {
-            @Override
-            public int compare(Quote o1, Quote o2) {
-                return Long.compare(o1.getPriceQuoted(),o2.getPriceQuoted());
-
-
-            }
-        });
-
-        //bids put the first element of the queue as the one with the highest offer (best bid)
-        this.bids = new PriorityQueue<>(10,new Comparator<Quote>() {
-            @Override
-            public int compare(Quote o1, Quote o2) {
-                return -Long.compare(o1.getPriceQuoted(),o2.getPriceQuoted());
-
+    /**
+     * what submitting returns when the quote crossed right away and is gone; shared, nobody can change them
+     */
+    private final Quote crossedAsk = Quote.emptySellQuote(null);
 
-            }
-        });
+    private final Quote crossedBid;
 
-        //if the gui is on
-        if(MacroII.hasGUI())
-        {
 
+    public OrderBookMarket(GoodType t) {
+        super(t);
 
-            buildInspector();
+        //create the two books, sorted by price and then by arrival; we might decorate them if there is GUI
+        askBook = QuoteBook.lowestPriceFirst();
+        bidBook = QuoteBook.highestPriceFirst();
+        asks = askBook;
+        bids = bidBook;
+        crossedBid = Quote.emptyBidQuote(t);
 
-        }
-        else{
-            assert histogramGenerator == null;
-            //do not decorate the bids and asks
-        }
+        //the bids and asks are decorated with histograms only if the model turns out to have a gui at start()
+        assert histogramGenerator == null;
 
 
 
@@ -140,6 +147,21 @@ public class OrderBookMarket extends Market {
 
     @Override
     public Quote submitSellQuote( EconomicAgent seller, int price,  Good good,  Department department) {
+        return submitSellQuote(seller,price,good,1,department);
+    }
+
+    /**
+     * Submit a sell quote for many units of the same undifferentiated good. The quote is filled a unit at a time and stays in the book
+     * until all its units are sold
+     *
+     * @param seller the agent making the sale
+     * @param price  the price at/above which the agent is willing to sell
+     * @param good   one of the goods to sell
+     * @param quantity how many units
+     * @return the quote made, possibly with fewer units than asked if some were immediately filled; a null quote if all of them were
+     */
+    @Override
+    public Quote submitSellQuote( EconomicAgent seller, int price,  Good good, int quantity,  Department<?> department) {
 
         assert getSellers().contains(seller);  //you should be registered if you are here
         if(MacroII.SAFE_MODE) //double check the good isn't already on sale
@@ -152,7 +174,7 @@ public class OrderBookMarket extends Market {
                 assert x.getGood() != good; //make sure it wasn't put in already
             }
 
-        Quote q = Quote.newSellerQuote(seller,price,good);
+        Quote q = quotePool.newSellerQuote(seller,price,good,quantity);
         if(department != null)
             q.setOriginator(department);
 
@@ -168,7 +190,10 @@ public class OrderBookMarket extends Market {
         if(asks.contains(q)) //if it's still in
             return q; //return the quote to the seller
         else //it crossed and was immediately removed!
-            return Quote.emptySellQuote(good); //if it was crossed, return a null quote
+        {
+            recycle(q);
+            return crossedAsk; //if it was crossed, return a null quote
+        }
 
     }
 
@@ -217,11 +242,24 @@ public class OrderBookMarket extends Market {
 
     @Override
     public Quote submitBuyQuote( EconomicAgent buyer, int price,  Department department) {
+        return submitBuyQuote(buyer,price,1,department);
+    }
+
+    /**
+     * Submit a buy quote for many units. The quote is filled a unit at a time and stays in the book until all its units are bought
+     *
+     * @param buyer the agent trying to buy
+     * @param price the price at/below which the agent is willing to buy
+     * @param quantity how many units
+     * @return the quote made, possibly with fewer units than asked if some were immediately filled; a null quote if all of them were
+     */
+    @Override
+    public Quote submitBuyQuote( EconomicAgent buyer, int price, int quantity, Department<?> department) {
         assert getBuyers().contains(buyer) : buyer + " ---- " + getBuyers() + " ---- " + this.getGoodType();  //you should be registered if you are here
         if(MacroII.SAFE_MODE) //double check the good isn't already on sale
             Preconditions.checkState(buyer.getModel().getCurrentPhase().equals(ActionOrder.TRADE));
 
-        Quote q = Quote.newBuyerQuote(buyer, price, goodType);
+        Quote q = quotePool.newBuyerQuote(buyer, price, goodType, quantity);
         if(department != null)
             q.setOriginator(department);
 
@@ -248,7 +286,19 @@ public class OrderBookMarket extends Market {
         if(bids.contains(q)) //if it's still in
             return q; //return the quote to the seller
         else //it crossed and was immediately removed!
-            return Quote.emptyBidQuote(goodType); //if it was crossed, return a null quote
+        {
+            recycle(q);
+            return crossedBid; //if it was crossed, return a null quote
+        }
+    }
+
+    /**
+     * give a quote that crossed right away back to the pool, unless some trade listener saw it and may have kept it
+     */
+    private void recycle(Quote crossed)
+    {
+        if(!hasTradeListeners())
+            quotePool.release(crossed);
     }
 
 
@@ -337,13 +387,8 @@ public class OrderBookMarket extends Market {
      */
     @Override
     public Collection<Quote> removeAllBuyQuoteByBuyer(EconomicAgent buyer) {
-        //create the set of buy quotes  to remove
-        Set<Quote> buyQuotesToRemove = new HashSet<>();
-        for(Quote q : bids)
-        {
-            if(q.getAgent().equals(buyer))
-                buyQuotesToRemove.add(q);
-        }
+        //the quotes of the buyer, straight from the index
+        List<Quote> buyQuotesToRemove = bidBook.getQuotesBy(buyer);
         if(buyQuotesToRemove.isEmpty()) //nothing to remove!
             return buyQuotesToRemove;
 
@@ -367,13 +412,8 @@ public class OrderBookMarket extends Market {
      */
     @Override
     public Collection<Quote> removeAllSellQuoteBySeller(EconomicAgent seller) {
-        //create the set of buy quotes  to remove
-        Set<Quote> askQuotes = new HashSet<>();
-        for(Quote q : asks)
-        {
-            if(q.getAgent().equals(seller))
-                askQuotes.add(q);
-        }
+        //the quotes of the seller, straight from the index
+        List<Quote> askQuotes = askBook.getQuotesBy(seller);
         if(askQuotes.isEmpty()) //nothing to remove!
             return askQuotes;
 
@@ -388,6 +428,14 @@ public class OrderBookMarket extends Market {
 
     }
 
+    /**
+     * quotes for undifferentiated goods can be for many units, they stay in the book until they are completely filled
+     */
+    @Override
+    public boolean acceptsQuantityQuotes() {
+        return true;
+    }
+
     /**
      * Best bid and asks are visible.
      */
@@ -507,18 +555,17 @@ public class OrderBookMarket extends Market {
     /**
      * The order book adds the histogram viewer to the market inspector.
      */
-    protected TabbedInspector  buildInspector()
+    protected TabbedInspector  buildInspector(MacroIIGUI gui)
     {
-        assert MacroII.hasGUI();
-        TabbedInspector inspector = super.buildInspector();
+        TabbedInspector inspector = super.buildInspector(gui);
 
         histogramGenerator = new HistogramGenerator();
         //add the 2 series
         histogramGenerator.addSeries(null,50,"bids",null);
         histogramGenerator.addSeries(null,50,"asks",null);
         //decorate the asks and bids
-        this.bids = new HistogramDecoratedPriorityBook((PriorityQueue)bids,histogramGenerator,0,"Bids");
-        this.asks = new HistogramDecoratedPriorityBook((PriorityQueue)asks,histogramGenerator,1,"Asks");
+        this.bids = new HistogramDecoratedPriorityBook(bidBook,histogramGenerator,0,"Bids");
+        this.asks = new HistogramDecoratedPriorityBook(askBook,histogramGenerator,1,"Asks");
 
 
         Inspector orderBookViewer = new Inspector() {
@@ -539,25 +586,29 @@ public class OrderBookMarket extends Market {
 
     public boolean containsQuotesFromThisBuyer(EconomicAgent buyer)
     {
-        for(Quote q: bids)
-            if(q.getAgent().equals(buyer))
-                return true;
-        return false;
+        return bidBook.hasQuotesBy(buyer);
     }
 
     /**
-     * Returns how many asks are currently in the market
+     * Returns how many asks are currently in the market, in units: a quote for many units counts many times
      */
     public int numberOfAsks() {
-        return asks.size();
+        return unitsIn(asks);
     }
 
 
     /**
-     * Returns how many bids are currently in the market
+     * Returns how many bids are currently in the market, in units: a quote for many units counts many times
      */
     public int numberOfBids() {
-        return bids.size();
+        return unitsIn(bids);
+    }
+
+    private static int unitsIn(Collection<Quote> book) {
+        int units = 0;
+        for(Quote q : book)
+            units += q.getQuantity();
+        return units;
     }
 
 
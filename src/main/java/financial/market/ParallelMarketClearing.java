@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import agents.EconomicAgent;
+import com.google.common.base.Preconditions;
+import model.MacroII;
+import model.utilities.ActionOrder;
+import model.utilities.Deactivatable;
+import model.utilities.scheduler.ParallelSection;
+import model.utilities.scheduler.Priority;
+import model.utilities.scheduler.RecurringAction;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Clears the markets of all the {@link EndOfPhaseOrderHandler}s of a model at the end of TRADE, in rounds: each round every
+ * handler still trading does one step, then the round is over and whatever the traders scheduled in reaction gets to act
+ * before the next round. Within a round the markets are split in groups sharing no buyer or seller (not even registered
+ * ones: an agent could react to a trade in one market by quoting in another, and not through any other market of the model
+ * either: quoting in an immediate market trades right there) and the groups are cleared at the same time on
+ * a fork-join pool through a {@link ParallelSection}.
+ * <p/> It's deterministic for a given seed but it's not the same as letting each handler reschedule itself: reactions happen
+ * after the round rather than after each trade and each group of markets draws from its own randomizer. Markets whose agents
+ * all trade everywhere (a firm hiring in one and selling in the other, say) end up in one group and clear one after the other.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParallelMarketClearing implements Steppable, Deactivatable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MacroII model;
+
+    /**
+     * in the order they registered
+     */
+    private final List<EndOfPhaseOrderHandler> handlers = new ArrayList<>();
+
+    /**
+     * the handlers to step in the next round; null means all of them (a new day)
+     */
+    private List<EndOfPhaseOrderHandler> due = null;
+
+    private RecurringAction dailyClearing = null;
+
+    /**
+     * the group of each registered handler, as long as nobody joins or leaves a market (or the handlers change)
+     */
+    private final Map<EndOfPhaseOrderHandler,Integer> groupOf = new HashMap<>();
+
+    /**
+     * the sum of the markets membership changes when groupOf was computed; -1 means it has to be computed again
+     */
+    private long groupedAt = -1;
+
+    private boolean isActive = true;
+
+    public ParallelMarketClearing(MacroII model) {
+        this.model = model;
+    }
+
+    /**
+     * start clearing this handler's market every day
+     */
+    public void register(EndOfPhaseOrderHandler handler)
+    {
+        Preconditions.checkArgument(!handlers.contains(handler));
+        handlers.add(handler);
+        groupedAt = -1;
+        if(dailyClearing == null)
+        {
+            dailyClearing = model.scheduleEveryDay(ActionOrder.TRADE, this, Priority.FINAL);
+            model.registerDeactivable(this);
+        }
+    }
+
+    /**
+     * stop clearing this handler's market. When called while clearing (a trader closing a market, say) it happens once the
+     * round is over, on the model thread
+     */
+    public void deregister(EndOfPhaseOrderHandler handler)
+    {
+        if(ParallelSection.isWorker())
+        {
+            ParallelSection.defer(() -> deregister(handler));
+            return;
+        }
+        handlers.remove(handler);
+        groupedAt = -1;
+        if(due != null)
+            due.remove(handler);
+    }
+
+    @Override
+    public void step(SimState simState) {
+        if(!isActive)
+            return;
+
+        List<EndOfPhaseOrderHandler> toStep = due == null ? new ArrayList<>(handlers) : due;
+        due = null;
+        if(toStep.isEmpty())
+            return;
+
+        List<List<EndOfPhaseOrderHandler>> groups = groupsOf(toStep);
+        final Set<EndOfPhaseOrderHandler> traded = Collections.synchronizedSet(new HashSet<>());
+        if(groups.size() == 1)
+            clearGroup(groups.get(0), traded);
+        else
+        {
+            List<Runnable> tasks = new ArrayList<>(groups.size());
+            for(List<EndOfPhaseOrderHandler> group : groups)
+                tasks.add(() -> clearGroup(group, traded));
+            //looked up every time rather than kept: a pool is no model state and a snapshot can't copy it
+            ParallelSection.runAll(ForkJoinPool.commonPool(), tasks, model.getRandom());
+        }
+
+        if(!traded.isEmpty())
+        {
+            //keep the registration order, without whoever left during the round
+            due = new ArrayList<>(traded.size());
+            for(EndOfPhaseOrderHandler handler : toStep)
+                if(traded.contains(handler) && handlers.contains(handler))
+                    due.add(handler);
+            //once everybody had its reaction, go again
+            model.scheduleSoon(ActionOrder.TRADE, this, Priority.FINAL);
+        }
+    }
+
+    /**
+     * split these handlers in groups sharing no agent, regrouping all the handlers only if somebody joined or left a market
+     * (any market of the model, not just the handlers')
+     */
+    private List<List<EndOfPhaseOrderHandler>> groupsOf(List<EndOfPhaseOrderHandler> toStep)
+    {
+        long membership = 0;
+        for(EndOfPhaseOrderHandler handler : handlers)
+            membership += handler.getMarket().getMembershipChanges();
+        for(Market market : model.getMarkets())
+            membership += market.getMembershipChanges();
+        if(membership != groupedAt)
+        {
+            groupOf.clear();
+            List<List<EndOfPhaseOrderHandler>> groups = groupsSharingNoAgent(handlers, model.getMarkets());
+            for(int i=0; i<groups.size(); i++)
+                for(EndOfPhaseOrderHandler handler : groups.get(i))
+                    groupOf.put(handler,i);
+            groupedAt = membership;
+        }
+
+        Map<Integer,List<EndOfPhaseOrderHandler>> groups = new LinkedHashMap<>();
+        for(EndOfPhaseOrderHandler handler : toStep)
+            groups.computeIfAbsent(groupOf.get(handler), k -> new ArrayList<>()).add(handler);
+        return new ArrayList<>(groups.values());
+    }
+
+    private static void clearGroup(List<EndOfPhaseOrderHandler> group, Set<EndOfPhaseOrderHandler> traded)
+    {
+        for(EndOfPhaseOrderHandler handler : group)
+            if(handler.clear())
+                traded.add(handler);
+    }
+
+    /**
+     * groups of handlers whose markets share no buyer or seller, each in registration order; the groups are ordered by their
+     * first handler. Two markets are also in the same group when they are linked through any of the other markets: the agents
+     * of an immediate or geographical market trade as soon as they quote, so a reaction there reaches everybody in it
+     * @param toGroup the handlers to split
+     * @param allMarkets every market agents could quote in while the handlers clear
+     */
+    static List<List<EndOfPhaseOrderHandler>> groupsSharingNoAgent(List<EndOfPhaseOrderHandler> toGroup,
+                                                                   Collection<Market> allMarkets)
+    {
+        //the handlers' markets first, then the rest
+        Map<Market,Integer> nodeOf = new IdentityHashMap<>();
+        List<Market> markets = new ArrayList<>();
+        for(EndOfPhaseOrderHandler handler : toGroup)
+            if(nodeOf.putIfAbsent(handler.getMarket(), markets.size()) == null)
+                markets.add(handler.getMarket());
+        for(Market market : allMarkets)
+            if(nodeOf.putIfAbsent(market, markets.size()) == null)
+                markets.add(market);
+
+        //union-find over the markets, merged through the agents they have in common
+        int[] parent = new int[markets.size()];
+        for(int i=0; i<parent.length; i++)
+            parent[i] = i;
+        Map<EconomicAgent,Integer> firstSeenIn = new HashMap<>();
+        for(int i=0; i<markets.size(); i++)
+        {
+            Market market = markets.get(i);
+            for(Collection<EconomicAgent> agents : Arrays.asList(market.getBuyers(), market.getSellers()))
+                for(EconomicAgent agent : agents)
+                {
+                    Integer other = firstSeenIn.putIfAbsent(agent, i);
+                    if(other != null)
+                        parent[root(parent, i)] = root(parent, other);
+                }
+        }
+
+        Map<Integer,List<EndOfPhaseOrderHandler>> groups = new LinkedHashMap<>();
+        for(EndOfPhaseOrderHandler handler : toGroup)
+            groups.computeIfAbsent(root(parent, nodeOf.get(handler.getMarket())), k -> new ArrayList<>()).add(handler);
+        return new ArrayList<>(groups.values());
+    }
+
+    private static int root(int[] parent, int i)
+    {
+        while(parent[i] != i)
+        {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    @Override
+    public void turnOff() {
+        isActive = false;
+        if(dailyClearing != null)
+            dailyClearing.cancel();
+        handlers.clear();
+    }
+}
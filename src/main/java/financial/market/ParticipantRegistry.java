@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import agents.EconomicAgent;
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The buyers (or sellers) of a market in an array, so that they can be drawn at random without going through all of them.
+ * Each agent remembers its position; removing one moves the last agent in its place, so both adding and removing are O(1).
+ * The order of the array means nothing.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+class ParticipantRegistry {
+
+    private EconomicAgent[] agents = new EconomicAgent[16];
+
+    private final Map<EconomicAgent,Integer> positions = new IdentityHashMap<>();
+
+    private int size = 0;
+
+    void add(EconomicAgent agent)
+    {
+        assert !positions.containsKey(agent);
+        if(size == agents.length)
+            agents = Arrays.copyOf(agents, size * 2);
+        agents[size] = agent;
+        positions.put(agent, size);
+        size++;
+    }
+
+    void remove(EconomicAgent agent)
+    {
+        Integer position = positions.remove(agent);
+        assert position != null;
+        size--;
+        if(position != size)
+        {
+            //fill the hole with the last one
+            EconomicAgent last = agents[size];
+            agents[position] = last;
+            positions.put(last, position);
+        }
+        agents[size] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * draw up to searchDepth different agents at random, never doNotDraw; O(searchDepth) whatever the size of the registry
+     * (Floyd's sampling on the positions)
+     */
+    EconomicAgent[] sample(int searchDepth, EconomicAgent doNotDraw, MersenneTwisterFast random)
+    {
+        Integer excluded = doNotDraw == null ? null : positions.get(doNotDraw);
+        int population = excluded == null ? size : size - 1;
+        int sampleSize = Math.min(searchDepth, population);
+        EconomicAgent[] sample = new EconomicAgent[sampleSize];
+
+        Set<Integer> drawn = new HashSet<>(sampleSize * 2);
+        int filled = 0;
+        for(int candidate = population - sampleSize; candidate < population; candidate++)
+        {
+            int draw = random.nextInt(candidate + 1);
+            if(!drawn.add(draw))
+            {
+                draw = candidate;
+                drawn.add(draw);
+            }
+            //skip over the excluded position
+            if(excluded != null && draw >= excluded)
+                draw++;
+            sample[filled++] = agents[draw];
+        }
+        assert filled == sampleSize;
+        return sample;
+    }
+}
@@ -11,18 +11,17 @@ import com.google.common.collect.ForwardingQueue;
 import sim.util.media.chart.HistogramGenerator;
 
 import java.util.Collection;
-import java.util.PriorityQueue;
 import java.util.Queue;
 
 /**
  * <h4>Description</h4>
- * <p/>  This is basically a decorator of the priority queue that also has a link to an histogram generator and updates it regularly.
+ * <p/>  This is basically a decorator of the order book queue that also has a link to an histogram generator and updates it regularly.
  * It has to call "toArray" because JFreechart is unwieldy.
  * <p/> I extends ForwardingQueue in the JavaCollection that is nice because that way I don't havet o delegate EVERYTHING
  * <p/>
  * <h4>Notes</h4>
  * Created with IntelliJ
- * <p/>  Since I use it only for orderbook I assume that the priority queue given holds queues.
+ * <p/>  Since I use it only for orderbook I assume that the queue given holds quotes.
  * <p/>
  * <h4>References</h4>
  *
@@ -33,7 +32,7 @@ import java.util.Queue;
 public class HistogramDecoratedPriorityBook extends ForwardingQueue<Quote> {
 
 
-    final private PriorityQueue<Quote> book;
+    final private Queue<Quote> book;
 
     final private HistogramGenerator histogramGenerator;
 
@@ -47,7 +46,7 @@ public class HistogramDecoratedPriorityBook extends ForwardingQueue<Quote> {
      * @param histogramGenerator a link to the histogram generator!
      * @param index the index of the book as a series in the histogram
      */
-    public HistogramDecoratedPriorityBook(PriorityQueue<Quote> book, HistogramGenerator histogramGenerator, int index, String name) {
+    public HistogramDecoratedPriorityBook(Queue<Quote> book, HistogramGenerator histogramGenerator, int index, String name) {
         this.book = book;
         this.histogramGenerator = histogramGenerator;
         this.index = index;
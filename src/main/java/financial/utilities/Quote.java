@@ -9,12 +9,14 @@ package financial.utilities;
 import agents.EconomicAgent;
 import agents.firm.Department;
 import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import goods.Good;
 import goods.GoodType;
 
 
 /**
- * A quote is a price promise for one good type
+ * A quote is a price promise for one good type. Quotes for undifferentiated goods can be for more than one unit: the market
+ * fills them one unit at a time and takes them out of the book once their quantity reaches 0
  * User: carrknight
  * Date: 7/16/12
  * Time: 9:19 PM
@@ -22,9 +24,9 @@ import goods.GoodType;
  */
 public class Quote {
 
-    final private EconomicAgent agent;
+    private EconomicAgent agent;
 
-    final private int priceQuoted;
+    private int priceQuoted;
 
     /**
      * Bid quotes want a general kind of good, this is it.
@@ -44,12 +46,51 @@ public class Quote {
 
     private Department originator = null;
 
+    /**
+     * how many units are still promised by this quote
+     */
+    private int quantity = 1;
+
+    /**
+     * how many times a {@link QuotePool} recycled this object
+     */
+    private int generation = 0;
+
 
     private Quote(EconomicAgent agent, int priceQuoted) {
         this.agent = agent;
         this.priceQuoted = priceQuoted;
     }
 
+    /**
+     * an empty object for the pool to fill
+     */
+    Quote() {
+        this(null,-1);
+    }
+
+    /**
+     * the pool fills a recycled quote as if it was new
+     */
+    void reuse(EconomicAgent agent, int priceQuoted, GoodType type, Good good, int quantity)
+    {
+        this.agent = agent;
+        this.priceQuoted = priceQuoted;
+        this.type = type;
+        this.good = good;
+        this.quantity = quantity;
+        this.originator = null;
+    }
+
+    /**
+     * the pool takes the quote back: it forgets everything and its generation goes up
+     */
+    void recycle()
+    {
+        reuse(null,-1,null,null,1);
+        generation++;
+    }
+
 
     public static Quote newSellerQuote( EconomicAgent seller, int priceQuoted, Good good){
         Quote ask = new Quote(seller,priceQuoted);
@@ -64,6 +105,28 @@ public class Quote {
         return bid;
     }
 
+    /**
+     * a sell quote for many units of an undifferentiated good, all at the same price
+     */
+    public static Quote newSellerQuote( EconomicAgent seller, int priceQuoted, Good good, int quantity){
+        Preconditions.checkArgument(quantity > 0);
+        Preconditions.checkArgument(quantity == 1 || !good.getType().isDifferentiated(), "differentiated goods are quoted one by one");
+        Quote ask = newSellerQuote(seller,priceQuoted,good);
+        ask.quantity = quantity;
+        return ask;
+    }
+
+    /**
+     * a buy quote for many units of an undifferentiated good, all at the same price
+     */
+    public static Quote newBuyerQuote(EconomicAgent buyer, int priceQuoted, GoodType type, int quantity){
+        Preconditions.checkArgument(quantity > 0);
+        Preconditions.checkArgument(quantity == 1 || !type.isDifferentiated(), "differentiated goods are quoted one by one");
+        Quote bid = newBuyerQuote(buyer,priceQuoted,type);
+        bid.quantity = quantity;
+        return bid;
+    }
+
     /**
      * an empty quote is a quote with agent NULL and price -1
      * @return an empty quote
@@ -109,14 +172,42 @@ public class Quote {
     }
 
     public void setOriginator(Department originator) {
+        Preconditions.checkState(agent != null, "empty quotes are shared, they can't be changed");
         this.originator = originator;
     }
 
+    /**
+     * how many units are still promised by this quote
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * called by the market when some units are filled, or by the owner when it takes some units off a quote that stays in the market.
+     * The market removes the quote from its book when this reaches 0
+     * @param units how many units are gone
+     */
+    public void reduceQuantity(int units) {
+        Preconditions.checkState(agent != null, "empty quotes are shared, they can't be changed");
+        Preconditions.checkArgument(units > 0 && units <= quantity, "can't take away more units than the quote has");
+        quantity -= units;
+    }
+
+
+    /**
+     * goes up each time the market recycles this object for another quote. Whoever keeps a quote the market could recycle (one
+     * that was filled, say) can remember this too and check it before using the quote again
+     */
+    public int getGeneration() {
+        return generation;
+    }
 
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("priceQuoted", priceQuoted)
+                .add("quantity", quantity)
                 .toString();
     }
 }
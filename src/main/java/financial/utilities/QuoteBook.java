@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import com.google.common.base.Preconditions;
+
+import java.util.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/> One side of an order book. Quotes are grouped in price levels, kept sorted by price (best first); within a level they
+ * are in the order they arrived, so the head of the queue is always the oldest quote at the best price.
+ * <p/> Every quote has a handle (its entry in the level list) found by hash: membership is O(1) and removing any quote is O(1)
+ * plus O(log n) when its price level empties. The quotes of each agent are also linked together so that all the quotes of an
+ * agent can be found without scanning the book.
+ * <p/> It is a Queue so that order handlers and decorators can use it like the priority queue it replaces. Iteration goes from best
+ * to worst price.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class QuoteBook extends AbstractQueue<Quote> {
+
+    /**
+     * price levels, best first
+     */
+    private final TreeMap<Integer,PriceLevel> levels;
+
+    /**
+     * the handle of each quote in the book
+     */
+    private final HashMap<Quote,Entry> entries = new HashMap<>();
+
+    /**
+     * the quotes of each agent, in the order they arrived
+     */
+    private final HashMap<EconomicAgent,AgentQuotes> byAgent = new HashMap<>();
+
+    /**
+     * the first level, kept to avoid a tree lookup on every peek
+     */
+    private PriceLevel best = null;
+
+    /**
+     * increased at every change, to fail fast when iterating
+     */
+    private int modifications = 0;
+
+    private QuoteBook(Comparator<Integer> priceOrder) {
+        this.levels = new TreeMap<>(priceOrder);
+    }
+
+    /**
+     * a book whose head is the lowest price: the asks
+     */
+    public static QuoteBook lowestPriceFirst()
+    {
+        return new QuoteBook(null);
+    }
+
+    /**
+     * a book whose head is the highest price: the bids
+     */
+    public static QuoteBook highestPriceFirst()
+    {
+        return new QuoteBook(Collections.<Integer>reverseOrder());
+    }
+
+    @Override
+    public boolean offer(Quote quote) {
+        Preconditions.checkArgument(!entries.containsKey(quote), "quote already in the book");
+
+        int price = quote.getPriceQuoted();
+        PriceLevel level = levels.get(price);
+        if(level == null)
+        {
+            level = new PriceLevel(price);
+            levels.put(price,level);
+            best = levels.firstEntry().getValue();
+        }
+        Entry entry = new Entry(quote,level);
+        level.append(entry);
+
+        AgentQuotes agentQuotes = byAgent.get(quote.getAgent());
+        if(agentQuotes == null)
+        {
+            agentQuotes = new AgentQuotes();
+            byAgent.put(quote.getAgent(),agentQuotes);
+        }
+        entry.agentQuotes = agentQuotes;
+        agentQuotes.append(entry);
+
+        entries.put(quote,entry);
+        modifications++;
+        return true;
+    }
+
+    @Override
+    public Quote poll() {
+        if(best == null)
+            return null;
+        Entry head = best.first;
+        unlink(head);
+        return head.quote;
+    }
+
+    @Override
+    public Quote peek() {
+        return best == null ? null : best.first.quote;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return entries.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Entry entry = entries.get(o);
+        if(entry == null)
+            return false;
+        unlink(entry);
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean changed = false;
+        for(Object o : c)
+            changed |= remove(o);
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        levels.clear();
+        entries.clear();
+        byAgent.clear();
+        best = null;
+        modifications++;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return true if the agent has at least a quote in the book
+     */
+    public boolean hasQuotesBy(EconomicAgent agent)
+    {
+        return byAgent.containsKey(agent);
+    }
+
+    /**
+     * @return all the quotes of this agent in the book, in the order they were placed. It is a copy, the book can be changed while
+     * going through it
+     */
+    public List<Quote> getQuotesBy(EconomicAgent agent)
+    {
+        AgentQuotes agentQuotes = byAgent.get(agent);
+        if(agentQuotes == null)
+            return new ArrayList<>(0);
+        List<Quote> quotes = new ArrayList<>(agentQuotes.size);
+        for(Entry entry = agentQuotes.first; entry != null; entry = entry.nextByAgent)
+            quotes.add(entry.quote);
+        return quotes;
+    }
+
+    /**
+     * @return how many different prices there are in the book
+     */
+    public int getNumberOfPriceLevels()
+    {
+        return levels.size();
+    }
+
+    private void unlink(Entry entry)
+    {
+        entries.remove(entry.quote);
+
+        PriceLevel level = entry.level;
+        level.unlink(entry);
+        if(level.size == 0)
+        {
+            levels.remove(level.price);
+            if(level == best)
+                best = levels.isEmpty() ? null : levels.firstEntry().getValue();
+        }
+
+        AgentQuotes agentQuotes = entry.agentQuotes;
+        agentQuotes.unlink(entry);
+        if(agentQuotes.size == 0)
+            byAgent.remove(entry.quote.getAgent());
+
+        modifications++;
+    }
+
+    /**
+     * the entry after this one: the next in its level or the first of the next level
+     */
+    private Entry successor(Entry entry)
+    {
+        if(entry.next != null)
+            return entry.next;
+        Map.Entry<Integer,PriceLevel> nextLevel = levels.higherEntry(entry.level.price);
+        return nextLevel == null ? null : nextLevel.getValue().first;
+    }
+
+    /**
+     * from best to worst price, oldest first within a price
+     */
+    @Override
+    public Iterator<Quote> iterator() {
+        return new Iterator<Quote>() {
+
+            private Entry next = best == null ? null : best.first;
+
+            private Entry lastReturned = null;
+
+            private int expectedModifications = modifications;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Quote next() {
+                if(expectedModifications != modifications)
+                    throw new ConcurrentModificationException();
+                if(next == null)
+                    throw new NoSuchElementException();
+                lastReturned = next;
+                next = successor(next);
+                return lastReturned.quote;
+            }
+
+            @Override
+            public void remove() {
+                Preconditions.checkState(lastReturned != null);
+                if(expectedModifications != modifications)
+                    throw new ConcurrentModificationException();
+                unlink(lastReturned);
+                lastReturned = null;
+                expectedModifications = modifications;
+            }
+        };
+    }
+
+    /**
+     * the handle of a quote: its place in the price level and in the list of its agent
+     */
+    private static class Entry
+    {
+        private final Quote quote;
+
+        private final PriceLevel level;
+
+        private Entry previous;
+
+        private Entry next;
+
+        private AgentQuotes agentQuotes;
+
+        private Entry previousByAgent;
+
+        private Entry nextByAgent;
+
+        private Entry(Quote quote, PriceLevel level) {
+            this.quote = quote;
+            this.level = level;
+        }
+    }
+
+    /**
+     * all the quotes at one price, oldest first
+     */
+    private static class PriceLevel
+    {
+        private final int price;
+
+        private Entry first;
+
+        private Entry last;
+
+        private int size = 0;
+
+        private PriceLevel(int price) {
+            this.price = price;
+        }
+
+        private void append(Entry entry)
+        {
+            entry.previous = last;
+            if(last == null)
+                first = entry;
+            else
+                last.next = entry;
+            last = entry;
+            size++;
+        }
+
+        private void unlink(Entry entry)
+        {
+            if(entry.previous == null)
+                first = entry.next;
+            else
+                entry.previous.next = entry.next;
+            if(entry.next == null)
+                last = entry.previous;
+            else
+                entry.next.previous = entry.previous;
+            entry.previous = null;
+            entry.next = null;
+            size--;
+        }
+    }
+
+    /**
+     * all the quotes of one agent, oldest first
+     */
+    private static class AgentQuotes
+    {
+        private Entry first;
+
+        private Entry last;
+
+        private int size = 0;
+
+        private void append(Entry entry)
+        {
+            entry.previousByAgent = last;
+            if(last == null)
+                first = entry;
+            else
+                last.nextByAgent = entry;
+            last = entry;
+            size++;
+        }
+
+        private void unlink(Entry entry)
+        {
+            if(entry.previousByAgent == null)
+                first = entry.nextByAgent;
+            else
+                entry.previousByAgent.nextByAgent = entry.nextByAgent;
+            if(entry.nextByAgent == null)
+                last = entry.previousByAgent;
+            else
+                entry.nextByAgent.previousByAgent = entry.previousByAgent;
+            entry.previousByAgent = null;
+            entry.nextByAgent = null;
+            size--;
+        }
+    }
+}
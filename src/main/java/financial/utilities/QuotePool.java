@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import com.google.common.base.Preconditions;
+import goods.Good;
+import goods.GoodType;
+
+import java.util.ArrayDeque;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The quotes of a market, recycled. The market makes its quotes here and gives back the ones nobody outside can still be
+ * holding, so the next quote reuses the object instead of allocating one. Each time a quote is recycled its
+ * {@link Quote#getGeneration()} goes up.
+ * <p/> Only give back quotes you are sure about: a quote that is still in a book, or that some department remembers, must not
+ * be released.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class QuotePool {
+
+    private final ArrayDeque<Quote> free = new ArrayDeque<>();
+
+    /**
+     * like {@link Quote#newSellerQuote(EconomicAgent, int, Good, int)}, possibly with a recycled object
+     */
+    public Quote newSellerQuote(EconomicAgent seller, int priceQuoted, Good good, int quantity)
+    {
+        Preconditions.checkArgument(quantity > 0);
+        Preconditions.checkArgument(quantity == 1 || !good.getType().isDifferentiated(), "differentiated goods are quoted one by one");
+        Quote ask = take();
+        ask.reuse(seller,priceQuoted,good.getType(),good,quantity);
+        return ask;
+    }
+
+    /**
+     * like {@link Quote#newBuyerQuote(EconomicAgent, int, GoodType, int)}, possibly with a recycled object
+     */
+    public Quote newBuyerQuote(EconomicAgent buyer, int priceQuoted, GoodType type, int quantity)
+    {
+        Preconditions.checkArgument(quantity > 0);
+        Preconditions.checkArgument(quantity == 1 || !type.isDifferentiated(), "differentiated goods are quoted one by one");
+        Quote bid = take();
+        bid.reuse(buyer,priceQuoted,type,null,quantity);
+        return bid;
+    }
+
+    private Quote take()
+    {
+        Quote quote = free.pollLast();
+        return quote == null ? new Quote() : quote;
+    }
+
+    /**
+     * take the quote back; nobody should use it anymore
+     */
+    public void release(Quote quote)
+    {
+        Preconditions.checkArgument(quote.getAgent() != null, "empty quotes aren't pooled");
+        quote.recycle();
+        free.addLast(quote);
+    }
+
+    /**
+     * how many quotes are waiting to be reused
+     */
+    public int size()
+    {
+        return free.size();
+    }
+}
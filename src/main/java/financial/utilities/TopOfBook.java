@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The best price of each agent (or whatever key) on one side of a market, kept sorted so that the best of them all is always
+ * known. Markets that store quotes their own way tell this whenever the best quote of an agent changes (O(log n)) and then
+ * answer best price/best agent queries in O(1).
+ * <p/> Ties go to the key that comes first in the tie-breaking order if one is given, otherwise to the key that had a price
+ * first (and kept it since).
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TopOfBook<K> {
+
+    private final Map<K,Entry<K>> entries = new HashMap<>();
+
+    private final TreeSet<Entry<K>> sorted;
+
+    /**
+     * the first of sorted, cached
+     */
+    private Entry<K> best = null;
+
+    private long nextArrival = 0;
+
+    private TopOfBook(boolean highestFirst, Comparator<? super K> ties) {
+        Comparator<Entry<K>> order = (o1, o2) -> highestFirst ? Integer.compare(o2.price, o1.price) :
+                Integer.compare(o1.price, o2.price);
+        if(ties != null)
+            order = order.thenComparing((o1, o2) -> ties.compare(o1.key, o2.key));
+        order = order.thenComparing((o1, o2) -> Long.compare(o1.arrival, o2.arrival));
+        sorted = new TreeSet<>(order);
+    }
+
+    /**
+     * the best is the lowest price: the asks. Ties go to whoever had a price first
+     */
+    public static <K> TopOfBook<K> lowestPriceFirst()
+    {
+        return new TopOfBook<>(false, null);
+    }
+
+    /**
+     * the best is the highest price: the bids
+     * @param ties the order of keys with the same price (null means whoever had a price first)
+     */
+    public static <K> TopOfBook<K> highestPriceFirst(Comparator<? super K> ties)
+    {
+        return new TopOfBook<>(true, ties);
+    }
+
+    /**
+     * set (or change) the best price of this key
+     */
+    public void put(K key, int price)
+    {
+        Preconditions.checkArgument(price >= 0);
+        Entry<K> entry = entries.get(key);
+        if(entry == null)
+        {
+            entry = new Entry<>(key, nextArrival++);
+            entries.put(key, entry);
+        }
+        else
+        {
+            if(entry.price == price)
+                return;
+            boolean removed = sorted.remove(entry);
+            assert removed;
+        }
+        entry.price = price;
+        sorted.add(entry);
+        best = sorted.first();
+    }
+
+    /**
+     * the key has no price anymore
+     */
+    public void remove(K key)
+    {
+        Entry<K> entry = entries.remove(key);
+        if(entry == null)
+            return;
+        boolean removed = sorted.remove(entry);
+        assert removed;
+        best = sorted.isEmpty() ? null : sorted.first();
+    }
+
+    /**
+     * the key with the best price, or null if there is none
+     */
+    public K getBest()
+    {
+        return best == null ? null : best.key;
+    }
+
+    /**
+     * the best price, or -1 if there is none
+     */
+    public int getBestPrice()
+    {
+        return best == null ? -1 : best.price;
+    }
+
+    public boolean isEmpty()
+    {
+        return best == null;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    private static class Entry<K>
+    {
+        private final K key;
+
+        private final long arrival;
+
+        private int price;
+
+        private Entry(K key, long arrival) {
+            this.key = key;
+            this.arrival = arrival;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import agents.firm.Department;
+import com.google.common.base.Preconditions;
+import financial.TradeListener;
+import financial.market.Market;
+import goods.Good;
+import model.MacroII;
+import model.utilities.Deactivatable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Writes every trade of the markets it listens to as a fixed-width binary {@link TradeRecord}, straight into memory-mapped
+ * files. Nothing is allocated per trade, so it can stay on for very long runs.
+ * <p/> The journal is a series of segments, base.00000.trades, base.00001.trades and so on. Each one holds a fixed number of
+ * records after a small header, and the header keeps the count of records written so far. Markets, agents and departments are
+ * stored as ids; the first time the journal meets one it writes its id and name to base.names (tab separated: kind, id, name)
+ * and flushes it right away, so a journal cut short still has the names of what it recorded.
+ * {@link TradeJournalReader} reads all of it back.
+ * <p/> A model copied with its journal (a {@link model.MacroIISnapshot}) would have two journals writing the same files, so
+ * the copy is {@link #detach()}ed: it records nothing.
+ * <p/> Records are in the order the trades happened. Markets cleared in parallel write in whatever order their threads reach
+ * the journal.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TradeJournal implements Deactivatable, Closeable {
+
+    /**
+     * "TRDJ", first int of every segment
+     */
+    static final int MAGIC = 0x5452444A;
+
+    static final short VERSION = 1;
+
+    /**
+     * magic (int), version (short), record size (short), records in the segment at most (int), records written (int)
+     */
+    static final int HEADER_SIZE = 16;
+
+    static final int COUNT_OFFSET = 12;
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 16;
+
+    private final Path base;
+
+    private final MacroII model;
+
+    private final int recordsPerSegment;
+
+    private final BufferedWriter names;
+
+    private final Map<Market,TradeListener> markets = new IdentityHashMap<>();
+
+    private final Map<EconomicAgent,Integer> agents = new IdentityHashMap<>();
+
+    private final Map<Department<?>,Integer> departments = new IdentityHashMap<>();
+
+    private MappedByteBuffer segment;
+
+    private int segmentsOpened = 0;
+
+    /**
+     * records in the current segment
+     */
+    private int recordsInSegment = 0;
+
+    private long recordsWritten = 0;
+
+    private boolean open = true;
+
+    public TradeJournal(Path base, MacroII model) throws IOException {
+        this(base, model, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * start a new journal, deleting whatever journal had the same base before
+     * @param base the path of the journal files, without extensions
+     * @param model the model, to know the day and phase of each trade
+     * @param recordsPerSegment how many trades go in each file
+     */
+    public TradeJournal(Path base, MacroII model, int recordsPerSegment) throws IOException {
+        Preconditions.checkArgument(recordsPerSegment > 0);
+        Preconditions.checkArgument((long) recordsPerSegment * TradeRecord.SIZE + HEADER_SIZE <= Integer.MAX_VALUE,
+                "segments can't be larger than 2GB");
+        this.base = base;
+        this.model = model;
+        this.recordsPerSegment = recordsPerSegment;
+
+        for(int i=0; Files.deleteIfExists(segmentPath(base, i)); i++);
+        names = Files.newBufferedWriter(namesPath(base), StandardCharsets.UTF_8);
+        openSegment();
+
+        model.registerDeactivable(this);
+    }
+
+    static Path segmentPath(Path base, int segment)
+    {
+        return base.resolveSibling(base.getFileName() + String.format(".%05d.trades", segment));
+    }
+
+    static Path namesPath(Path base)
+    {
+        return base.resolveSibling(base.getFileName() + ".names");
+    }
+
+    private void openSegment() throws IOException {
+        if(segment != null)
+            segment.force();
+        try(FileChannel channel = FileChannel.open(segmentPath(base, segmentsOpened), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            //the mapping outlives the channel
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) recordsPerSegment * TradeRecord.SIZE);
+        }
+        segment.putInt(0, MAGIC);
+        segment.putShort(4, VERSION);
+        segment.putShort(6, (short) TradeRecord.SIZE);
+        segment.putInt(8, recordsPerSegment);
+        segment.putInt(COUNT_OFFSET, 0);
+        segmentsOpened++;
+        recordsInSegment = 0;
+    }
+
+    /**
+     * start writing down the trades of this market
+     * @return the listener added to the market
+     */
+    public synchronized TradeListener listenTo(final Market market)
+    {
+        Preconditions.checkState(open, "the journal is closed");
+        Preconditions.checkArgument(!markets.containsKey(market), "already listening to this market");
+        Preconditions.checkState(markets.size() < Short.MAX_VALUE, "too many markets");
+        final int id = markets.size();
+        writeName("market", id, market.getGoodType().getCode());
+        TradeListener listener = (buyer, seller, goodExchanged, price, sellerQuote, buyerQuote) ->
+                record(id, buyer, seller, goodExchanged, price, sellerQuote, buyerQuote);
+        markets.put(market, listener);
+        market.addTradeListener(listener);
+        return listener;
+    }
+
+    private synchronized void record(int market, EconomicAgent buyer, EconomicAgent seller, Good good, long price,
+                                     Quote sellerQuote, Quote buyerQuote)
+    {
+        if(!open)
+            return;
+        try {
+            if(recordsInSegment == recordsPerSegment)
+                openSegment();
+
+            Department<?> originator = sellerQuote == null ? null : sellerQuote.getOriginator();
+            if(originator == null && buyerQuote != null)
+                originator = buyerQuote.getOriginator();
+
+            TradeRecord.write(segment, HEADER_SIZE + recordsInSegment * TradeRecord.SIZE,
+                    (int) model.getMainScheduleTime(), model.getCurrentPhase(), market,
+                    idOf(agents, buyer, "agent"), idOf(agents, seller, "agent"), price, 1,
+                    originator == null ? TradeRecord.NO_DEPARTMENT : idOf(departments, originator, "department"));
+        }
+        catch (IOException e) {
+            System.err.println("the trade journal failed to write, closing it");
+            e.printStackTrace();
+            close();
+            return;
+        }
+        recordsInSegment++;
+        recordsWritten++;
+        //readers only trust the count in the header, so update it last
+        segment.putInt(COUNT_OFFSET, recordsInSegment);
+    }
+
+    private <K> int idOf(Map<K,Integer> ids, K key, String kind) {
+        Integer id = ids.get(key);
+        if(id == null)
+        {
+            id = ids.size();
+            ids.put(key, id);
+            writeName(kind, id, key.toString());
+        }
+        return id;
+    }
+
+    private void writeName(String kind, int id, String name)
+    {
+        try {
+            names.write(kind + '\t' + id + '\t' + name.replace('\t', ' ').replace('\n', ' ') + '\n');
+            //names are few and the records are useless without them
+            names.flush();
+        } catch (IOException e) {
+            System.err.println("the trade journal couldn't write a name");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * push everything written so far to disk
+     */
+    public synchronized void flush() throws IOException {
+        if(!open)
+            return;
+        segment.force();
+        names.flush();
+    }
+
+    /**
+     * how many trades were written down
+     */
+    public synchronized long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    /**
+     * stop listening to the markets and close the files; trades after this are ignored
+     */
+    @Override
+    public synchronized void close()
+    {
+        if(!open)
+            return;
+        stopListening();
+        segment.force();
+        segment = null;
+        try {
+            names.close();
+        } catch (IOException e) {
+            System.err.println("the trade journal couldn't close its names");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * stop listening to the markets without touching the files: what a copy of the journal does, since the files are still
+     * the original's. Trades after this are ignored
+     */
+    public synchronized void detach()
+    {
+        if(!open)
+            return;
+        stopListening();
+        segment = null;
+    }
+
+    private void stopListening()
+    {
+        open = false;
+        for(Map.Entry<Market,TradeListener> listening : markets.entrySet())
+            listening.getKey().removeTradeListener(listening.getValue());
+    }
+
+    @Override
+    public void turnOff() {
+        close();
+    }
+}
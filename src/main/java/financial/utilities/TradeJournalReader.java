@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Reads back what a {@link TradeJournal} wrote. The segments are mapped read-only and records are decoded into one
+ * {@link TradeRecord} that is reused, either one after the other ({@link #forEach(Consumer)}) or by index ({@link #read(long, TradeRecord)}).
+ * <p/> The number of records is taken when the reader opens, so a journal still being written can be read up to that point.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TradeJournalReader {
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * records in each segment
+     */
+    private final List<Integer> counts = new ArrayList<>();
+
+    private final int recordsPerSegment;
+
+    private final long size;
+
+    private final Map<String,Map<Integer,String>> names = new HashMap<>();
+
+    /**
+     * open the journal with this base path
+     */
+    public TradeJournalReader(Path base) throws IOException {
+        int capacity = -1;
+        long total = 0;
+        for(int i=0; Files.exists(TradeJournal.segmentPath(base, i)); i++)
+        {
+            MappedByteBuffer segment;
+            try(FileChannel channel = FileChannel.open(TradeJournal.segmentPath(base, i), StandardOpenOption.READ))
+            {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if(segment.getInt(0) != TradeJournal.MAGIC || segment.getShort(4) != TradeJournal.VERSION ||
+                    segment.getShort(6) != TradeRecord.SIZE)
+                throw new IOException("not a trade journal segment: " + TradeJournal.segmentPath(base, i));
+            if(capacity == -1)
+                capacity = segment.getInt(8);
+            Preconditions.checkState(segment.getInt(8) == capacity, "segments of different sizes");
+
+            int count = segment.getInt(TradeJournal.COUNT_OFFSET);
+            segments.add(segment);
+            counts.add(count);
+            total += count;
+            //only the last segment can be partially filled
+            if(count < capacity)
+                break;
+        }
+        recordsPerSegment = capacity;
+        size = total;
+
+        if(Files.exists(TradeJournal.namesPath(base)))
+            for(String line : Files.readAllLines(TradeJournal.namesPath(base), StandardCharsets.UTF_8))
+            {
+                String[] fields = line.split("\t", 3);
+                if(fields.length == 3)
+                    names.computeIfAbsent(fields[0], k -> new HashMap<>()).put(Integer.parseInt(fields[1]), fields[2]);
+            }
+    }
+
+    /**
+     * the number of trades in the journal
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * read the index-th trade into the record
+     * @return the record, filled
+     */
+    public TradeRecord read(long index, TradeRecord record)
+    {
+        Preconditions.checkElementIndex((int) Math.min(index, Integer.MAX_VALUE), (int) Math.min(size, Integer.MAX_VALUE));
+        int segment = (int) (index / recordsPerSegment);
+        int inSegment = (int) (index % recordsPerSegment);
+        record.read(segments.get(segment), TradeJournal.HEADER_SIZE + inSegment * TradeRecord.SIZE);
+        return record;
+    }
+
+    /**
+     * go through all the trades in order; the same record is passed each time
+     */
+    public void forEach(Consumer<? super TradeRecord> action)
+    {
+        TradeRecord record = new TradeRecord();
+        for(int i=0; i<segments.size(); i++)
+        {
+            MappedByteBuffer segment = segments.get(i);
+            int count = counts.get(i);
+            for(int j=0; j<count; j++)
+            {
+                record.read(segment, TradeJournal.HEADER_SIZE + j * TradeRecord.SIZE);
+                action.accept(record);
+            }
+        }
+    }
+
+    /**
+     * the good type code of the market with this id, null if unknown
+     */
+    public String getMarketName(int market) {
+        return nameOf("market", market);
+    }
+
+    /**
+     * the name of the agent with this id, null if unknown
+     */
+    public String getAgentName(int agent) {
+        return nameOf("agent", agent);
+    }
+
+    /**
+     * the name of the department with this id, null if unknown
+     */
+    public String getDepartmentName(int department) {
+        return nameOf("department", department);
+    }
+
+    private String nameOf(String kind, int id)
+    {
+        Map<Integer,String> ofKind = names.get(kind);
+        return ofKind == null ? null : ofKind.get(id);
+    }
+}
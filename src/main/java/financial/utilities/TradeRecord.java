@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import model.utilities.ActionOrder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h4>Description</h4>
+ * <p/> One trade as written in a {@link TradeJournal}: fixed width, all numbers. Markets, agents and departments are the ids the
+ * journal gave them; {@link TradeJournalReader} knows their names.
+ * <p/> Readers fill the same record over and over, so copy the values out of it if you need to keep them.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TradeRecord {
+
+    /**
+     * bytes each record takes in the journal
+     */
+    public static final int SIZE = 32;
+
+    /**
+     * the id of "no department"
+     */
+    public static final int NO_DEPARTMENT = -1;
+
+    private static final ActionOrder[] PHASES = ActionOrder.values();
+
+    private int day;
+
+    private ActionOrder phase;
+
+    private int market;
+
+    private int buyer;
+
+    private int seller;
+
+    private long price;
+
+    private int quantity;
+
+    private int originator;
+
+    /**
+     * write the record at the given position of the buffer (the buffer position doesn't change)
+     */
+    static void write(ByteBuffer buffer, int offset, int day, ActionOrder phase, int market, int buyer, int seller,
+                      long price, int quantity, int originator)
+    {
+        buffer.putInt(offset, day);
+        buffer.putShort(offset + 4, (short) phase.ordinal());
+        buffer.putShort(offset + 6, (short) market);
+        buffer.putInt(offset + 8, buyer);
+        buffer.putInt(offset + 12, seller);
+        buffer.putLong(offset + 16, price);
+        buffer.putInt(offset + 24, quantity);
+        buffer.putInt(offset + 28, originator);
+    }
+
+    /**
+     * read the record at the given position of the buffer into this object
+     */
+    void read(ByteBuffer buffer, int offset)
+    {
+        day = buffer.getInt(offset);
+        phase = PHASES[buffer.getShort(offset + 4)];
+        market = buffer.getShort(offset + 6);
+        buyer = buffer.getInt(offset + 8);
+        seller = buffer.getInt(offset + 12);
+        price = buffer.getLong(offset + 16);
+        quantity = buffer.getInt(offset + 24);
+        originator = buffer.getInt(offset + 28);
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public ActionOrder getPhase() {
+        return phase;
+    }
+
+    public int getMarket() {
+        return market;
+    }
+
+    public int getBuyer() {
+        return buyer;
+    }
+
+    public int getSeller() {
+        return seller;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * the department that made the seller quote (or the buyer quote, if the seller's didn't have one); NO_DEPARTMENT if neither did
+     */
+    public int getOriginator() {
+        return originator;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeRecord{" +
+                "day=" + day +
+                ", phase=" + phase +
+                ", market=" + market +
+                ", buyer=" + buyer +
+                ", seller=" + seller +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", originator=" + originator +
+                '}';
+    }
+}
@@ -6,11 +6,14 @@
 
 package goods;
 
+import agents.EconomicAgent;
 import agents.HasInventory;
 import com.google.common.base.Preconditions;
 import model.MacroII;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -36,10 +39,34 @@ public class Good implements Comparable<Good>{
     private int lastValidPrice;
 
 
+    /**
+     * hands out the ids of goods that have no model. They are negative so they never clash with the ids models hand out
+     */
+    private static final AtomicLong orphanCounter = new AtomicLong();
+
+    /**
+     * Create a good that belongs to no model: its id comes from a JVM-wide counter
+     * @param type the good type
+     * @param costOfProduction the cost of production
+     */
     protected Good(GoodType type, int costOfProduction) {
+        this(type, costOfProduction, orphanCounter.decrementAndGet());
+    }
+
+    /**
+     * Create a good whose id comes from the model it belongs to, so that it doesn't depend on what other models running in the same JVM did
+     * @param type the good type
+     * @param costOfProduction the cost of production
+     * @param model the model; when null the good belongs to no model and gets its id as the constructor without it does
+     */
+    protected Good(GoodType type, int costOfProduction, MacroII model) {
+        this(type, costOfProduction, model == null ? orphanCounter.decrementAndGet() : model.nextGoodId());
+    }
+
+    private Good(GoodType type, int costOfProduction, long id) {
         this.type = type;
         this.costOfProduction = costOfProduction;
-        this.id = MacroII.getCounter();
+        this.id = id;
 
         lastValidPrice = costOfProduction;
     }
@@ -53,6 +80,10 @@ public class Good implements Comparable<Good>{
         return costOfProduction;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public int getLastValidPrice() {
         return lastValidPrice;
     }
@@ -69,7 +100,7 @@ public class Good implements Comparable<Good>{
     @Override
     public int compareTo(Good o) {
 
-        int comparison = Long.compare(lastValidPrice, o.getLastValidPrice());
+        int comparison = Long.compare(getLastValidPrice(), o.getLastValidPrice());
         if(comparison != 0)
             return  comparison;
         else{
@@ -82,18 +113,35 @@ public class Good implements Comparable<Good>{
     }
 
 
-    private static final HashMap<GoodType,Good> undifferentiatedGoods = new HashMap<>();
+    /**
+     * the flyweights used by goods created without a model (mostly tests); models keep their own
+     */
+    private static final Map<GoodType,Good> undifferentiatedGoods = new ConcurrentHashMap<>();
 
     public static Good getInstanceOfUndifferentiatedGood(GoodType type)
+    {
+        return getInstanceOfUndifferentiatedGood(type,null);
+    }
+
+    /**
+     * Undifferentiated goods are all the same, so there is only one instance for each type. Since it remembers its last price
+     * each model has its own instances, so that simulations running side by side don't share it
+     * @param type the undifferentiated good type
+     * @param model the model the good belongs to; if null the shared instance is used
+     * @return the flyweight good
+     */
+    public static Good getInstanceOfUndifferentiatedGood(GoodType type, MacroII model)
     {
         Preconditions.checkArgument(!type.isDifferentiated(), "this method only works for undifferentiated goods!");
-        Good instance = undifferentiatedGoods.get(type);
+        if(model == null)
+            return undifferentiatedGoods.computeIfAbsent(type, t -> new Good(t, -1));
+
+        Good instance = model.getUndifferentiatedGood(type);
         if(instance == null)
         {
-            instance = new Good(type, -1);
-            undifferentiatedGoods.put(type,instance);
+            instance = new Good(type, -1, model);
+            model.registerUndifferentiatedGood(instance);
         }
-
         return instance;
     }
 
@@ -101,7 +149,7 @@ public class Good implements Comparable<Good>{
     {
         Preconditions.checkArgument(type.isDifferentiated(), "this method only works for differentiated goods!");
 
-        return new Good(type, costOfProduction);
+        return new Good(type, costOfProduction, producer instanceof EconomicAgent ? ((EconomicAgent) producer).getModel() : null);
 
     }
 
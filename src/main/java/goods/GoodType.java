@@ -8,6 +8,10 @@ package goods;
 
 import agents.firm.Firm;
 
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  *
  *
@@ -37,6 +41,16 @@ public abstract class GoodType implements Comparable<GoodType> {
      */
     private final boolean isLabor;
 
+    /**
+     * the index of every good type made so far; good types equal to each other share it
+     */
+    private static final Map<Map.Entry<Class<?>,String>,Integer> indices = new HashMap<>();
+
+    /**
+     * small, dense and never changing: tables over good types can be arrays indexed by this
+     */
+    private final int index;
+
     /**
      * create a good-type specifying whether it's a capital-good or a labor-good (or neither)
      * @param code the industry code
@@ -49,6 +63,14 @@ public abstract class GoodType implements Comparable<GoodType> {
         this.name = name;
         this.isMachinery = isMachinery;
         this.isLabor = isLabor;
+        this.index = indexOf(getClass(), code);
+    }
+
+    private static int indexOf(Class<?> type, String code)
+    {
+        synchronized (indices) {
+            return indices.computeIfAbsent(new AbstractMap.SimpleImmutableEntry<>(type, code), key -> indices.size());
+        }
     }
 
 
@@ -79,6 +101,14 @@ public abstract class GoodType implements Comparable<GoodType> {
         return name;
     }
 
+    /**
+     * A number from 0 up that tells good types apart like equals() does: good types with the same code (and class) have the same
+     * index, different ones have different indices. The indices are handed out as good types are made, so they stay small.
+     */
+    public int getIndex() {
+        return index;
+    }
+
 
     /**
      * Goodtypes are equal if their industry code is equal!
@@ -10,25 +10,32 @@ import agents.HasInventory;
 import com.google.common.base.Preconditions;
 import model.MacroII;
 import model.utilities.Deactivatable;
+import model.utilities.scheduler.Priority;
+import sim.engine.Steppable;
 
 import java.util.*;
 
 /**
- * This is the inventory class. It is basically an enum map and a few utilities methods to make life easier
+ * This is the inventory class. It is basically an enum map (an array indexed by {@link GoodType#getIndex()}) and a few utilities methods to make life easier
  */
 public class Inventory implements Deactivatable {
 
 
 
     /**
-     * The inventory is a map, for each good type to a Queue
+     * The inventory is a table, for each good type (by {@link GoodType#getIndex()}) its section; null if never encountered
      */
-    final private HashMap<GoodType,InventorySection> inventory;
+    private InventorySection[] inventory;
 
     /**
-     * a second map where i store the same link as the previous map, but I make sure it is only for undifferentiated types
+     * a second table where i store the same link as the previous one, but I make sure it is only for undifferentiated types
      */
-    final private HashMap<UndifferentiatedGoodType,InventorySectionCounter> counters;
+    private InventorySectionCounter[] counters;
+
+    /**
+     * the good types that have a section, in the order they were first encountered
+     */
+    final private Set<GoodType> encountered;
 
 
     /**
@@ -41,6 +48,46 @@ public class Inventory implements Deactivatable {
      */
     final private Set<InventoryListener> listeners;
 
+    /**
+     * the listeners that are told only the net change of each good type, once per phase
+     */
+    final private Set<InventoryListener> coalescedListeners;
+
+    /**
+     * net change of each good type (by {@link GoodType#getIndex()}) not yet told to the coalesced listeners
+     */
+    private int[] netChanges = new int[0];
+
+    /**
+     * the good types whose changes haven't been told to the coalesced listeners yet, in the order they first changed
+     */
+    final private List<GoodType> changedTypes = new ArrayList<>();
+
+    /**
+     * the indices of the good types in changedTypes, so that checking doesn't scan the list
+     */
+    final private BitSet changed = new BitSet();
+
+    /**
+     * the owner as passed by the last change, to pass to the coalesced listeners
+     */
+    private HasInventory changedOwner;
+
+    /**
+     * whether the flush at the end of the phase is already scheduled
+     */
+    private boolean flushScheduled = false;
+
+    /**
+     * true while telling the coalesced listeners
+     */
+    private boolean flushing = false;
+
+    /**
+     * the flush scheduled at the end of the phase, the same one every time
+     */
+    private final Steppable scheduledFlush = state -> flushCoalescedEvents();
+
     /**
      * Add a new inventory listener
      */
@@ -50,12 +97,27 @@ public class Inventory implements Deactivatable {
     }
 
     /**
-     * Remove specific listener
+     * Add a listener that isn't told about every unit: at the end of the phase (or when {@link #flushCoalescedEvents()} is called)
+     * it receives a single increase or decrease event for each good type that changed, with the net change as delta and the
+     * inventory at that time as quantity. Good types that went back to where they were aren't reported. Failures to consume
+     * are still told right away.
+     * <p/> The flush is stepped at FINAL priority, together with whatever else is FINAL in the phase (end of phase clearing,
+     * say). If those step after the flush and change the inventory there is a second flush in the same phase, so it's once per
+     * phase only in the sense that nothing changed in a phase is told later than that phase.
+     */
+    public void addCoalescedListener(InventoryListener listener)
+    {
+        coalescedListeners.add(listener);
+    }
+
+    /**
+     * Remove specific listener (whether it's coalesced or not)
      * @param listener the listener to remove
      * @return true if it was removed succesfully.
      */
     public boolean removeListener(InventoryListener listener){
-        return listeners.remove(listener);
+        boolean removed = listeners.remove(listener);
+        return coalescedListeners.remove(listener) || removed;
     }
 
 
@@ -67,10 +129,12 @@ public class Inventory implements Deactivatable {
      */
     public Inventory(MacroII model) {
         this.model = model;
-        inventory = new HashMap<>();
-        counters = new HashMap<>();
+        inventory = new InventorySection[0];
+        counters = new InventorySectionCounter[0];
+        encountered = new LinkedHashSet<>();
 
         listeners = new HashSet<>(); //instantiate the listeners
+        coalescedListeners = new HashSet<>();
 
     }
 
@@ -83,19 +147,16 @@ public class Inventory implements Deactivatable {
 
     public void receive(Good g, HasInventory sender, HasInventory owner) {
         final GoodType type = g.getType();
-        InventorySection rightInventory =   inventory.get(type);
+        InventorySection rightInventory =   section(type);
         //if you there is no priority queue yet, create it!
         if(rightInventory == null)
         {
             if(type.isDifferentiated())
                 rightInventory = new InventorySectionStorage(type);
             else
-            {
                 //ugly casts, but what of it.
-                rightInventory = new InventorySectionCounter((UndifferentiatedGoodType)type);
-                counters.put((UndifferentiatedGoodType)type,(InventorySectionCounter)rightInventory);
-            }
-            inventory.put(type, rightInventory);
+                rightInventory = new InventorySectionCounter((UndifferentiatedGoodType)type,model);
+            addSection(rightInventory);
         }
 
 
@@ -113,8 +174,7 @@ public class Inventory implements Deactivatable {
             if(sender!= null)
                 model.registerInventoryDelivery(sender, owner, type);
             //tell the listeners
-            for(InventoryListener l : listeners)
-                l.inventoryIncreaseEvent(owner, type, rightInventory.size(),1);
+            fireIncrease(owner, type, rightInventory.size(), 1);
         }
 
 
@@ -124,6 +184,115 @@ public class Inventory implements Deactivatable {
 
 
 
+    private void fireIncrease(HasInventory owner, GoodType type, int quantity, int delta)
+    {
+        for(InventoryListener l : listeners)
+            l.inventoryIncreaseEvent(owner, type, quantity, delta);
+        if(!coalescedListeners.isEmpty())
+            recordChange(owner, type, delta);
+    }
+
+    private void fireDecrease(HasInventory owner, GoodType type, int quantity, int delta)
+    {
+        for(InventoryListener l : listeners)
+            l.inventoryDecreaseEvent(owner, type, quantity, delta);
+        if(!coalescedListeners.isEmpty())
+            recordChange(owner, type, -delta);
+    }
+
+    /**
+     * add the change to the net ones and make sure they'll be told at the end of this phase
+     */
+    private void recordChange(HasInventory owner, GoodType type, int delta)
+    {
+        int index = type.getIndex();
+        if(index >= netChanges.length)
+            netChanges = Arrays.copyOf(netChanges, Math.max(index + 1, netChanges.length * 2));
+        if(!changed.get(index))
+        {
+            changed.set(index);
+            changedTypes.add(type);
+        }
+        netChanges[index] += delta;
+        changedOwner = owner;
+
+        if(!flushScheduled && model != null)
+        {
+            flushScheduled = true;
+            model.scheduleSoon(model.getCurrentPhase(), scheduledFlush, Priority.FINAL);
+        }
+    }
+
+    /**
+     * tell the coalesced listeners the net change of each good type since the last flush. Called by itself at the end of each
+     * phase in which the inventory changed, but it can be called any time (except by the coalesced listeners themselves while
+     * they are being told: that does nothing)
+     */
+    public void flushCoalescedEvents()
+    {
+        if(flushing)
+            return;
+        flushing = true;
+        flushScheduled = false;
+        HasInventory owner = changedOwner;
+        //listeners may change the inventory again: the types already told are added after these and go in the next flush
+        int toTell = changedTypes.size();
+        for(int i=0; i<toTell; i++)
+        {
+            GoodType type = changedTypes.get(i);
+            int index = type.getIndex();
+            int net = netChanges[index];
+            netChanges[index] = 0;
+            changed.clear(index);
+            if(net > 0)
+                for(InventoryListener l : coalescedListeners)
+                    l.inventoryIncreaseEvent(owner, type, hasHowMany(type), net);
+            else if(net < 0)
+                for(InventoryListener l : coalescedListeners)
+                    l.inventoryDecreaseEvent(owner, type, hasHowMany(type), -net);
+        }
+        changedTypes.subList(0, toTell).clear();
+        flushing = false;
+    }
+
+    /**
+     * the section of this type, null if it was never encountered
+     */
+    private InventorySection section(GoodType type)
+    {
+        int index = type.getIndex();
+        return index < inventory.length ? inventory[index] : null;
+    }
+
+    /**
+     * the counter of this type, null if it was never encountered
+     */
+    private InventorySectionCounter counter(UndifferentiatedGoodType type)
+    {
+        int index = type.getIndex();
+        return index < counters.length ? counters[index] : null;
+    }
+
+    /**
+     * put a new section in the tables, growing them if needed
+     */
+    private void addSection(InventorySection section)
+    {
+        GoodType type = section.getGoodType();
+        int index = type.getIndex();
+        assert section(type) == null;
+        if(index >= inventory.length)
+            inventory = Arrays.copyOf(inventory, Math.max(index + 1, inventory.length * 2));
+        inventory[index] = section;
+        if(section instanceof InventorySectionCounter)
+        {
+            if(index >= counters.length)
+                counters = Arrays.copyOf(counters, Math.max(index + 1, counters.length * 2));
+            counters[index] = (InventorySectionCounter) section;
+        }
+        encountered.add(type);
+    }
+
     /**
      * This method sends the first good of type g available to destination.
      * this method doesn't call "pay" or "earn"; that's the responsibility of whoever calls this method
@@ -134,7 +303,7 @@ public class Inventory implements Deactivatable {
      */
     public void deliver(GoodType g, HasInventory destination, int newPrice, HasInventory inventoryOwner) {
 
-        InventorySection rightInventory =   inventory.get(g);
+        InventorySection rightInventory =   section(g);
         Preconditions.checkNotNull(rightInventory, "does not have any item to deliver");
         Good toDeliver = null;
         try{
@@ -165,7 +334,7 @@ public class Inventory implements Deactivatable {
      */
     public void deliver(Good g, HasInventory destination, int newPrice, HasInventory inventoryOwner) {
 
-        InventorySection rightInventory =   inventory.get(g.getType());
+        InventorySection rightInventory =   section(g.getType());
         assert rightInventory.containSpecificGood(g); //it must be contained
 
         rightInventory.remove(g); //remove from inventory
@@ -175,8 +344,7 @@ public class Inventory implements Deactivatable {
         //now send
         destination.receive(g, inventoryOwner);
         //tell the listeners!
-        for(InventoryListener l : listeners)
-            l.inventoryDecreaseEvent(inventoryOwner, g.getType(), rightInventory.size(),1);
+        fireDecrease(inventoryOwner, g.getType(), rightInventory.size(), 1);
 
 
     }
@@ -189,7 +357,7 @@ public class Inventory implements Deactivatable {
     public void deliverMany(UndifferentiatedGoodType type, HasInventory destination, int amount, HasInventory owner) {
 
         Preconditions.checkArgument(amount >0);
-        InventorySectionCounter rightInventory =   counters.get(type);
+        InventorySectionCounter rightInventory =   counter(type);
         Preconditions.checkArgument(rightInventory.size() >= amount);
 
 
@@ -199,8 +367,7 @@ public class Inventory implements Deactivatable {
         //now send
         destination.receiveMany(type,amount);
         //tell the listeners!
-        for(InventoryListener l : listeners)
-            l.inventoryDecreaseEvent(owner, type, rightInventory.size(),amount);
+        fireDecrease(owner, type, rightInventory.size(), amount);
 
 
     }
@@ -213,7 +380,7 @@ public class Inventory implements Deactivatable {
      */
     public Good consume(GoodType type, HasInventory owner) {
 
-        InventorySection rightInventory =   inventory.get(type);
+        InventorySection rightInventory =   section(type);
 
         Preconditions.checkArgument(rightInventory.size() >= 1, "cannot consume something I don't have");
 
@@ -225,8 +392,7 @@ public class Inventory implements Deactivatable {
         assert !type.isDifferentiated() || !rightInventory.containSpecificGood(eaten);
 
         //tell the listeners!
-        for(InventoryListener l : listeners)
-            l.inventoryDecreaseEvent(owner, type, rightInventory.size(),1);
+        fireDecrease(owner, type, rightInventory.size(), 1);
 
 
         return eaten;
@@ -241,15 +407,14 @@ public class Inventory implements Deactivatable {
     {
         int totalConsumption = 0;
         //go through each goodType
-        for(Map.Entry<GoodType,InventorySection> inventorySection : inventory.entrySet())
+        for(GoodType type : encountered)
         {
             //check the size of the inventory
-            int size = inventorySection.getValue().removeAll();
+            int size = section(type).removeAll();
             if(size > 0) //if there is any
             {
                 //destroy it
-                for(InventoryListener l : listeners) //then tell the listeners about it
-                    l.inventoryDecreaseEvent(owner, inventorySection.getKey(), 0,size);
+                fireDecrease(owner, type, 0, size); //then tell the listeners about it
                 totalConsumption+=size;
             }
         }
@@ -268,7 +433,7 @@ public class Inventory implements Deactivatable {
         Preconditions.checkNotNull(g);
 
 
-        final InventorySection inventorySection = inventory.get(g.getType());
+        final InventorySection inventorySection = section(g.getType());
         return inventorySection != null && inventorySection.containSpecificGood(g);
 
 
@@ -280,7 +445,7 @@ public class Inventory implements Deactivatable {
      * @return true if it has any
      */
     public boolean hasAny(GoodType t){
-        final InventorySection inventorySection = inventory.get(t);
+        final InventorySection inventorySection = section(t);
         return inventorySection != null && inventorySection.size()>0;
 
 
@@ -292,7 +457,7 @@ public class Inventory implements Deactivatable {
      * @return how many do you have.
      */
     public int hasHowMany(GoodType t){
-        final InventorySection inventorySection = inventory.get(t);
+        final InventorySection inventorySection = section(t);
 
         return inventorySection==null? 0 : inventorySection.size(); //open the right inventory
 
@@ -315,6 +480,9 @@ public class Inventory implements Deactivatable {
 
         for(InventoryListener l : listeners)
             l.failedToConsumeEvent(owner,type,numberNeeded);
+        //this isn't a change in inventory, so it isn't held back
+        for(InventoryListener l : coalescedListeners)
+            l.failedToConsumeEvent(owner,type,numberNeeded);
     }
 
     /**
@@ -322,7 +490,7 @@ public class Inventory implements Deactivatable {
      */
     public Set<GoodType> goodTypesEncountered()
     {
-        return inventory.keySet();
+        return Collections.unmodifiableSet(encountered);
     }
 
     /**
@@ -334,18 +502,15 @@ public class Inventory implements Deactivatable {
     public void receiveMany(UndifferentiatedGoodType type, int amount, HasInventory owner)
     {
         Preconditions.checkArgument(amount >0);
-        InventorySectionCounter counter = counters.get(type);
+        InventorySectionCounter counter = counter(type);
         if(counter == null){
-            counter = new InventorySectionCounter(type);
-            counters.put(type,counter);
-            assert !inventory.containsKey(type);
-            inventory.put(type,counter);
+            counter = new InventorySectionCounter(type,model);
+            addSection(counter);
         }
         counter.store(amount);
-        assert counter.equals(inventory.get(type)); //make sure they are still linked
+        assert counter.equals(section(type)); //make sure they are still linked
 
-        for(InventoryListener l : listeners)
-            l.inventoryIncreaseEvent(owner, type, counter.size(), amount);
+        fireIncrease(owner, type, counter.size(), amount);
 
     }
 
@@ -359,28 +524,41 @@ public class Inventory implements Deactivatable {
     public void removeMany(UndifferentiatedGoodType type, int amount, HasInventory owner)
     {
         Preconditions.checkArgument(amount >0);
-        final InventorySectionCounter counter = counters.get(type);
+        final InventorySectionCounter counter = counter(type);
         counter.remove(amount);
         Preconditions.checkState(counter.size() >=0, "removed more than I had!");
-        assert counter.equals(inventory.get(type)); //make sure they are still linked
+        assert counter.equals(section(type)); //make sure they are still linked
 
-        for(InventoryListener l : listeners)
-            l.inventoryDecreaseEvent(owner, type, counter.size(),amount);
+        fireDecrease(owner, type, counter.size(), amount);
     }
 
     public Good peekGood(GoodType type)
     {
-        return inventory.get(type).peek();
+        return section(type).peek();
+    }
+
+    /**
+     * the stored good of this differentiated type that cost the least to produce, null if there is none
+     */
+    public Good peekCheapestGood(GoodType type)
+    {
+        Preconditions.checkArgument(type.isDifferentiated(), "undifferentiated goods all cost the same");
+        InventorySection section = section(type);
+        return section == null ? null : ((InventorySectionStorage) section).peekCheapest();
     }
 
 
     @Override
     public void turnOff() {
-        for(InventorySection section : inventory.values())
-            section.removeAll();
-        inventory.clear();
-        counters.clear();
+        for(GoodType type : encountered)
+            section(type).removeAll();
+        inventory = new InventorySection[0];
+        counters = new InventorySectionCounter[0];
+        encountered.clear();
         listeners.clear();
+        coalescedListeners.clear();
+        changedTypes.clear();
+        changed.clear();
         model= null;
     }
 }
@@ -7,6 +7,7 @@
 package goods;
 
 import com.google.common.base.Preconditions;
+import model.MacroII;
 
 /**
  * This is a simple inventory section for undifferentiated goods. Under the hood it is just a integer.
@@ -19,8 +20,18 @@ public class InventorySectionCounter implements InventorySection {
 
     private  int counter;
 
+    /**
+     * the model whose flyweight peek() returns, can be null
+     */
+    private final MacroII model;
+
     public InventorySectionCounter(UndifferentiatedGoodType goodType) {
+        this(goodType,null);
+    }
+
+    public InventorySectionCounter(UndifferentiatedGoodType goodType, MacroII model) {
         this.goodType = goodType;
+        this.model = model;
         counter = 0;
     }
 
@@ -77,6 +88,6 @@ public class InventorySectionCounter implements InventorySection {
 
     @Override
     public Good peek() {
-        return Good.getInstanceOfUndifferentiatedGood(goodType); //return singleton.
+        return Good.getInstanceOfUndifferentiatedGood(goodType,model); //return singleton.
     }
 }
@@ -8,42 +8,67 @@ package goods;
 
 import com.google.common.base.Preconditions;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
 
 /**
- * This inventory section is a simple queue
+ * This inventory section is a queue, first in first out, that also knows in O(1) whether it holds a specific good and can
+ * take any good out in O(1). Goods are compared by identity, which for goods is the same as by id.
+ * The cheapest good (by cost of production) is available too; that view is only built the first time it's asked for and
+ * then kept up to date in O(log n).
  * Created by carrknight on 5/12/14.
  */
 public class InventorySectionStorage implements InventorySection
 {
 
-    private final Queue<Good> delegate;
+    /**
+     * cheapest to produce first, then oldest id first
+     */
+    private static final Comparator<Good> BY_COST = (o1, o2) -> {
+        int comparison = Integer.compare(o1.getCostOfProduction(), o2.getCostOfProduction());
+        return comparison != 0 ? comparison : Long.compare(o1.getId(), o2.getId());
+    };
+
+    /**
+     * in order of arrival
+     */
+    private final LinkedHashSet<Good> delegate;
+
+    /**
+     * null until somebody asks for the cheapest good
+     */
+    private TreeSet<Good> byCost = null;
 
     private final GoodType type;
 
     public InventorySectionStorage(GoodType type) {
         Preconditions.checkArgument(type.isDifferentiated(), "storage is pointless for undifferentiated goods");
-        this.delegate = new LinkedList<>();
+        this.delegate = new LinkedHashSet<>();
         this.type = type;
     }
 
-
     @Override
     public void store(Good good) {
-        delegate.add(good);
-
+        boolean isNew = delegate.add(good);
+        if(isNew && byCost != null)
+            byCost.add(good);
     }
 
     @Override
     public void remove(Good good) {
-        delegate.remove(good);
+        boolean removed = delegate.remove(good);
+        if(removed && byCost != null)
+            byCost.remove(good);
     }
 
     @Override
     public int removeAll() {
         int delegateSize = size();
         delegate.clear();
+        if(byCost != null)
+            byCost.clear();
         return delegateSize;
     }
 
@@ -64,6 +89,21 @@ public class InventorySectionStorage implements InventorySection
 
     @Override
     public Good peek() {
-        return delegate.peek();
+        if(delegate.isEmpty())
+            return null;
+        Iterator<Good> oldest = delegate.iterator();
+        return oldest.next();
+    }
+
+    /**
+     * the good with the lowest cost of production (ties go to the lowest id), without removing it; null if there is none
+     */
+    public Good peekCheapest() {
+        if(byCost == null)
+        {
+            byCost = new TreeSet<>(BY_COST);
+            byCost.addAll(delegate);
+        }
+        return byCost.isEmpty() ? null : byCost.first();
     }
 }
@@ -9,9 +9,13 @@ package model;
 import agents.Agent;
 import agents.EconomicAgent;
 import agents.HasInventory;
+import agents.firm.production.technology.CapitalRegistry;
 import com.google.common.base.Preconditions;
 import ec.util.MersenneTwisterFast;
 import financial.market.Market;
+import financial.market.ParallelMarketClearing;
+import financial.utilities.TradeJournal;
+import goods.Good;
 import goods.GoodType;
 import goods.GoodTypeMasterList;
 import model.scenario.Scenario;
@@ -19,15 +23,18 @@ import model.scenario.TestScenario;
 import model.scenario.TripolistScenario;
 import model.utilities.ActionOrder;
 import model.utilities.Deactivatable;
+import model.utilities.scheduler.ParallelSection;
 import model.utilities.scheduler.PhaseScheduler;
 import model.utilities.scheduler.Priority;
+import model.utilities.scheduler.RecurringAction;
+import model.utilities.scheduler.SchedulerProfiler;
 import model.utilities.scheduler.TrueRandomScheduler;
 import org.jfree.data.time.Day;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 
+import java.io.File;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Macro II, still have no clue what this is about.
@@ -47,7 +54,6 @@ public class MacroII extends SimState{
 
     public MacroII(long seed) {
         super(seed);
-        hasGUI = false;
         phaseScheduler = new TrueRandomScheduler(200000,random);
         scenario = new TestScenario(this);
         toTurnOffAtFinish = new HashSet<>();
@@ -115,10 +121,15 @@ public class MacroII extends SimState{
     /**
      * tells the world whether there is a gui or not
      */
-    public static boolean hasGUI = false;
+    private boolean hasGUI = false;
 
     private PhaseScheduler phaseScheduler;
 
+    /**
+     * when not null, the end of phase order handlers clear through this, in parallel when their markets share no agents
+     */
+    private ParallelMarketClearing parallelClearing = null;
+
     /**
      * any object in this set gets their turnOff called during finish()
      */
@@ -134,6 +145,16 @@ public class MacroII extends SimState{
      */
     private final GoodTypeMasterList goodTypeMasterList;
 
+    /**
+     * the undifferentiated goods of this model, one per type (see {@link goods.Good#getInstanceOfUndifferentiatedGood(goods.GoodType, MacroII)})
+     */
+    private final Map<GoodType,Good> undifferentiatedGoods = new HashMap<>();
+
+    /**
+     * the cost and last price of every machine of this model, as columns
+     */
+    private final CapitalRegistry capitalRegistry = new CapitalRegistry();
+
 
     /********************
      * Parameters of ProfitCheckPlantControl
@@ -169,13 +190,17 @@ public class MacroII extends SimState{
     public void registerInventoryDelivery(HasInventory sender, HasInventory economicAgent, GoodType type) {
     }
 
-    public static AtomicLong counter = new AtomicLong();
+    /**
+     * how many goods have been created in this model, used to give them ids
+     */
+    private long goodsCreated = 0;
 
     /**
-     * @return the value for the field counter.
+     * @return a new id for a good of this model. Ids only need to be unique (and increasing) within a model
      */
-    public static long getCounter() {
-        return counter.incrementAndGet();
+    public long nextGoodId() {
+        assert !calledByParallelWorker() : "goods are not created while clearing in parallel";
+        return ++goodsCreated;
     }
 
 
@@ -420,7 +445,7 @@ public class MacroII extends SimState{
     }
 
     public float randomGain(){
-        return (float) (random.nextGaussian() * .1 + 1);
+        return (float) (getRandom().nextGaussian() * .1 + 1);
 
     }
 
@@ -431,12 +456,12 @@ public class MacroII extends SimState{
 
     public float drawPlantControlInitialMarginalRatioChange(){
 
-        return (float) (PLANT_CONTROL_INITIAL_MARGINAL_RATIO_CHANGE_MEAN + random.nextGaussian()* PLANT_CONTROL_INITIAL_MARGINAL_RATIO_CHANGE_DEVIATION);
+        return (float) (PLANT_CONTROL_INITIAL_MARGINAL_RATIO_CHANGE_MEAN + getRandom().nextGaussian()* PLANT_CONTROL_INITIAL_MARGINAL_RATIO_CHANGE_DEVIATION);
     }
 
     public float drawplantControlInitialCapacityRatioTargeted(){
 
-        return (float) (PLANT_CONTROL_INITIAL_CAPACITY_RATIO_TARGETED_MEAN + random.nextGaussian()* PLANT_CONTROL_INITIAL_CAPACITY_RATIO_TARGETED_DEVIATION);
+        return (float) (PLANT_CONTROL_INITIAL_CAPACITY_RATIO_TARGETED_MEAN + getRandom().nextGaussian()* PLANT_CONTROL_INITIAL_CAPACITY_RATIO_TARGETED_DEVIATION);
     }
 
     public int drawplantControlSpeed(){
@@ -446,17 +471,17 @@ public class MacroII extends SimState{
 
 
     public float drawProportionalGain(){
-        return (float) (.5f + random.nextGaussian()*.01f);
+        return (float) (.5f + getRandom().nextGaussian()*.01f);
     }
 
 
     public float drawIntegrativeGain(){
-        return (float) (.5f + random.nextGaussian()*.05f);
+        return (float) (.5f + getRandom().nextGaussian()*.05f);
     }
 
 
     public float drawDerivativeGain(){
-        return (float) Math.abs((.0001f + random.nextGaussian()*.0005f));
+        return (float) Math.abs((.0001f + getRandom().nextGaussian()*.0005f));
     }
 
     public int drawPIDSpeed(){
@@ -481,21 +506,21 @@ public class MacroII extends SimState{
     /**
      * Does this simulation run with gui?
      */
-    public static boolean hasGUI(){
+    public boolean hasGUI(){
         return hasGUI;
     }
 
     /**
-     * this is the GUI controller, it's a static reference which is used by the exchange network
+     * this is the GUI controller, used by the exchange network. Each model has its own so that headless models can run next to it
      */
-    private static MacroIIGUI gui;
+    private MacroIIGUI gui;
 
     /**
      * register the gui and the controller
      * @param gui
      */
     public void registerGUI(MacroIIGUI gui){
-        MacroII.gui = gui;
+        this.gui = gui;
         hasGUI = true;
 
         //this is temporary so that the reviewers can duplicate correctly my results with GUI without compiling the code on their own
@@ -507,7 +532,7 @@ public class MacroII extends SimState{
     /**
      * get the GUI controller!
      */
-    public static MacroIIGUI getGUI() {
+    public MacroIIGUI getGUI() {
         assert hasGUI; //we must have gui to even get called!
         return gui;
     }
@@ -562,7 +587,7 @@ public class MacroII extends SimState{
      */
     public double drawRandomSchedulingNoise(){
 
-        return random.nextGaussian();
+        return getRandom().nextGaussian();
 
     }
 
@@ -605,8 +630,22 @@ public class MacroII extends SimState{
         this.simpleBuyerSearchSize = simpleBuyerSearchSize;
     }
 
+    /**
+     * the model randomizer; while markets clear in parallel each of them gets its own
+     */
     public MersenneTwisterFast getRandom() {
-        return random;
+        if(parallelClearing == null)
+            return random;
+        MersenneTwisterFast workerRandom = ParallelSection.getWorkerRandom();
+        return workerRandom == null ? random : workerRandom;
+    }
+
+    /**
+     * true when one of the parallel clearing workers is calling. Models that clear one market after the other never look
+     * at the thread
+     */
+    private boolean calledByParallelWorker() {
+        return parallelClearing != null && ParallelSection.isWorker();
     }
 
     /**
@@ -615,14 +654,30 @@ public class MacroII extends SimState{
      * @param action the action taken!
      */
     public void scheduleSoon(ActionOrder phase, Steppable action) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleSoon(phase, action));
+            return;
+        }
         phaseScheduler.scheduleSoon(phase, action);
     }
 
+    /**
+     * is there anything left to step in this phase today?
+     * @param phase the phase to check
+     */
+    public boolean hasPendingActions(ActionOrder phase) {
+        return phaseScheduler.hasPendingActions(phase);
+    }
+
     /**
      * schedule an action to take place in the current phase, regardless of what it is
      * @param action the action to be performed
      */
     public void scheduleASAP(Steppable action){
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleSoon(phaseScheduler.getCurrentPhase(), action));
+            return;
+        }
         phaseScheduler.scheduleSoon(phaseScheduler.getCurrentPhase(), action);
 
     }
@@ -634,6 +689,10 @@ public class MacroII extends SimState{
      * @param priority the action priority
      */
     public void scheduleTomorrow(ActionOrder phase, Steppable action, Priority priority) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleTomorrow(phase, action, priority));
+            return;
+        }
         phaseScheduler.scheduleTomorrow(phase, action, priority);
     }
 
@@ -645,6 +704,10 @@ public class MacroII extends SimState{
      *
      */
     public void scheduleSoon( ActionOrder phase,  Steppable action, Priority priority) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleSoon(phase, action, priority));
+            return;
+        }
         phaseScheduler.scheduleSoon(phase, action, priority);
     }
 
@@ -656,6 +719,10 @@ public class MacroII extends SimState{
      * @param priority the action priority
      */
     public void scheduleAnotherDay( ActionOrder phase,  Steppable action, int daysAway, Priority priority) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleAnotherDay(phase, action, daysAway, priority));
+            return;
+        }
         phaseScheduler.scheduleAnotherDay(phase, action, daysAway, priority);
     }
 
@@ -666,6 +733,10 @@ public class MacroII extends SimState{
      * @param
      */
     public void scheduleAnotherDayWithFixedProbability( ActionOrder phase,  Steppable action, float probability, Priority priority) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleAnotherDayWithFixedProbability(phase, action, probability, priority));
+            return;
+        }
         phaseScheduler.scheduleAnotherDayWithFixedProbability(phase, action, probability, priority);
     }
 
@@ -676,6 +747,10 @@ public class MacroII extends SimState{
      * @param daysAway how many days from now should it be scheduled
      */
     public void scheduleAnotherDay( ActionOrder phase,  Steppable action, int daysAway) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleAnotherDay(phase, action, daysAway));
+            return;
+        }
         phaseScheduler.scheduleAnotherDay(phase, action, daysAway);
     }
 
@@ -687,9 +762,50 @@ public class MacroII extends SimState{
      * @param action the action taken!
      */
     public void scheduleTomorrow(ActionOrder phase, Steppable action) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleTomorrow(phase, action));
+            return;
+        }
         phaseScheduler.scheduleTomorrow(phase, action);
     }
 
+    /**
+     * step the action every day at this phase; the action must not reschedule itself
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @param priority the action priority
+     * @return the handle to cancel it
+     */
+    public RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action, Priority priority) {
+        Preconditions.checkState(!calledByParallelWorker(), "can't start recurring actions while markets clear in parallel");
+        return phaseScheduler.scheduleEveryDay(phase, action, priority);
+    }
+
+    /**
+     * step the action every day at this phase (at priority STANDARD); the action must not reschedule itself
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @return the handle to cancel it
+     */
+    public RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action) {
+        Preconditions.checkState(!calledByParallelWorker(), "can't start recurring actions while markets clear in parallel");
+        return phaseScheduler.scheduleEveryDay(phase, action);
+    }
+
+    /**
+     * start timing every step of the phase scheduler, by phase and class of steppable. The numbers are written as CSV when the model finishes
+     * @param csvFile where to write the profile at finish(), can be null if you just want to query the profiler
+     * @return the profiler
+     */
+    public SchedulerProfiler profileScheduler(File csvFile)
+    {
+        Preconditions.checkState(phaseScheduler instanceof TrueRandomScheduler, "only the TrueRandomScheduler can be profiled");
+        SchedulerProfiler profiler = new SchedulerProfiler(csvFile);
+        ((TrueRandomScheduler) phaseScheduler).setProfiler(profiler);
+        registerDeactivable(profiler);
+        return profiler;
+    }
+
     /**
      * Getter mostly useful for testing. Use delegate methods instead
      * @return
@@ -723,9 +839,47 @@ public class MacroII extends SimState{
      * @param probability the daily probability of this action happening. So if you pass 15% then each day has a probability of 15% of triggering this action
      */
     public void scheduleAnotherDayWithFixedProbability( ActionOrder phase,  Steppable action, float probability) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleAnotherDayWithFixedProbability(phase, action, probability));
+            return;
+        }
         phaseScheduler.scheduleAnotherDayWithFixedProbability(phase, action, probability);
     }
 
+    /**
+     * Same as scheduleAnotherDayWithFixedProbability but the number of days is drawn in closed form (one random number, no daily coin flips)
+     * @param phase The action order at which this action should be scheduled
+     * @param action the action to schedule
+     * @param probability the daily probability of this action happening
+     * @param priority the action priority
+     */
+    public void scheduleAnotherDayWithGeometricDelay( ActionOrder phase,  Steppable action, float probability, Priority priority) {
+        if(calledByParallelWorker()) {
+            ParallelSection.defer(() -> phaseScheduler.scheduleAnotherDayWithGeometricDelay(phase, action, probability, priority));
+            return;
+        }
+        phaseScheduler.scheduleAnotherDayWithGeometricDelay(phase, action, probability, priority);
+    }
+
+    /**
+     * clear the markets with end of phase order handlers in parallel when they share no agents. To set before the
+     * markets are started. Deterministic for a given seed, but not the same results as clearing them one after the other
+     */
+    public void setParallelClearing(boolean parallelClearing) {
+        Preconditions.checkState(!hasStarted, "set parallel clearing before starting the model");
+        if(!parallelClearing)
+            this.parallelClearing = null;
+        else if(this.parallelClearing == null)
+            this.parallelClearing = new ParallelMarketClearing(this);
+    }
+
+    /**
+     * @return the parallel clearing, or null if markets clear one after the other
+     */
+    public ParallelMarketClearing getParallelClearing() {
+        return parallelClearing;
+    }
+
     /**
      * change the scheduler of the model. Probably not a good idea unless testing
      * @param phaseScheduler
@@ -743,6 +897,18 @@ public class MacroII extends SimState{
         toTurnOffAtFinish.add(d);
     }
 
+    /**
+     * a copy of the model must not write in the original's trade journals: detach them and forget them
+     */
+    void detachTradeJournals() {
+        toTurnOffAtFinish.removeIf(d -> {
+            if(!(d instanceof TradeJournal))
+                return false;
+            ((TradeJournal) d).detach();
+            return true;
+        });
+    }
+
 
 
 
@@ -758,6 +924,37 @@ public class MacroII extends SimState{
         return hasStarted;
     }
 
+    /**
+     * freeze a copy of the model as it is now; fork it to get independent models starting from here
+     */
+    public MacroIISnapshot snapshot() {
+        return new MacroIISnapshot(this);
+    }
+
+
+    /**
+     * the flyweight of an undifferentiated good type in this model
+     * @return the good or null if it was never created
+     */
+    public Good getUndifferentiatedGood(GoodType type) {
+        return undifferentiatedGoods.get(type);
+    }
+
+    /**
+     * called by {@link goods.Good#getInstanceOfUndifferentiatedGood(goods.GoodType, MacroII)} the first time it creates the flyweight
+     */
+    public void registerUndifferentiatedGood(Good good) {
+        Preconditions.checkArgument(!good.getType().isDifferentiated());
+        Good old = undifferentiatedGoods.put(good.getType(), good);
+        Preconditions.checkState(old == null, "flyweight created twice");
+    }
+
+    /**
+     * where the machinery of this model keeps its cost and price; loop over it for whole-economy capital totals
+     */
+    public CapitalRegistry getCapitalRegistry() {
+        return capitalRegistry;
+    }
 
     public GoodTypeMasterList getGoodTypeMasterList() {
         return goodTypeMasterList;
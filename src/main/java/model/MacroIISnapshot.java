@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model;
+
+import com.google.common.base.Preconditions;
+import model.utilities.DeepCopier;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A frozen copy of a running model: scheduler queues, agents, markets, controllers and the random number generator.
+ * The model it was taken from can keep running, the snapshot doesn't change.
+ * <p/> Each call to fork() returns a new, independent model that starts exactly where the original was when the snapshot was taken;
+ * step it as usual. This way many tuning runs can share a single burn-in.
+ * <p/> Models with a GUI can't be snapshot.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class MacroIISnapshot {
+
+    private final MacroII frozen;
+
+    private final double time;
+
+    /**
+     * copy the model as it is now
+     * @param model a started model without gui
+     */
+    public MacroIISnapshot(MacroII model) {
+        Preconditions.checkState(!model.hasGUI(), "can't snapshot a model with gui");
+        Preconditions.checkState(model.hasStarted(), "snapshot a model after it started");
+        this.frozen = DeepCopier.deepCopy(model);
+        //the forks copy this, so they are all detached too
+        frozen.detachTradeJournals();
+        this.time = model.schedule.getTime();
+    }
+
+    /**
+     * @return a new model, identical to the original when the snapshot was taken
+     */
+    public MacroII fork()
+    {
+        return DeepCopier.deepCopy(frozen);
+    }
+
+    /**
+     * a new model, identical to the original when the snapshot was taken except that its randomizer is reseeded, so that
+     * forks diverge from there
+     * @param seed the new seed
+     */
+    public MacroII fork(long seed)
+    {
+        MacroII fork = fork();
+        fork.random.setSeed(seed);
+        return fork;
+    }
+
+    /**
+     * the schedule time of the model when the snapshot was taken
+     */
+    public double getTime() {
+        return time;
+    }
+}
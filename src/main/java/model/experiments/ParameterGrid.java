@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.experiments;
+
+import com.google.common.base.Preconditions;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The parameters of a sweep: a list of named dimensions, each with the values to try. The cells of the grid are all the
+ * combinations, numbered so that the last dimension added changes fastest (just like the nested for-loops it replaces).
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParameterGrid {
+
+    private final List<String> names = new ArrayList<>();
+
+    private final List<List<?>> values = new ArrayList<>();
+
+    /**
+     * add a dimension to the grid
+     * @param name the name of the parameter, also used as column header
+     * @param valuesToTry the values it takes, in the order they should be tried
+     * @return this grid, to chain
+     */
+    public ParameterGrid addDimension(String name, List<?> valuesToTry)
+    {
+        Preconditions.checkArgument(!names.contains(name), "dimension already in the grid");
+        Preconditions.checkArgument(!valuesToTry.isEmpty(), "a dimension needs at least a value");
+        names.add(name);
+        values.add(new ArrayList<>(valuesToTry));
+        return this;
+    }
+
+    public ParameterGrid addDimension(String name, Object... valuesToTry)
+    {
+        return addDimension(name, Arrays.asList(valuesToTry));
+    }
+
+    /**
+     * add a dimension going from minimum to maximum (both included) by increment. Computed with big decimals so that
+     * .1 + .1 + .1 is still .3
+     */
+    public ParameterGrid addFloatRange(String name, float minimum, float maximum, float increment)
+    {
+        Preconditions.checkArgument(increment > 0);
+        Preconditions.checkArgument(minimum <= maximum);
+        List<Float> range = new ArrayList<>();
+        BigDecimal step = new BigDecimal(Float.toString(increment));
+        BigDecimal max = new BigDecimal(Float.toString(maximum));
+        for(BigDecimal current = new BigDecimal(Float.toString(minimum)); current.compareTo(max) <= 0; current = current.add(step))
+            range.add(current.floatValue());
+        return addDimension(name, range);
+    }
+
+    /**
+     * add a dimension going from minimum to maximum, both included
+     */
+    public ParameterGrid addIntRange(String name, int minimum, int maximum)
+    {
+        Preconditions.checkArgument(minimum <= maximum);
+        List<Integer> range = new ArrayList<>(maximum - minimum + 1);
+        for(int i=minimum; i<=maximum; i++)
+            range.add(i);
+        return addDimension(name, range);
+    }
+
+    /**
+     * @return how many combinations there are
+     */
+    public int size()
+    {
+        int size = 1;
+        for(List<?> dimension : values)
+            size *= dimension.size();
+        return size;
+    }
+
+    /**
+     * the names of the dimensions, in the order they were added
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param index the index of the cell, between 0 and size()-1
+     * @return the combination of parameters for that index
+     */
+    public Cell getCell(int index)
+    {
+        Preconditions.checkElementIndex(index, size());
+        Object[] cellValues = new Object[names.size()];
+        int remainder = index;
+        for(int dimension = names.size()-1; dimension >= 0; dimension--)
+        {
+            List<?> dimensionValues = values.get(dimension);
+            cellValues[dimension] = dimensionValues.get(remainder % dimensionValues.size());
+            remainder /= dimensionValues.size();
+        }
+        return new Cell(index, cellValues);
+    }
+
+    /**
+     * all the cells, in order
+     */
+    public List<Cell> getCells()
+    {
+        int size = size();
+        List<Cell> cells = new ArrayList<>(size);
+        for(int i=0; i<size; i++)
+            cells.add(getCell(i));
+        return cells;
+    }
+
+    /**
+     * One combination of parameters
+     */
+    public class Cell
+    {
+
+        private final int index;
+
+        private final Object[] cellValues;
+
+        private Cell(int index, Object[] cellValues) {
+            this.index = index;
+            this.cellValues = cellValues;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Object get(String name)
+        {
+            int position = names.indexOf(name);
+            Preconditions.checkArgument(position >= 0, "no dimension called " + name);
+            return cellValues[position];
+        }
+
+        public float getFloat(String name)
+        {
+            return ((Number) get(name)).floatValue();
+        }
+
+        public int getInt(String name)
+        {
+            return ((Number) get(name)).intValue();
+        }
+
+        public boolean getBoolean(String name)
+        {
+            return (Boolean) get(name);
+        }
+
+        /**
+         * the values of the cell as strings, in the same order as the grid names (used to write csvs)
+         */
+        public String[] toStrings()
+        {
+            String[] strings = new String[cellValues.length];
+            for(int i=0; i< cellValues.length; i++)
+                strings[i] = String.valueOf(cellValues[i]);
+            return strings;
+        }
+
+        @Override
+        public String toString() {
+            return "Cell" + index + Arrays.toString(cellValues);
+        }
+    }
+}
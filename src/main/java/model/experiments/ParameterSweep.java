@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.experiments;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import com.google.common.base.Preconditions;
+import model.MacroII;
+import model.scenario.Scenario;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Runs a scenario for every cell of a {@link ParameterGrid} and every seed, many at the same time. Each run builds its own MacroII
+ * with the given seed, asks the factory for the scenario, starts, runs for the given number of days and then asks the extractor for the
+ * numbers to keep.
+ * <p/> Runs are executed on a work-stealing pool as big as the machine; their results go to a single writer thread which
+ * writes them (as csv, if asked) in grid order: for each cell, for each seed. Since models share nothing the output is the same
+ * no matter how many threads are used.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParameterSweep<S extends Scenario> {
+
+    /**
+     * builds the scenario of a run; the model is fresh and not started yet
+     */
+    public interface ScenarioFactory<S extends Scenario>
+    {
+        S buildScenario(MacroII model, ParameterGrid.Cell cell);
+    }
+
+    /**
+     * called right after the model started, for whatever can't be set up before (swapping strategies of agents and so on)
+     */
+    public interface RunCustomizer<S extends Scenario>
+    {
+        void customize(MacroII model, S scenario, ParameterGrid.Cell cell);
+    }
+
+    /**
+     * called at the end of the run, returns the numbers to keep (one per metric name). It can keep stepping the model if it needs to
+     */
+    public interface MetricExtractor<S extends Scenario>
+    {
+        double[] extract(MacroII model, S scenario, ParameterGrid.Cell cell);
+    }
+
+    private final ParameterGrid grid;
+
+    private final long[] seeds;
+
+    private final int daysToRun;
+
+    private final ScenarioFactory<S> factory;
+
+    private final MetricExtractor<S> extractor;
+
+    private final String[] metricNames;
+
+    private RunCustomizer<S> customizer = null;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * where to write the csv, can be null
+     */
+    private Writer output = null;
+
+    /**
+     * print on System.out how many runs are done
+     */
+    private boolean printProgress = false;
+
+    public ParameterSweep(ParameterGrid grid, long[] seeds, int daysToRun,
+                          ScenarioFactory<S> factory, MetricExtractor<S> extractor, String... metricNames) {
+        Preconditions.checkArgument(seeds.length > 0, "at least one seed per cell!");
+        Preconditions.checkArgument(daysToRun >= 0);
+        this.grid = grid;
+        this.seeds = seeds.clone();
+        this.daysToRun = daysToRun;
+        this.factory = factory;
+        this.extractor = extractor;
+        this.metricNames = metricNames.clone();
+    }
+
+    /**
+     * seeds 0,1,...,howMany-1
+     */
+    public static long[] seeds(int howMany)
+    {
+        long[] seeds = new long[howMany];
+        for(int i=0; i<howMany; i++)
+            seeds[i] = i;
+        return seeds;
+    }
+
+    /**
+     * run the whole sweep, blocking until the last result is written
+     * @return all the results, in grid order
+     * @throws ExecutionException if any run failed (the rest of the sweep is cancelled)
+     * @throws IOException if the csv couldn't be written
+     */
+    public List<SweepResult> run() throws ExecutionException, InterruptedException, IOException {
+
+        final int runs = grid.size() * seeds.length;
+        final BlockingQueue<SweepResult> done = new LinkedBlockingQueue<>();
+        final SweepWriter writer = new SweepWriter(done, runs);
+        Thread writerThread = new Thread(writer, "sweep-writer");
+        writerThread.start();
+
+        ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+        List<Future<?>> receipts = new ArrayList<>(runs);
+        try {
+            for (int runNumber = 0; runNumber < runs; runNumber++) {
+                final int index = runNumber;
+                receipts.add(executor.submit(() -> {
+                    done.add(oneRun(index));
+                    return null;
+                }));
+            }
+            //make sure every run was completed
+            for (Future<?> receipt : receipts)
+                receipt.get();
+        }
+        catch (ExecutionException | InterruptedException e){
+            for (Future<?> receipt : receipts)
+                receipt.cancel(true);
+            writerThread.interrupt();
+            throw e;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        writerThread.join();
+        if(writer.failure != null)
+            throw writer.failure;
+        return writer.results;
+
+    }
+
+    /**
+     * run the sweep writing the csv to file
+     */
+    public List<SweepResult> run(File csvFile) throws ExecutionException, InterruptedException, IOException {
+        try(FileWriter fileWriter = new FileWriter(csvFile)) {
+            setOutput(fileWriter);
+            return run();
+        }
+        finally {
+            setOutput(null);
+        }
+    }
+
+    private SweepResult oneRun(int runNumber)
+    {
+        ParameterGrid.Cell cell = grid.getCell(runNumber / seeds.length);
+        long seed = seeds[runNumber % seeds.length];
+
+        MacroII model = new MacroII(seed);
+        S scenario = factory.buildScenario(model, cell);
+        model.setScenario(scenario);
+        model.start();
+        if(customizer != null)
+            customizer.customize(model, scenario, cell);
+        for(int day=0; day < daysToRun; day++)
+            model.schedule.step(model);
+
+        double[] metrics = extractor.extract(model, scenario, cell);
+        Preconditions.checkState(metrics.length == metricNames.length, "one value per metric please!");
+        model.finish();
+
+        return new SweepResult(runNumber, cell, seed, metrics);
+    }
+
+    /**
+     * the only one touching the csv: it waits for results and writes them as soon as all the ones before are written
+     */
+    private class SweepWriter implements Runnable
+    {
+        private final BlockingQueue<SweepResult> done;
+
+        private final int runs;
+
+        private final List<SweepResult> results;
+
+        private volatile IOException failure = null;
+
+        private SweepWriter(BlockingQueue<SweepResult> done, int runs) {
+            this.done = done;
+            this.runs = runs;
+            this.results = new ArrayList<>(runs);
+        }
+
+        @Override
+        public void run() {
+            CSVWriter csv = output == null ? null : new CSVWriter(output);
+            Map<Integer,SweepResult> waiting = new HashMap<>();
+            try {
+                if(csv != null)
+                    csv.writeNext(header());
+                while (results.size() < runs) {
+                    SweepResult result = done.take();
+                    waiting.put(result.getRunNumber(), result);
+                    //write whatever is now in order
+                    SweepResult next;
+                    while ((next = waiting.remove(results.size())) != null)
+                    {
+                        results.add(next);
+                        if(csv != null) {
+                            csv.writeNext(next.toStrings());
+                            csv.flush();
+                        }
+                    }
+                    if(printProgress)
+                        System.out.println("sweep: " + results.size() + "/" + runs);
+                }
+            }
+            catch (InterruptedException e) {
+                //a run failed, the sweep is off
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    private String[] header()
+    {
+        List<String> header = new ArrayList<>(grid.getNames());
+        header.add("seed");
+        header.addAll(Arrays.asList(metricNames));
+        return header.toArray(new String[header.size()]);
+    }
+
+    /**
+     * the numbers extracted from a single run
+     */
+    public static class SweepResult
+    {
+        private final int runNumber;
+
+        private final ParameterGrid.Cell cell;
+
+        private final long seed;
+
+        private final double[] metrics;
+
+        private SweepResult(int runNumber, ParameterGrid.Cell cell, long seed, double[] metrics) {
+            this.runNumber = runNumber;
+            this.cell = cell;
+            this.seed = seed;
+            this.metrics = metrics;
+        }
+
+        public int getRunNumber() {
+            return runNumber;
+        }
+
+        public ParameterGrid.Cell getCell() {
+            return cell;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public double[] getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * the csv line: cell values, seed, metrics
+         */
+        public String[] toStrings()
+        {
+            String[] cellValues = cell.toStrings();
+            String[] line = Arrays.copyOf(cellValues, cellValues.length + 1 + metrics.length);
+            line[cellValues.length] = String.valueOf(seed);
+            for(int i=0; i<metrics.length; i++)
+                line[cellValues.length + 1 + i] = String.valueOf(metrics[i]);
+            return line;
+        }
+    }
+
+    public void setCustomizer(RunCustomizer<S> customizer) {
+        this.customizer = customizer;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * how many runs at the same time, by default as many as there are processors
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0);
+        this.parallelism = parallelism;
+    }
+
+    public void setOutput(Writer output) {
+        this.output = output;
+    }
+
+    public void setPrintProgress(boolean printProgress) {
+        this.printProgress = printProgress;
+    }
+}
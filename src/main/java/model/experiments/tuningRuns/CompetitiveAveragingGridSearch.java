@@ -17,6 +17,8 @@ import agents.firm.sales.pricing.pid.SalesControlWithFixedInventoryAndPID;
 import agents.firm.utilities.*;
 import goods.UndifferentiatedGoodType;
 import model.MacroII;
+import model.experiments.ParameterGrid;
+import model.experiments.ParameterSweep;
 import model.scenario.MonopolistScenario;
 import model.scenario.TripolistScenario;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
@@ -25,6 +27,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
 
 /**
  * <h4>Description</h4>
@@ -47,7 +50,7 @@ public class CompetitiveAveragingGridSearch {
 
 
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
         FileWriter writer;/* = new FileWriter(Paths.get("runs", "tunings","averaging", "averagingTuning.csv").toFile());
 
         for(float hrWeight= .1f; hrWeight<1f;hrWeight= round(hrWeight+.1f,1))
@@ -63,31 +66,56 @@ public class CompetitiveAveragingGridSearch {
 
                */
 
-        writer = new FileWriter(Paths.get("runs", "tunings","averaging", "intervalTuning.csv").toFile());
-
-        for(float hrWeight= .1f; hrWeight<1f;hrWeight= round(hrWeight+.1f,1))
-            for(float salesWeight= .1f; salesWeight<1f;salesWeight= round(salesWeight+.1f,1))
-            {
-                final CompetitiveAveragingResult r = intervalRuns(hrWeight, salesWeight);
-                final String line = hrWeight + ","  + salesWeight + ","+ r.getPrice() + "," + r.getQuantity() + "," + r.getStd();
-                System.out.println(line);
-                writer.write(line+"\n");
-                writer.flush();
+        //one line per run: average them by cell when plotting
+        ParameterGrid intervalGrid = new ParameterGrid().
+                addFloatRange("hrWeight", .1f, .9f, .1f).
+                addFloatRange("salesWeight", .1f, .9f, .1f);
+        ParameterSweep<TripolistScenario> intervalSweep = new ParameterSweep<>(intervalGrid, ParameterSweep.seeds(5), 0,
+                (model, cell) -> buildCompetitiveScenario(model),
+                (model, scenario, cell) -> lastFiveHundredDays(model),
+                "price", "quantity", "std");
+        intervalSweep.setCustomizer((model, scenario, cell) -> {
+            model.schedule.step(model);
+            for (Firm firm : scenario.getCompetitors()) {
+                for (HumanResources hr : firm.getHRs()) {
+                    hr.setPredictor(new FixedIncreasePurchasesPredictor(0));
+                    hr.setPriceAverager(new AveragerOverSmallIntervalOnly(cell.getFloat("hrWeight")));
+                }
+                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(new AveragerOverSmallIntervalOnly(cell.getFloat("salesWeight")));
+                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPredictorStrategy(new FixedDecreaseSalesPredictor(0));
             }
-        writer.close();
-        writer = new FileWriter(Paths.get("runs", "tunings","averaging", "weightedAveragingTuning.csv").toFile());
-        for(int hrDays = 1; hrDays <=10; hrDays++)
-            for(int salesDays = 1; salesDays <=10; salesDays++)
-                for (boolean hrDecorated : new boolean[]{ false, true })
-                    for (boolean salesDecorated : new boolean[]{ false, true })
-            {
-                final CompetitiveAveragingResult r = weightedRun(hrDays,salesDays,hrDecorated,salesDecorated);
-                final String line = hrDays + "," + salesDays + "," + hrDecorated + ","+ salesDecorated + ","+ r.getPrice() + "," + r.getQuantity() + "," + r.getStd();
-                System.out.println(line);
-                writer.write(line+"\n");
-                writer.flush();
-
+        });
+        intervalSweep.setPrintProgress(true);
+        intervalSweep.run(Paths.get("runs", "tunings","averaging", "intervalTuning.csv").toFile());
+
+        ParameterGrid weightedGrid = new ParameterGrid().
+                addIntRange("hrDays", 1, 10).
+                addIntRange("salesDays", 1, 10).
+                addDimension("hrDecorated", false, true).
+                addDimension("salesDecorated", false, true);
+        ParameterSweep<TripolistScenario> weightedSweep = new ParameterSweep<>(weightedGrid, ParameterSweep.seeds(5), 0,
+                (model, cell) -> buildCompetitiveScenario(model),
+                (model, scenario, cell) -> lastFiveHundredDays(model),
+                "price", "quantity", "std");
+        weightedSweep.setCustomizer((model, scenario, cell) -> {
+            model.schedule.step(model);
+            for (Firm firm : scenario.getCompetitors()) {
+                for (HumanResources hr : firm.getHRs()) {
+                    hr.setPredictor(new FixedIncreasePurchasesPredictor(0));
+                    PriceAverager priceAverager = new WeightedPriceAverager(cell.getInt("hrDays"));
+                    if(cell.getBoolean("hrDecorated"))
+                        priceAverager = new NoTradingOverrideAveragerDecorator(priceAverager);
+                    hr.setPriceAverager(priceAverager);
+                }
+                PriceAverager priceAverager = new WeightedPriceAverager(cell.getInt("salesDays"));
+                if(cell.getBoolean("salesDecorated"))
+                    priceAverager = new NoTradingOverrideAveragerDecorator(priceAverager);
+                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(priceAverager);
+                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPredictorStrategy(new FixedDecreaseSalesPredictor(0));
             }
+        });
+        weightedSweep.setPrintProgress(true);
+        weightedSweep.run(Paths.get("runs", "tunings","averaging", "weightedAveragingTuning.csv").toFile());
 
         writer = new FileWriter(Paths.get("runs", "tunings", "averaging","doesSpeedMatters.csv").toFile());
 
@@ -103,172 +131,56 @@ public class CompetitiveAveragingGridSearch {
     }
 
 
-    public static CompetitiveAveragingResult exponentialRuns(float hrWeight, PriceAverager.NoTradingDayPolicy hrPolicy,
-                                                             float salesWeight, PriceAverager.NoTradingDayPolicy salesPolicy,
-                                                             int maximizerAveragePeriod){
-
-        SummaryStatistics averageResultingPrice = new SummaryStatistics();
-        SummaryStatistics averageResultingQuantity = new SummaryStatistics();
-        SummaryStatistics averageStandardDeviation = new SummaryStatistics();
-        for (int i = 0; i < 5; i++)
-        {
-            final MacroII macroII = new MacroII(i);
-            final TripolistScenario scenario1 = new TripolistScenario(macroII);
-
-            scenario1.setSalesDepartmentType(SalesDepartmentOneAtATime.class);
-            scenario1.setAskPricingStrategy(SalesControlWithFixedInventoryAndPID.class);
-            scenario1.setControlType(MonopolistScenario.MonopolistScenarioIntegratedControlEnum.MARGINAL_PLANT_CONTROL);
-            scenario1.setAdditionalCompetitors(4);
-            scenario1.setWorkersToBeRehiredEveryDay(true);
-            scenario1.setDemandIntercept(102);
-
-
-            scenario1.setSalesPricePreditorStrategy(FixedDecreaseSalesPredictor.class);
+    /**
+     * the competitive tripolist all these runs share
+     */
+    private static TripolistScenario buildCompetitiveScenario(MacroII macroII)
+    {
+        final TripolistScenario scenario1 = new TripolistScenario(macroII);
 
+        scenario1.setSalesDepartmentType(SalesDepartmentOneAtATime.class);
+        scenario1.setAskPricingStrategy(SalesControlWithFixedInventoryAndPID.class);
+        scenario1.setControlType(MonopolistScenario.MonopolistScenarioIntegratedControlEnum.MARGINAL_PLANT_CONTROL);
+        scenario1.setAdditionalCompetitors(4);
+        scenario1.setWorkersToBeRehiredEveryDay(true);
+        scenario1.setDemandIntercept(102);
 
-            //assign scenario
-            macroII.setScenario(scenario1);
 
-            macroII.start();
+        scenario1.setSalesPricePreditorStrategy(FixedDecreaseSalesPredictor.class);
+        return scenario1;
+    }
 
+    /**
+     * run until day 10000 and then return average price, average quantity and price standard deviation of the following 500 days
+     */
+    private static double[] lastFiveHundredDays(MacroII macroII)
+    {
+        while (macroII.schedule.getTime() < 10000) {
             macroII.schedule.step(macroII);
-            for (Firm firm : scenario1.getCompetitors()) {
-                for (HumanResources hr : firm.getHRs()) {
-                    hr.setPredictor(new FixedIncreasePurchasesPredictor(0));
-                    hr.setPriceAverager(new ExponentialPriceAverager(hrWeight, hrPolicy));
-                }
-                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(new ExponentialPriceAverager(salesWeight, salesPolicy));
-                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPredictorStrategy(new FixedDecreaseSalesPredictor(0));
-            }
-
-
-            for(final PlantControl control : scenario1.getMaximizers())
-            {
-                ((MarginalPlantControl)control).getMaximizer().setHowManyDaysBeforeEachCheck(maximizerAveragePeriod);
-            }
-
-            while (macroII.schedule.getTime() < 10000) {
-                macroII.schedule.step(macroII);
-            }
-
-            SummaryStatistics prices = new SummaryStatistics();
-            SummaryStatistics quantities = new SummaryStatistics();
-            for (int j = 0; j < 500; j++) {
-                macroII.schedule.step(macroII);
-                prices.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayAveragePrice());
-                quantities.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayVolume());
-
-
-            }
-
-
-
-
-            //okay?
-            averageResultingPrice.addValue(prices.getMean());
-            averageResultingQuantity.addValue(quantities.getMean());
-            averageStandardDeviation.addValue(prices.getStandardDeviation());
-
         }
 
-        //okay?
-        return new CompetitiveAveragingResult(averageResultingPrice.getMean(),averageResultingQuantity.getMean(),averageStandardDeviation.getMean());
-
-
-    }
-
-    public static CompetitiveAveragingResult intervalRuns(float hrWeight ,
-                                                             float salesWeight){
-
-        SummaryStatistics averageResultingPrice = new SummaryStatistics();
-        SummaryStatistics averageResultingQuantity = new SummaryStatistics();
-        SummaryStatistics averageStandardDeviation = new SummaryStatistics();
-        for (int i = 0; i < 5; i++)
-        {
-            final MacroII macroII = new MacroII(System.currentTimeMillis());
-            final TripolistScenario scenario1 = new TripolistScenario(macroII);
-
-            scenario1.setSalesDepartmentType(SalesDepartmentOneAtATime.class);
-            scenario1.setAskPricingStrategy(SalesControlWithFixedInventoryAndPID.class);
-            scenario1.setControlType(MonopolistScenario.MonopolistScenarioIntegratedControlEnum.MARGINAL_PLANT_CONTROL);
-            scenario1.setAdditionalCompetitors(4);
-            scenario1.setWorkersToBeRehiredEveryDay(true);
-            scenario1.setDemandIntercept(102);
-
-
-            scenario1.setSalesPricePreditorStrategy(FixedDecreaseSalesPredictor.class);
-
-
-            //assign scenario
-            macroII.setScenario(scenario1);
-
-            macroII.start();
-
+        SummaryStatistics prices = new SummaryStatistics();
+        SummaryStatistics quantities = new SummaryStatistics();
+        for (int j = 0; j < 500; j++) {
             macroII.schedule.step(macroII);
-            for (Firm firm : scenario1.getCompetitors()) {
-                for (HumanResources hr : firm.getHRs()) {
-                    hr.setPredictor(new FixedIncreasePurchasesPredictor(0));
-                    hr.setPriceAverager(new AveragerOverSmallIntervalOnly(hrWeight));
-                }
-                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(new AveragerOverSmallIntervalOnly(salesWeight));
-                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPredictorStrategy(new FixedDecreaseSalesPredictor(0));
-            }
-
-
-            while (macroII.schedule.getTime() < 10000) {
-                macroII.schedule.step(macroII);
-            }
-
-            SummaryStatistics prices = new SummaryStatistics();
-            SummaryStatistics quantities = new SummaryStatistics();
-            for (int j = 0; j < 500; j++) {
-                macroII.schedule.step(macroII);
-                prices.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayAveragePrice());
-                quantities.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayVolume());
-
-
-            }
-
-
-
-
-            //okay?
-            averageResultingPrice.addValue(prices.getMean());
-            averageResultingQuantity.addValue(quantities.getMean());
-            averageStandardDeviation.addValue(prices.getStandardDeviation());
-
+            prices.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayAveragePrice());
+            quantities.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayVolume());
         }
-
-        //okay?
-        return new CompetitiveAveragingResult(averageResultingPrice.getMean(),averageResultingQuantity.getMean(),averageStandardDeviation.getMean());
-
-
+        return new double[]{prices.getMean(),quantities.getMean(),prices.getStandardDeviation()};
     }
 
 
-
-
-
-    public static CompetitiveAveragingResult weightedRun(int hrDays, int salesDays,boolean decoratedHr,boolean decoratedSales){
+    public static CompetitiveAveragingResult exponentialRuns(float hrWeight, PriceAverager.NoTradingDayPolicy hrPolicy,
+                                                             float salesWeight, PriceAverager.NoTradingDayPolicy salesPolicy,
+                                                             int maximizerAveragePeriod){
 
         SummaryStatistics averageResultingPrice = new SummaryStatistics();
         SummaryStatistics averageResultingQuantity = new SummaryStatistics();
         SummaryStatistics averageStandardDeviation = new SummaryStatistics();
         for (int i = 0; i < 5; i++)
         {
-            final MacroII macroII = new MacroII(System.currentTimeMillis());
-            final TripolistScenario scenario1 = new TripolistScenario(macroII);
-
-            scenario1.setSalesDepartmentType(SalesDepartmentOneAtATime.class);
-            scenario1.setAskPricingStrategy(SalesControlWithFixedInventoryAndPID.class);
-            scenario1.setControlType(MonopolistScenario.MonopolistScenarioIntegratedControlEnum.MARGINAL_PLANT_CONTROL);
-            scenario1.setAdditionalCompetitors(4);
-            scenario1.setWorkersToBeRehiredEveryDay(true);
-            scenario1.setDemandIntercept(102);
-
-
-            scenario1.setSalesPricePreditorStrategy(FixedDecreaseSalesPredictor.class);
-
+            final MacroII macroII = new MacroII(i);
+            final TripolistScenario scenario1 = buildCompetitiveScenario(macroII);
 
             //assign scenario
             macroII.setScenario(scenario1);
@@ -279,39 +191,24 @@ public class CompetitiveAveragingGridSearch {
             for (Firm firm : scenario1.getCompetitors()) {
                 for (HumanResources hr : firm.getHRs()) {
                     hr.setPredictor(new FixedIncreasePurchasesPredictor(0));
-                    PriceAverager priceAverager = new WeightedPriceAverager(hrDays);
-                    if(decoratedHr)
-                        priceAverager = new NoTradingOverrideAveragerDecorator(priceAverager);
-                    hr.setPriceAverager(priceAverager);
+                    hr.setPriceAverager(new ExponentialPriceAverager(hrWeight, hrPolicy));
                 }
-                PriceAverager priceAverager = new WeightedPriceAverager(salesDays);
-                if(decoratedSales)
-                    priceAverager = new NoTradingOverrideAveragerDecorator(priceAverager);
-                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(priceAverager);
+                firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPriceAverager(new ExponentialPriceAverager(salesWeight, salesPolicy));
                 firm.getSalesDepartment(UndifferentiatedGoodType.GENERIC).setPredictorStrategy(new FixedDecreaseSalesPredictor(0));
             }
 
-            while (macroII.schedule.getTime() < 10000) {
-                macroII.schedule.step(macroII);
-            }
-
-            SummaryStatistics prices = new SummaryStatistics();
-            SummaryStatistics quantities = new SummaryStatistics();
-            for (int j = 0; j < 500; j++) {
-                macroII.schedule.step(macroII);
-                prices.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayAveragePrice());
-                quantities.addValue(macroII.getMarket(UndifferentiatedGoodType.GENERIC).getTodayVolume());
-
 
+            for(final PlantControl control : scenario1.getMaximizers())
+            {
+                ((MarginalPlantControl)control).getMaximizer().setHowManyDaysBeforeEachCheck(maximizerAveragePeriod);
             }
 
-
-
+            double[] lastDays = lastFiveHundredDays(macroII);
 
             //okay?
-            averageResultingPrice.addValue(prices.getMean());
-            averageResultingQuantity.addValue(quantities.getMean());
-            averageStandardDeviation.addValue(prices.getStandardDeviation());
+            averageResultingPrice.addValue(lastDays[0]);
+            averageResultingQuantity.addValue(lastDays[1]);
+            averageStandardDeviation.addValue(lastDays[2]);
 
         }
 
@@ -321,7 +218,6 @@ public class CompetitiveAveragingGridSearch {
 
     }
 
-
     private static class CompetitiveAveragingResult{
         private final double price;
         private final double quantity;
@@ -22,7 +22,6 @@ import agents.firm.sales.prediction.SalesPredictor;
 import agents.firm.sales.pricing.AskPricingStrategy;
 import com.google.common.base.Preconditions;
 import financial.market.Market;
-import javafx.collections.ObservableSet;
 import model.MacroII;
 import model.utilities.logs.LogLevel;
 import model.utilities.logs.LogToFile;
@@ -37,6 +36,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Set;
 import java.util.function.Function;
 
 import static model.experiments.tuningRuns.MarginalMaximizerPIDTuning.printProgressBar;
@@ -672,7 +672,7 @@ public class OneLinkSupplyChainResult {
     {
         Preconditions.checkState(OneLinkSupplyChainScenario.class.isAssignableFrom(model.getScenario().getClass()));
         //wood
-        final ObservableSet<EconomicAgent> lumberMills =
+        final Set<EconomicAgent> lumberMills =
                 model.getMarket(OneLinkSupplyChainScenario.INPUT_GOOD).getSellers();
         double salesSlopes[] = new double[lumberMills.size()];
         double hrSlopes[] = new double[lumberMills.size()];
@@ -690,7 +690,7 @@ public class OneLinkSupplyChainResult {
         System.out.println("hr: " + Arrays.toString(hrSlopes));
 
         //furniture
-        final ObservableSet<EconomicAgent> furniturePlants =
+        final Set<EconomicAgent> furniturePlants =
                 model.getMarket(OneLinkSupplyChainScenario.INPUT_GOOD).getBuyers();
         salesSlopes = new double[furniturePlants.size()];
         hrSlopes = new double[furniturePlants.size()];
@@ -128,7 +128,7 @@ public abstract class Scenario {
     {
 
         //the gui should be on!
-        assert MacroII.hasGUI();
+        assert model.hasGUI();
 
         /**
          * The inspector we'll return
@@ -181,7 +181,7 @@ public abstract class Scenario {
         final Box scenarioBox = new Box(BoxLayout.Y_AXIS);
         scenarioBox.add(comboBox);
         SimpleInspector currentScenario = new SimpleInspector(model.getScenario(),
-                MacroII.getGUI());
+                model.getGUI());
         for(Component c : currentScenario.getComponents()){
             scenarioBox.add(c);
         }
@@ -222,7 +222,7 @@ public abstract class Scenario {
                 scenarioBox.add(comboBox); //re-add the combo-box
                 //get the new info by creating a new strategy inspector.
                 SimpleInspector currentScenario = new SimpleInspector(model.getScenario(),
-                        MacroII.getGUI());
+                        model.getGUI());
                 for(Component c : currentScenario.getComponents()){
                     scenarioBox.add(c);
                 }
@@ -200,7 +200,7 @@ public class SimpleBuyerSellerScenario extends Scenario {
             public void step(SimState simState) {
                 //sell 4 goods!
                 for(int i=0; i<goodPerSeller; i++){
-                    Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+                    Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC,getModel());
                     seller.receive(good,null);
                     seller.reactToPlantProduction(good);
                 }
@@ -85,7 +85,7 @@ public class SimpleDecentralizedSellerScenario extends Scenario
             public void step(SimState simState) {
                 //sell 4 goods!
                 for(int i=0; i<4; i++){
-                    Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+                    Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC,getModel());
                     seller.receive(good,null);
                     seller.reactToPlantProduction(good);
                 }
@@ -74,7 +74,7 @@ public class TestScenario extends Scenario {
         getModel().scheduleSoon(ActionOrder.TRADE,new Steppable() {
             @Override
             public void step(SimState simState) {
-                Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+                Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC,getModel());
                 seller.receive(good,null);
 
                 testMarket.trade(buyer, seller,good ,
@@ -87,7 +87,7 @@ public class TestScenario extends Scenario {
         getModel().scheduleAnotherDay(ActionOrder.TRADE,new Steppable() {
             @Override
             public void step(SimState simState) {
-                Good good =  Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+                Good good =  Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC,getModel());
                 seller.receive(good,null);
                 testMarket.trade(buyer, seller, good,
                         30, Quote.emptyBidQuote(UndifferentiatedGoodType.GENERIC),Quote.emptySellQuote(good));
@@ -110,7 +110,7 @@ public class TestScenario extends Scenario {
             public void step(SimState simState) {
                 testMarket.submitBuyQuote(buyer,40);
                 testMarket.submitSellQuote(seller, 100,
-                        Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC));
+                        Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC,getModel()));
             }
         },4);
 
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashBiMap;
+import goods.GoodType;
+
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Copies a whole object graph by reflection, without needing anything to be Serializable or Cloneable. Every object reachable
+ * from the root is copied exactly once, so shared references and cycles are kept.
+ * <p/> Immutable objects (strings, boxed primitives, enums, classes, good types) and things that can't meaningfully be copied
+ * (streams, writers, threads, executors, jvm internals) are shared with the original rather than copied. Plain {@code Object}s
+ * are copied: they are usually locks and the copies must not share the original's monitor.
+ * <p/> Hash and sorted collections are rebuilt rather than copied field by field: the copied keys have different identity hashes,
+ * so the old buckets would be wrong. They are refilled at the end, in the original iteration order, once every key is complete.
+ * <p/> Lambdas are rebuilt through their constructor with copies of what they captured; lambdas that capture nothing and the
+ * jdk's own (whose classes can't be opened) are shared.
+ * <p/> On java 9+ it needs java.lang and java.util to be open (--add-opens java.base/java.util=ALL-UNNAMED and the same for
+ * java.lang), as the test task of build.gradle does
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class DeepCopier {
+
+    /**
+     * allocates objects without calling any constructor, the way deserialization does. There is no public api for that,
+     * so this is the jdk internal one: javac reports it as proprietary whatever we annotate
+     */
+    @SuppressWarnings("sunapi")
+    private static final sun.misc.Unsafe UNSAFE = findUnsafe();
+
+    @SuppressWarnings("sunapi")
+    private static sun.misc.Unsafe findUnsafe()
+    {
+        try {
+            Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (sun.misc.Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * classes that are immutable and can be shared as they are
+     */
+    private static final Set<Class<?>> IMMUTABLE = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigDecimal.class, BigInteger.class, Class.class
+    ));
+
+    /**
+     * packages whose objects are shared rather than copied
+     */
+    private static final String[] SHARED_PACKAGES = {
+            "java.io.", "java.nio.", "java.lang.reflect.", "java.lang.invoke.", "sun.", "com.sun.", "jdk.",
+            "org.slf4j.", "ch.qos.logback."
+    };
+
+    /**
+     * the non-static fields of each class, including the inherited ones
+     */
+    private static final Map<Class<?>,Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private final IdentityHashMap<Object,Object> copies = new IdentityHashMap<>();
+
+    /**
+     * objects allocated but still to fill: original and copy, in pairs
+     */
+    private final ArrayDeque<Object> toFill = new ArrayDeque<>();
+
+    /**
+     * hash and sorted collections still to refill: original and copy, in pairs
+     */
+    private final List<Object> toRebuild = new ArrayList<>();
+
+    private DeepCopier() {
+    }
+
+    /**
+     * copy everything reachable from the root
+     * @param original the root of the graph
+     * @return a deep copy of it
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deepCopy(T original)
+    {
+        DeepCopier copier = new DeepCopier();
+        T copy = (T) copier.copyOf(original);
+        copier.fillEverything();
+        return copy;
+    }
+
+    private void fillEverything()
+    {
+        try {
+            while (!toFill.isEmpty())
+            {
+                Object original = toFill.poll();
+                Object copy = toFill.poll();
+                if(original.getClass().isArray())
+                    fillArray((Object[]) original, (Object[]) copy);
+                else
+                    for(Field field : fieldsOf(original.getClass()))
+                        field.set(copy, copyValue(field, field.get(original)));
+            }
+
+            //every object is complete, now collections can be filled (their content was copied already when they were allocated)
+            for(int i=0; i<toRebuild.size(); i+=2)
+                refill(toRebuild.get(i), toRebuild.get(i+1));
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException("failed to copy", e);
+        }
+    }
+
+    private Object copyValue(Field field, Object value)
+    {
+        return field.getType().isPrimitive() ? value : copyOf(value);
+    }
+
+    private void fillArray(Object[] original, Object[] copy)
+    {
+        for(int i=0; i<original.length; i++)
+            copy[i] = copyOf(original[i]);
+    }
+
+    /**
+     * returns the copy of the object, allocating it if needed. The copy is filled later
+     */
+    private Object copyOf(Object original)
+    {
+        if(original == null)
+            return null;
+        Object copy = copies.get(original);
+        if(copy != null)
+            return copy;
+
+        Class<?> type = original.getClass();
+        if(isShared(original))
+            return original;
+
+        if(type.isArray())
+            copy = copyArray(original, type);
+        else if(isLambda(type))
+            copy = copyLambda(original, type);
+        else if(isRebuilt(type))
+        {
+            copy = emptyCollection(original);
+            copies.put(original,copy);
+            //make sure everything inside gets copied
+            if(original instanceof Map)
+                for(Map.Entry<?,?> entry : ((Map<?,?>) original).entrySet())
+                {
+                    copyOf(entry.getKey());
+                    copyOf(entry.getValue());
+                }
+            else
+                for(Object element : (Collection<?>) original)
+                    copyOf(element);
+            toRebuild.add(original);
+            toRebuild.add(copy);
+        }
+        else {
+            Preconditions.checkState(!(original instanceof java.lang.ref.Reference), "can't copy references");
+            try {
+                copy = UNSAFE.allocateInstance(type);
+            } catch (InstantiationException e) {
+                throw new IllegalStateException("can't instantiate " + type, e);
+            }
+            copies.put(original,copy);
+            toFill.add(original);
+            toFill.add(copy);
+        }
+
+        return copy;
+    }
+
+    private Object copyArray(Object original, Class<?> type)
+    {
+        int length = Array.getLength(original);
+        Object copy = Array.newInstance(type.getComponentType(), length);
+        copies.put(original,copy);
+        if(type.getComponentType().isPrimitive())
+            System.arraycopy(original,0,copy,0,length);
+        else {
+            toFill.add(original);
+            toFill.add(copy);
+        }
+        return copy;
+    }
+
+    private Object copyLambda(Object original, Class<?> type)
+    {
+        try {
+            Field[] captured = type.getDeclaredFields();
+            Object[] arguments = new Object[captured.length];
+            Class<?>[] argumentTypes = new Class<?>[captured.length];
+            for (int i = 0; i < captured.length; i++) {
+                captured[i].setAccessible(true);
+                argumentTypes[i] = captured[i].getType();
+                arguments[i] = copyValue(captured[i], captured[i].get(original));
+            }
+            Constructor<?> constructor = type.getDeclaredConstructor(argumentTypes);
+            constructor.setAccessible(true);
+            Object copy = constructor.newInstance(arguments);
+            copies.put(original,copy);
+            return copy;
+        }
+        catch (ReflectiveOperationException e){
+            throw new IllegalStateException("can't copy lambda " + type, e);
+        }
+    }
+
+    private boolean isShared(Object original)
+    {
+        Class<?> type = original.getClass();
+        if(IMMUTABLE.contains(type) || original instanceof Enum || original instanceof GoodType || original instanceof Thread ||
+                original instanceof Executor)
+            return true;
+        String name = type.getName();
+        //lambdas that capture nothing are singletons; the jdk ones (comparators, predicates) hold functions, not model state
+        if(isLambda(type) && (type.getDeclaredFields().length == 0 || name.startsWith("java.")))
+            return true;
+        for(String sharedPackage : SHARED_PACKAGES)
+            if(name.startsWith(sharedPackage))
+                return true;
+        return false;
+    }
+
+    private static boolean isLambda(Class<?> type)
+    {
+        return type.isSynthetic() && type.getName().contains("$$Lambda");
+    }
+
+    /**
+     * the collections whose layout depends on hash codes or comparisons
+     */
+    private static boolean isRebuilt(Class<?> type)
+    {
+        return type == HashMap.class || type == LinkedHashMap.class || type == HashSet.class || type == LinkedHashSet.class ||
+                type == TreeMap.class || type == TreeSet.class || type == IdentityHashMap.class || type == WeakHashMap.class ||
+                type == Hashtable.class || type == ConcurrentHashMap.class || type == ConcurrentSkipListMap.class ||
+                type == ConcurrentSkipListSet.class || type == HashBiMap.class;
+    }
+
+    //the copied comparator compares the same keys the original did, whatever their type
+    @SuppressWarnings("unchecked")
+    private Object emptyCollection(Object original)
+    {
+        Class<?> type = original.getClass();
+        if(type == TreeMap.class)
+            return new TreeMap<>((Comparator<Object>) copyOf(((TreeMap<?,?>) original).comparator()));
+        if(type == TreeSet.class)
+            return new TreeSet<>((Comparator<Object>) copyOf(((TreeSet<?>) original).comparator()));
+        if(type == ConcurrentSkipListMap.class)
+            return new ConcurrentSkipListMap<>((Comparator<Object>) copyOf(((ConcurrentSkipListMap<?,?>) original).comparator()));
+        if(type == ConcurrentSkipListSet.class)
+            return new ConcurrentSkipListSet<>((Comparator<Object>) copyOf(((ConcurrentSkipListSet<?>) original).comparator()));
+        if(type == HashBiMap.class)
+            return HashBiMap.create(((Map<?,?>) original).size());
+        try {
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can't instantiate " + type, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refill(Object original, Object copy)
+    {
+        if(original instanceof Map)
+            for(Map.Entry<?,?> entry : ((Map<?,?>) original).entrySet())
+                ((Map<Object,Object>) copy).put(copies.getOrDefault(entry.getKey(), entry.getKey()),
+                        copies.getOrDefault(entry.getValue(), entry.getValue()));
+        else
+            for(Object element : (Collection<?>) original)
+                ((Collection<Object>) copy).add(copies.getOrDefault(element, element));
+    }
+
+    private static Field[] fieldsOf(Class<?> type)
+    {
+        Field[] fields = FIELDS.get(type);
+        if(fields == null)
+        {
+            List<Field> list = new ArrayList<>();
+            for(Class<?> current = type; current != null; current = current.getSuperclass())
+                for(Field field : current.getDeclaredFields())
+                    if(!Modifier.isStatic(field.getModifiers()))
+                    {
+                        field.setAccessible(true);
+                        list.add(field);
+                    }
+            fields = list.toArray(new Field[list.size()]);
+            FIELDS.put(type,fields);
+        }
+        return fields;
+    }
+}
@@ -19,7 +19,8 @@ import edu.uci.ics.jung.visualization.control.DefaultModalGraphMouse;
 import edu.uci.ics.jung.visualization.control.ModalGraphMouse;
 import edu.uci.ics.jung.visualization.decorators.ToStringLabeller;
 import goods.GoodType;
-import model.MacroII;
+import com.google.common.base.Preconditions;
+import model.MacroIIGUI;
 import org.apache.commons.collections15.Transformer;
 import sim.portrayal.Inspector;
 import sim.util.Bag;
@@ -92,12 +93,20 @@ public class ExchangeNetwork {
      */
     private boolean repaintFlag = false;
 
+    /**
+     * the gui of the model this network belongs to; inspectors of the selected agents are sent there
+     */
+    private final MacroIIGUI gui;
+
     /**
      * Create the network: both the structure and the visualization
+     * @param type the good type exchanged
+     * @param gui the gui of the model, can't be null
      */
-    public ExchangeNetwork(GoodType type) {
+    public ExchangeNetwork(GoodType type, MacroIIGUI gui) {
 
-        assert MacroII.hasGUI(); //don't bother with any of this if there is no inventory
+        Preconditions.checkNotNull(gui); //don't bother with any of this if there is no gui
+        this.gui = gui;
         //create the graph!
         inventoryGraph = new DirectedSparseGraph<>();
         //record your good type
@@ -133,13 +142,13 @@ public class ExchangeNetwork {
                 if(e.getStateChange() == ItemEvent.SELECTED) //if e is selected
                 {
                     EconomicAgent agent = (EconomicAgent) e.getItem();             //cast it to agent
-                    Inspector inspector = agent.getInspector(MacroII.getGUI()); //notice how you get back the outer instance
+                    Inspector inspector = agent.getInspector(gui); //notice how you get back the outer instance
 
                     //now for the moronic, let's talk to MASON in java 1.3 language because computer science people are too smart
                     //to use generics or arraylists
                     Bag inspectors = new Bag(1); inspectors.add(inspector);
                     Bag names = new Bag(1); names.add(agent.toString());
-                    MacroII.getGUI().controller.setInspectors(inspectors, names);
+                    gui.controller.setInspectors(inspectors, names);
                 }
             }
         }
@@ -170,8 +179,6 @@ public class ExchangeNetwork {
     public void registerInventoryDelivery(EconomicAgent sender, EconomicAgent receiver,
                                           GoodType g, int quantity)
     {
-        //if graphing is not active, don't bother
-        assert MacroII.hasGUI();
         assert g == type;
 
 
@@ -17,6 +17,7 @@ import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.logs.LogEvent;
 import model.utilities.logs.LogLevel;
+import model.utilities.scheduler.RecurringAction;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 
@@ -61,6 +62,13 @@ public class Customer extends EconomicAgent{
 
     private final Market market;
 
+    /**
+     * the handles of the two daily steppables, cancelled at turnOff
+     */
+    private RecurringAction dailyConsumption;
+
+    private RecurringAction dailyShopping;
+
 
 
     public Customer(MacroII model, int maxPrice, Market market) {
@@ -85,7 +93,7 @@ public class Customer extends EconomicAgent{
     private void startSteppables(final Market market)
     {
         //every day, at "production" eat all the oil and start over (also make sure your cash remains the same)
-        model.scheduleSoon(ActionOrder.PRODUCTION, new Steppable() {
+        dailyConsumption = model.scheduleEveryDay(ActionOrder.PRODUCTION, new Steppable() {
             @Override
             public void step(SimState state) {
                 if(!isActive())
@@ -94,14 +102,11 @@ public class Customer extends EconomicAgent{
                 }
                 eatEverythingAndResetCash();
                 removeAllQuotes(market);
-
-                //reschedule yourself
-                model.scheduleTomorrow(ActionOrder.PRODUCTION,this);
             }
         });
 
         //schedule yourself to try to buy every day
-        model.scheduleSoon(ActionOrder.TRADE, new Steppable() {
+        dailyShopping = model.scheduleEveryDay(ActionOrder.TRADE, new Steppable() {
             @Override
             public void step(SimState state) {
                 if(!isActive())
@@ -110,8 +115,6 @@ public class Customer extends EconomicAgent{
                 }
                 assert bidsMade.isEmpty();
                 buyIfNeeded(market);
-                //reschedule yourself
-                model.scheduleTomorrow(ActionOrder.TRADE,this);
 
             }
         });
@@ -125,6 +128,21 @@ public class Customer extends EconomicAgent{
         //cancel all previous quotes
         //place all the orders you need
         Preconditions.checkState(dailyDemand-hasHowMany(market.getGoodType()) >=0);
+        //a single bid for everything, if the market takes it
+        if(market.acceptsQuantityQuotes())
+        {
+            final int units = dailyDemand-hasHowMany(market.getGoodType());
+            if(units > 0 && maxPrice >= 0) {
+                handleNewEvent(new LogEvent(this,LogLevel.TRACE,"Placing a bid for {} units",units));
+                Quote bidMade = market.submitBuyQuote(this, maxPrice, units, null);
+                if(!(bidMade.getAgent() == null))
+                {
+                    bidsMade.add(bidMade);
+                    assert bidMade.getPriceQuoted()>=0;
+                }
+            }
+            return;
+        }
         for(int i=0; i<dailyDemand-hasHowMany(market.getGoodType()); i++)
             if(maxPrice >= 0) {
                 handleNewEvent(new LogEvent(this,LogLevel.TRACE,"Placing a bid"));
@@ -207,7 +225,13 @@ public class Customer extends EconomicAgent{
     public void reactToFilledBidQuote(Quote quoteFilled, Good g, int price, EconomicAgent seller) {
 
         handleNewEvent(new LogEvent(this, LogLevel.TRACE,"Filled bid quote. Price {}, Seller {}, Good {}",price,seller,g));
-        if(!bidsMade.isEmpty())
+        if(market.acceptsQuantityQuotes())
+        {
+            //the bid leaves the market only when all its units are bought
+            if(quoteFilled.getQuantity() == 0)
+                bidsMade.remove(quoteFilled);
+        }
+        else if(!bidsMade.isEmpty())
             bidsMade.remove(); //doesn't matter which you remove, they are all the same.
     }
 
@@ -270,6 +294,11 @@ public class Customer extends EconomicAgent{
     public void turnOff() {
         super.turnOff();
         assert !isActive();
+        //stop stepping
+        if(dailyConsumption != null)
+            dailyConsumption.cancel();
+        if(dailyShopping != null)
+            dailyShopping.cancel();
         //remove all quotes
         removeAllQuotes(market);
         //deregister yourself
@@ -20,6 +20,8 @@ import model.MacroII;
 import model.utilities.ActionOrder;
 import model.utilities.geography.HasLocation;
 import model.utilities.geography.Location;
+import model.utilities.geography.SpatialPriceIndex;
+import model.utilities.geography.TransportCostMatrix;
 import model.utilities.logs.LogEvent;
 import model.utilities.logs.LogLevel;
 import sim.engine.SimState;
@@ -55,9 +57,15 @@ public class GeographicalCustomer extends Customer implements HasLocation {
 
 
     /**
-     * the firm that supplied you the last unit of oil; as a JavaFX property so that I don't have to implement listeners
+     * the firm that supplied you the last unit of oil
      */
-    private SimpleObjectProperty<GeographicalFirm> lastSupplier;
+    private GeographicalFirm lastSupplier;
+
+    /**
+     * the last supplier as a JavaFX property, so that the gui doesn't have to implement listeners. Created only when asked for,
+     * from then on it holds the last supplier
+     */
+    private SimpleObjectProperty<GeographicalFirm> lastSupplierProperty = null;
 
     private double distanceExponent =1;
 
@@ -72,7 +80,7 @@ public class GeographicalCustomer extends Customer implements HasLocation {
             public void step(SimState simState) {
                 if (!GeographicalCustomer.this.isActive())
                     return;
-                lastSupplier.setValue(null);
+                setLastSupplier(null);
                 model.scheduleTomorrow(ActionOrder.DAWN, this);
             }
         });
@@ -83,7 +91,6 @@ public class GeographicalCustomer extends Customer implements HasLocation {
     @Override
     protected void init() {
         this.location = new Location(0,0);
-        lastSupplier = new SimpleObjectProperty<>();
 
 
     }
@@ -139,6 +146,33 @@ public class GeographicalCustomer extends Customer implements HasLocation {
 
 
 
+    }
+
+    /**
+     * Chooses among the firms in the index (priced at their cheapest quote) the one with the lowest price+distance, if it's
+     * within the maximum price. Same choice as {@link #chooseSupplier(com.google.common.collect.Multimap)} without going through all of them
+     * @param sellers the index of the firms that have a quote
+     * @param transportCosts the market cache of distances, so they aren't computed over and over again
+     * @return The firm chosen, or null if none is chosen
+     */
+    public GeographicalFirm chooseSupplier( final SpatialPriceIndex<GeographicalFirm> sellers,
+                                            final TransportCostMatrix<GeographicalCustomer,GeographicalFirm> transportCosts)
+    {
+        Preconditions.checkArgument(!sellers.isEmpty());
+
+        SpatialPriceIndex.Result<GeographicalFirm> best = sellers.cheapest(getxLocation(), getyLocation(), distanceExponent,
+                transportCosts.costsFrom(this,distanceExponent));
+        assert best != null;
+        //log it!
+        handleNewEvent(new LogEvent(this, LogLevel.TRACE,"the best firm found was {}, pricing {}, total personal cost {}",
+                best.getItem(),sellers.getPrice(best.getItem()),best.getCost()));
+
+        if(best.getCost() <= getMaxPrice()) {
+            handleNewEvent(new LogEvent(this, LogLevel.TRACE,"decided to buy from chosen best"));
+            return best.getItem();
+        }
+        else
+            return null;
     }
 
     /**
@@ -149,11 +183,8 @@ public class GeographicalCustomer extends Customer implements HasLocation {
      */
     private double distance(HasLocation customer, HasLocation seller )
     {
-        //for now just pitagorean distance
-        double xDistance = Math.pow(customer.getxLocation() - seller.getxLocation(),2);
-        double yDistance = Math.pow(customer.getyLocation() - seller.getyLocation(),2);
-
-        double distance =  Math.pow(Math.sqrt(xDistance + yDistance), distanceExponent);
+        double distance =  SpatialPriceIndex.distance(customer.getxLocation(),customer.getyLocation(),
+                seller.getxLocation(),seller.getyLocation(), distanceExponent);
         assert distance >= 0;
         return distance;
     }
@@ -199,9 +230,9 @@ public class GeographicalCustomer extends Customer implements HasLocation {
     public void receive(Good g,  HasInventory sender) {
         super.receive(g, sender);
         if(sender!=null && g.getType().equals(getMarket().getGoodType()) && sender instanceof GeographicalFirm)
-            lastSupplier.setValue((GeographicalFirm) sender);
+            setLastSupplier((GeographicalFirm) sender);
         handleNewEvent(new LogEvent(this,LogLevel.TRACE,"Received {} from {}, consequently my last supplier is {}",
-                g,sender,lastSupplier.get()));
+                g,sender,getLastSupplier()));
 
     }
 
@@ -216,11 +247,20 @@ public class GeographicalCustomer extends Customer implements HasLocation {
     }
 
     public GeographicalFirm getLastSupplier() {
-        return lastSupplier.get();
+        return lastSupplierProperty == null ? lastSupplier : lastSupplierProperty.get();
+    }
+
+    private void setLastSupplier(GeographicalFirm lastSupplier) {
+        if(lastSupplierProperty == null)
+            this.lastSupplier = lastSupplier;
+        else
+            lastSupplierProperty.setValue(lastSupplier);
     }
 
     public SimpleObjectProperty<GeographicalFirm> lastSupplierProperty() {
-        return lastSupplier;
+        if(lastSupplierProperty == null)
+            lastSupplierProperty = new SimpleObjectProperty<>(lastSupplier);
+        return lastSupplierProperty;
     }
 
     public double getDistanceExponent() {
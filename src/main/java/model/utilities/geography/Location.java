@@ -12,7 +12,8 @@ import javafx.beans.property.SimpleDoubleProperty;
 /**
  * <h4>Description</h4>
  * <p/> To be used for any agent who has a location we want to keep track of.
- * It uses JavaFX properties to avoid having to deal with listeners and so on.
+ * The coordinates are plain doubles; the JavaFX properties are only created when somebody (the gui) asks for them and from then
+ * on they hold the coordinates, so that whoever is bound to them sees every move.
  * <p/>
  * <p/>
  * <h4>Notes</h4>
@@ -30,12 +31,22 @@ public class Location
     /**
      * the x of the agent/object
      */
-    private final DoubleProperty xLocation;
+    private double xLocation;
 
     /**
      * the y of the agent/object
      */
-    private final DoubleProperty yLocation;
+    private double yLocation;
+
+    /**
+     * created only when asked for
+     */
+    private DoubleProperty xLocationProperty = null;
+
+    /**
+     * created only when asked for
+     */
+    private DoubleProperty yLocationProperty = null;
 
     /**
      * creates the initial location
@@ -44,32 +55,42 @@ public class Location
      */
     public Location( double x, double y)
     {
-        xLocation = new SimpleDoubleProperty(x);
-        yLocation = new SimpleDoubleProperty(y);
+        xLocation = x;
+        yLocation = y;
 
     }
 
     public double getxLocation() {
-        return xLocation.get();
+        return xLocationProperty == null ? xLocation : xLocationProperty.get();
     }
 
     public DoubleProperty xLocationProperty() {
-        return xLocation;
+        if(xLocationProperty == null)
+            xLocationProperty = new SimpleDoubleProperty(xLocation);
+        return xLocationProperty;
     }
 
     public void setxLocation(double xLocation) {
-        this.xLocation.set(xLocation);
+        if(xLocationProperty == null)
+            this.xLocation = xLocation;
+        else
+            xLocationProperty.set(xLocation);
     }
 
     public double getyLocation() {
-        return yLocation.get();
+        return yLocationProperty == null ? yLocation : yLocationProperty.get();
     }
 
     public DoubleProperty yLocationProperty() {
-        return yLocation;
+        if(yLocationProperty == null)
+            yLocationProperty = new SimpleDoubleProperty(yLocation);
+        return yLocationProperty;
     }
 
     public void setyLocation(double yLocation) {
-        this.yLocation.set(yLocation);
+        if(yLocationProperty == null)
+            this.yLocation = yLocation;
+        else
+            yLocationProperty.set(yLocation);
     }
 }
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.geography;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A k-d tree of located things (sellers, usually) each with a price, to find quickly the one with the lowest price + distance^exponent
+ * from any point, which is what geographical customers minimize.
+ * <p/> The tree is built over the locations of everything that ever had a price; prices come and go every day but the
+ * locations almost never change, so a price update only refreshes the minimum price of the subtrees above the item (O(log n)) and
+ * removing an item just takes its price away. The tree is rebuilt lazily when a new item shows up or an old one moves (whoever
+ * moves items around should call {@link #moved(HasLocation)}, a new price alone notices only moves made before it).
+ * <p/> Queries are branch and bound: a subtree is skipped when its minimum price plus the distance^exponent to its bounding box is
+ * already worse than the best found. Ties are broken in favour of the item that got its price first (and kept it since), which
+ * is the iteration order of the linked multimap of quotes this replaces.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class SpatialPriceIndex<T extends HasLocation> {
+
+    /**
+     * bounds are computed differently from the actual costs, so they are relaxed by this much to be safe from rounding
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    private final Map<T,Slot<T>> slots = new HashMap<>();
+
+    /**
+     * the implicit tree: each subtree [lo,hi] has its root at (lo+hi)/2, split along x at even depths and along y at odd ones
+     */
+    private List<Slot<T>> tree = new ArrayList<>();
+
+    /**
+     * lowest price in each subtree, indexed by the position of its root
+     */
+    private double[] subtreeMinimum = new double[0];
+
+    /**
+     * bounding box of each subtree, indexed by the position of its root
+     */
+    private double[] minX = new double[0], maxX = new double[0], minY = new double[0], maxY = new double[0];
+
+    private boolean needsRebuilding = false;
+
+    /**
+     * how many items have a price now
+     */
+    private int priced = 0;
+
+    private long nextArrival = 0;
+
+    private int nextId = 0;
+
+    /**
+     * the cost of moving between two points
+     */
+    public static double distance(double x1, double y1, double x2, double y2, double exponent)
+    {
+        //for now just pitagorean distance
+        double xDistance = Math.pow(x1 - x2,2);
+        double yDistance = Math.pow(y1 - y2,2);
+
+        return Math.pow(Math.sqrt(xDistance + yDistance), exponent);
+    }
+
+    /**
+     * give (or change) the price of an item. Its location is read now
+     */
+    public void put(T item, int price)
+    {
+        Slot<T> slot = slots.get(item);
+        if(slot == null)
+        {
+            slot = new Slot<>(item, nextId++);
+            slots.put(item,slot);
+            needsRebuilding = true;
+        }
+        else if(slot.x != item.getxLocation() || slot.y != item.getyLocation())
+            needsRebuilding = true;
+
+        if(!slot.isPriced())
+        {
+            slot.arrival = nextArrival++;
+            priced++;
+        }
+        slot.price = price;
+        if(!needsRebuilding)
+            refresh(0, tree.size() - 1, 0, slot);
+    }
+
+    /**
+     * take the price away from the item, it won't be returned by queries until it gets a new one
+     */
+    public void remove(T item)
+    {
+        Slot<T> slot = slots.get(item);
+        if(slot == null || !slot.isPriced())
+            return;
+        slot.price = Double.POSITIVE_INFINITY;
+        priced--;
+        if(!needsRebuilding)
+            refresh(0, tree.size() - 1, 0, slot);
+    }
+
+    /**
+     * the item changed location (and maybe kept its price): the tree is rebuilt before the next query
+     */
+    public void moved(T item)
+    {
+        if(slots.containsKey(item))
+            needsRebuilding = true;
+    }
+
+    /**
+     * forget the item altogether
+     */
+    public void forget(T item)
+    {
+        remove(item);
+        if(slots.remove(item) != null)
+            needsRebuilding = true;
+    }
+
+    public boolean isEmpty()
+    {
+        return priced == 0;
+    }
+
+    /**
+     * how many items have a price
+     */
+    public int size()
+    {
+        return priced;
+    }
+
+    /**
+     * the current price of the item, or -1 if it has none
+     */
+    public int getPrice(T item)
+    {
+        Slot<T> slot = slots.get(item);
+        return slot == null || !slot.isPriced() ? -1 : (int) slot.price;
+    }
+
+    /**
+     * find the item with the lowest price + distance^exponent from this point
+     * @return the best item and its total cost, or null if nothing has a price
+     */
+    public Result<T> cheapest(double x, double y, double exponent)
+    {
+        return cheapest(x, y, exponent, null);
+    }
+
+    /**
+     * like {@link #cheapest(double, double, double)} but reading the distance^exponent to each item from transportCosts
+     * (a cache, usually) rather than computing it. The costs given must be the distances from (x,y), the bounds are still geometric
+     */
+    public Result<T> cheapest(double x, double y, double exponent, ToDoubleFunction<T> transportCosts)
+    {
+        if(priced == 0)
+            return null;
+        if(needsRebuilding)
+            rebuild();
+
+        Search<T> search = new Search<>(x,y,exponent,transportCosts);
+        //distance grows with the exponent only if it is positive, otherwise we can't bound it
+        if(exponent > 0)
+            visit(0, tree.size() - 1, 0, search);
+        else
+            for(Slot<T> slot : tree)
+                search.consider(slot);
+
+        assert search.best != null;
+        return new Result<>(search.best.item, search.bestCost);
+    }
+
+    private void visit(int lo, int hi, int depth, Search<T> search)
+    {
+        if(lo > hi)
+            return;
+        int root = (lo + hi) >>> 1;
+        if(search.best != null)
+        {
+            double bound = subtreeMinimum[root] + Math.pow(distanceToBox(root, search.x, search.y), search.exponent);
+            if(bound - TOLERANCE * Math.max(1, Math.abs(bound)) > search.bestCost)
+                return;
+        }
+
+        search.consider(tree.get(root));
+
+        //visit first the side the point is on
+        Slot<T> rootSlot = tree.get(root);
+        boolean pointOnTheLeft = depth % 2 == 0 ? search.x < rootSlot.x : search.y < rootSlot.y;
+        if(pointOnTheLeft)
+        {
+            visit(lo, root - 1, depth + 1, search);
+            visit(root + 1, hi, depth + 1, search);
+        }
+        else
+        {
+            visit(root + 1, hi, depth + 1, search);
+            visit(lo, root - 1, depth + 1, search);
+        }
+    }
+
+    private double distanceToBox(int root, double x, double y)
+    {
+        double dx = Math.max(0, Math.max(minX[root] - x, x - maxX[root]));
+        double dy = Math.max(0, Math.max(minY[root] - y, y - maxY[root]));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * recompute the minimum prices on the path from the root to this slot
+     */
+    private void refresh(int lo, int hi, int depth, Slot<T> slot)
+    {
+        int root = (lo + hi) >>> 1;
+        if(tree.get(root) != slot)
+        {
+            Slot<T> rootSlot = tree.get(root);
+            boolean left = depth % 2 == 0 ? compareX(slot, rootSlot) < 0 : compareY(slot, rootSlot) < 0;
+            if(left)
+                refresh(lo, root - 1, depth + 1, slot);
+            else
+                refresh(root + 1, hi, depth + 1, slot);
+        }
+        subtreeMinimum[root] = minimumOf(lo, hi, root);
+    }
+
+    private double minimumOf(int lo, int hi, int root)
+    {
+        double minimum = tree.get(root).price;
+        if(lo < root)
+            minimum = Math.min(minimum, subtreeMinimum[(lo + root - 1) >>> 1]);
+        if(root < hi)
+            minimum = Math.min(minimum, subtreeMinimum[(root + 1 + hi) >>> 1]);
+        return minimum;
+    }
+
+    private void rebuild()
+    {
+        tree = new ArrayList<>(slots.values());
+        int size = tree.size();
+        subtreeMinimum = new double[size];
+        minX = new double[size]; maxX = new double[size]; minY = new double[size]; maxY = new double[size];
+        for(Slot<T> slot : tree)
+        {
+            slot.x = slot.item.getxLocation();
+            slot.y = slot.item.getyLocation();
+        }
+        build(0, size - 1, 0);
+        needsRebuilding = false;
+    }
+
+    private void build(int lo, int hi, int depth)
+    {
+        if(lo > hi)
+            return;
+        //sort the range by the splitting coordinate (ties by arrival, so that going left or right is always well defined)
+        tree.subList(lo, hi + 1).sort(depth % 2 == 0 ? this::compareX : this::compareY);
+        int root = (lo + hi) >>> 1;
+        build(lo, root - 1, depth + 1);
+        build(root + 1, hi, depth + 1);
+
+        Slot<T> slot = tree.get(root);
+        minX[root] = maxX[root] = slot.x;
+        minY[root] = maxY[root] = slot.y;
+        if(lo < root)
+            includeBox(root, (lo + root - 1) >>> 1);
+        if(root < hi)
+            includeBox(root, (root + 1 + hi) >>> 1);
+        subtreeMinimum[root] = minimumOf(lo, hi, root);
+    }
+
+    private void includeBox(int root, int child)
+    {
+        minX[root] = Math.min(minX[root], minX[child]);
+        maxX[root] = Math.max(maxX[root], maxX[child]);
+        minY[root] = Math.min(minY[root], minY[child]);
+        maxY[root] = Math.max(maxY[root], maxY[child]);
+    }
+
+    private int compareX(Slot<T> a, Slot<T> b)
+    {
+        int comparison = Double.compare(a.x, b.x);
+        return comparison != 0 ? comparison : Integer.compare(a.id, b.id);
+    }
+
+    private int compareY(Slot<T> a, Slot<T> b)
+    {
+        int comparison = Double.compare(a.y, b.y);
+        return comparison != 0 ? comparison : Integer.compare(a.id, b.id);
+    }
+
+    /**
+     * an item with its price and the location it had when the tree was built
+     */
+    private static class Slot<T>
+    {
+        private final T item;
+
+        /**
+         * unique, to keep the sorting a total order
+         */
+        private final int id;
+
+        private double x;
+
+        private double y;
+
+        private double price = Double.POSITIVE_INFINITY;
+
+        /**
+         * when it got its price (since it last had none)
+         */
+        private long arrival;
+
+        private Slot(T item, int id) {
+            this.item = item;
+            this.id = id;
+        }
+
+        private boolean isPriced()
+        {
+            return price != Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static class Search<T>
+    {
+        private final double x;
+
+        private final double y;
+
+        private final double exponent;
+
+        /**
+         * null if the distances are to be computed
+         */
+        private final ToDoubleFunction<T> transportCosts;
+
+        private Slot<T> best = null;
+
+        private double bestCost = Double.POSITIVE_INFINITY;
+
+        private Search(double x, double y, double exponent, ToDoubleFunction<T> transportCosts) {
+            this.x = x;
+            this.y = y;
+            this.exponent = exponent;
+            this.transportCosts = transportCosts;
+        }
+
+        private void consider(Slot<T> slot)
+        {
+            if(!slot.isPriced())
+                return;
+            double cost = slot.price + (transportCosts == null ? distance(x, y, slot.x, slot.y, exponent) :
+                    transportCosts.applyAsDouble(slot.item));
+            if(best == null || cost < bestCost || (cost == bestCost && slot.arrival < best.arrival))
+            {
+                best = slot;
+                bestCost = cost;
+            }
+        }
+    }
+
+    /**
+     * the item found and its price + distance^exponent
+     */
+    public static class Result<T>
+    {
+        private final T item;
+
+        private final double cost;
+
+        private Result(T item, double cost) {
+            Preconditions.checkArgument(item != null);
+            this.item = item;
+            this.cost = cost;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+    }
+}
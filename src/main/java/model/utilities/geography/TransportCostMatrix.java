@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.geography;
+
+import com.google.common.base.Preconditions;
+import javafx.beans.value.ChangeListener;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A cache of the transport costs (distance^exponent) between customers and sellers. Customers are rows and sellers columns
+ * of a matrix of doubles; a cost is computed the first time it is asked for and then just read from the array.
+ * <p/> Agents are added the first time they show up in a query: from then on the matrix listens to their location properties and
+ * forgets the row (for a customer) or the column (for a seller) as soon as they move. Each row remembers the exponent its costs were
+ * computed with and starts over when asked with a different one. Agents leaving the market should be {@link #forget(HasLocation)}-ed
+ * so that the listeners are removed and their row/column reused.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TransportCostMatrix<C extends HasLocation, S extends HasLocation> {
+
+    /**
+     * a cost not computed yet
+     */
+    private static final double UNKNOWN = Double.NaN;
+
+    private final Map<C,Integer> rows = new HashMap<>();
+
+    private final Map<S,Integer> columns = new HashMap<>();
+
+    private final ArrayDeque<Integer> freeRows = new ArrayDeque<>();
+
+    private final ArrayDeque<Integer> freeColumns = new ArrayDeque<>();
+
+    /**
+     * the listeners added to each agent location, to remove them when the agent is forgotten
+     */
+    private final Map<HasLocation,ChangeListener<Number>> listeners = new HashMap<>();
+
+    /**
+     * costs[row][column]; rows are grown as new columns are queried
+     */
+    private double[][] costs = new double[0][];
+
+    /**
+     * the exponent each row was computed with
+     */
+    private double[] rowExponent = new double[0];
+
+    private int numberOfColumns = 0;
+
+    /**
+     * the transport cost between customer and seller
+     */
+    public double getCost(C customer, S seller, double exponent)
+    {
+        return getCost(rowOf(customer, exponent), customer, seller, exponent);
+    }
+
+    /**
+     * all the transport costs from this customer, as a function of the seller
+     */
+    public ToDoubleFunction<S> costsFrom(C customer, double exponent)
+    {
+        int row = rowOf(customer, exponent);
+        return seller -> getCost(row, customer, seller, exponent);
+    }
+
+    private double getCost(int row, C customer, S seller, double exponent)
+    {
+        int column = columnOf(seller);
+        double[] costsOfRow = costs[row];
+        if(column >= costsOfRow.length)
+        {
+            int oldLength = costsOfRow.length;
+            costsOfRow = Arrays.copyOf(costsOfRow, Math.max(numberOfColumns, oldLength * 2));
+            Arrays.fill(costsOfRow, oldLength, costsOfRow.length, UNKNOWN);
+            costs[row] = costsOfRow;
+        }
+
+        double cost = costsOfRow[column];
+        if(Double.isNaN(cost))
+        {
+            cost = SpatialPriceIndex.distance(customer.getxLocation(), customer.getyLocation(),
+                    seller.getxLocation(), seller.getyLocation(), exponent);
+            assert !Double.isNaN(cost);
+            costsOfRow[column] = cost;
+        }
+        return cost;
+    }
+
+    private int rowOf(C customer, double exponent)
+    {
+        Integer row = rows.get(customer);
+        if(row == null)
+        {
+            row = freeRows.isEmpty() ? rows.size() : freeRows.poll();
+            rows.put(customer,row);
+            if(row >= costs.length)
+            {
+                int newLength = Math.max(row + 1, costs.length * 2);
+                costs = Arrays.copyOf(costs, newLength);
+                rowExponent = Arrays.copyOf(rowExponent, newLength);
+            }
+            if(costs[row] == null)
+                costs[row] = new double[0];
+            rowExponent[row] = exponent;
+            clearRow(row);
+            final int newRow = row;
+            listen(customer, (observable, oldValue, newValue) -> clearRow(newRow));
+        }
+        else if(rowExponent[row] != exponent)
+        {
+            rowExponent[row] = exponent;
+            clearRow(row);
+        }
+        return row;
+    }
+
+    private int columnOf(S seller)
+    {
+        Integer column = columns.get(seller);
+        if(column == null)
+        {
+            column = freeColumns.isEmpty() ? numberOfColumns++ : freeColumns.poll();
+            columns.put(seller,column);
+            clearColumn(column);
+            final int newColumn = column;
+            listen(seller, (observable, oldValue, newValue) -> clearColumn(newColumn));
+        }
+        return column;
+    }
+
+    private void listen(HasLocation agent, ChangeListener<Number> listener)
+    {
+        Preconditions.checkState(!listeners.containsKey(agent), "an agent can't be both customer and seller");
+        listeners.put(agent,listener);
+        agent.xLocationProperty().addListener(listener);
+        agent.yLocationProperty().addListener(listener);
+    }
+
+    private void clearRow(int row)
+    {
+        Arrays.fill(costs[row], UNKNOWN);
+    }
+
+    private void clearColumn(int column)
+    {
+        for(double[] costsOfRow : costs)
+            if(costsOfRow != null && column < costsOfRow.length)
+                costsOfRow[column] = UNKNOWN;
+    }
+
+    /**
+     * stop listening to this agent and free its row/column
+     */
+    public void forget(HasLocation agent)
+    {
+        ChangeListener<Number> listener = listeners.remove(agent);
+        if(listener == null)
+            return;
+        agent.xLocationProperty().removeListener(listener);
+        agent.yLocationProperty().removeListener(listener);
+
+        Integer row = rows.remove(agent);
+        if(row != null)
+            freeRows.add(row);
+        Integer column = columns.remove(agent);
+        if(column != null)
+            freeColumns.add(column);
+    }
+
+    /**
+     * how many agents the matrix is listening to
+     */
+    public int size()
+    {
+        return listeners.size();
+    }
+}
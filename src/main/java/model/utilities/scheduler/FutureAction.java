@@ -6,12 +6,12 @@
 
 package model.utilities.scheduler;
 
-import com.google.common.base.Preconditions;
 import model.utilities.ActionOrder;
 import sim.engine.Steppable;
 
 /**
- * A simple struct storing the phase, the kind of action and how many days from now it is supposed to be
+ * A simple struct storing the phase, the kind of action and on which day (as counted by the {@link FutureActionCalendar}) it is due.
+ * The order number is there only to break ties so that actions due the same day come out in the order they were scheduled
  */
 public class FutureAction{
 
@@ -21,25 +21,16 @@ public class FutureAction{
 
     final private Priority priority;
 
-    private int daysAway;
+    final private long dueDay;
 
-    public FutureAction(ActionOrder phase, Steppable action, Priority priority, int daysAway) {
+    final private long order;
+
+    public FutureAction(ActionOrder phase, Steppable action, Priority priority, long dueDay, long order) {
         this.phase = phase;
         this.action = action;
         this.priority = priority;
-        this.daysAway = daysAway;
-    }
-
-    /**
-     * Decrease days away by 1
-     * @return true if days away are 0
-     */
-    public boolean spendOneDay()
-    {
-        daysAway--;
-        Preconditions.checkState(daysAway >=0);
-        return daysAway == 0;
-
+        this.dueDay = dueDay;
+        this.order = order;
     }
 
     public ActionOrder getPhase() {
@@ -53,4 +44,12 @@ public class FutureAction{
     public Priority getPriority() {
         return priority;
     }
+
+    public long getDueDay() {
+        return dueDay;
+    }
+
+    public long getOrder() {
+        return order;
+    }
 }
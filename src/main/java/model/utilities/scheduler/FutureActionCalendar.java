@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import com.google.common.base.Preconditions;
+import model.utilities.ActionOrder;
+import sim.engine.Steppable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A hierarchical timing wheel storing the actions scheduled some days into the future. The first wheel has a slot for each day
+ * of the current block of 64 days, the second wheel has a slot for each block of the current 4096 days; anything further away
+ * waits in a heap. When a new block starts its slot in the second wheel is poured into the first, when a new 4096 days period
+ * starts the heap is poured into the second wheel.
+ * <p/> This way each action is moved at most a couple of times and advancing one day costs as much as the number of actions that are due,
+ * no matter how many are pending.
+ * <p/> Actions due the same day are released in the order they were scheduled.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class FutureActionCalendar {
+
+    private final static int BITS = 6;
+
+    private final static int SLOTS = 1 << BITS;
+
+    private final static int MASK = SLOTS -1;
+
+    /**
+     * one slot per day of the current block
+     */
+    private final Slot[] days;
+
+    /**
+     * one slot per block of the current period
+     */
+    private final Slot[] blocks;
+
+    /**
+     * anything not due in the current period
+     */
+    private final PriorityQueue<FutureAction> farAway;
+
+    /**
+     * how many days have passed
+     */
+    private long today = 0;
+
+    /**
+     * used to keep the scheduling order
+     */
+    private long actionsScheduled = 0;
+
+    private int size = 0;
+
+    public FutureActionCalendar() {
+        days = new Slot[SLOTS];
+        blocks = new Slot[SLOTS];
+        for(int i=0; i< SLOTS; i++)
+        {
+            days[i] = new Slot();
+            blocks[i] = new Slot();
+        }
+        farAway = new PriorityQueue<>(11, new Comparator<FutureAction>() {
+            @Override
+            public int compare(FutureAction o1, FutureAction o2) {
+                int comparison = Long.compare(o1.getDueDay(),o2.getDueDay());
+                return comparison != 0 ? comparison : Long.compare(o1.getOrder(),o2.getOrder());
+            }
+        });
+    }
+
+    /**
+     * store an action to be released in a few days
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @param priority the action priority
+     * @param daysAway how many days from now should it be released, must be positive
+     */
+    public void schedule(ActionOrder phase, Steppable action, Priority priority, int daysAway)
+    {
+        Preconditions.checkArgument(daysAway > 0, "Days away must be positive");
+        place(new FutureAction(phase,action,priority,today + daysAway,actionsScheduled++));
+        size++;
+    }
+
+    /**
+     * a day passes: schedule soon all the actions that are now due
+     * @param scheduler the scheduler that will receive the actions due
+     */
+    public void advanceOneDay(PhaseScheduler scheduler)
+    {
+        today++;
+
+        //new period? pour the heap into the wheels
+        if((today & ((SLOTS*SLOTS)-1)) == 0)
+            while (!farAway.isEmpty() && (farAway.peek().getDueDay() >> (2*BITS)) == (today >> (2*BITS)))
+                place(farAway.poll());
+
+        //new block? pour its slot into the days wheel
+        if((today & MASK) == 0)
+        {
+            Slot block = blocks[(int) ((today >> BITS) & MASK)];
+            for(FutureAction action : block)
+                place(action);
+            block.clear();
+        }
+
+        Slot due = days[(int) (today & MASK)];
+        for(FutureAction action : due)
+        {
+            assert action.getDueDay() == today;
+            scheduler.scheduleSoon(action.getPhase(),action.getAction(),action.getPriority());
+        }
+        size -= due.size();
+        due.clear();
+
+    }
+
+    private void place(FutureAction action)
+    {
+        final long dueDay = action.getDueDay();
+        //when a new block or period starts, what's poured in can be due today: it goes in today's slot, drained right after
+        assert dueDay >= today;
+        if((dueDay >> BITS) == (today >> BITS))
+            days[(int) (dueDay & MASK)].add(action);
+        else if((dueDay >> (2*BITS)) == (today >> (2*BITS)))
+            blocks[(int) ((dueDay >> BITS) & MASK)].add(action);
+        else
+            farAway.add(action);
+    }
+
+    /**
+     * the actions of a day (or a block), typed so the wheels can be plain arrays
+     */
+    private static class Slot extends ArrayList<FutureAction>
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * @return how many actions are still pending
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many days have passed
+     */
+    public long getToday() {
+        return today;
+    }
+
+    /**
+     * removes all pending actions and restarts counting days from 0
+     */
+    public void clear()
+    {
+        for(int i=0; i< SLOTS; i++)
+        {
+            days[i].clear();
+            blocks[i].clear();
+        }
+        farAway.clear();
+        today = 0;
+        actionsScheduled = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import ec.util.MersenneTwisterFast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Runs a few tasks at once on a fork-join pool while keeping the model deterministic. Each task gets its own randomizer,
+ * seeded in order from the model one before anything starts, and whatever a task asks the scheduler is not done there and then
+ * but queued and replayed on the calling thread once all the tasks are over, task after task. So the results depend on the seed
+ * and on how the work was split, never on which thread got there first.
+ * <p/> The tasks must not share any agent or market: that's on the caller. The model consults {@link #isWorker()} when scheduling
+ * and when handing out its randomizer.
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public final class ParallelSection {
+
+    private static final ThreadLocal<Worker> WORKER = new ThreadLocal<>();
+
+    private ParallelSection() {
+    }
+
+    /**
+     * true if this thread is running one of the tasks
+     */
+    public static boolean isWorker()
+    {
+        return WORKER.get() != null;
+    }
+
+    /**
+     * the randomizer of the task running on this thread, or null if this isn't a worker
+     */
+    public static MersenneTwisterFast getWorkerRandom()
+    {
+        Worker worker = WORKER.get();
+        return worker == null ? null : worker.random;
+    }
+
+    /**
+     * queue something to do once the tasks are over; only workers can do this
+     */
+    public static void defer(Runnable action)
+    {
+        Worker worker = WORKER.get();
+        if(worker == null)
+            throw new IllegalStateException("only tasks of a parallel section defer");
+        worker.deferred.add(action);
+    }
+
+    /**
+     * run all the tasks, concurrently, and then replay on this thread what they deferred, in the order of the tasks
+     * @param pool where to run them
+     * @param tasks the tasks, sharing nothing
+     * @param seeder gives the seed of each task randomizer
+     */
+    public static void runAll(ForkJoinPool pool, List<? extends Runnable> tasks, MersenneTwisterFast seeder)
+    {
+        if(isWorker())
+            throw new IllegalStateException("parallel sections can't be nested");
+
+        List<Worker> workers = new ArrayList<>(tasks.size());
+        for(int i=0; i<tasks.size(); i++)
+            workers.add(new Worker(new MersenneTwisterFast(seeder.nextLong())));
+
+        List<ForkJoinTask<?>> forked = new ArrayList<>(tasks.size());
+        for(int i=0; i<tasks.size(); i++)
+        {
+            final Worker worker = workers.get(i);
+            final Runnable task = tasks.get(i);
+            forked.add(pool.submit(() -> {
+                WORKER.set(worker);
+                try {
+                    task.run();
+                }
+                finally {
+                    WORKER.remove();
+                }
+            }));
+        }
+
+        //wait for all of them, even if one fails
+        RuntimeException failure = null;
+        for(ForkJoinTask<?> task : forked)
+        {
+            try {
+                task.join();
+            }
+            catch (RuntimeException e) {
+                if(failure == null)
+                    failure = e;
+            }
+        }
+        if(failure != null)
+            throw failure;
+
+        for(Worker worker : workers)
+            for(Runnable action : worker.deferred)
+                action.run();
+    }
+
+    private static class Worker
+    {
+        private final MersenneTwisterFast random;
+
+        private final List<Runnable> deferred = new ArrayList<>();
+
+        private Worker(MersenneTwisterFast random) {
+            this.random = random;
+        }
+    }
+}
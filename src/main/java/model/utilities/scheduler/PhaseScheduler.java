@@ -95,10 +95,45 @@ public interface PhaseScheduler extends Steppable {
     void scheduleAnotherDayWithFixedProbability( ActionOrder phase,  Steppable action,
                                                 float probability, Priority priority);
 
+    /**
+     * Same as scheduleAnotherDayWithFixedProbability, but the geometric delay is drawn in closed form rather than day by day
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @param probability the daily probability of this action happening
+     * @param priority the action priority
+     */
+    void scheduleAnotherDayWithGeometricDelay( ActionOrder phase,  Steppable action,
+                                               float probability, Priority priority);
+
+    /**
+     * Step this action every day at this phase, starting the next time the phase comes up. The scheduler re-queues it
+     * by itself, the action must not reschedule itself
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @param priority the action priority
+     * @return the handle to cancel the action
+     */
+    RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action, Priority priority);
+
+    /**
+     * Step this action every day at this phase (at priority STANDARD)
+     * @param phase the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @return the handle to cancel the action
+     */
+    RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action);
+
     /**
      * deletes everything
      */
     void clear();
 
+    /**
+     * is there anything left to step in this phase (at any priority) today?
+     * @param phase the phase to check
+     * @return true if there is at least an action queued
+     */
+    boolean hasPendingActions(ActionOrder phase);
+
     ActionOrder getCurrentPhase();
 }
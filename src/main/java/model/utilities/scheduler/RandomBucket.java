@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import ec.util.MersenneTwisterFast;
+import sim.engine.Steppable;
+
+import java.util.Arrays;
+
+/**
+ * <h4>Description</h4>
+ * <p/> A growable array of steppables built for the scheduler. It supports the only two ways the scheduler ever takes things out:
+ * drawing one element uniformly at random or polling the oldest one. Both are O(1): the random draw swaps the last element
+ * in the hole left by the drawn one, the poll just moves the head forward.
+ * <p/> Because of the swap the order of the elements left inside changes after each random draw; that's fine as the next draw is
+ * uniform anyway. The FIFO order of {@link #pollFirst()} is only guaranteed if you never mix it with random draws, which is what the scheduler does
+ * (each phase either always polls or always draws)
+ * <p/> I am not implementing Collection on purpose, the scheduler needs a very limited set of operations
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class RandomBucket {
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    private Steppable[] elements;
+
+    /**
+     * index of the first valid element
+     */
+    private int head = 0;
+
+    /**
+     * index of the first empty slot after the last valid element
+     */
+    private int tail = 0;
+
+    public RandomBucket() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public RandomBucket(int initialCapacity) {
+        elements = new Steppable[Math.max(initialCapacity,1)];
+    }
+
+    /**
+     * put the steppable at the end of the bucket, grows if needed.
+     */
+    public void add(Steppable steppable)
+    {
+        assert steppable != null;
+        if(tail == elements.length)
+            makeRoom();
+        elements[tail] = steppable;
+        tail++;
+    }
+
+    /**
+     * takes out an element chosen uniformly at random, swapping the last element in its place
+     * @param randomizer the randomizer to use
+     * @return the drawn element
+     */
+    public Steppable drawRandom(MersenneTwisterFast randomizer)
+    {
+        assert !isEmpty();
+        final int index = head + randomizer.nextInt(tail - head);
+        final Steppable drawn = elements[index];
+        tail--;
+        elements[index] = elements[tail];
+        elements[tail] = null;
+        resetIfEmpty();
+        return drawn;
+    }
+
+    /**
+     * takes out the oldest element (if no random draw ever happened)
+     * @return the polled element
+     */
+    public Steppable pollFirst()
+    {
+        assert !isEmpty();
+        final Steppable polled = elements[head];
+        elements[head] = null;
+        head++;
+        resetIfEmpty();
+        return polled;
+    }
+
+    public int size(){
+        return tail-head;
+    }
+
+    public boolean isEmpty(){
+        return tail==head;
+    }
+
+    /**
+     * removes all the elements, the capacity is kept
+     */
+    public void clear()
+    {
+        Arrays.fill(elements,head,tail,null);
+        head = 0;
+        tail = 0;
+    }
+
+    /**
+     * @return true if the steppable is in the bucket (linear, use only for testing)
+     */
+    public boolean contains(Steppable steppable)
+    {
+        for(int i=head; i< tail; i++)
+            if(elements[i] == steppable)
+                return true;
+        return false;
+    }
+
+    private void resetIfEmpty() {
+        if(head==tail)
+        {
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    /**
+     * either compacts the array (if the head has moved enough) or doubles it
+     */
+    private void makeRoom() {
+        final int size = size();
+        if(head > 0 && size < elements.length/2)
+        {
+            System.arraycopy(elements,head,elements,0,size);
+            Arrays.fill(elements,size,tail,null);
+        }
+        else
+            elements = Arrays.copyOfRange(elements,head,head+elements.length*2);
+        head = 0;
+        tail = size;
+    }
+
+
+}
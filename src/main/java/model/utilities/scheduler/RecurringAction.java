@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import model.utilities.ActionOrder;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+/**
+ * <h4>Description</h4>
+ * <p/> The handle returned by {@link PhaseScheduler#scheduleEveryDay(model.utilities.ActionOrder, sim.engine.Steppable, Priority)}.
+ * The scheduler keeps it in a persistent list and puts it back in the phase queue every day, so the action doesn't need to
+ * reschedule itself.
+ * <p/> Call cancel() to stop it; if it was already queued for today it will just do nothing when stepped.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class RecurringAction implements Steppable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ActionOrder phase;
+
+    private final Steppable action;
+
+    private final Priority priority;
+
+    private boolean cancelled = false;
+
+    public RecurringAction(ActionOrder phase, Steppable action, Priority priority) {
+        this.phase = phase;
+        this.action = action;
+        this.priority = priority;
+    }
+
+    /**
+     * steps the action, unless it was cancelled
+     */
+    @Override
+    public void step(SimState state) {
+        if(cancelled)
+            return;
+        action.step(state);
+    }
+
+    /**
+     * stop stepping the action. The scheduler will drop the handle next time it re-arms the phase
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public ActionOrder getPhase() {
+        return phase;
+    }
+
+    public Steppable getAction() {
+        return action;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+}
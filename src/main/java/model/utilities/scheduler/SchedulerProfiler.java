@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import model.utilities.ActionOrder;
+import model.utilities.Deactivatable;
+import sim.engine.Steppable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/> An opt-in profiler for the {@link TrueRandomScheduler}. For each phase it records, per class of steppable, how many times it was
+ * stepped, how many nanoseconds it took and (when the JVM supports it) how many bytes were allocated by the stepping thread meanwhile.
+ * Steps registered through scheduleEveryDay are counted under the class of the action they wrap; lambdas show up with the name
+ * of the class that created them.
+ * <p/> It is deactivable: if given a file, it writes all the numbers as CSV there when turned off (which MacroII does at finish() if
+ * it was created through {@link model.MacroII#profileScheduler(java.io.File)})
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class SchedulerProfiler implements Deactivatable {
+
+    /**
+     * for each phase, the profile of each steppable class
+     */
+    private final EnumMap<ActionOrder,Map<Class<?>,SteppableProfile>> profiles;
+
+    /**
+     * for each phase, the total nanoseconds spent in it (including the scheduler's own overhead)
+     */
+    private final EnumMap<ActionOrder,Long> nanosPerPhase;
+
+    /**
+     * where to write the csv when turned off; can be null
+     */
+    private final File csvFile;
+
+    /**
+     * null if allocation counting is not supported by this jvm
+     */
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    public SchedulerProfiler() {
+        this(null);
+    }
+
+    public SchedulerProfiler(File csvFile) {
+        this.csvFile = csvFile;
+        profiles = new EnumMap<>(ActionOrder.class);
+        nanosPerPhase = new EnumMap<>(ActionOrder.class);
+        for(ActionOrder phase : ActionOrder.values())
+        {
+            profiles.put(phase,new HashMap<>());
+            nanosPerPhase.put(phase,0l);
+        }
+
+        com.sun.management.ThreadMXBean bean = null;
+        try{
+            java.lang.management.ThreadMXBean generic = ManagementFactory.getThreadMXBean();
+            if(generic instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) generic).isThreadAllocatedMemorySupported())
+            {
+                bean = (com.sun.management.ThreadMXBean) generic;
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        catch (UnsupportedOperationException | SecurityException e){
+            bean = null;
+        }
+        threadBean = bean;
+    }
+
+    /**
+     * called by the scheduler right after stepping. The caller keeps when the step started, so steps within steps (or on other
+     * threads) don't overwrite each other's start
+     * @param phase the current phase
+     * @param steppable what was just stepped
+     * @param startNanos {@link System#nanoTime()} right before stepping
+     * @param startBytes {@link #allocatedBytes()} right before stepping
+     */
+    public synchronized void endStep(ActionOrder phase, Steppable steppable, long startNanos, long startBytes)
+    {
+        long nanos = System.nanoTime() - startNanos;
+        long bytes = allocatedBytes() - startBytes;
+
+        Class<?> steppableClass = steppable instanceof RecurringAction ?
+                ((RecurringAction) steppable).getAction().getClass() : steppable.getClass();
+        Map<Class<?>,SteppableProfile> phaseProfiles = profiles.get(phase);
+        SteppableProfile profile = phaseProfiles.get(steppableClass);
+        if(profile == null)
+        {
+            profile = new SteppableProfile();
+            phaseProfiles.put(steppableClass,profile);
+        }
+        profile.invocations++;
+        profile.nanoseconds += nanos;
+        profile.allocatedBytes += bytes;
+    }
+
+    /**
+     * called by the scheduler at the end of each phase
+     */
+    public synchronized void endPhase(ActionOrder phase, long nanos)
+    {
+        nanosPerPhase.put(phase,nanosPerPhase.get(phase) + nanos);
+    }
+
+    /**
+     * the bytes allocated so far by this thread, 0 if they aren't counted
+     */
+    public long allocatedBytes(){
+        if(threadBean == null)
+            return 0;
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return true if the allocated bytes are actually counted
+     */
+    public boolean isCountingAllocations(){
+        return threadBean != null;
+    }
+
+    /**
+     * the profile of a steppable class in a phase
+     * @return the profile or null if that class was never stepped in that phase
+     */
+    public SteppableProfile getProfile(ActionOrder phase, Class<?> steppableClass)
+    {
+        return profiles.get(phase).get(steppableClass);
+    }
+
+    /**
+     * all the profiles of a phase, by class of the steppable
+     */
+    public Map<Class<?>,SteppableProfile> getProfiles(ActionOrder phase)
+    {
+        return Collections.unmodifiableMap(profiles.get(phase));
+    }
+
+    /**
+     * total nanoseconds spent in a phase
+     */
+    public long getNanosInPhase(ActionOrder phase)
+    {
+        return nanosPerPhase.get(phase);
+    }
+
+    /**
+     * Write one line per phase and steppable class, slowest first within each phase
+     * @param file link to the file to write to
+     */
+    public void writeToCSVFile(File file)
+    {
+        try {
+            CSVWriter writer = new CSVWriter(new FileWriter(file));
+            writer.writeNext(new String[]{"phase","steppable","invocations","nanoseconds","nanoseconds_per_invocation",
+                    "allocated_bytes","share_of_phase"});
+
+            for(ActionOrder phase : ActionOrder.values())
+            {
+                List<Map.Entry<Class<?>,SteppableProfile>> entries = new ArrayList<>(profiles.get(phase).entrySet());
+                entries.sort((o1, o2) -> Long.compare(o2.getValue().getNanoseconds(), o1.getValue().getNanoseconds()));
+                long phaseNanos = nanosPerPhase.get(phase);
+                for(Map.Entry<Class<?>,SteppableProfile> entry : entries)
+                {
+                    SteppableProfile profile = entry.getValue();
+                    writer.writeNext(new String[]{
+                            phase.name(),
+                            entry.getKey().getName(),
+                            String.valueOf(profile.getInvocations()),
+                            String.valueOf(profile.getNanoseconds()),
+                            String.valueOf(profile.getNanosecondsPerInvocation()),
+                            String.valueOf(profile.getAllocatedBytes()),
+                            String.valueOf(phaseNanos == 0 ? 0 : ((double) profile.getNanoseconds()) / phaseNanos)
+                    });
+                }
+            }
+
+            writer.flush();
+            writer.close();
+
+        } catch (IOException e) {
+            System.err.println("File could not be written");
+        }
+
+    }
+
+    /**
+     * writes the csv, if a file was given
+     */
+    @Override
+    public void turnOff() {
+        if(csvFile != null)
+            writeToCSVFile(csvFile);
+    }
+
+    /**
+     * the numbers collected for a steppable class in a phase
+     */
+    public static class SteppableProfile
+    {
+        private long invocations = 0;
+
+        private long nanoseconds = 0;
+
+        private long allocatedBytes = 0;
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getNanoseconds() {
+            return nanoseconds;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public double getNanosecondsPerInvocation() {
+            return invocations == 0 ? 0 : ((double) nanoseconds) / invocations;
+        }
+    }
+
+}
@@ -15,12 +15,10 @@ import sim.engine.Steppable;
 
 import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * <h4>Description</h4>
- * <p/> This is the re-implementation of the random scheduler using arraylists. It is more random than the random queue
+ * <p/> This is the re-implementation of the random scheduler using arrays (see {@link RandomBucket}). It is more random than the random queue
  * because each steppable is chosen uniformly at random every time (while the random queue gives each steppable a random "ordering"
  * which might let one chain of events happen very late.
  * <p/>
@@ -41,13 +39,18 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
 
     /**
      * where we store every possible action!
-     * Each action order has an array list for every possible priority value
+     * Each action order has a bucket for every possible priority value
      */
-    private EnumMap<ActionOrder,List<Steppable>[]> steppablesByPhase;
+    private EnumMap<ActionOrder,RandomBucket[]> steppablesByPhase;
 
 
     private EnumMap<ActionOrder,Long> timePerPhase;
 
+    /**
+     * when not null, every step is timed (in nanoseconds) by the profiler
+     */
+    private SchedulerProfiler profiler;
+
     /**
      * The randomizer
      */
@@ -66,7 +69,20 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
 
     final private ArrayList<PrioritySteppablePair> tomorrowSamePhase;
 
-    final private ArrayList<FutureAction> futureActions;
+    /**
+     * actions registered to happen every day. They are put back in the phase queue when the phase starts
+     */
+    final private EnumMap<ActionOrder,ArrayList<RecurringAction>> recurringActions;
+
+    /**
+     * true while the scheduler is going through the steppables of the current phase
+     */
+    private boolean phaseInProgress = false;
+
+    /**
+     * where actions scheduled for another day wait
+     */
+    final private FutureActionCalendar futureActions;
 
 
     public TrueRandomScheduler(int simulationDays, MersenneTwisterFast randomizer) {
@@ -84,7 +100,11 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         //initialize tomorrow schedule
         tomorrowSamePhase = new ArrayList<>();
 
-        futureActions = new ArrayList<>();
+        recurringActions = new EnumMap<>(ActionOrder.class);
+        for(ActionOrder order : ActionOrder.values())
+            recurringActions.put(order,new ArrayList<>());
+
+        futureActions = new FutureActionCalendar();
 
     }
 
@@ -93,12 +113,12 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         for(ActionOrder order :ActionOrder.values())
         {
             //put the array
-            List<Steppable>[] array = order.isToRandomize() ? new LinkedList[Priority.values().length] : new ArrayList[Priority.values().length];
+            RandomBucket[] array = new RandomBucket[Priority.values().length];
             steppablesByPhase.put(order,array);
 
             //populate the array
             for(Priority p : Priority.values())
-                array[p.ordinal()]= order.isToRandomize()? new LinkedList<>() : new ArrayList<Steppable>();
+                array[p.ordinal()]= new RandomBucket();
 
         }
     }
@@ -119,9 +139,12 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         for(ActionOrder phase : ActionOrder.values())
         {
             long timeAtStart = System.currentTimeMillis();
+            long nanosAtStart = profiler == null ? 0 : System.nanoTime();
 
             currentPhase = phase; //currentPhase!
-
+            //put back in the queue all the actions that happen every day
+            armRecurringActions(phase);
+            phaseInProgress = true;
 
 
 
@@ -129,7 +152,7 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
             while(highestPriority != -1) //as long as there are still things to do at any priority
             {
                 //get the highest priority steppables
-                List<Steppable> steppables = steppablesByPhase.get(phase)[highestPriority];
+                RandomBucket steppables = steppablesByPhase.get(phase)[highestPriority];
 
 
                 assert steppables != null;
@@ -137,12 +160,20 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
 
                 //take a random highest priority action and do it.
                 //but don't bother randomizing for gui and clean up data
-                final int index = currentPhase.isToRandomize() ?
-                        0 :randomizer.nextInt(steppables.size());
-                Steppable steppable = steppables.remove(index);
+                //both are O(1): the bucket swaps the last element in the hole
+                Steppable steppable = currentPhase.isToRandomize() ?
+                        steppables.pollFirst() : steppables.drawRandom(randomizer);
                 assert steppable != null;
                 //act nau!!!
-                steppable.step(simState);
+                if(profiler == null)
+                    steppable.step(simState);
+                else
+                {
+                    long startBytes = profiler.allocatedBytes();
+                    long startNanos = System.nanoTime();
+                    steppable.step(simState);
+                    profiler.endStep(phase,steppable,startNanos,startBytes);
+                }
 
                 //update priority (low priority can still schedule stuff to happen at high priority so we need to keep checking)
                 highestPriority = getHighestPriority(phase);
@@ -150,12 +181,15 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
             }
 
 
+            phaseInProgress = false;
             //add all the steppables that reserved a spot for tomorrow, same phase
             allocateTomorrowSamePhaseActions(phase);
 
 
             long duration = System.currentTimeMillis() - timeAtStart;
             timePerPhase.put(phase, timePerPhase.get(phase) + duration);
+            if(profiler != null)
+                profiler.endPhase(phase,System.nanoTime() - nanosAtStart);
             //go to the next phase!
 
         }
@@ -172,7 +206,7 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
     }
 
     private void allocateTomorrowSamePhaseActions(ActionOrder phase) {
-        List<Steppable>[] current= steppablesByPhase.get(phase);
+        RandomBucket[] current= steppablesByPhase.get(phase);
         for(PrioritySteppablePair pair : tomorrowSamePhase)
         {
             current[pair.getPriority().ordinal()].add(pair.getSteppable());
@@ -180,16 +214,35 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         tomorrowSamePhase.clear(); //here we kept all steppables that are called to act the same phase tomorrow!
     }
 
+    /**
+     * queues all the recurring actions of this phase, dropping the ones that were cancelled. Doesn't allocate.
+     */
+    private void armRecurringActions(ActionOrder phase) {
+        ArrayList<RecurringAction> recurring = recurringActions.get(phase);
+        RandomBucket[] current = steppablesByPhase.get(phase);
+        int kept = 0;
+        for(int i=0; i < recurring.size(); i++)
+        {
+            RecurringAction action = recurring.get(i);
+            if(action.isCancelled())
+                continue;
+            current[action.getPriority().ordinal()].add(action);
+            recurring.set(kept,action);
+            kept++;
+        }
+        recurring.subList(kept,recurring.size()).clear();
+    }
+
     /**
      * gets the index of the steppable with the highest priority in a given action order
      * @param phase the action phase
      * @return the highest priority or -1 if there are none.
      */
     public int getHighestPriority(ActionOrder phase) {
-        List<Steppable> steppablesByPriority[] =  steppablesByPhase.get(phase);
+        RandomBucket[] steppablesByPriority =  steppablesByPhase.get(phase);
         for(int i=0; i<steppablesByPriority.length;i++)
         {
-            assert steppablesByPriority[i] !=null; //because they are created once and never destroyed, all the arraylists should not be null
+            assert steppablesByPriority[i] !=null; //because they are created once and never destroyed, all the buckets should not be null
 
             if(!steppablesByPriority[i].isEmpty())
                 return i;
@@ -202,17 +255,7 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         //set phase to dawn
         currentPhase = ActionOrder.DAWN;
         //check for delayed actions
-        LinkedList<FutureAction> toRemove = new LinkedList<>();
-        for(FutureAction futureAction : futureActions)
-        {
-            boolean ready = futureAction.spendOneDay();
-            if(ready)
-            {
-                scheduleSoon(futureAction.getPhase(),futureAction.getAction(),futureAction.getPriority());
-                toRemove.add(futureAction);
-            }
-        }
-        futureActions.removeAll(toRemove);
+        futureActions.advanceOneDay(this);
     }
 
     /**
@@ -297,8 +340,7 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
      */
     @Override
     public void scheduleAnotherDay( ActionOrder phase,  Steppable action, int daysAway, Priority priority) {
-        Preconditions.checkArgument(daysAway > 0, "Days away must be positive");
-        futureActions.add(new FutureAction(phase,action,priority,daysAway));
+        futureActions.schedule(phase, action, priority, daysAway);
 
     }
 
@@ -339,11 +381,78 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         scheduleAnotherDay(phase,action,daysAway,priority);
     }
 
+    /**
+     * Same distribution of days away as scheduleAnotherDayWithFixedProbability, but drawn in closed form with a single random number
+     * rather than one coin flip per day.
+     * @param phase       the phase i want the action to occur in
+     * @param action      the steppable that should be called
+     * @param probability the daily probability of this action happening
+     * @param priority    the action priority
+     */
+    @Override
+    public void scheduleAnotherDayWithGeometricDelay(ActionOrder phase, Steppable action,
+                                                     float probability, Priority priority) {
+        scheduleAnotherDay(phase, action, drawGeometricDelay(randomizer, probability), priority);
+    }
+
+    /**
+     * draws how many days it takes for an event with a fixed daily probability to happen (the first day counts as one).
+     * It inverts the geometric distribution: days = 1 + floor(ln(1-u)/ln(1-p))
+     * @param randomizer the randomizer providing the uniform draw
+     * @param probability the daily probability, in (0,1]
+     * @return the days away, at least 1
+     */
+    public static int drawGeometricDelay(MersenneTwisterFast randomizer, float probability)
+    {
+        Preconditions.checkArgument(probability > 0f && probability <=1f, "probability has to be in (0,1]");
+        if(probability == 1f)
+            return 1;
+        double daysAway = 1 + Math.floor(Math.log(1d - randomizer.nextDouble()) / Math.log(1d - probability));
+        return daysAway >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) daysAway;
+
+    }
+
+    /**
+     * Step this action every day at this phase, starting the next time the phase comes up (today if it's the current phase).
+     * The scheduler re-queues it by itself, so the action must not reschedule itself.
+     *
+     * @param phase    the phase i want the action to occur in
+     * @param action   the steppable that should be called
+     * @param priority the action priority
+     * @return the handle to cancel the action
+     */
+    @Override
+    public RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action, Priority priority) {
+        RecurringAction recurring = new RecurringAction(phase,action,priority);
+        recurringActions.get(phase).add(recurring);
+        //if the phase is going on right now, it has already been armed: queue it by hand
+        if(phaseInProgress && phase.equals(currentPhase))
+            steppablesByPhase.get(phase)[priority.ordinal()].add(recurring);
+        return recurring;
+    }
+
+    /**
+     * Step this action every day at this phase (at priority STANDARD)
+     *
+     * @param phase  the phase i want the action to occur in
+     * @param action the steppable that should be called
+     * @return the handle to cancel the action
+     */
+    @Override
+    public RecurringAction scheduleEveryDay(ActionOrder phase, Steppable action) {
+        return scheduleEveryDay(phase, action, Priority.STANDARD);
+    }
+
     @Override
     public ActionOrder getCurrentPhase() {
         return currentPhase;
     }
 
+    @Override
+    public boolean hasPendingActions(ActionOrder phase) {
+        return getHighestPriority(phase) != -1;
+    }
+
 
     public void clear()
     {
@@ -352,7 +461,10 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
 
 
         tomorrowSamePhase.clear();
+        for(ArrayList<RecurringAction> recurring : recurringActions.values())
+            recurring.clear();
         futureActions.clear();
+        phaseInProgress = false;
         currentPhase = ActionOrder.DAWN;
     }
 
@@ -361,11 +473,22 @@ public class TrueRandomScheduler implements Steppable, PhaseScheduler
         this.simulationDays = simulationDays;
     }
 
-    public EnumMap<ActionOrder, List<Steppable>[]> getSteppablesByPhase() {
+    public EnumMap<ActionOrder, RandomBucket[]> getSteppablesByPhase() {
         return steppablesByPhase;
     }
 
     public EnumMap<ActionOrder, Long> getTimePerPhase() {
         return timePerPhase;
     }
+
+    public SchedulerProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * set a profiler to time each step, or null to stop profiling
+     */
+    public void setProfiler(SchedulerProfiler profiler) {
+        this.profiler = profiler;
+    }
 }
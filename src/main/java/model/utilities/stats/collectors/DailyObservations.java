@@ -19,7 +19,8 @@ import java.util.*;
 /**
  * <h4>Description</h4>
  * <p/> A simple decorator to an array list to return some weird arrays when needed
- * <p/> Additionaly it has an observable double which is always the last element added. This should make charting a lot easier
+ * <p/> Additionaly it has an observable double which is always the last element added. This should make charting a lot easier.
+ * It is only created the first time somebody asks for it, so runs without gui don't pay for it at every observation
  * <p/>
  * <h4>Notes</h4>
  * Created with IntelliJ
@@ -38,7 +39,10 @@ public class DailyObservations implements Iterable<Double> {
      */
     final private List<Double> observations;
 
-    final private SimpleDoubleProperty lastObservation = new SimpleDoubleProperty();
+    /**
+     * created lazily by getObservableLastObservation()
+     */
+    private SimpleDoubleProperty lastObservation = null;
 
     /**
      * something of an offset in case the observations were collected only after a specific day
@@ -90,7 +94,8 @@ public class DailyObservations implements Iterable<Double> {
     public boolean addAll(Collection<? extends Double> c) {
 
         boolean toReturn = observations.addAll(c);
-        lastObservation.setValue(observations.get(observations.size() - 1));
+        if(lastObservation != null)
+            lastObservation.setValue(observations.get(observations.size() - 1));
 
         return toReturn;
 
@@ -113,7 +118,8 @@ public class DailyObservations implements Iterable<Double> {
      */
     public boolean addAll(int index, Collection<? extends Double> c) {
         boolean toReturn = observations.addAll(index,c);
-        lastObservation.setValue(observations.get(observations.size() - 1));
+        if(lastObservation != null)
+            lastObservation.setValue(observations.get(observations.size() - 1));
         return toReturn;
     }
 
@@ -124,7 +130,8 @@ public class DailyObservations implements Iterable<Double> {
      * @return <tt>true</tt> (as specified by {@link java.util.Collection#add})
      */
     public boolean add(Double e) {
-        lastObservation.setValue(e);
+        if(lastObservation != null)
+            lastObservation.setValue(e);
         return observations.add(e);
     }
 
@@ -236,6 +243,8 @@ public class DailyObservations implements Iterable<Double> {
      */
     public ObservableDoubleValue getObservableLastObservation()
     {
+        if(lastObservation == null)
+            lastObservation = new SimpleDoubleProperty(observations.isEmpty() ? 0 : observations.get(observations.size()-1));
         return lastObservation;
     }
 
@@ -398,7 +398,8 @@ public class DailyStatCollector implements Steppable{
 
 
     public static void main(String[] args) throws ExecutionException, InterruptedException {
-        ExecutorService executor = Executors.newCachedThreadPool();
+        //models share nothing, so one thread per processor is all it takes
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         List<Future> receipts = new ArrayList<>(NUMBER_OF_RUNS);
 
         for(int i=0; i< NUMBER_OF_RUNS; i++)
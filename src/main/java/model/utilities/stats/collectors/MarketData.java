@@ -13,6 +13,7 @@ import goods.GoodType;
 import goods.UndifferentiatedGoodType;
 import model.MacroII;
 import model.utilities.ActionOrder;
+import model.utilities.scheduler.RecurringAction;
 import model.utilities.stats.collectors.enums.MarketDataType;
 import sim.engine.SimState;
 
@@ -44,6 +45,11 @@ public class MarketData extends DataStorage<MarketDataType>
      */
     private Market marketToFollow;
 
+    /**
+     * the handle to stop being stepped every day
+     */
+    private RecurringAction dailyStep;
+
 
     public MarketData() {
         super(MarketDataType.class);
@@ -123,15 +129,6 @@ public class MarketData extends DataStorage<MarketDataType>
 
 
 
-
-
-        //reschedule
-        model.scheduleTomorrow(ActionOrder.CLEANUP_DATA_GATHERING,this);
-
-
-
-
-
     }
 
     /**
@@ -146,7 +143,7 @@ public class MarketData extends DataStorage<MarketDataType>
         //we are going to set the starting day at -1 and then change it at our first step()
         setStartingDay(-1);
 
-        state.scheduleSoon(ActionOrder.CLEANUP_DATA_GATHERING,this);
+        dailyStep = state.scheduleEveryDay(ActionOrder.CLEANUP_DATA_GATHERING,this);
     }
 
 
@@ -223,6 +220,8 @@ public class MarketData extends DataStorage<MarketDataType>
     @Override
     public void turnOff() {
         super.turnOff();
+        if(dailyStep != null)
+            dailyStep.cancel();
         marketToFollow = null;
     }
 
@@ -16,6 +16,7 @@ import goods.DifferentiatedGoodType;
 import goods.UndifferentiatedGoodType;
 import model.MacroII;
 import model.utilities.ActionOrder;
+import model.utilities.scheduler.RecurringAction;
 import model.utilities.scheduler.TrueRandomScheduler;
 import org.junit.Assert;
 import org.junit.Test;
@@ -49,20 +50,23 @@ public class PlantProductionAndConsumptionCounterTest {
     {
         //MODELLO
         MacroII model = mock(MacroII.class);
+        RecurringAction handle = mock(RecurringAction.class);
         DailyProductionAndConsumptionCounter counter = new DailyProductionAndConsumptionCounter();
+        when(model.scheduleEveryDay(ActionOrder.DAWN, counter)).thenReturn(handle);
         //doesn't schedule till start
-        verify(model,never()).scheduleSoon(ActionOrder.DAWN, counter);
+        verify(model,never()).scheduleEveryDay(ActionOrder.DAWN, counter);
 
         //start it
         counter.start(model);
-        verify(model,times(1)).scheduleSoon(ActionOrder.DAWN, counter);
+        verify(model,times(1)).scheduleEveryDay(ActionOrder.DAWN, counter);
 
-        //check that it reschedules after stepping
+        //the scheduler steps it every day, it doesn't reschedule itself
         counter.step(model);
-        verify(model,times(1)).scheduleTomorrow(ActionOrder.DAWN,counter);
+        verify(model,never()).scheduleTomorrow(ActionOrder.DAWN,counter);
 
-        //check that it doesn't reschedule after turning off
+        //check that turning off cancels the daily step
         counter.turnOff();
+        verify(handle).cancel();
         model = mock(MacroII.class);
         counter.step(model);
         verify(model, never()).scheduleTomorrow(ActionOrder.DAWN,counter);
@@ -141,7 +145,7 @@ public class PlantProductionAndConsumptionCounterTest {
         plant.setCostStrategy(new EmptyCostStrategy());   when(owner.getHR(plant)).thenReturn(mock(HumanResources.class));
 
         model.start(); plant.start(model); //need to start the plant separetely because it isn't registered as an agent
-        model.scheduleSoon(ActionOrder.PRODUCTION,plant);
+        plant.produceEveryDay();
         model.schedule.step(model);
 
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package agents.firm.production.technology;
+
+import agents.firm.Firm;
+import agents.firm.production.Blueprint;
+import agents.firm.production.Plant;
+import goods.DifferentiatedGoodType;
+import goods.GoodType;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class CapitalRegistryTest {
+
+    @Test
+    public void slotsAreReused() throws Exception
+    {
+        CapitalRegistry registry = new CapitalRegistry();
+        int[] slots = new int[40];
+        for(int i=0; i<slots.length; i++)
+            slots[i] = registry.register(i, 2*i);
+        Assert.assertEquals(40, registry.size());
+        Assert.assertEquals(780, registry.getTotalPurchaseCost());
+        Assert.assertEquals(1560, registry.getTotalValue());
+
+        registry.retire(slots[10]);
+        registry.setLastPrice(slots[20], 0);
+        Assert.assertEquals(39, registry.size());
+        Assert.assertEquals(770, registry.getTotalPurchaseCost());
+        Assert.assertEquals(1500, registry.getTotalValue());
+
+        int reused = registry.register(100, 100);
+        Assert.assertEquals(slots[10], reused);
+        Assert.assertEquals(870, registry.getTotalPurchaseCost());
+    }
+
+    @Test
+    public void machineryLivesInTheRegistry() throws Exception
+    {
+        MacroII model = new MacroII(1);
+        Firm firm = new Firm(model);
+        GoodType capital = new DifferentiatedGoodType("testCapital","capital",true,false);
+
+        Machinery first = new CRSExponentialMachinery(capital, firm, 100, null, 1f);
+        Machinery second = new CRSExponentialMachinery(capital, firm, 50, null, 1f);
+        CapitalRegistry registry = model.getCapitalRegistry();
+        Assert.assertEquals(2, registry.size());
+        Assert.assertEquals(150, registry.getTotalPurchaseCost());
+        Assert.assertEquals(150, registry.getTotalValue());
+
+        first.setLastValidPrice(120);
+        Assert.assertEquals(120, first.getLastValidPrice());
+        Assert.assertEquals(170, registry.getTotalValue());
+        Assert.assertTrue(second.compareTo(first) < 0);
+
+        //once retired the machine keeps its price but doesn't count anymore
+        first.retire();
+        Assert.assertEquals(120, first.getLastValidPrice());
+        Assert.assertEquals(100, first.getCostOfProduction());
+        Assert.assertEquals(1, registry.size());
+        Assert.assertEquals(50, registry.getTotalValue());
+        first.setLastValidPrice(10);
+        Assert.assertEquals(10, first.getLastValidPrice());
+        Assert.assertEquals(50, registry.getTotalValue());
+    }
+
+    //a plant getting a new machine retires the old one
+    @Test
+    public void replacedMachineryIsRetired() throws Exception
+    {
+        MacroII model = new MacroII(1);
+        Firm firm = new Firm(model);
+        GoodType capital = new DifferentiatedGoodType("testCapital","capital",true,false);
+        Plant plant = new Plant(Blueprint.simpleBlueprint(UndifferentiatedGoodType.GENERIC,1,UndifferentiatedGoodType.GENERIC,1),firm);
+        CapitalRegistry registry = model.getCapitalRegistry();
+
+        Machinery old = new CRSExponentialMachinery(capital, firm, 100, plant, 1f);
+        plant.setPlantMachinery(old);
+        //setting it again changes nothing
+        plant.setPlantMachinery(old);
+        Assert.assertEquals(1, registry.size());
+        Assert.assertEquals(100, registry.getTotalValue());
+
+        plant.setPlantMachinery(new CRSExponentialMachinery(capital, firm, 30, plant, 1f));
+        Assert.assertEquals(1, registry.size());
+        Assert.assertEquals(30, registry.getTotalValue());
+        Assert.assertEquals(30, registry.getTotalPurchaseCost());
+        Assert.assertEquals(100, old.getLastValidPrice());
+    }
+}
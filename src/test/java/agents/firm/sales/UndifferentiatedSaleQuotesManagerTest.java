@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package agents.firm.sales;
+
+import agents.EconomicAgent;
+import financial.utilities.Quote;
+import goods.Good;
+import goods.UndifferentiatedGoodType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class UndifferentiatedSaleQuotesManagerTest {
+
+
+    @Test
+    public void quotesForManyUnits() throws Exception {
+
+        UndifferentiatedSaleQuotesManager manager = new UndifferentiatedSaleQuotesManager(UndifferentiatedGoodType.GENERIC);
+        Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+        manager.recordTheseGoodsAsSellable(10);
+
+        //a quote for 4 units
+        Quote quote = Quote.newSellerQuote(mock(EconomicAgent.class), 100, good, 4);
+        manager.recordQuoteAssociatedWithThisGood(good, quote);
+        Assert.assertEquals(4, manager.numberOfQuotesPlaced());
+        Assert.assertEquals(1, manager.getAllQuotes().size());
+
+        //one filled: the quote is still there
+        quote.reduceQuantity(1);
+        manager.thisQuoteHasBeenFilledSoRemoveItWithItsAssociatedGood(quote);
+        Assert.assertEquals(3, manager.numberOfQuotesPlaced());
+        Assert.assertEquals(9, manager.numberOfGoodsToSell());
+        Assert.assertSame(quote, manager.getCheapestQuote());
+
+        //one consumed: the quote is returned, still for 2 more units
+        Assert.assertSame(quote, manager.stopSellingThisGoodAndReturnItsAssociatedQuote(good));
+        Assert.assertEquals(2, manager.numberOfQuotesPlaced());
+        Assert.assertEquals(8, manager.numberOfGoodsToSell());
+        Assert.assertSame(quote, manager.getCheapestQuote());
+
+        //forgetting the quote forgets all its units
+        manager.forgetTheQuoteAssociatedWithThisGood(good);
+        Assert.assertEquals(0, manager.numberOfQuotesPlaced());
+        Assert.assertNull(manager.getCheapestQuote());
+        Assert.assertEquals(8, manager.numberOfGoodsToSell());
+
+    }
+
+    @Test
+    public void filledBeforeBeingRecorded() throws Exception {
+
+        UndifferentiatedSaleQuotesManager manager = new UndifferentiatedSaleQuotesManager(UndifferentiatedGoodType.GENERIC);
+        Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+        manager.recordTheseGoodsAsSellable(5);
+
+        //2 units out of 5 are sold immediately, the quote is recorded afterwards with the remaining 3
+        Quote quote = Quote.newSellerQuote(mock(EconomicAgent.class), 100, good, 5);
+        quote.reduceQuantity(1);
+        manager.thisQuoteHasBeenFilledSoRemoveItWithItsAssociatedGood(quote);
+        quote.reduceQuantity(1);
+        manager.thisQuoteHasBeenFilledSoRemoveItWithItsAssociatedGood(quote);
+        manager.recordQuoteAssociatedWithThisGood(good, quote);
+        Assert.assertEquals(3, manager.numberOfQuotesPlaced());
+        Assert.assertEquals(3, manager.numberOfGoodsToSell());
+
+        //sell them all
+        for(int i=0; i<3; i++)
+        {
+            quote.reduceQuantity(1);
+            manager.thisQuoteHasBeenFilledSoRemoveItWithItsAssociatedGood(quote);
+        }
+        Assert.assertEquals(0, manager.numberOfQuotesPlaced());
+        Assert.assertFalse(manager.hasAnythingToSell());
+        Assert.assertTrue(manager.getAllQuotes().isEmpty());
+
+    }
+}
@@ -14,6 +14,7 @@ import goods.GoodType;
 import goods.UndifferentiatedGoodType;
 import model.MacroII;
 import model.utilities.ActionOrder;
+import model.utilities.scheduler.RecurringAction;
 import org.junit.Assert;
 import org.junit.Test;
 import tests.MemoryLeakVerifier;
@@ -50,10 +51,10 @@ public class DailyProductionAndConsumptionCounterTest {
         MacroII mocked = mock(MacroII.class);
         DailyProductionAndConsumptionCounter counter = new DailyProductionAndConsumptionCounter();
         counter.start(mocked);
-        verify(mocked,times(1)).scheduleSoon(ActionOrder.DAWN,counter);
-        //now check that step makes it schedule again!
+        verify(mocked,times(1)).scheduleEveryDay(ActionOrder.DAWN,counter);
+        //step doesn't need to reschedule
         counter.step(mocked);
-        verify(mocked,times(1)).scheduleTomorrow(ActionOrder.DAWN,counter);
+        verify(mocked,never()).scheduleTomorrow(ActionOrder.DAWN,counter);
 
 
     }
@@ -74,10 +75,10 @@ public class DailyProductionAndConsumptionCounterTest {
         DailyProductionAndConsumptionCounter counter = (DailyProductionAndConsumptionCounter) field.get(agent);
 
 
-        verify(mocked, times(1)).scheduleSoon(ActionOrder.DAWN,counter);
-        //now check that step makes it schedule again!
+        verify(mocked, times(1)).scheduleEveryDay(ActionOrder.DAWN,counter);
+        //step doesn't need to reschedule
         counter.step(mocked);
-        verify(mocked,times(1)).scheduleTomorrow(ActionOrder.DAWN,counter);
+        verify(mocked,never()).scheduleTomorrow(ActionOrder.DAWN,counter);
 
 
     }
@@ -92,13 +93,17 @@ public class DailyProductionAndConsumptionCounterTest {
             {
 
                 MacroII mocked = mock(MacroII.class);
+                RecurringAction handle = mock(RecurringAction.class);
                 DailyProductionAndConsumptionCounter counter = new DailyProductionAndConsumptionCounter();
+                when(mocked.scheduleEveryDay(ActionOrder.DAWN,counter)).thenReturn(handle);
                 verifier = new MemoryLeakVerifier(counter);
                 counter.start(mocked);
-                //now check that step makes it schedule again!
+                //turning off cancels the daily step
                 counter.turnOff();
                 counter.step(mocked);
+                verify(handle).cancel();
                 verify(mocked, times(0)).scheduleTomorrow(ActionOrder.DAWN, counter); //0 times!
+                handle = null;
                 counter = null;
                 mocked = null;
             }
@@ -248,4 +253,31 @@ public class DailyProductionAndConsumptionCounterTest {
 
     }
 
+    //a type seen for the first time after a few days, and days with nothing counted, still roll over correctly
+    @Test
+    public void testCountsRollOverForDays() throws Exception
+    {
+
+        DailyProductionAndConsumptionCounter counter = new DailyProductionAndConsumptionCounter();
+        GoodType latecomer = new UndifferentiatedGoodType("testLatecomer","latecomer");
+        MacroII mocked = mock(MacroII.class);
+        for(int day=1; day<=5; day++)
+        {
+            counter.countNewConsumption(FOOD, day);
+            if(day >= 3)
+                counter.countNewReceive(latecomer, 10 * day);
+            counter.step(mocked);
+            Assert.assertEquals(day, counter.getYesterdayConsumption(FOOD));
+            Assert.assertEquals(0, counter.getTodayConsumption(FOOD));
+            Assert.assertEquals(day >= 3 ? 10 * day : 0, counter.getYesterdayAcquisitions(latecomer));
+            Assert.assertEquals(0, counter.getTodayAcquisitions(latecomer));
+        }
+        //an empty day
+        counter.step(mocked);
+        Assert.assertEquals(0, counter.getYesterdayConsumption(FOOD));
+        Assert.assertEquals(0, counter.getYesterdayAcquisitions(latecomer));
+
+
+    }
+
 }
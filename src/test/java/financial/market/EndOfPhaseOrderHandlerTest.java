@@ -14,6 +14,9 @@ import model.utilities.dummies.DailyGoodTree;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * <h4>Description</h4>
  * <p/>
@@ -75,6 +78,50 @@ public class EndOfPhaseOrderHandlerTest {
 
 
 
+    }
+
+    @Test
+    public void singlePassTradesInTheSameOrder() throws Exception {
+
+        Assert.assertEquals(tradesOver10Days(false),tradesOver10Days(true));
+
+    }
+
+    /**
+     * the same market as above, returns for each trade the index of the customer and the price paid
+     */
+    private List<String> tradesOver10Days(final boolean singlePass)
+    {
+        final List<String> trades = new ArrayList<>();
+        final List<Customer> customers = new ArrayList<>();
+        MacroII model = new MacroII(10);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                OrderBookMarket market= new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+                EndOfPhaseOrderHandler handler = new EndOfPhaseOrderHandler();
+                handler.setSinglePass(singlePass);
+                market.setOrderHandler(handler,model);
+                getMarkets().put(UndifferentiatedGoodType.GENERIC,market);
+                market.addTradeListener((buyer, seller, goodExchanged, price, sellerQuote, buyerQuote) ->
+                        trades.add(customers.indexOf(buyer) + " at " + price));
+
+                for(int i=0; i < 20; i++)
+                {
+                    Customer customer = new Customer(model,100+i,market);
+                    customers.add(customer);
+                    getAgents().add(customer);
+                }
+                DailyGoodTree tree = new DailyGoodTree(model,10,100,market);
+                getAgents().add(tree);
+            }
+        });
+        model.start();
+        for(int i=0; i< 10; i++)
+            model.schedule.step(model);
+
+        Assert.assertEquals(100,trades.size());
+        return trades;
     }
 
 }
@@ -14,25 +14,33 @@ import agents.firm.sales.SalesDepartmentOneAtATime;
 import agents.firm.sales.exploration.SimpleBuyerSearch;
 import agents.firm.sales.exploration.SimpleSellerSearch;
 import agents.firm.sales.pricing.pid.SalesControlWithFixedInventoryAndPID;
-import com.google.common.collect.Multimap;
 import financial.utilities.Quote;
 import financial.utilities.ShopSetPricePolicy;
 import goods.Good;
 import goods.GoodType;
 import goods.UndifferentiatedGoodType;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import model.MacroII;
 import model.scenario.Scenario;
 import model.utilities.ActionOrder;
 import model.utilities.dummies.GeographicalCustomer;
+import model.utilities.geography.SpatialPriceIndex;
+import model.utilities.geography.TransportCostMatrix;
 import model.utilities.scheduler.Priority;
 import model.utilities.stats.collectors.enums.MarketDataType;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.mockito.Mockito.*;
 
 /**
@@ -95,7 +103,7 @@ public class GeographicalMarketTest
         market.start(macroII);
 
         //create the seller
-        final GeographicalFirm seller = mock(GeographicalFirm.class);
+        final GeographicalFirm seller = locatedSeller(0,0);
         market.registerSeller(seller);
 
         //schedule the seller to sell two goods
@@ -121,7 +129,8 @@ public class GeographicalMarketTest
             customers[i] = mock(GeographicalCustomer.class);
             when(customers[i].getModel()).thenReturn(macroII);
             //if they are ever asked to choose, choose the seller
-            when(customers[i].chooseSupplier(any(Multimap.class))).thenReturn(seller);
+            when(customers[i].chooseSupplier(Mockito.<SpatialPriceIndex<GeographicalFirm>>any(),
+                    Mockito.<TransportCostMatrix<GeographicalCustomer,GeographicalFirm>>any())).thenReturn(seller);
             //make sure buyer is never bankrupt
             when(customers[i].hasHowMany(UndifferentiatedGoodType.MONEY)).thenReturn(Integer.MAX_VALUE);
             market.registerBuyer(customers[i]);
@@ -169,7 +178,7 @@ public class GeographicalMarketTest
         market.start(macroII);
 
         //create the seller
-        final GeographicalFirm seller = mock(GeographicalFirm.class);
+        final GeographicalFirm seller = locatedSeller(0,0);
         market.registerSeller(seller);
 
         //schedule the seller to sell two goods
@@ -195,7 +204,8 @@ public class GeographicalMarketTest
             customers[i] = mock(GeographicalCustomer.class);
             when(customers[i].getModel()).thenReturn(macroII);
             //if they are ever asked to choose, choose the seller
-            when(customers[i].chooseSupplier(any(Multimap.class))).thenReturn(seller);
+            when(customers[i].chooseSupplier(Mockito.<SpatialPriceIndex<GeographicalFirm>>any(),
+                    Mockito.<TransportCostMatrix<GeographicalCustomer,GeographicalFirm>>any())).thenReturn(seller);
             //make sure buyer is never bankrupt
             when(customers[i].hasHowMany(UndifferentiatedGoodType.MONEY)).thenReturn(Integer.MAX_VALUE);
             market.registerBuyer(customers[i]);
@@ -220,7 +230,7 @@ public class GeographicalMarketTest
         });
 
         //ADDITION:
-        doAnswer(new Answer() {
+        doAnswer(new Answer<Object>() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
                 //a new quote!
@@ -255,7 +265,7 @@ public class GeographicalMarketTest
         market.start(macroII);
 
         //create the seller
-        final GeographicalFirm seller = mock(GeographicalFirm.class);
+        final GeographicalFirm seller = locatedSeller(0,0);
         market.registerSeller(seller);
 
         //schedule the seller to sell two goods
@@ -280,7 +290,8 @@ public class GeographicalMarketTest
         {
             customers[i] = mock(GeographicalCustomer.class);
             //if they are ever asked to choose, choose the seller
-            when(customers[i].chooseSupplier(any(Multimap.class))).thenReturn(null);
+            when(customers[i].chooseSupplier(Mockito.<SpatialPriceIndex<GeographicalFirm>>any(),
+                    Mockito.<TransportCostMatrix<GeographicalCustomer,GeographicalFirm>>any())).thenReturn(null);
             //make sure buyer is never bankrupt
             when(customers[i].hasHowMany(UndifferentiatedGoodType.MONEY)).thenReturn(Integer.MAX_VALUE);
             market.registerBuyer(customers[i]);
@@ -441,6 +452,184 @@ public class GeographicalMarketTest
 
     }
 
+    //the index of sellers is built on where they were: a seller moving without changing its quotes has to be found where it is now
+    @Test
+    public void aSellerThatMovesIsFoundWhereItIs()
+    {
+        MacroII macroII = new MacroII(1);
+        final GeographicalMarket market = new GeographicalMarket(INPUT);
+        market.setPricePolicy(new ShopSetPricePolicy());
+        market.start(macroII);
+
+        //near costs 20+1, far 15+10
+        final GeographicalFirm near = locatedSeller(1,0);
+        final GeographicalFirm far = locatedSeller(10,0);
+        market.registerSeller(near);
+        market.registerSeller(far);
+        GeographicalCustomer customer = new GeographicalCustomer(macroII,30,0,0,market);
+        customer.receiveMany(UndifferentiatedGoodType.MONEY,1000);
+
+        macroII.scheduleSoon(ActionOrder.TRADE, state -> {
+            market.submitSellQuote(near, 20, Good.getInstanceOfUndifferentiatedGood(INPUT));
+            market.submitSellQuote(far, 15, Good.getInstanceOfUndifferentiatedGood(INPUT));
+        });
+        macroII.start();
+        macroII.schedule.step(macroII);
+        verify(near,times(1)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+
+        //far moves next to the customer and keeps its quote, near quotes again: now far is the cheapest by far
+        far.xLocationProperty().set(0);
+        macroII.scheduleSoon(ActionOrder.TRADE, state ->
+                market.submitSellQuote(near, 20, Good.getInstanceOfUndifferentiatedGood(INPUT)));
+        macroII.schedule.step(macroII);
+        verify(far,times(1)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+        verify(near,times(1)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+
+    }
+
+    //a buyer refused early in the pass buys after all when, later in the same pass, a cheaper ask comes in
+    @Test
+    public void aCheaperAskMidPassServesTheBuyersAlreadyRefused()
+    {
+        MacroII macroII = new MacroII(1);
+        final GeographicalMarket market = new GeographicalMarket(INPUT);
+        market.setPricePolicy(new ShopSetPricePolicy());
+        market.start(macroII);
+
+        final GeographicalFirm seller = locatedSeller(0,0);
+        market.registerSeller(seller);
+        final List<Object> asked = new ArrayList<>();
+        //far pays 45+20 for the first unit: too much. near pays 45
+        GeographicalCustomer far = countingCustomer(macroII, 60, 20, 0, market, asked);
+        GeographicalCustomer near = countingCustomer(macroII, 50, 0, 0, market, asked);
+
+        macroII.scheduleSoon(ActionOrder.TRADE, state ->
+                market.submitSellQuote(seller, 45, Good.getInstanceOfUndifferentiatedGood(INPUT)));
+        //once it sold the first unit, the seller puts up another one, much cheaper
+        doAnswer(new Answer<Object>() {
+            private boolean quoted = false;
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                if(!quoted)
+                    market.submitSellQuote(seller, 10, Good.getInstanceOfUndifferentiatedGood(INPUT));
+                quoted = true;
+                return null;
+            }
+        }).when(seller).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+
+        macroII.start();
+        macroII.schedule.step(macroII);
+
+        //far was asked again and bought the cheap one
+        Assert.assertEquals(Arrays.asList(far, near, far), asked);
+        verify(seller).reactToFilledAskedQuote(any(), any(Good.class), eq(45), eq(near));
+        verify(seller).reactToFilledAskedQuote(any(), any(Good.class), eq(10), eq(far));
+    }
+
+    //a buyer the pass is done with bids again: the pass goes back to it
+    @Test
+    public void aNewBidFromABuyerAlreadyVisitedRewindsThePass()
+    {
+        MacroII macroII = new MacroII(1);
+        final GeographicalMarket market = new GeographicalMarket(INPUT);
+        market.setPricePolicy(new ShopSetPricePolicy());
+        market.start(macroII);
+
+        final GeographicalFirm seller = locatedSeller(0,0);
+        market.registerSeller(seller);
+        final List<Object> asked = new ArrayList<>();
+        final GeographicalCustomer first = countingCustomer(macroII, 60, 0, 0, market, asked);
+        final GeographicalCustomer second = countingCustomer(macroII, 50, 0, 0, market, asked);
+
+        macroII.scheduleSoon(ActionOrder.TRADE, state -> {
+            for (int i = 0; i < 3; i++)
+                market.submitSellQuote(seller, 10, Good.getInstanceOfUndifferentiatedGood(INPUT));
+        });
+        //while the second buyer is served, the first one wants another unit
+        doAnswer(invocation -> {
+            if(invocation.getArguments()[3] == second)
+                market.submitBuyQuote(first, 60);
+            return null;
+        }).when(seller).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+
+        macroII.start();
+        macroII.schedule.step(macroII);
+
+        Assert.assertEquals(Arrays.asList(first, second, first), asked);
+        verify(seller,times(2)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), eq(first));
+        verify(seller,times(1)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), eq(second));
+    }
+
+    //when a sale makes somebody else want to act in TRADE, the pass steps aside and then picks up from where it was
+    @Test
+    public void thePassYieldsAndResumesWhereItWas()
+    {
+        final MacroII macroII = new MacroII(1);
+        final GeographicalMarket market = new GeographicalMarket(INPUT);
+        market.setPricePolicy(new ShopSetPricePolicy());
+        market.start(macroII);
+
+        final GeographicalFirm seller = locatedSeller(0,0);
+        market.registerSeller(seller);
+        final List<Object> asked = new ArrayList<>();
+        //the first is too far to buy, the others buy one each
+        GeographicalCustomer tooFar = countingCustomer(macroII, 60, 100, 0, market, asked);
+        final GeographicalCustomer second = countingCustomer(macroII, 50, 0, 0, market, asked);
+        GeographicalCustomer third = countingCustomer(macroII, 40, 0, 0, market, asked);
+
+        macroII.scheduleSoon(ActionOrder.TRADE, state -> {
+            for (int i = 0; i < 2; i++)
+                market.submitSellQuote(seller, 10, Good.getInstanceOfUndifferentiatedGood(INPUT));
+        });
+        //selling to the second buyer, the seller has something else to do in TRADE
+        doAnswer(invocation -> {
+            if(invocation.getArguments()[3] == second)
+                macroII.scheduleSoon(ActionOrder.TRADE, state -> asked.add("somebody else"));
+            return null;
+        }).when(seller).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), any(EconomicAgent.class));
+
+        macroII.start();
+        macroII.schedule.step(macroII);
+
+        //the refused buyer is not asked again: the pass went on from the third
+        Assert.assertEquals(Arrays.asList(tooFar, second, "somebody else", third), asked);
+        verify(seller,times(1)).reactToFilledAskedQuote(any(), any(Good.class), anyInt(), eq(third));
+    }
+
+    /**
+     * a customer at (x,y) with money to spend, that adds itself to the list every time it's asked to choose a supplier
+     */
+    private static GeographicalCustomer countingCustomer(MacroII model, int maxPrice, double x, double y,
+                                                         GeographicalMarket market, final List<Object> asked)
+    {
+        GeographicalCustomer customer = new GeographicalCustomer(model, maxPrice, x, y, market) {
+            @Override
+            public GeographicalFirm chooseSupplier(SpatialPriceIndex<GeographicalFirm> sellers,
+                                                   TransportCostMatrix<GeographicalCustomer, GeographicalFirm> transportCosts) {
+                asked.add(this);
+                return super.chooseSupplier(sellers, transportCosts);
+            }
+        };
+        customer.receiveMany(UndifferentiatedGoodType.MONEY, 1000);
+        return customer;
+    }
+
+    /**
+     * a mocked seller at (x,y) that always has what it sells; it moves when its location properties are set
+     */
+    private static GeographicalFirm locatedSeller(double x, double y)
+    {
+        GeographicalFirm seller = mock(GeographicalFirm.class);
+        final DoubleProperty xLocation = new SimpleDoubleProperty(x);
+        final DoubleProperty yLocation = new SimpleDoubleProperty(y);
+        when(seller.xLocationProperty()).thenReturn(xLocation);
+        when(seller.yLocationProperty()).thenReturn(yLocation);
+        when(seller.getxLocation()).thenAnswer(invocation -> xLocation.get());
+        when(seller.getyLocation()).thenAnswer(invocation -> yLocation.get());
+        when(seller.has(any(Good.class))).thenReturn(true);
+        return seller;
+    }
+
 
 
 
@@ -7,6 +7,7 @@
 package financial.market;
 
 import agents.EconomicAgent;
+import financial.TradeListener;
 import financial.utilities.Quote;
 import goods.Good;
 import goods.UndifferentiatedGoodType;
@@ -68,6 +69,108 @@ public class ImmediateOrderHandlerTest {
         Assert.assertEquals(0,bids.size());
     }
 
+    @Test
+    public void partialFills() throws Exception {
+
+        OrderBookMarket market = mock(OrderBookMarket.class);
+        EconomicAgent fakeSeller = mock(EconomicAgent.class);
+        EconomicAgent fakeBuyer = mock(EconomicAgent.class);
+        final Good fakeGood = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+        when(market.price(anyInt(),anyInt())).thenReturn(100);
+
+        //one ask for 5 units, bids for 2 and 4
+        Queue<Quote> asks = new LinkedList<>();
+        Quote ask = Quote.newSellerQuote(fakeSeller, 100, fakeGood, 5);
+        asks.add(ask);
+        Queue<Quote> bids = new LinkedList<>();
+        Quote firstBid = Quote.newBuyerQuote(fakeBuyer, 1000, UndifferentiatedGoodType.GENERIC, 2);
+        Quote secondBid = Quote.newBuyerQuote(fakeBuyer, 1000, UndifferentiatedGoodType.GENERIC, 4);
+        bids.add(firstBid);
+        bids.add(secondBid);
+
+        ImmediateOrderHandler orderHandler = new ImmediateOrderHandler();
+        orderHandler.reactToNewQuote(asks, bids, market);
+
+        //5 units traded: the first bid is gone, the second has 1 unit left, the ask is gone
+        verify(market,times(2)).trade(fakeBuyer,fakeSeller,fakeGood,100,firstBid,ask);
+        verify(market,times(3)).trade(fakeBuyer,fakeSeller,fakeGood,100,secondBid,ask);
+        Assert.assertTrue(asks.isEmpty());
+        Assert.assertEquals(0,ask.getQuantity());
+        Assert.assertEquals(0,firstBid.getQuantity());
+        Assert.assertEquals(1,bids.size());
+        Assert.assertSame(secondBid,bids.peek());
+        Assert.assertEquals(1,secondBid.getQuantity());
+        verify(fakeSeller,times(5)).reactToFilledAskedQuote(ask,fakeGood,100,fakeBuyer);
+        verify(fakeBuyer,times(2)).reactToFilledBidQuote(firstBid,fakeGood,100,fakeSeller);
+        verify(fakeBuyer,times(3)).reactToFilledBidQuote(secondBid,fakeGood,100,fakeSeller);
+    }
+
+    @Test
+    public void crossedQuotesAreRecycled() throws Exception {
+
+        MacroII model = new MacroII(1);
+        OrderBookMarket market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        market.setOrderHandler(new ImmediateOrderHandler(), model);
+        EconomicAgent seller = mock(EconomicAgent.class);
+        EconomicAgent buyer = mock(EconomicAgent.class);
+        when(buyer.hasHowMany(any(UndifferentiatedGoodType.class))).thenReturn(1000);
+        when(seller.has(any(Good.class))).thenReturn(true);
+        market.registerSeller(seller);
+        market.registerBuyer(buyer);
+        final Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+
+        //the ask waits in the book, the bid crosses it right away and the buyer gets back the empty quote
+        Quote ask = market.submitSellQuote(seller, 10, good);
+        Quote crossed = market.submitBuyQuote(buyer, 20);
+        Assert.assertNull(crossed.getAgent());
+        Assert.assertEquals(-1, crossed.getPriceQuoted());
+        Assert.assertEquals(1, market.getTodayVolume());
+        //the ask was in the seller hands, it's not touched
+        Assert.assertSame(seller, ask.getAgent());
+        Assert.assertEquals(0, ask.getGeneration());
+
+        //the bid that crossed was recycled into the next one
+        Quote resting = market.submitBuyQuote(buyer, 5);
+        Assert.assertEquals(1, resting.getGeneration());
+        Assert.assertSame(buyer, resting.getAgent());
+        Assert.assertEquals(5, resting.getPriceQuoted());
+        Assert.assertNull(resting.getOriginator());
+
+        //crossing again gives back the very same empty quotes
+        Quote emptyAsk = market.submitSellQuote(seller, 1, good);
+        Assert.assertNull(emptyAsk.getAgent());
+        market.submitSellQuote(seller, 1, good);
+        Assert.assertSame(crossed, market.submitBuyQuote(buyer, 20));
+        market.submitBuyQuote(buyer, 5);
+        Assert.assertSame(emptyAsk, market.submitSellQuote(seller, 1, good));
+    }
+
+    @Test
+    public void crossedQuotesAreKeptWhenTradesAreListenedTo() throws Exception {
+
+        MacroII model = new MacroII(1);
+        OrderBookMarket market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        market.setOrderHandler(new ImmediateOrderHandler(), model);
+        EconomicAgent seller = mock(EconomicAgent.class);
+        EconomicAgent buyer = mock(EconomicAgent.class);
+        when(buyer.hasHowMany(any(UndifferentiatedGoodType.class))).thenReturn(1000);
+        when(seller.has(any(Good.class))).thenReturn(true);
+        market.registerSeller(seller);
+        market.registerBuyer(buyer);
+        //this listener could be holding on to the quotes it sees
+        market.addTradeListener(mock(TradeListener.class));
+        final Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+
+        market.submitSellQuote(seller, 10, good);
+        market.submitBuyQuote(buyer, 20);
+        Assert.assertEquals(1, market.getTodayVolume());
+
+        //the crossed bid wasn't given back: the next one is brand new
+        Quote resting = market.submitBuyQuote(buyer, 5);
+        Assert.assertEquals(0, resting.getGeneration());
+        Assert.assertSame(buyer, resting.getAgent());
+    }
+
 
     @Test
     public void marketClearsCorrectly() throws IllegalAccessException {
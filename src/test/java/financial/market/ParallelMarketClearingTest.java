@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import agents.EconomicAgent;
+import agents.firm.Firm;
+import agents.people.Person;
+import financial.utilities.Quote;
+import goods.Good;
+import goods.GoodType;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import model.scenario.Scenario;
+import model.utilities.dummies.Customer;
+import model.utilities.dummies.DailyGoodTree;
+import model.utilities.scheduler.ParallelSection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParallelMarketClearingTest {
+
+    private static final GoodType OTHER = new UndifferentiatedGoodType("testOther","Another test good");
+
+    @Test
+    public void independentMarketsTradeAsIfAlone() throws Exception {
+
+        List<List<String>> sequential = tradesOver10Days(false);
+        List<List<String>> parallel = tradesOver10Days(true);
+        Assert.assertEquals(100, parallel.get(0).size());
+        Assert.assertEquals(100, parallel.get(1).size());
+        Assert.assertEquals(sequential, parallel);
+        //and again, same thing
+        Assert.assertEquals(parallel, tradesOver10Days(true));
+
+    }
+
+    @Test
+    public void marketsSharingAnAgentAreGroupedTogether() throws Exception {
+
+        MacroII model = new MacroII(1);
+        model.setParallelClearing(true);
+        final List<EndOfPhaseOrderHandler> handlers = new ArrayList<>();
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                List<OrderBookMarket> markets = new ArrayList<>();
+                for(GoodType type : Arrays.asList(UndifferentiatedGoodType.GENERIC, OTHER, UndifferentiatedGoodType.LABOR))
+                {
+                    OrderBookMarket market = new OrderBookMarket(type);
+                    EndOfPhaseOrderHandler handler = new EndOfPhaseOrderHandler();
+                    market.setOrderHandler(handler, model);
+                    handlers.add(handler);
+                    markets.add(market);
+                    getMarkets().put(type, market);
+                }
+                //one customer in the first and third market, another in the second
+                Customer shared = new Customer(model, 100, markets.get(0));
+                markets.get(2).registerBuyer(shared);
+                getAgents().add(shared);
+                getAgents().add(new Customer(model, 100, markets.get(1)));
+            }
+        });
+        model.start();
+
+        List<List<EndOfPhaseOrderHandler>> groups = ParallelMarketClearing.groupsSharingNoAgent(handlers, model.getMarkets());
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals(Arrays.asList(handlers.get(0), handlers.get(2)), groups.get(0));
+        Assert.assertEquals(Arrays.asList(handlers.get(1)), groups.get(1));
+
+    }
+
+    @Test
+    public void marketsLinkedThroughAnImmediateMarketAreGroupedTogether() throws Exception {
+
+        MacroII model = new MacroII(1);
+        model.setParallelClearing(true);
+        final List<EndOfPhaseOrderHandler> handlers = new ArrayList<>();
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                List<OrderBookMarket> markets = new ArrayList<>();
+                for(GoodType type : Arrays.asList(UndifferentiatedGoodType.GENERIC, OTHER))
+                {
+                    OrderBookMarket market = new OrderBookMarket(type);
+                    EndOfPhaseOrderHandler handler = new EndOfPhaseOrderHandler();
+                    market.setOrderHandler(handler, model);
+                    handlers.add(handler);
+                    markets.add(market);
+                    getMarkets().put(type, market);
+                }
+                //this one trades as soon as somebody quotes
+                OrderBookMarket immediate = new OrderBookMarket(UndifferentiatedGoodType.LABOR);
+                immediate.setOrderHandler(new ImmediateOrderHandler(), model);
+                getMarkets().put(UndifferentiatedGoodType.LABOR, immediate);
+
+                //the two customers share no end-of-phase market, but they meet in the immediate one
+                Customer first = new Customer(model, 100, markets.get(0));
+                immediate.registerBuyer(first);
+                getAgents().add(first);
+                Customer second = new Customer(model, 100, markets.get(1));
+                immediate.registerSeller(second);
+                getAgents().add(second);
+            }
+        });
+        model.start();
+
+        List<List<EndOfPhaseOrderHandler>> groups = ParallelMarketClearing.groupsSharingNoAgent(handlers, model.getMarkets());
+        Assert.assertEquals(1, groups.size());
+        Assert.assertEquals(handlers, groups.get(0));
+
+    }
+
+    @Test
+    public void agentsDrawFromTheirGroupRandomizerWhileClearing() throws Exception {
+
+        List<List<Integer>> draws = drawsOver10Days();
+        Assert.assertEquals(100, draws.get(0).size());
+        Assert.assertEquals(100, draws.get(1).size());
+        //same seed, same draws
+        Assert.assertEquals(draws, drawsOver10Days());
+
+    }
+
+    /**
+     * like {@link #tradesOver10Days(boolean)} in parallel, but each time a customer buys it draws a number through a person and
+     * a firm of its market (never through the model randomizer, which would be shared by the groups). The draws of each market
+     */
+    private List<List<Integer>> drawsOver10Days()
+    {
+        final List<List<Integer>> draws = new ArrayList<>();
+        final MacroII model = new MacroII(10);
+        model.setParallelClearing(true);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                for(GoodType type : Arrays.asList(UndifferentiatedGoodType.GENERIC, OTHER))
+                {
+                    OrderBookMarket market = new OrderBookMarket(type);
+                    market.setOrderHandler(new EndOfPhaseOrderHandler(), model);
+                    getMarkets().put(type, market);
+                    final List<Integer> drawsHere = new ArrayList<>();
+                    draws.add(drawsHere);
+                    final Person person = new Person(model);
+                    final Firm firm = new Firm(model);
+
+                    for (int i = 0; i < 20; i++) {
+                        Customer customer = new Customer(model, 100 + i, market){
+                            @Override
+                            public void reactToFilledBidQuote(Quote quoteFilled, Good g, int price, EconomicAgent seller) {
+                                super.reactToFilledBidQuote(quoteFilled, g, price, seller);
+                                Assert.assertTrue(ParallelSection.isWorker());
+                                Assert.assertNotSame(model.random, person.getRandom());
+                                Assert.assertNotSame(model.random, firm.getRandom());
+                                drawsHere.add(person.getRandom().nextInt(1000) + firm.getRandom().nextInt(1000));
+                            }
+                        };
+                        getAgents().add(customer);
+                    }
+                    getAgents().add(new DailyGoodTree(model, 10, 100, market));
+                }
+            }
+        });
+        model.start();
+        for(int i=0; i< 10; i++)
+            model.schedule.step(model);
+
+        return draws;
+    }
+
+    /**
+     * two markets with 20 customers and a tree each, no agent in common. For each market the customer index and price of each trade
+     */
+    private List<List<String>> tradesOver10Days(final boolean parallel)
+    {
+        final List<List<String>> trades = new ArrayList<>();
+        MacroII model = new MacroII(10);
+        model.setParallelClearing(parallel);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                for(GoodType type : Arrays.asList(UndifferentiatedGoodType.GENERIC, OTHER))
+                {
+                    OrderBookMarket market = new OrderBookMarket(type);
+                    market.setOrderHandler(new EndOfPhaseOrderHandler(), model);
+                    getMarkets().put(type, market);
+                    final List<Customer> customers = new ArrayList<>();
+                    final List<String> tradesHere = new ArrayList<>();
+                    trades.add(tradesHere);
+                    market.addTradeListener((buyer, seller, goodExchanged, price, sellerQuote, buyerQuote) ->
+                            tradesHere.add(customers.indexOf(buyer) + " at " + price));
+
+                    for (int i = 0; i < 20; i++) {
+                        Customer customer = new Customer(model, 100 + i, market);
+                        customers.add(customer);
+                        getAgents().add(customer);
+                    }
+                    getAgents().add(new DailyGoodTree(model, 10, 100, market));
+                }
+            }
+        });
+        model.start();
+        for(int i=0; i< 10; i++)
+            model.schedule.step(model);
+
+        return trades;
+    }
+}
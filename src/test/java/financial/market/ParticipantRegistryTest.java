@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.market;
+
+import agents.EconomicAgent;
+import ec.util.MersenneTwisterFast;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParticipantRegistryTest {
+
+    @Test
+    public void samplesAreDistinctAndNeverTheExcluded() throws Exception {
+
+        ParticipantRegistry registry = new ParticipantRegistry();
+        List<EconomicAgent> agents = new ArrayList<>();
+        for(int i=0; i<50; i++)
+        {
+            EconomicAgent agent = mock(EconomicAgent.class);
+            agents.add(agent);
+            registry.add(agent);
+        }
+        //take some away, from the middle and the end
+        for(int i=0; i<50; i+=7)
+            registry.remove(agents.get(i));
+        Set<EconomicAgent> left = new HashSet<>();
+        for(int i=0; i<50; i++)
+            if(i % 7 != 0)
+                left.add(agents.get(i));
+        Assert.assertEquals(left.size(), registry.size());
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        EconomicAgent searcher = agents.get(1);
+        for(int i=0; i<1000; i++)
+        {
+            EconomicAgent[] sample = registry.sample(5, searcher, random);
+            Assert.assertEquals(5, sample.length);
+            Set<EconomicAgent> distinct = new HashSet<>(Arrays.asList(sample));
+            Assert.assertEquals(5, distinct.size());
+            Assert.assertFalse(distinct.contains(searcher));
+            Assert.assertTrue(left.containsAll(distinct));
+        }
+
+        //asking for more than there are returns all of them but the searcher
+        Set<EconomicAgent> all = new HashSet<>(Arrays.asList(registry.sample(1000, searcher, random)));
+        Assert.assertEquals(left.size() - 1, all.size());
+        Assert.assertFalse(all.contains(searcher));
+        //somebody not registered excludes nobody
+        Assert.assertEquals(left, new HashSet<>(Arrays.asList(registry.sample(1000, mock(EconomicAgent.class), random))));
+        Assert.assertEquals(0, new ParticipantRegistry().sample(5, null, random).length);
+    }
+
+    @Test
+    public void everybodyIsEquallyLikely() throws Exception {
+
+        ParticipantRegistry registry = new ParticipantRegistry();
+        Map<EconomicAgent,Integer> drawn = new HashMap<>();
+        EconomicAgent searcher = mock(EconomicAgent.class);
+        for(int i=0; i<10; i++)
+        {
+            EconomicAgent agent = mock(EconomicAgent.class);
+            registry.add(agent);
+            drawn.put(agent, 0);
+            if(i == 4)
+                registry.add(searcher);
+        }
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        for(int i=0; i<30000; i++)
+            for(EconomicAgent agent : registry.sample(3, searcher, random))
+                drawn.put(agent, drawn.get(agent) + 1);
+
+        //each of the 10 is in 3 samples out of 10
+        for(int times : drawn.values())
+            Assert.assertEquals(9000, times, 300);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import goods.UndifferentiatedGoodType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class QuoteBookTest {
+
+
+    private static Quote bid(EconomicAgent agent, int price)
+    {
+        return Quote.newBuyerQuote(agent,price, UndifferentiatedGoodType.GENERIC);
+    }
+
+    @Test
+    public void bestPriceFirstThenOldestFirst() throws Exception {
+
+        EconomicAgent agent = mock(EconomicAgent.class);
+        QuoteBook bids = QuoteBook.highestPriceFirst();
+        Quote first50 = bid(agent,50);
+        Quote second50 = bid(agent,50);
+        Quote q100 = bid(agent,100);
+        Quote q10 = bid(agent,10);
+        bids.add(first50);
+        bids.add(q10);
+        bids.add(second50);
+        bids.add(q100);
+
+        Assert.assertEquals(4,bids.size());
+        Assert.assertEquals(3,bids.getNumberOfPriceLevels());
+        Assert.assertEquals(new ArrayList<>(bids), Arrays.asList(q100,first50,second50,q10));
+        Assert.assertSame(q100,bids.poll());
+        Assert.assertSame(first50,bids.poll());
+        Assert.assertSame(second50,bids.poll());
+        Assert.assertSame(q10,bids.poll());
+        Assert.assertNull(bids.poll());
+
+        //asks the other way around
+        QuoteBook asks = QuoteBook.lowestPriceFirst();
+        asks.add(bid(agent,50));
+        asks.add(bid(agent,10));
+        asks.add(bid(agent,100));
+        Assert.assertEquals(10,asks.peek().getPriceQuoted());
+    }
+
+    @Test
+    public void removeAnywhere() throws Exception {
+        EconomicAgent agent = mock(EconomicAgent.class);
+        QuoteBook bids = QuoteBook.highestPriceFirst();
+        Quote best = bid(agent,100);
+        Quote middle = bid(agent,50);
+        Quote worst = bid(agent,10);
+        bids.addAll(Arrays.asList(best,middle,worst));
+
+        Assert.assertTrue(bids.remove(middle));
+        Assert.assertFalse(bids.contains(middle));
+        Assert.assertFalse(bids.remove(middle));
+        Assert.assertEquals(2,bids.getNumberOfPriceLevels());
+
+        //removing the best moves the head
+        Assert.assertTrue(bids.remove(best));
+        Assert.assertSame(worst,bids.peek());
+
+        //and removing through the iterator works too
+        Iterator<Quote> iterator = bids.iterator();
+        iterator.next();
+        iterator.remove();
+        Assert.assertTrue(bids.isEmpty());
+        Assert.assertNull(bids.peek());
+    }
+
+    @Test
+    public void quotesByAgent() throws Exception {
+        EconomicAgent first = mock(EconomicAgent.class);
+        EconomicAgent second = mock(EconomicAgent.class);
+        QuoteBook bids = QuoteBook.highestPriceFirst();
+        Quote a = bid(first,10);
+        Quote b = bid(second,20);
+        Quote c = bid(first,30);
+        bids.addAll(Arrays.asList(a,b,c));
+
+        Assert.assertEquals(Arrays.asList(a,c),bids.getQuotesBy(first));
+        Assert.assertEquals(Arrays.asList(b),bids.getQuotesBy(second));
+
+        List<Quote> quotes = bids.getQuotesBy(first);
+        bids.removeAll(quotes);
+        Assert.assertFalse(bids.hasQuotesBy(first));
+        Assert.assertTrue(bids.getQuotesBy(first).isEmpty());
+        Assert.assertTrue(bids.hasQuotesBy(second));
+        Assert.assertEquals(1,bids.size());
+        Assert.assertSame(b,bids.peek());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noDuplicates() throws Exception {
+        QuoteBook bids = QuoteBook.highestPriceFirst();
+        Quote q = bid(mock(EconomicAgent.class),10);
+        bids.add(q);
+        bids.add(q);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import agents.firm.Department;
+import goods.Good;
+import goods.UndifferentiatedGoodType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class QuotePoolTest {
+
+    @Test
+    public void releasedQuotesComeBackAsNew() throws Exception {
+
+        QuotePool pool = new QuotePool();
+        EconomicAgent seller = mock(EconomicAgent.class);
+        EconomicAgent buyer = mock(EconomicAgent.class);
+        Good good = Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC);
+
+        Quote ask = pool.newSellerQuote(seller, 10, good, 3);
+        ask.setOriginator(mock(Department.class));
+        ask.reduceQuantity(2);
+        Assert.assertEquals(0, ask.getGeneration());
+        Assert.assertEquals(0, pool.size());
+
+        pool.release(ask);
+        Assert.assertEquals(1, pool.size());
+        Assert.assertEquals(1, ask.getGeneration());
+        Assert.assertNull(ask.getAgent());
+
+        //the same object, as if it was made now
+        Quote bid = pool.newBuyerQuote(buyer, 5, UndifferentiatedGoodType.GENERIC, 1);
+        Assert.assertSame(ask, bid);
+        Assert.assertEquals(0, pool.size());
+        Assert.assertSame(buyer, bid.getAgent());
+        Assert.assertEquals(5, bid.getPriceQuoted());
+        Assert.assertEquals(UndifferentiatedGoodType.GENERIC, bid.getType());
+        Assert.assertNull(bid.getGood());
+        Assert.assertNull(bid.getOriginator());
+        Assert.assertEquals(1, bid.getQuantity());
+
+        //empty and fresh
+        Assert.assertNotSame(bid, pool.newBuyerQuote(buyer, 5, UndifferentiatedGoodType.GENERIC, 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void emptyQuotesCantChange() throws Exception {
+        Quote.emptyBidQuote(UndifferentiatedGoodType.GENERIC).setOriginator(mock(Department.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyQuotesArentPooled() throws Exception {
+        new QuotePool().release(Quote.emptyBidQuote(UndifferentiatedGoodType.GENERIC));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TopOfBookTest {
+
+
+    @Test
+    public void lowestFirstTiesToTheOldest() throws Exception {
+
+        TopOfBook<String> asks = TopOfBook.lowestPriceFirst();
+        Assert.assertTrue(asks.isEmpty());
+        Assert.assertEquals(-1,asks.getBestPrice());
+        Assert.assertNull(asks.getBest());
+
+        asks.put("a",10);
+        asks.put("b",5);
+        asks.put("c",5);
+        Assert.assertEquals("b",asks.getBest());
+        Assert.assertEquals(5,asks.getBestPrice());
+
+        //repricing keeps the place among ties, removing doesn't
+        asks.put("b",7);
+        Assert.assertEquals("c",asks.getBest());
+        asks.put("b",5);
+        Assert.assertEquals("b",asks.getBest());
+        asks.remove("b");
+        asks.put("b",5);
+        Assert.assertEquals("c",asks.getBest());
+
+        asks.remove("c");
+        asks.remove("b");
+        Assert.assertEquals("a",asks.getBest());
+        Assert.assertEquals(10,asks.getBestPrice());
+        Assert.assertEquals(1,asks.size());
+        asks.remove("a");
+        Assert.assertTrue(asks.isEmpty());
+
+    }
+
+    @Test
+    public void highestFirstWithTieBreaker() throws Exception {
+
+        TopOfBook<String> bids = TopOfBook.highestPriceFirst(Comparator.<String>reverseOrder());
+        bids.put("a",10);
+        bids.put("z",10);
+        bids.put("m",3);
+        Assert.assertEquals("z",bids.getBest());
+        Assert.assertEquals(10,bids.getBestPrice());
+
+        bids.put("m",100);
+        Assert.assertEquals("m",bids.getBest());
+        bids.remove("m");
+        bids.remove("z");
+        Assert.assertEquals("a",bids.getBest());
+
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package financial.utilities;
+
+import agents.EconomicAgent;
+import financial.TradeListener;
+import financial.market.EndOfPhaseOrderHandler;
+import financial.market.OrderBookMarket;
+import goods.UndifferentiatedGoodType;
+import model.MacroII;
+import model.scenario.Scenario;
+import model.utilities.ActionOrder;
+import model.utilities.dummies.Customer;
+import model.utilities.dummies.DailyGoodTree;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TradeJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatHappened() throws Exception {
+
+        Path base = folder.getRoot().toPath().resolve("trades");
+
+        final List<String> expected = new ArrayList<>();
+        final List<EconomicAgent> trees = new ArrayList<>();
+        final MacroII model = new MacroII(1);
+        final OrderBookMarket market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                market.setOrderHandler(new EndOfPhaseOrderHandler(), model);
+                getMarkets().put(UndifferentiatedGoodType.GENERIC, market);
+                for (int i = 0; i < 20; i++)
+                    getAgents().add(new Customer(model, 100 + i, market));
+                DailyGoodTree tree = new DailyGoodTree(model, 10, 100, market);
+                trees.add(tree);
+                getAgents().add(tree);
+            }
+        });
+        //7 records per segment, so that 100 trades need a few of them
+        TradeJournal journal = new TradeJournal(base, model, 7);
+        TradeListener journalListener = journal.listenTo(market);
+        market.addTradeListener((buyer, seller, goodExchanged, price, sellerQuote, buyerQuote) ->
+                expected.add((int) model.getMainScheduleTime() + " " + model.getCurrentPhase() + " " + price));
+        model.start();
+        for(int i=0; i< 10; i++)
+            model.schedule.step(model);
+        journal.flush();
+
+        Assert.assertEquals(100, expected.size());
+        Assert.assertEquals(100, journal.getRecordsWritten());
+        Assert.assertTrue(Files.exists(TradeJournal.segmentPath(base, 14)));
+
+        TradeJournalReader reader = new TradeJournalReader(base);
+        Assert.assertEquals(100, reader.size());
+        final List<String> read = new ArrayList<>();
+        reader.forEach(record -> {
+            read.add(record.getDay() + " " + record.getPhase() + " " + record.getPrice());
+            Assert.assertEquals(0, record.getMarket());
+            Assert.assertEquals(1, record.getQuantity());
+            Assert.assertEquals(trees.get(0).toString(), reader.getAgentName(record.getSeller()));
+            Assert.assertNotEquals(record.getBuyer(), record.getSeller());
+        });
+        Assert.assertEquals(expected, read);
+        Assert.assertEquals(UndifferentiatedGoodType.GENERIC.getCode(), reader.getMarketName(0));
+
+        //random access agrees with the scan
+        TradeRecord record = reader.read(50, new TradeRecord());
+        Assert.assertEquals(expected.get(50), record.getDay() + " " + record.getPhase() + " " + record.getPrice());
+        Assert.assertEquals(ActionOrder.TRADE, record.getPhase());
+
+        //once the model is done the journal is closed and stops listening
+        model.finish();
+        Assert.assertFalse(market.getTradeListeners().contains(journalListener));
+        Assert.assertEquals(1, market.getTradeListeners().size());
+    }
+
+    @Test
+    public void aPartialJournalCanBeRead() throws Exception {
+        Path base = folder.getRoot().toPath().resolve("empty");
+        MacroII model = new MacroII(1);
+        TradeJournal journal = new TradeJournal(base, model, 5);
+        journal.flush();
+
+        TradeJournalReader reader = new TradeJournalReader(base);
+        Assert.assertEquals(0, reader.size());
+        reader.forEach(record -> Assert.fail("there are no trades"));
+        journal.close();
+    }
+
+    //forks of the model don't write over the original's journal
+    @Test
+    public void forksLeaveTheJournalAlone() throws Exception {
+        Path base = folder.getRoot().toPath().resolve("forked");
+        final MacroII model = new MacroII(1);
+        final OrderBookMarket market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                market.setOrderHandler(new EndOfPhaseOrderHandler(), model);
+                getMarkets().put(UndifferentiatedGoodType.GENERIC, market);
+                for (int i = 0; i < 20; i++)
+                    getAgents().add(new Customer(model, 100 + i, market));
+                getAgents().add(new DailyGoodTree(model, 10, 100, market));
+            }
+        });
+        TradeJournal journal = new TradeJournal(base, model, 7);
+        journal.listenTo(market);
+        model.start();
+        for(int i=0; i< 5; i++)
+            model.schedule.step(model);
+        Assert.assertEquals(50, journal.getRecordsWritten());
+
+        MacroII fork = model.snapshot().fork();
+        for(int i=0; i< 5; i++)
+            fork.schedule.step(fork);
+        Assert.assertEquals(50, journal.getRecordsWritten());
+        Assert.assertEquals(50, new TradeJournalReader(base).size());
+
+        //the original goes on writing where it was
+        for(int i=0; i< 5; i++)
+            model.schedule.step(model);
+        journal.flush();
+        Assert.assertEquals(100, new TradeJournalReader(base).size());
+        model.finish();
+        fork.finish();
+    }
+
+    //the names are on disk as soon as they are met, even if the journal is never flushed or closed
+    @Test
+    public void namesAreWrittenStraightAway() throws Exception {
+        Path base = folder.getRoot().toPath().resolve("names");
+        MacroII model = new MacroII(1);
+        OrderBookMarket market = new OrderBookMarket(UndifferentiatedGoodType.GENERIC);
+        TradeJournal journal = new TradeJournal(base, model, 5);
+        journal.listenTo(market);
+
+        Assert.assertEquals(UndifferentiatedGoodType.GENERIC.getCode(), new TradeJournalReader(base).getMarketName(0));
+        journal.close();
+    }
+}
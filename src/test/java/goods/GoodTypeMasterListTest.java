@@ -195,4 +195,21 @@ public class GoodTypeMasterListTest {
     }
 
 
+    @Test
+    public void equalTypesShareTheirIndex()
+    {
+        GoodType agriculture = new UndifferentiatedGoodType("1","agriculture");
+        GoodType agricultureAgain = new UndifferentiatedGoodType("1","agriculture, again");
+        GoodType forestry = new UndifferentiatedGoodType("2","forestry");
+        //same code but not equal, since one is differentiated
+        GoodType differentiatedAgriculture = new DifferentiatedGoodType("1","agriculture");
+
+        Assert.assertEquals(agriculture, agricultureAgain);
+        Assert.assertEquals(agriculture.getIndex(), agricultureAgain.getIndex());
+        Assert.assertNotEquals(agriculture.getIndex(), forestry.getIndex());
+        Assert.assertNotEquals(agriculture, differentiatedAgriculture);
+        Assert.assertNotEquals(agriculture.getIndex(), differentiatedAgriculture.getIndex());
+    }
+
+
 }
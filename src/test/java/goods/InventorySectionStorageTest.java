@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package goods;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class InventorySectionStorageTest {
+
+    private final DifferentiatedGoodType type = new DifferentiatedGoodType("testStorage","stored");
+
+    @Test
+    public void firstInFirstOut() throws Exception {
+        InventorySectionStorage storage = new InventorySectionStorage(type);
+        Good first = Good.getInstanceOfDifferentiatedGood(type, null, 10);
+        Good second = Good.getInstanceOfDifferentiatedGood(type, null, 5);
+        Good third = Good.getInstanceOfDifferentiatedGood(type, null, 7);
+        Assert.assertNull(storage.peek());
+        storage.store(first);
+        storage.store(second);
+        storage.store(third);
+        Assert.assertEquals(3, storage.size());
+        Assert.assertSame(first, storage.peek());
+
+        //take one out of the middle
+        storage.remove(second);
+        Assert.assertFalse(storage.containSpecificGood(second));
+        Assert.assertTrue(storage.containSpecificGood(third));
+        Assert.assertSame(first, storage.peek());
+        storage.remove(first);
+        Assert.assertSame(third, storage.peek());
+
+        //coming back puts it at the end
+        storage.store(first);
+        Assert.assertSame(third, storage.peek());
+        Assert.assertEquals(2, storage.removeAll());
+        Assert.assertEquals(0, storage.size());
+        Assert.assertNull(storage.peek());
+    }
+
+    @Test
+    public void cheapestIsKeptUpToDate() throws Exception {
+        InventorySectionStorage storage = new InventorySectionStorage(type);
+        Good expensive = Good.getInstanceOfDifferentiatedGood(type, null, 10);
+        Good cheap = Good.getInstanceOfDifferentiatedGood(type, null, 5);
+        Good alsoCheap = Good.getInstanceOfDifferentiatedGood(type, null, 5);
+        Assert.assertNull(storage.peekCheapest());
+        storage.store(expensive);
+        storage.store(alsoCheap);
+        //same cost, the older id wins
+        storage.store(cheap);
+        Assert.assertSame(cheap.getId() < alsoCheap.getId() ? cheap : alsoCheap, storage.peekCheapest());
+
+        //once asked, the view follows the changes
+        storage.remove(cheap);
+        Assert.assertSame(alsoCheap, storage.peekCheapest());
+        storage.remove(alsoCheap);
+        Assert.assertSame(expensive, storage.peekCheapest());
+        storage.store(cheap);
+        Assert.assertSame(cheap, storage.peekCheapest());
+        storage.removeAll();
+        Assert.assertNull(storage.peekCheapest());
+    }
+}
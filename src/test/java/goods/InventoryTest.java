@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package goods;
+
+import agents.HasInventory;
+import agents.people.Person;
+import model.MacroII;
+import model.scenario.Scenario;
+import model.utilities.ActionOrder;
+import model.utilities.scheduler.Priority;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import sim.engine.Steppable;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class InventoryTest {
+
+    @Test
+    public void coalescedListenersOnlyHearTheNetChange() throws Exception
+    {
+        MacroII model = mock(MacroII.class);
+        Person person = new Person(model);
+        InventoryListener everyUnit = mock(InventoryListener.class);
+        InventoryListener coalesced = mock(InventoryListener.class);
+        person.addInventoryListener(everyUnit);
+        person.addCoalescedInventoryListener(coalesced);
+
+        for(int i=0; i<3; i++)
+            person.receive(Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC),null);
+        person.consume(UndifferentiatedGoodType.GENERIC);
+        person.receiveMany(UndifferentiatedGoodType.LABOR,5);
+        person.consume(UndifferentiatedGoodType.LABOR);
+        person.receive(Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.LABOR),null);
+
+        //the usual listener heard each of them
+        verify(everyUnit,times(3)).inventoryIncreaseEvent(eq(person),eq(UndifferentiatedGoodType.GENERIC),anyInt(),eq(1));
+        verify(everyUnit,times(1)).inventoryDecreaseEvent(person,UndifferentiatedGoodType.GENERIC,2,1);
+        //the coalesced one nothing yet, but the flush is scheduled once
+        verifyZeroInteractions(coalesced);
+        verify(model,times(1)).scheduleSoon(any(),any(),eq(Priority.FINAL));
+
+        person.flushCoalescedInventoryEvents();
+        verify(coalesced,times(1)).inventoryIncreaseEvent(person,UndifferentiatedGoodType.GENERIC,2,2);
+        verify(coalesced,times(1)).inventoryIncreaseEvent(person,UndifferentiatedGoodType.LABOR,5,5);
+        verifyNoMoreInteractions(coalesced);
+
+        //back to where it was: nothing to tell
+        person.consume(UndifferentiatedGoodType.LABOR);
+        person.receiveMany(UndifferentiatedGoodType.LABOR,1);
+        person.flushCoalescedInventoryEvents();
+        verifyNoMoreInteractions(coalesced);
+        verify(model,times(2)).scheduleSoon(any(),any(),eq(Priority.FINAL));
+
+        //failures are not held back
+        person.fireFailedToConsumeEvent(UndifferentiatedGoodType.GENERIC,10);
+        verify(coalesced).failedToConsumeEvent(person,UndifferentiatedGoodType.GENERIC,10);
+    }
+
+    @Test
+    public void coalescedListenersHearAtTheEndOfThePhase() throws Exception
+    {
+        final MacroII model = new MacroII(1);
+        final Person person = new Person(model);
+        final InventoryListener coalesced = mock(InventoryListener.class);
+        model.setScenario(new Scenario(model) {
+            @Override
+            public void start() {
+                getAgents().add(person);
+                person.addCoalescedInventoryListener(coalesced);
+                //ten units come in one by one during trade, three go out
+                model.scheduleSoon(ActionOrder.TRADE, state -> {
+                    for (int i = 0; i < 10; i++)
+                        person.receive(Good.getInstanceOfUndifferentiatedGood(UndifferentiatedGoodType.GENERIC), null);
+                    for (int i = 0; i < 3; i++)
+                        person.consume(UndifferentiatedGoodType.GENERIC);
+                    //nothing heard yet
+                    verifyZeroInteractions(coalesced);
+                });
+                //by the next phase it has all been told
+                model.scheduleSoon(ActionOrder.AFTER_TRADE, state ->
+                        verify(coalesced,times(1)).inventoryIncreaseEvent(person,UndifferentiatedGoodType.GENERIC,7,7));
+            }
+        });
+        model.start();
+        model.schedule.step(model);
+
+        verify(coalesced,times(1)).inventoryIncreaseEvent(person,UndifferentiatedGoodType.GENERIC,7,7);
+        verifyNoMoreInteractions(coalesced);
+    }
+
+    //the flush scheduled is the same object every time, and what listeners change while told waits for the next one
+    @Test
+    public void changesWhileFlushingGoInTheNextFlush() throws Exception
+    {
+        MacroII model = mock(MacroII.class);
+        final Person person = new Person(model);
+        InventoryListener coalesced = mock(InventoryListener.class);
+        person.addCoalescedInventoryListener(coalesced);
+        //told about the goods, it eats one
+        person.addCoalescedInventoryListener(new InventoryListener() {
+            @Override
+            public void inventoryIncreaseEvent(HasInventory source, GoodType type, int quantity, int delta) {
+                if(type == UndifferentiatedGoodType.GENERIC)
+                    person.consume(type);
+            }
+
+            @Override
+            public void inventoryDecreaseEvent(HasInventory source, GoodType type, int quantity, int delta) {
+            }
+
+            @Override
+            public void failedToConsumeEvent(HasInventory source, GoodType type, int numberNeeded) {
+            }
+        });
+
+        person.receiveMany(UndifferentiatedGoodType.GENERIC,3);
+        person.flushCoalescedInventoryEvents();
+        verify(coalesced).inventoryIncreaseEvent(eq(person),eq(UndifferentiatedGoodType.GENERIC),anyInt(),eq(3));
+        verify(coalesced,never()).inventoryDecreaseEvent(any(),any(),anyInt(),anyInt());
+
+        person.flushCoalescedInventoryEvents();
+        verify(coalesced).inventoryDecreaseEvent(person,UndifferentiatedGoodType.GENERIC,2,1);
+
+        ArgumentCaptor<Steppable> flushes = ArgumentCaptor.forClass(Steppable.class);
+        verify(model,times(2)).scheduleSoon(any(),flushes.capture(),eq(Priority.FINAL));
+        Assert.assertSame(flushes.getAllValues().get(0),flushes.getAllValues().get(1));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model;
+
+import financial.market.Market;
+import goods.UndifferentiatedGoodType;
+import model.scenario.MonopolistScenario;
+import model.utilities.stats.collectors.enums.MarketDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h4>Description</h4>
+ * <p/> Runs the same seeds one after the other and then all together on a thread pool: since models share nothing
+ * the results have to be exactly the same.
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class MacroIIConcurrencyTest {
+
+
+    private static final int RUNS = 8;
+
+    private static final int DAYS = 500;
+
+    /**
+     * the prices and quantities traded in both markets of a monopolist run
+     */
+    private static double[][] monopolistRun(long seed)
+    {
+        MacroII macroII = new MacroII(seed);
+        MonopolistScenario scenario = new MonopolistScenario(macroII);
+        macroII.setScenario(scenario);
+        macroII.start();
+        for(int i=0; i< DAYS; i++)
+            macroII.schedule.step(macroII);
+
+        Market goods = macroII.getMarket(UndifferentiatedGoodType.GENERIC);
+        Market labor = macroII.getMarket(UndifferentiatedGoodType.LABOR);
+        double[][] toReturn = new double[][]{
+                goods.getAllRecordedObservations(MarketDataType.CLOSING_PRICE),
+                goods.getAllRecordedObservations(MarketDataType.VOLUME_TRADED),
+                labor.getAllRecordedObservations(MarketDataType.CLOSING_PRICE),
+                labor.getAllRecordedObservations(MarketDataType.VOLUME_TRADED)
+        };
+        macroII.finish();
+        return toReturn;
+    }
+
+    @Test
+    public void concurrentRunsAreTheSameAsSerialOnes() throws Exception {
+
+        List<double[][]> serial = new ArrayList<>(RUNS);
+        for(int seed=0; seed<RUNS; seed++)
+            serial.add(monopolistRun(seed));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<double[][]>> receipts = new ArrayList<>(RUNS);
+        for(int seed=0; seed<RUNS; seed++)
+        {
+            final long runSeed = seed;
+            receipts.add(executor.submit(new Callable<double[][]>() {
+                @Override
+                public double[][] call() throws Exception {
+                    return monopolistRun(runSeed);
+                }
+            }));
+        }
+
+        for(int seed=0; seed<RUNS; seed++)
+        {
+            double[][] concurrent = receipts.get(seed).get();
+            double[][] expected = serial.get(seed);
+            Assert.assertEquals(expected.length,concurrent.length);
+            for(int series=0; series<expected.length; series++)
+                Assert.assertArrayEquals("seed " + seed + ", series " + series, expected[series], concurrent[series], 0d);
+        }
+        executor.shutdown();
+
+        //and different seeds do give different runs, otherwise this test proves nothing
+        Assert.assertFalse(Arrays.equals(serial.get(0)[0],serial.get(1)[0]));
+
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model;
+
+import financial.market.EndOfPhaseOrderHandler;
+import financial.market.OrderBookMarket;
+import goods.GoodType;
+import goods.UndifferentiatedGoodType;
+import model.scenario.MonopolistScenario;
+import model.scenario.Scenario;
+import model.scenario.TripolistScenario;
+import model.utilities.dummies.Customer;
+import model.utilities.dummies.DailyGoodTree;
+import model.utilities.stats.collectors.enums.MarketDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class MacroIISnapshotTest {
+
+
+    private static double[] prices(MacroII model){
+        return model.getMarket(UndifferentiatedGoodType.GENERIC).getAllRecordedObservations(MarketDataType.CLOSING_PRICE);
+    }
+
+    private static double[] workers(MacroII model){
+        return model.getMarket(UndifferentiatedGoodType.LABOR).getAllRecordedObservations(MarketDataType.VOLUME_TRADED);
+    }
+
+    //forks continue exactly like the original would have
+    @Test
+    public void forksRunLikeTheOriginal() throws Exception {
+
+        MacroII original = new MacroII(0);
+        original.setScenario(new MonopolistScenario(original));
+        original.start();
+        for(int i=0; i<300; i++)
+            original.schedule.step(original);
+
+        MacroIISnapshot snapshot = original.snapshot();
+        Assert.assertEquals(original.schedule.getTime(),snapshot.getTime(),0d);
+
+        for(int i=0; i<300; i++)
+            original.schedule.step(original);
+
+        MacroII first = snapshot.fork();
+        MacroII second = snapshot.fork();
+        Assert.assertNotSame(first,second);
+        Assert.assertNotSame(first.getMarket(UndifferentiatedGoodType.GENERIC),second.getMarket(UndifferentiatedGoodType.GENERIC));
+        for(int i=0; i<300; i++)
+            first.schedule.step(first);
+        //second is untouched by the first
+        Assert.assertEquals(snapshot.getTime(),second.schedule.getTime(),0d);
+        for(int i=0; i<300; i++)
+            second.schedule.step(second);
+
+        Assert.assertArrayEquals(prices(original),prices(first),0d);
+        Assert.assertArrayEquals(prices(original),prices(second),0d);
+        Assert.assertArrayEquals(workers(original),workers(first),0d);
+        Assert.assertArrayEquals(workers(original),workers(second),0d);
+
+    }
+
+    @Test
+    public void forkCompetitiveMarket() throws Exception {
+
+        MacroII original = new MacroII(1);
+        TripolistScenario scenario = new TripolistScenario(original);
+        scenario.setAdditionalCompetitors(2);
+        original.setScenario(scenario);
+        original.start();
+        for(int i=0; i<200; i++)
+            original.schedule.step(original);
+
+        MacroII fork = original.snapshot().fork();
+        for(int i=0; i<200; i++)
+        {
+            original.schedule.step(original);
+            fork.schedule.step(fork);
+        }
+        Assert.assertArrayEquals(prices(original),prices(fork),0d);
+        Assert.assertArrayEquals(workers(original),workers(fork),0d);
+
+    }
+
+    //reseeded forks share the past but not the future
+    @Test
+    public void reseededForksDiverge() throws Exception {
+
+        MacroII original = new MacroII(0);
+        original.setScenario(new MonopolistScenario(original));
+        original.start();
+        for(int i=0; i<100; i++)
+            original.schedule.step(original);
+        MacroIISnapshot snapshot = original.snapshot();
+
+        MacroII first = snapshot.fork(1);
+        MacroII second = snapshot.fork(2);
+        for(int i=0; i<500; i++)
+        {
+            first.schedule.step(first);
+            second.schedule.step(second);
+        }
+        double[] firstPrices = prices(first);
+        double[] secondPrices = prices(second);
+        for(int i=0; i<100; i++)
+            Assert.assertEquals(firstPrices[i],secondPrices[i],0d);
+        Assert.assertFalse(Arrays.equals(firstPrices,secondPrices));
+
+    }
+
+    //the clearing pool is not part of the model: forks of a model clearing in parallel step like the original
+    @Test(timeout = 60000)
+    public void forkAModelClearingInParallel() throws Exception {
+
+        final GoodType other = new UndifferentiatedGoodType("testOther","Another test good");
+        MacroII original = new MacroII(1);
+        original.setParallelClearing(true);
+        original.setScenario(new Scenario(original) {
+            @Override
+            public void start() {
+                //two markets with nobody in common, so they are cleared at the same time
+                for(GoodType type : Arrays.asList(UndifferentiatedGoodType.GENERIC, other))
+                {
+                    OrderBookMarket market = new OrderBookMarket(type);
+                    market.setOrderHandler(new EndOfPhaseOrderHandler(), getModel());
+                    getMarkets().put(type, market);
+                    for (int i = 0; i < 20; i++)
+                        getAgents().add(new Customer(getModel(), 100 + i, market));
+                    getAgents().add(new DailyGoodTree(getModel(), 10, 100, market));
+                }
+            }
+        });
+        original.start();
+        for(int i=0; i<20; i++)
+            original.schedule.step(original);
+
+        MacroII fork = original.snapshot().fork();
+        Assert.assertNotNull(fork.getParallelClearing());
+        for(int i=0; i<20; i++)
+        {
+            original.schedule.step(original);
+            fork.schedule.step(fork);
+        }
+        Assert.assertArrayEquals(prices(original),prices(fork),0d);
+        Assert.assertArrayEquals(original.getMarket(other).getAllRecordedObservations(MarketDataType.VOLUME_TRADED),
+                fork.getMarket(other).getAllRecordedObservations(MarketDataType.VOLUME_TRADED),0d);
+
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.experiments;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParameterGridTest {
+
+
+    //cells are numbered like nested for loops: the last dimension changes fastest
+    @Test
+    public void nestedLoopOrder() throws Exception {
+
+        ParameterGrid grid = new ParameterGrid().
+                addIntRange("a", 1, 3).
+                addDimension("b", false, true).
+                addFloatRange("c", .1f, .3f, .1f);
+
+        Assert.assertEquals(18,grid.size());
+        List<ParameterGrid.Cell> cells = grid.getCells();
+        int index = 0;
+        for(int a=1; a<=3; a++)
+            for(boolean b : new boolean[]{false,true})
+                for(float c : new float[]{.1f,.2f,.3f})
+                {
+                    ParameterGrid.Cell cell = cells.get(index);
+                    Assert.assertEquals(index,cell.getIndex());
+                    Assert.assertEquals(a,cell.getInt("a"));
+                    Assert.assertEquals(b,cell.getBoolean("b"));
+                    Assert.assertEquals(c,cell.getFloat("c"),0f);
+                    index++;
+                }
+
+        Assert.assertArrayEquals(new String[]{"3","true","0.3"},grid.getCell(17).toStrings());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noDuplicateNames() throws Exception {
+        new ParameterGrid().addIntRange("a",1,2).addDimension("a","x");
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.experiments;
+
+import au.com.bytecode.opencsv.CSVReader;
+import goods.UndifferentiatedGoodType;
+import model.scenario.MonopolistScenario;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class ParameterSweepTest {
+
+
+    private static ParameterSweep<MonopolistScenario> monopolistSweep()
+    {
+        ParameterGrid grid = new ParameterGrid().addDimension("intercept", 101, 81);
+        return new ParameterSweep<>(grid, ParameterSweep.seeds(3), 200,
+                (model, cell) -> {
+                    MonopolistScenario scenario = new MonopolistScenario(model);
+                    scenario.setDemandIntercept(cell.getInt("intercept"));
+                    return scenario;
+                },
+                (model, scenario, cell) -> new double[]{
+                        model.getMarket(UndifferentiatedGoodType.GENERIC).getLastPrice(),
+                        model.getMarket(UndifferentiatedGoodType.GENERIC).getYesterdayVolume()},
+                "price","quantity");
+    }
+
+    //the csv is in grid order and the same whether it's one thread or many
+    @Test
+    public void sameResultsNoMatterTheThreads() throws Exception {
+
+        ParameterSweep<MonopolistScenario> serial = monopolistSweep();
+        serial.setParallelism(1);
+        StringWriter serialOutput = new StringWriter();
+        serial.setOutput(serialOutput);
+        List<ParameterSweep.SweepResult> serialResults = serial.run();
+
+        ParameterSweep<MonopolistScenario> parallel = monopolistSweep();
+        parallel.setParallelism(4);
+        StringWriter parallelOutput = new StringWriter();
+        parallel.setOutput(parallelOutput);
+        List<ParameterSweep.SweepResult> parallelResults = parallel.run();
+
+        Assert.assertEquals(serialOutput.toString(),parallelOutput.toString());
+        Assert.assertEquals(6,parallelResults.size());
+        for(int i=0; i<6; i++)
+            Assert.assertArrayEquals(serialResults.get(i).getMetrics(),parallelResults.get(i).getMetrics(),0d);
+
+        List<String[]> lines = new CSVReader(new StringReader(parallelOutput.toString())).readAll();
+        Assert.assertEquals(7,lines.size());
+        Assert.assertArrayEquals(new String[]{"intercept","seed","price","quantity"},lines.get(0));
+        Assert.assertEquals("101",lines.get(1)[0]);
+        Assert.assertEquals("0",lines.get(1)[1]);
+        Assert.assertEquals("101",lines.get(3)[0]);
+        Assert.assertEquals("2",lines.get(3)[1]);
+        Assert.assertEquals("81",lines.get(4)[0]);
+        Assert.assertEquals("0",lines.get(4)[1]);
+
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void failuresStopTheSweep() throws Exception {
+
+        ParameterGrid grid = new ParameterGrid().addIntRange("x", 1, 10);
+        ParameterSweep<MonopolistScenario> sweep = new ParameterSweep<>(grid, ParameterSweep.seeds(1), 1,
+                (model, cell) -> {
+                    if(cell.getInt("x") == 5)
+                        throw new IllegalStateException("broken run");
+                    return new MonopolistScenario(model);
+                },
+                (model, scenario, cell) -> new double[0]);
+        sweep.run();
+
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.geography;
+
+import javafx.beans.property.DoubleProperty;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class LocationTest {
+
+    @Test
+    public void propertiesFollowTheLocationOnceCreated() throws Exception {
+
+        Location location = new Location(1,2);
+        location.setxLocation(3);
+        Assert.assertEquals(3, location.getxLocation(), .0001d);
+
+        DoubleProperty x = location.xLocationProperty();
+        DoubleProperty y = location.yLocationProperty();
+        Assert.assertEquals(3, x.get(), .0001d);
+        Assert.assertEquals(2, y.get(), .0001d);
+
+        //moving changes the property
+        location.setxLocation(5);
+        location.setyLocation(6);
+        Assert.assertEquals(5, x.get(), .0001d);
+        Assert.assertEquals(6, y.get(), .0001d);
+        //and changing the property moves
+        x.set(10);
+        Assert.assertEquals(10, location.getxLocation(), .0001d);
+
+    }
+}
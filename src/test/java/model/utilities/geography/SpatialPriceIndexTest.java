@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.geography;
+
+import javafx.beans.property.DoubleProperty;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class SpatialPriceIndexTest {
+
+
+    @Test
+    public void closerBeatsCheaper() throws Exception {
+
+        SpatialPriceIndex<Place> index = new SpatialPriceIndex<>();
+        Place near = new Place(1,0);
+        Place far = new Place(10,0);
+        index.put(near,10);
+        index.put(far,5);
+
+        SpatialPriceIndex.Result<Place> best = index.cheapest(0, 0, 1);
+        Assert.assertSame(near, best.getItem());
+        Assert.assertEquals(11, best.getCost(), .0001);
+
+        //far away it's the other way around
+        Assert.assertSame(far, index.cheapest(10, 0, 1).getItem());
+
+        //remove the near one, only the far is left
+        index.remove(near);
+        Assert.assertEquals(1,index.size());
+        Assert.assertSame(far, index.cheapest(0, 0, 1).getItem());
+        Assert.assertEquals(-1,index.getPrice(near));
+
+        index.remove(far);
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertNull(index.cheapest(0,0,1));
+    }
+
+    @Test
+    public void tiesGoToWhoeverHadAPriceFirst() throws Exception {
+
+        SpatialPriceIndex<Place> index = new SpatialPriceIndex<>();
+        Place first = new Place(1,0);
+        Place second = new Place(-1,0);
+        index.put(first,10);
+        index.put(second,10);
+        Assert.assertSame(first, index.cheapest(0, 0, 1).getItem());
+
+        //repricing doesn't change arrival, taking the price away does
+        index.put(first,10);
+        Assert.assertSame(first, index.cheapest(0, 0, 1).getItem());
+        index.remove(first);
+        index.put(first,10);
+        Assert.assertSame(second, index.cheapest(0, 0, 1).getItem());
+    }
+
+    @Test
+    public void movingIsNoticed() throws Exception {
+        SpatialPriceIndex<Place> index = new SpatialPriceIndex<>();
+        Place a = new Place(1,1);
+        Place b = new Place(5,5);
+        index.put(a,10);
+        index.put(b,10);
+        Assert.assertSame(a, index.cheapest(0, 0, 1).getItem());
+
+        a.setxLocation(100);
+        index.put(a,10);
+        Assert.assertSame(b, index.cheapest(0, 0, 1).getItem());
+    }
+
+    @Test
+    public void movingWithoutRepricingIsNoticedOnceTold() throws Exception {
+        SpatialPriceIndex<Place> index = new SpatialPriceIndex<>();
+        Place near = new Place(1,0);
+        Place far = new Place(10,0);
+        index.put(near,20);
+        index.put(far,15);
+        Assert.assertSame(near, index.cheapest(0, 0, 1).getItem());
+
+        //far comes next door and keeps its price
+        far.setxLocation(0);
+        index.moved(far);
+        Assert.assertSame(far, index.cheapest(0, 0, 1).getItem());
+        Assert.assertEquals(15, index.cheapest(0, 0, 1).getCost(), .0001);
+    }
+
+    /**
+     * prices change, come and go at random: the index must always agree with a scan done in the order prices were given
+     */
+    @Test
+    public void sameAsFullScan() throws Exception {
+
+        Random random = new Random(0);
+        List<Place> places = new ArrayList<>();
+        for(int i=0; i<200; i++)
+            places.add(new Place(random.nextInt(20) - 10, random.nextDouble() * 20 - 10));
+        SpatialPriceIndex<Place> index = new SpatialPriceIndex<>();
+        Map<Place,Integer> prices = new LinkedHashMap<>();
+
+        for(int step=0; step < 5000; step++)
+        {
+            Place place = places.get(random.nextInt(places.size()));
+            if(random.nextDouble() < .3) {
+                index.remove(place);
+                prices.remove(place);
+            }
+            else {
+                int price = random.nextInt(50);
+                index.put(place, price);
+                prices.put(place,price); //a linked map keeps the order in which prices were first given
+            }
+
+            if(prices.isEmpty())
+                continue;
+            double x = random.nextDouble() * 30 - 15;
+            double y = random.nextDouble() * 30 - 15;
+            double exponent = random.nextBoolean() ? 1 : random.nextDouble() * 2;
+
+            Place expected = null;
+            double expectedCost = Double.POSITIVE_INFINITY;
+            for(Map.Entry<Place,Integer> entry : prices.entrySet())
+            {
+                double cost = entry.getValue() + SpatialPriceIndex.distance(x, y, entry.getKey().getxLocation(),
+                        entry.getKey().getyLocation(), exponent);
+                if(cost < expectedCost)
+                {
+                    expected = entry.getKey();
+                    expectedCost = cost;
+                }
+            }
+            SpatialPriceIndex.Result<Place> best = index.cheapest(x, y, exponent);
+            Assert.assertSame(expected, best.getItem());
+            Assert.assertEquals(expectedCost, best.getCost(), 0);
+            Assert.assertEquals(prices.size(), index.size());
+        }
+    }
+
+    static class Place implements HasLocation
+    {
+        private final Location location;
+
+        Place(double x, double y) {
+            location = new Location(x,y);
+        }
+
+        @Override
+        public double getxLocation() {
+            return location.getxLocation();
+        }
+
+        @Override
+        public DoubleProperty xLocationProperty() {
+            return location.xLocationProperty();
+        }
+
+        @Override
+        public void setxLocation(double xLocation) {
+            location.setxLocation(xLocation);
+        }
+
+        @Override
+        public double getyLocation() {
+            return location.getyLocation();
+        }
+
+        @Override
+        public DoubleProperty yLocationProperty() {
+            return location.yLocationProperty();
+        }
+
+        @Override
+        public void setyLocation(double yLocation) {
+            location.setyLocation(yLocation);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.geography;
+
+import model.utilities.geography.SpatialPriceIndexTest.Place;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class TransportCostMatrixTest {
+
+
+    @Test
+    public void movingClearsTheCosts() throws Exception {
+
+        TransportCostMatrix<Place,Place> matrix = new TransportCostMatrix<>();
+        Place customer = new Place(0,0);
+        Place seller1 = new Place(3,4);
+        Place seller2 = new Place(0,1);
+
+        Assert.assertEquals(5, matrix.getCost(customer, seller1, 1), .0001);
+        Assert.assertEquals(1, matrix.getCost(customer, seller2, 1), .0001);
+        Assert.assertEquals(3, matrix.size());
+
+        //the seller moves
+        seller1.setxLocation(0);
+        Assert.assertEquals(4, matrix.getCost(customer, seller1, 1), .0001);
+        Assert.assertEquals(1, matrix.getCost(customer, seller2, 1), .0001);
+
+        //the customer moves
+        customer.setyLocation(4);
+        Assert.assertEquals(0, matrix.getCost(customer, seller1, 1), .0001);
+        Assert.assertEquals(3, matrix.getCost(customer, seller2, 1), .0001);
+
+    }
+
+    @Test
+    public void exponentMatters() throws Exception {
+
+        TransportCostMatrix<Place,Place> matrix = new TransportCostMatrix<>();
+        Place customer = new Place(0,0);
+        Place seller = new Place(3,4);
+
+        ToDoubleFunction<Place> costs = matrix.costsFrom(customer, 1);
+        Assert.assertEquals(5, costs.applyAsDouble(seller), .0001);
+        Assert.assertEquals(25, matrix.getCost(customer, seller, 2), .0001);
+        Assert.assertEquals(5, matrix.getCost(customer, seller, 1), .0001);
+
+    }
+
+    @Test
+    public void forgottenAgentsAreNotListenedTo() throws Exception {
+
+        TransportCostMatrix<Place,Place> matrix = new TransportCostMatrix<>();
+        Place customer = new Place(0,0);
+        Place seller = new Place(3,4);
+        matrix.getCost(customer, seller, 1);
+        matrix.forget(seller);
+        Assert.assertEquals(1, matrix.size());
+
+        //a new seller takes the old column, with its own cost
+        Place newSeller = new Place(0,2);
+        Assert.assertEquals(2, matrix.getCost(customer, newSeller, 1), .0001);
+        seller.setxLocation(100);
+        Assert.assertEquals(2, matrix.getCost(customer, newSeller, 1), .0001);
+
+        //and the old one is new again
+        Assert.assertEquals(Math.sqrt(100*100+16), matrix.getCost(customer, seller, 1), .0001);
+
+    }
+
+    @Test
+    public void sameAsComputingThem() throws Exception {
+
+        Random random = new Random(0);
+        Place[] customers = new Place[20];
+        Place[] sellers = new Place[20];
+        for(int i=0; i<customers.length; i++)
+        {
+            customers[i] = new Place(random.nextInt(20), random.nextInt(20));
+            sellers[i] = new Place(random.nextInt(20), random.nextInt(20));
+        }
+        TransportCostMatrix<Place,Place> matrix = new TransportCostMatrix<>();
+        for(int step=0; step<5000; step++)
+        {
+            Place customer = customers[random.nextInt(customers.length)];
+            Place seller = sellers[random.nextInt(sellers.length)];
+            double exponent = random.nextBoolean() ? 1 : 2;
+            Assert.assertEquals(SpatialPriceIndex.distance(customer.getxLocation(),customer.getyLocation(),
+                    seller.getxLocation(),seller.getyLocation(),exponent),
+                    matrix.getCost(customer,seller,exponent),0);
+
+            double event = random.nextDouble();
+            if(event < .05)
+                customers[random.nextInt(customers.length)].setxLocation(random.nextInt(20));
+            else if(event < .1)
+                sellers[random.nextInt(sellers.length)].setyLocation(random.nextInt(20));
+            else if(event < .12)
+                matrix.forget(sellers[random.nextInt(sellers.length)]);
+            else if(event < .14)
+                matrix.forget(customers[random.nextInt(customers.length)]);
+        }
+
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import ec.util.MersenneTwisterFast;
+import model.utilities.ActionOrder;
+import org.junit.Assert;
+import org.junit.Test;
+import sim.engine.Steppable;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class FutureActionCalendarTest {
+
+
+    //schedule actions at all sort of distances (within the first wheel, the second and the heap) and make sure they come out on the right day
+    @Test
+    public void releasedOnTheRightDay() throws Exception {
+
+        FutureActionCalendar calendar = new FutureActionCalendar();
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+
+        final int[] delays = new int[500];
+        final Steppable[] actions = new Steppable[delays.length];
+        for(int i=0; i<delays.length; i++)
+        {
+            delays[i] = 1 + random.nextInt(10000);
+            actions[i] = mock(Steppable.class);
+            calendar.schedule(ActionOrder.DAWN,actions[i],Priority.STANDARD,delays[i]);
+        }
+        Assert.assertEquals(delays.length,calendar.size());
+
+        final int[] releasedOn = new int[delays.length];
+        final int[] day = new int[1];
+        PhaseScheduler scheduler = mock(PhaseScheduler.class);
+        doAnswer(invocation -> {
+            Steppable released = (Steppable) invocation.getArguments()[1];
+            for(int i=0; i<actions.length; i++)
+                if(actions[i] == released)
+                    releasedOn[i] = day[0];
+            return null;
+        }).when(scheduler).scheduleSoon(any(ActionOrder.class),any(Steppable.class),any(Priority.class));
+
+        for(day[0]=1; day[0]<=10000; day[0]++)
+            calendar.advanceOneDay(scheduler);
+        Assert.assertArrayEquals(delays,releasedOn);
+        Assert.assertEquals(0,calendar.size());
+
+    }
+
+    //actions due exactly when a new block or a new period starts are poured in and released that same day
+    @Test
+    public void releasedOnTheFirstDayOfABlockOrPeriod() throws Exception {
+
+        FutureActionCalendar calendar = new FutureActionCalendar();
+        int[] dueDays = {64, 128, 4096, 8192};
+        Steppable[] fromTheStart = new Steppable[dueDays.length];
+        Steppable[] fromTheDayBefore = new Steppable[dueDays.length];
+        for(int i=0; i<dueDays.length; i++)
+        {
+            fromTheStart[i] = mock(Steppable.class);
+            fromTheDayBefore[i] = mock(Steppable.class);
+            calendar.schedule(ActionOrder.DAWN,fromTheStart[i],Priority.STANDARD,dueDays[i]);
+        }
+
+        int next = 0;
+        for(int day=1; day<=8192; day++)
+        {
+            PhaseScheduler scheduler = mock(PhaseScheduler.class);
+            calendar.advanceOneDay(scheduler);
+            if(next < dueDays.length && day == dueDays[next])
+            {
+                verify(scheduler).scheduleSoon(ActionOrder.DAWN,fromTheStart[next],Priority.STANDARD);
+                verify(scheduler).scheduleSoon(ActionOrder.DAWN,fromTheDayBefore[next],Priority.STANDARD);
+                next++;
+            }
+            verifyNoMoreInteractions(scheduler);
+            //the day before, schedule another one for tomorrow
+            if(next < dueDays.length && day == dueDays[next] - 1)
+                calendar.schedule(ActionOrder.DAWN,fromTheDayBefore[next],Priority.STANDARD,1);
+        }
+        Assert.assertEquals(dueDays.length,next);
+        Assert.assertEquals(0,calendar.size());
+
+    }
+
+    //actions due the same day should come out in the order they were put in, even if one was put in much earlier
+    @Test
+    public void keepsSchedulingOrder() throws Exception {
+
+        FutureActionCalendar calendar = new FutureActionCalendar();
+        Steppable first = mock(Steppable.class);
+        Steppable second = mock(Steppable.class);
+        Steppable third = mock(Steppable.class);
+        calendar.schedule(ActionOrder.TRADE,first,Priority.STANDARD,5000);
+        for(int i=0; i<4000; i++)
+            calendar.advanceOneDay(mock(PhaseScheduler.class));
+        calendar.schedule(ActionOrder.TRADE,second,Priority.STANDARD,1000);
+        for(int i=0; i<999; i++)
+            calendar.advanceOneDay(mock(PhaseScheduler.class));
+        calendar.schedule(ActionOrder.TRADE,third,Priority.STANDARD,1);
+
+        PhaseScheduler scheduler = mock(PhaseScheduler.class);
+        calendar.advanceOneDay(scheduler);
+        org.mockito.InOrder inOrder = inOrder(scheduler);
+        inOrder.verify(scheduler).scheduleSoon(ActionOrder.TRADE,first,Priority.STANDARD);
+        inOrder.verify(scheduler).scheduleSoon(ActionOrder.TRADE,second,Priority.STANDARD);
+        inOrder.verify(scheduler).scheduleSoon(ActionOrder.TRADE,third,Priority.STANDARD);
+
+
+    }
+
+    @Test
+    public void geometricDelayHasTheRightMean() throws Exception {
+
+        MersenneTwisterFast random = new MersenneTwisterFast(0);
+        double sum = 0;
+        for(int i=0; i<100000; i++)
+        {
+            int delay = TrueRandomScheduler.drawGeometricDelay(random,.2f);
+            Assert.assertTrue(delay >= 1);
+            sum += delay;
+        }
+        Assert.assertEquals(5d,sum/100000d,.05d);
+        Assert.assertEquals(1,TrueRandomScheduler.drawGeometricDelay(random,1f));
+
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Assert;
+import org.junit.Test;
+import sim.engine.Steppable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class RandomBucketTest {
+
+
+    @Test
+    public void pollKeepsOrderEvenWhenGrowing() throws Exception {
+
+        RandomBucket bucket = new RandomBucket(2);
+        Steppable[] steppables = new Steppable[100];
+        for(int i=0; i<100; i++)
+        {
+            steppables[i] = mock(Steppable.class);
+            bucket.add(steppables[i]);
+        }
+        Assert.assertEquals(100,bucket.size());
+
+        //take half out, add them back, they should come after the others
+        for(int i=0; i<50; i++)
+            Assert.assertSame(steppables[i],bucket.pollFirst());
+        for(int i=0; i<50; i++)
+            bucket.add(steppables[i]);
+        for(int i=50; i<100; i++)
+            Assert.assertSame(steppables[i],bucket.pollFirst());
+        for(int i=0; i<50; i++)
+            Assert.assertSame(steppables[i],bucket.pollFirst());
+        Assert.assertTrue(bucket.isEmpty());
+
+
+    }
+
+    @Test
+    public void drawsEverythingOnce() throws Exception {
+
+        RandomBucket bucket = new RandomBucket(1);
+        Set<Steppable> added = new HashSet<>();
+        for(int i=0; i<100; i++)
+        {
+            Steppable s = mock(Steppable.class);
+            added.add(s);
+            bucket.add(s);
+        }
+
+        MersenneTwisterFast randomizer = new MersenneTwisterFast(0);
+        Set<Steppable> drawn = new HashSet<>();
+        while (!bucket.isEmpty())
+            Assert.assertTrue(drawn.add(bucket.drawRandom(randomizer)));
+        Assert.assertEquals(added,drawn);
+
+
+
+    }
+
+    //with 3 elements, each should be drawn first about a third of the times
+    @Test
+    public void drawIsUniform() throws Exception {
+
+        Steppable[] steppables = new Steppable[]{mock(Steppable.class),mock(Steppable.class),mock(Steppable.class)};
+        int[] firstDrawn = new int[3];
+        MersenneTwisterFast randomizer = new MersenneTwisterFast(0);
+        RandomBucket bucket = new RandomBucket();
+        for(int i=0; i<3000; i++)
+        {
+            //pollFirst moves the head: the draw must still cover the right elements
+            bucket.add(mock(Steppable.class));
+            for(Steppable s : steppables)
+                bucket.add(s);
+            bucket.pollFirst();
+
+            Steppable drawn = bucket.drawRandom(randomizer);
+            for(int j=0; j<3; j++)
+                if(drawn == steppables[j])
+                    firstDrawn[j]++;
+            bucket.clear();
+        }
+
+        for(int j=0; j<3; j++)
+        {
+            Assert.assertTrue(firstDrawn[j] > 900);
+            Assert.assertTrue(firstDrawn[j] < 1100);
+        }
+
+
+    }
+}
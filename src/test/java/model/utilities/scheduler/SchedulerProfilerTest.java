@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.scheduler;
+
+import au.com.bytecode.opencsv.CSVReader;
+import ec.util.MersenneTwisterFast;
+import model.MacroII;
+import model.utilities.ActionOrder;
+import org.junit.Assert;
+import org.junit.Test;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.List;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class SchedulerProfilerTest {
+
+
+    private static class Sleeper implements Steppable{
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void step(SimState state) {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < 1000000);
+        }
+    }
+
+    private static class Allocator implements Steppable{
+
+        private static final long serialVersionUID = 1L;
+
+        private int[] garbage;
+
+        @Override
+        public void step(SimState state) {
+            garbage = new int[100000];
+        }
+    }
+
+    @Test
+    public void countsByClass() throws Exception {
+
+        TrueRandomScheduler scheduler = new TrueRandomScheduler(1,new MersenneTwisterFast(0));
+        SchedulerProfiler profiler = new SchedulerProfiler();
+        scheduler.setProfiler(profiler);
+
+        scheduler.scheduleSoon(ActionOrder.TRADE,new Sleeper());
+        scheduler.scheduleSoon(ActionOrder.TRADE,new Sleeper());
+        //every day actions are counted under their own class
+        scheduler.scheduleEveryDay(ActionOrder.THINK,new Allocator());
+
+        MacroII macroII = new MacroII(1);
+        scheduler.step(macroII);
+        scheduler.step(macroII);
+
+        SchedulerProfiler.SteppableProfile sleepers = profiler.getProfile(ActionOrder.TRADE, Sleeper.class);
+        Assert.assertEquals(2,sleepers.getInvocations());
+        Assert.assertTrue(sleepers.getNanoseconds() >= 2000000);
+        Assert.assertTrue(profiler.getNanosInPhase(ActionOrder.TRADE) >= sleepers.getNanoseconds());
+        Assert.assertNull(profiler.getProfile(ActionOrder.TRADE, Allocator.class));
+
+        SchedulerProfiler.SteppableProfile allocators = profiler.getProfile(ActionOrder.THINK, Allocator.class);
+        Assert.assertEquals(2,allocators.getInvocations());
+        Assert.assertNull(profiler.getProfile(ActionOrder.THINK, RecurringAction.class));
+        if(profiler.isCountingAllocations())
+            Assert.assertTrue(allocators.getAllocatedBytes() >= 2 * 400000);
+
+    }
+
+    @Test
+    public void writesCSVAtFinish() throws Exception {
+
+        File file = File.createTempFile("profile",".csv");
+        file.deleteOnExit();
+
+        MacroII macroII = new MacroII(1);
+        TrueRandomScheduler scheduler = new TrueRandomScheduler(1,macroII.getRandom());
+        macroII.setPhaseScheduler(scheduler);
+        macroII.profileScheduler(file);
+        scheduler.scheduleSoon(ActionOrder.TRADE,new Sleeper());
+        macroII.start();
+        macroII.schedule.step(macroII);
+        macroII.finish();
+
+        CSVReader reader = new CSVReader(new FileReader(file));
+        List<String[]> lines = reader.readAll();
+        reader.close();
+        Assert.assertEquals("phase",lines.get(0)[0]);
+        boolean found = false;
+        for(String[] line : lines)
+            if(line[0].equals(ActionOrder.TRADE.name()) && line[1].equals(Sleeper.class.getName()))
+            {
+                found = true;
+                Assert.assertEquals("1",line[2]);
+            }
+        Assert.assertTrue(found);
+
+    }
+
+    //a step within a step: each is timed from its own start
+    @Test
+    public void nestedStepsKeepTheirOwnStart() throws Exception {
+
+        SchedulerProfiler profiler = new SchedulerProfiler();
+        long outerStart = System.nanoTime();
+        new Sleeper().step(null);
+        long innerStart = System.nanoTime();
+        profiler.endStep(ActionOrder.TRADE, new Allocator(), innerStart, profiler.allocatedBytes());
+        profiler.endStep(ActionOrder.TRADE, new Sleeper(), outerStart, profiler.allocatedBytes());
+
+        long outer = profiler.getProfile(ActionOrder.TRADE, Sleeper.class).getNanoseconds();
+        long inner = profiler.getProfile(ActionOrder.TRADE, Allocator.class).getNanoseconds();
+        Assert.assertTrue(outer >= 1000000);
+        Assert.assertTrue(inner < outer);
+
+    }
+}
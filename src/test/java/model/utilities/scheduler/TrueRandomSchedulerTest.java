@@ -256,4 +256,49 @@ public class TrueRandomSchedulerTest
     }
 
 
+
+    //an action registered every day is stepped every day, even if registered during its own phase, until cancelled
+    @Test
+    public void everyDayTest()
+    {
+
+        final LinkedList<Integer> listToCheckForOrder = new LinkedList<>();
+        final TrueRandomScheduler scheduler = new TrueRandomScheduler(1,new MersenneTwisterFast(System.currentTimeMillis()));
+
+        final RecurringAction daily = scheduler.scheduleEveryDay(ActionOrder.TRADE, new Steppable() {
+            @Override
+            public void step(SimState state) {
+                listToCheckForOrder.add(1);
+            }
+        });
+        //registered during TRADE for TRADE: happens today too
+        scheduler.scheduleSoon(ActionOrder.TRADE,new Steppable() {
+            @Override
+            public void step(SimState state) {
+                scheduler.scheduleEveryDay(ActionOrder.TRADE, new Steppable() {
+                    @Override
+                    public void step(SimState state) {
+                        listToCheckForOrder.add(2);
+                    }
+                },Priority.AFTER_STANDARD);
+            }
+        },Priority.BEFORE_STANDARD);
+
+        MacroII macroII = new MacroII(1);
+        scheduler.step(macroII);
+        Assert.assertEquals(2,listToCheckForOrder.size());
+        Assert.assertEquals(1,(int)listToCheckForOrder.get(0));
+        Assert.assertEquals(2,(int)listToCheckForOrder.get(1));
+        scheduler.step(macroII);
+        Assert.assertEquals(4,listToCheckForOrder.size());
+
+        daily.cancel();
+        scheduler.step(macroII);
+        scheduler.step(macroII);
+        Assert.assertEquals(6, listToCheckForOrder.size());
+        Assert.assertEquals(2, (int) listToCheckForOrder.getLast());
+
+
+    }
+
 }
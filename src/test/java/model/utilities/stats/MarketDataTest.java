@@ -12,6 +12,7 @@ import goods.UndifferentiatedGoodType;
 import javafx.collections.FXCollections;
 import model.MacroII;
 import model.utilities.ActionOrder;
+import model.utilities.scheduler.RecurringAction;
 import model.utilities.stats.collectors.MarketData;
 import model.utilities.stats.collectors.enums.MarketDataType;
 import org.junit.Assert;
@@ -44,18 +45,20 @@ public class MarketDataTest
         when(market.getBuyers()).thenReturn(FXCollections.emptyObservableSet());
         when(market.getSellers()).thenReturn(FXCollections.emptyObservableSet());
         MacroII model = mock(MacroII.class);
+        RecurringAction handle = mock(RecurringAction.class);
         MarketData data = new MarketData();
+        when(model.scheduleEveryDay(ActionOrder.CLEANUP_DATA_GATHERING, data)).thenReturn(handle);
 
         data.start(model,market);
-        verify(model).scheduleSoon(ActionOrder.CLEANUP_DATA_GATHERING, data);
+        verify(model).scheduleEveryDay(ActionOrder.CLEANUP_DATA_GATHERING, data);
         when(model.getCurrentPhase()).thenReturn(ActionOrder.CLEANUP_DATA_GATHERING);
         data.step(model);
         data.step(model);
-        verify(model, times(2)).scheduleTomorrow(ActionOrder.CLEANUP_DATA_GATHERING, data);
-        //turn off doesn't reschedule
+        //the scheduler steps it every day, no need to reschedule
+        verify(model, never()).scheduleTomorrow(ActionOrder.CLEANUP_DATA_GATHERING, data);
+        //turn off cancels the daily step
         data.turnOff();
-        data.step(model);
-        verify(model, times(2)).scheduleTomorrow(ActionOrder.CLEANUP_DATA_GATHERING, data); //only the two old times are counted!
+        verify(handle).cancel();
     }
 
 
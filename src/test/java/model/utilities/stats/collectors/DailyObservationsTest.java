@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 by Ernesto Carrella
+ * Licensed under MIT license. Basically do what you want with it but cite me and don't sue me. Which is just politeness, really.
+ * See the file "LICENSE" for more information
+ */
+
+package model.utilities.stats.collectors;
+
+import javafx.beans.value.ObservableDoubleValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * <h4>Description</h4>
+ * <p/>
+ * <p/>
+ * <p/>
+ * <h4>Notes</h4>
+ * Created with IntelliJ
+ * <p/>
+ * <p/>
+ * <h4>References</h4>
+ *
+ * @author carrknight
+ * @version 2014-10-18
+ * @see
+ */
+public class DailyObservationsTest {
+
+
+    @Test
+    public void observableCreatedLateStartsFromLastObservation() throws Exception {
+
+        DailyObservations observations = new DailyObservations();
+        observations.add(1d);
+        observations.add(2d);
+
+        ObservableDoubleValue last = observations.getObservableLastObservation();
+        Assert.assertEquals(2d, last.get(), .0001d);
+
+        //and from now on it follows
+        observations.add(3d);
+        Assert.assertEquals(3d, last.get(), .0001d);
+        observations.addAll(Arrays.asList(4d, 5d));
+        Assert.assertEquals(5d, last.get(), .0001d);
+        Assert.assertSame(last, observations.getObservableLastObservation());
+
+    }
+
+    @Test
+    public void observableOfEmptyObservationsIsZero() throws Exception {
+        DailyObservations observations = new DailyObservations();
+        Assert.assertEquals(0d, observations.getObservableLastObservation().get(), .0001d);
+
+    }
+}